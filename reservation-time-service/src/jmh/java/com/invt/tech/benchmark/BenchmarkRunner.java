@@ -0,0 +1,43 @@
+package com.invt.tech.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the JMH benchmarks of the query and CSV export hot paths.
+ *
+ * <p>Run all benchmarks with {@code mvn -Pbenchmark test-compile exec:exec}. Standard JMH arguments
+ * can be passed through {@code -Djmh.args}, for example {@code -Djmh.args="ExportCSV -p rows=1000"}.</p>
+ *
+ * <p>The benchmarks report throughput and sampled latency percentiles (including p99). The GC profiler is always
+ * enabled to report the allocation rate, and results are also written to {@code target/jmh-result.json}.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks selected by the given JMH command line arguments.
+     *
+     * @param args JMH command line arguments
+     * @throws CommandLineOptionException if the arguments are invalid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.invt.tech.benchmark;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Generates reservation test data for the benchmarks.
+ * Values follow the column precision of the schema: power values with 3 decimals, prices with 6 decimals.
+ */
+public final class ReservationFixtures {
+
+    /**
+     * Asset ID used for generated rows.
+     */
+    public static final UUID ASSET_ID = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+
+    /**
+     * Market ID used for generated rows.
+     */
+    public static final UUID MARKET_ID = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    /**
+     * Timestamp of the first generated slot.
+     */
+    public static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+    private static final long SLOT_SECONDS = 15 * 60;
+
+    private ReservationFixtures() {
+    }
+
+    /**
+     * Creates a fully populated reservation for the given slot.
+     *
+     * @param slot index of the 15-minute slot after {@link #START}
+     * @return the reservation DTO
+     */
+    public static FlexibilityReservationDTO detail(int slot) {
+        return new FlexibilityReservationDTO((long) slot, ASSET_ID, MARKET_ID,
+                UUID.nameUUIDFromBytes(("positive-" + slot).getBytes()),
+                UUID.nameUUIDFromBytes(("negative-" + slot).getBytes()),
+                BigDecimal.valueOf(slot % 1000 * 1000L + 250, 3),
+                BigDecimal.valueOf(1_500_000L + slot % 100, 6),
+                BigDecimal.valueOf(1_250_000L + slot % 100, 6),
+                BigDecimal.valueOf(slot % 500 * 1000L + 125, 3),
+                BigDecimal.valueOf(2_000_000L + slot % 100, 6),
+                BigDecimal.valueOf(2_250_000L + slot % 100, 6),
+                Timestamp.from(START.plusSeconds(slot * SLOT_SECONDS)),
+                Timestamp.from(START.plusSeconds(slot * SLOT_SECONDS - 3600)));
+    }
+
+    /**
+     * Creates detail DTOs for consecutive slots.
+     *
+     * @param count number of reservations
+     * @return the reservation DTOs
+     */
+    public static List<FlexibilityReservationDTO> details(int count) {
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            reservations.add(detail(slot));
+        }
+        return reservations;
+    }
+
+    /**
+     * Creates aggregated DTOs, as produced by the total export, for consecutive slots.
+     *
+     * @param count number of reservations
+     * @return the aggregated reservation DTOs
+     */
+    public static List<FlexibilityReservationDTO> totals(int count) {
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            FlexibilityReservationDTO detail = detail(slot);
+            reservations.add(new FlexibilityReservationDTO(detail.getAssetId(), detail.getMarketId(), detail.getTimestamp(),
+                    detail.getPositiveValue(), detail.getNegativeValue()));
+        }
+        return reservations;
+    }
+}
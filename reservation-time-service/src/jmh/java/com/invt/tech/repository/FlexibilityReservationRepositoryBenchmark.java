@@ -0,0 +1,128 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.ReservationTimeServiceApplication;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.service.ReservationRollupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reservation repository queries against an in-memory H2 database filled with generated rows.
+ *
+ * <p>Rows are spread over 10 assets of one market in 15-minute slots. Every query reads a 30-day window
+ * from the middle of one asset's history, so the result size stays the same while the table grows.
+ * Rollups are rebuilt after the rows are generated, so the rollup reads can be compared with the raw reads.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FlexibilityReservationRepositoryBenchmark {
+
+    private static final UUID ASSET_ID = UUID.fromString("00000000-0000-0000-0000-000000000000");
+    private static final UUID MARKET_ID = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+    private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+    private static final int ASSETS = 10;
+    private static final int INSERT_CHUNK = 1_000_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private FlexibilityReservationRepository repository;
+    private FlexibilityReservationRollupRepository rollupRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private Timestamp from;
+    private Timestamp to;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ReservationTimeServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "spring.sql.init.data-locations=optional:classpath:benchmark-data.sql",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.invt.tech=WARN")
+                .run();
+        repository = context.getBean(FlexibilityReservationRepository.class);
+        rollupRepository = context.getBean(FlexibilityReservationRollupRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        generateRows(context.getBean(JdbcTemplate.class));
+        context.getBean(ReservationRollupService.class).rebuild();
+
+        Instant middle = START.plus(15L * rows / ASSETS / 2, ChronoUnit.MINUTES);
+        from = Timestamp.from(middle);
+        to = Timestamp.from(middle.plus(30, ChronoUnit.DAYS));
+    }
+
+    private void generateRows(JdbcTemplate jdbcTemplate) {
+        for (long first = 1; first <= rows; first += INSERT_CHUNK) {
+            long last = Math.min(rows, first + INSERT_CHUNK - 1);
+            jdbcTemplate.update("INSERT INTO flexibility_reservations (" +
+                    "asset_id, market_id, positive_bid_id, negative_bid_id, " +
+                    "positive_value, positive_capacity_price, positive_energy_price, " +
+                    "negative_value, negative_capacity_price, negative_energy_price, timestamp, updated_at) " +
+                    "SELECT CAST(CONCAT('00000000-0000-0000-0000-', LPAD(CAST(MOD(X, " + ASSETS + ") AS VARCHAR), 12, '0')) AS UUID), " +
+                    "?, RANDOM_UUID(), RANDOM_UUID(), " +
+                    "MOD(X, 1000) * 10.5, 1.5, 1.25, MOD(X, 500) * 20.25, 2.0, 2.25, " +
+                    "DATEADD(MINUTE, 15 * (X / " + ASSETS + "), TIMESTAMP WITH TIME ZONE '2020-01-01 00:00:00+00'), " +
+                    "CURRENT_TIMESTAMP " +
+                    "FROM SYSTEM_RANGE(?, ?)", MARKET_ID, first, last);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void findFilteredReservations(Blackhole blackhole) {
+        blackhole.consume(repository.findFilteredReservations(ASSET_ID, MARKET_ID, from, to));
+    }
+
+    @Benchmark
+    public void streamFilteredReservations(Blackhole blackhole) {
+        readOnlyTransaction.executeWithoutResult(status ->
+                repository.streamFilteredReservations(ASSET_ID, MARKET_ID, from, to).forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public void findIntervalRollupSums(Blackhole blackhole) {
+        blackhole.consume(rollupRepository.findRollupSums(ASSET_ID, MARKET_ID, RollupResolution.INTERVAL, from, to));
+    }
+
+    @Benchmark
+    public void findDayRollupSums(Blackhole blackhole) {
+        blackhole.consume(rollupRepository.findRollupSums(ASSET_ID, MARKET_ID, RollupResolution.DAY, from, to));
+    }
+}
@@ -0,0 +1,50 @@
+package com.invt.tech.util;
+
+import com.invt.tech.benchmark.ReservationFixtures;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CSV serialization of pre-built reservations for the total and the detail layout.
+ * One operation writes all rows to a discarding stream, so the result reflects serialization only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportCSVBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean total;
+
+    private List<FlexibilityReservationDTO> reservations;
+
+    @Setup
+    public void setUp() {
+        reservations = total ? ReservationFixtures.totals(rows) : ReservationFixtures.details(rows);
+    }
+
+    @Benchmark
+    public void writeReservationsToCSV() {
+        ExportCSV.writeReservationsToCSV(reservations.iterator(), total, OutputStream.nullOutputStream());
+    }
+}
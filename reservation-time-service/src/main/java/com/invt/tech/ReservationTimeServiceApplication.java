@@ -2,6 +2,7 @@ package com.invt.tech;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main entry point for the Reservation Time Service Spring Boot application.
@@ -10,6 +11,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * {@link SpringApplication#run(Class, String...)}.
  */
 @SpringBootApplication
+@EnableScheduling
 public class ReservationTimeServiceApplication {
 
 	/**
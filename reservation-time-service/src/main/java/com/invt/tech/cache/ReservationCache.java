@@ -0,0 +1,178 @@
+package com.invt.tech.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.util.ReservationBlock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of reservation query results.
+ *
+ * <p>Entries are held as {@link ReservationBlock}s of primitive columns, weighed by their number of rows and evicted
+ * by size and age. When reservations of an asset and market are written, all entries of that pair are dropped once
+ * the write is committed. A cached result creates a new DTO on each read, so callers may modify the DTOs they get.
+ * Results a block cannot hold exactly are returned but not cached.</p>
+ *
+ * <p>Hits, misses and evictions are published as {@code cache.*} metrics with the tag {@code cache=reservations}.</p>
+ */
+@Component
+public class ReservationCache {
+
+    /**
+     * Name of the cache in the published metrics.
+     */
+    public static final String CACHE_NAME = "reservations";
+
+    private final Cache<ReservationQueryKey, ReservationBlock> cache;
+    private final int maxEntryRows;
+
+    // Incremented on every invalidation; results loaded across an invalidation are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Constructs a new {@code ReservationCache} and registers its metrics.
+     *
+     * @param maxRows           the maximum number of rows held by all entries together
+     * @param maxEntryRows      the maximum number of rows of a single cached result; larger results are not cached
+     * @param expireAfterWrite  the time after which an entry is evicted
+     * @param meterRegistry     registry the cache metrics are published to
+     */
+    public ReservationCache(
+            @Value("${reservation.cache.max-rows:200000}") long maxRows,
+            @Value("${reservation.cache.max-entry-rows:50000}") int maxEntryRows,
+            @Value("${reservation.cache.expire-after-write:PT1M}") Duration expireAfterWrite,
+            MeterRegistry meterRegistry
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((ReservationQueryKey key, ReservationBlock value) -> value.size() + 1)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.maxEntryRows = maxEntryRows;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached result of a query, loading and caching it on a miss.
+     * Empty results, results larger than the entry limit and results a {@link ReservationBlock} cannot hold
+     * are returned but not cached.
+     *
+     * @param key    the query key
+     * @param loader loads the result from the database
+     * @return the cached or loaded result
+     */
+    public List<FlexibilityReservationDTO> get(ReservationQueryKey key, Supplier<List<FlexibilityReservationDTO>> loader) {
+        ReservationBlock cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadGeneration = generation.get();
+        List<FlexibilityReservationDTO> result = loader.get();
+        if (!result.isEmpty() && result.size() <= maxEntryRows) {
+            try {
+                ReservationBlock block = ReservationBlock.of(result);
+                putIfCurrent(key, block, loadGeneration);
+                return block;
+            } catch (IllegalArgumentException e) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached result of a query without loading it.
+     *
+     * @param key the query key
+     * @return the cached result, or null on a miss
+     */
+    public List<FlexibilityReservationDTO> getIfPresent(ReservationQueryKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Wraps a streamed query result so that the rows are cached once the stream has been fully consumed.
+     * Rows are collected only up to the entry limit; streams that are longer, not fully consumed or not
+     * representable in a {@link ReservationBlock} are not cached.
+     *
+     * @param key    the query key
+     * @param source the streamed rows
+     * @return an iterator over the same rows
+     */
+    public Iterator<FlexibilityReservationDTO> caching(ReservationQueryKey key, Iterator<FlexibilityReservationDTO> source) {
+        long loadGeneration = generation.get();
+        return new Iterator<>() {
+
+            private ReservationBlock.Builder rows = ReservationBlock.builder(0);
+
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = source.hasNext();
+                if (!hasNext && rows != null) {
+                    if (rows.size() > 0) {
+                        putIfCurrent(key, rows.build(), loadGeneration);
+                    }
+                    rows = null;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public FlexibilityReservationDTO next() {
+                FlexibilityReservationDTO next = source.next();
+                if (rows != null) {
+                    try {
+                        rows.add(next);
+                    } catch (IllegalArgumentException e) {
+                        rows = null;
+                        return next;
+                    }
+                    if (rows.size() > maxEntryRows) {
+                        rows = null;
+                    }
+                }
+                return next;
+            }
+        };
+    }
+
+    /**
+     * Drops all cached results of an asset and market.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     */
+    public void invalidate(UUID assetId, UUID marketId) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.isFor(assetId, marketId));
+    }
+
+    /**
+     * Drops the cached results of the written asset and market after the write has been committed.
+     *
+     * @param event the written reservations
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationsChanged(ReservationsChangedEvent event) {
+        invalidate(event.assetId(), event.marketId());
+    }
+
+    private void putIfCurrent(ReservationQueryKey key, ReservationBlock value, long loadGeneration) {
+        cache.asMap().compute(key, (k, current) -> generation.get() == loadGeneration ? value : current);
+    }
+}
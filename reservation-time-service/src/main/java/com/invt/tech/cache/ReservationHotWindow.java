@@ -0,0 +1,350 @@
+package com.invt.tech.cache;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.util.ReservationBlock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory store of the reservations around the current time, from
+ * {@code now - reservation.hot-window.past} to {@code now + reservation.hot-window.future}.
+ *
+ * <p>The reservations of each asset and market are held in a {@link ReservationBlock} sorted by timestamp and ID.
+ * Filtered and aggregated queries inside the window are answered by binary search on the timestamps, without a
+ * database round trip; queries reaching outside the window are left to the repository.</p>
+ *
+ * <p>The window is loaded by the first refresh and refreshed every {@code reservation.hot-window.refresh-interval}:
+ * it moves forward with the clock, and rows changed since the last refresh are merged in by the {@code changed_at}
+ * the database stamps on every insert and replacement, like the change feed. {@code changed_at} is the start time of
+ * the writing transaction, so each refresh only reads changes older than {@code reservation.changes.settle-time} and
+ * continues where the previous one stopped. Pairs written by this instance are read from the database from the
+ * commit of the write until the next refresh reloads them; writes by other instances become visible with the first
+ * refresh after they have settled.</p>
+ */
+@Slf4j
+@Component
+public class ReservationHotWindow {
+
+    private static final long MICROS_PER_HOUR = ChronoUnit.HOURS.getDuration().toNanos() / 1000;
+
+    private static final long MICROS_PER_DAY = ChronoUnit.DAYS.getDuration().toNanos() / 1000;
+
+    private static final Comparator<FlexibilityReservationDTO> ORDER =
+            Comparator.comparing(FlexibilityReservationDTO::getTimestamp).thenComparingLong(FlexibilityReservationDTO::getId);
+
+    private final FlexibilityReservationRepository flexibilityReservationRepository;
+    private final boolean enabled;
+    private final Duration past;
+    private final Duration future;
+    private final Duration settleTime;
+
+    private final Map<Pair, ReservationBlock> pairs = new ConcurrentHashMap<>();
+
+    // Pairs written since they were loaded, with the number of writes; they are served from the database until reloaded
+    private final Map<Pair, Long> stale = new ConcurrentHashMap<>();
+
+    private volatile Bounds bounds = Bounds.NONE;
+
+    // Change time up to which changes have been read, in epoch microseconds; only used by the refresh
+    private long changedWatermark = ReservationBlock.NULL;
+
+    /**
+     * Constructs a new {@code ReservationHotWindow}. The window is empty until its first refresh.
+     *
+     * @param flexibilityReservationRepository repository the window is loaded from
+     * @param enabled if false, the window holds nothing and every query is left to the repository
+     * @param past    length of the window before the current time
+     * @param future  length of the window after the current time
+     * @param settleTime age of a change before it is read by the refresh
+     */
+    public ReservationHotWindow(
+            FlexibilityReservationRepository flexibilityReservationRepository,
+            @Value("${reservation.hot-window.enabled:false}") boolean enabled,
+            @Value("${reservation.hot-window.past:P2D}") Duration past,
+            @Value("${reservation.hot-window.future:P2D}") Duration future,
+            @Value("${reservation.changes.settle-time:PT1M}") Duration settleTime
+    ) {
+        this.flexibilityReservationRepository = flexibilityReservationRepository;
+        this.enabled = enabled;
+        this.past = past;
+        this.future = future;
+        this.settleTime = settleTime;
+    }
+
+    /**
+     * Returns filtered or aggregated reservations from memory if the window covers the query.
+     *
+     * <p>Returns the same rows as the database: detail rows with a timestamp between {@code from} and {@code to},
+     * ordered by timestamp and ID, or with {@code total} the sums per bucket of all buckets starting between the
+     * bucket of {@code from} and {@code to}, like the rollups.</p>
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param from       the start of the interval (inclusive)
+     * @param to         the end of the interval (inclusive)
+     * @param total      if true, returns the sums per bucket
+     * @param resolution the bucket size of the sums
+     * @return the reservations, empty if there are none, or null if the query has to be read from the database
+     */
+    public List<FlexibilityReservationDTO> find(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                                boolean total, RollupResolution resolution) {
+        if (!enabled) {
+            return null;
+        }
+        Pair pair = new Pair(assetId, marketId);
+        long bucket = total ? bucketMicros(resolution) : 0;
+        long lower = bucketStart(ceilMicros(from), bucket);
+        long upper = bucket == 0 ? floorMicros(to) + 1 : bucketStart(floorMicros(to), bucket) + bucket;
+
+        Bounds loaded = bounds;
+        if (lower < loaded.from() || upper > loaded.to() || stale.containsKey(pair)) {
+            return null;
+        }
+        ReservationBlock block = pairs.get(pair);
+        if (block == null || lower >= upper) {
+            return List.of();
+        }
+
+        int first = firstRowAtOrAfter(block, lower);
+        int end = firstRowAtOrAfter(block, upper);
+        return total ? sums(block, first, end, bucket, assetId, marketId) : block.subList(first, end);
+    }
+
+    /**
+     * Marks the written asset and market as stale once the write has been committed,
+     * so it is read from the database until the next refresh reloads it.
+     *
+     * @param event the written reservations
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationsChanged(ReservationsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Pair pair = new Pair(event.assetId(), event.marketId());
+        // Marked before the rows are dropped, so a refresh running meanwhile does not store them again
+        stale.merge(pair, 1L, Long::sum);
+        pairs.remove(pair);
+    }
+
+    /**
+     * Moves the window to the current time and merges the rows changed since the last refresh.
+     * Loads the whole window on the first run or after a pause longer than the window.
+     * Runs periodically with the delay configured in {@code reservation.hot-window.refresh-interval}.
+     */
+    @Scheduled(fixedDelayString = "${reservation.hot-window.refresh-interval:PT10S}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        long from = micros(now.minus(past));
+        long to = micros(now.plus(future));
+        long changedUntil = micros(now.minus(settleTime));
+        Map<Pair, Long> staleBefore = Map.copyOf(stale);
+
+        Bounds loaded = bounds;
+        if (loaded.to() <= from) {
+            load(from, to, changedUntil);
+        } else {
+            // Narrowed first, so no query is answered from rows that are about to be dropped
+            bounds = new Bounds(from, loaded.to());
+            trim(from);
+            if (to > loaded.to()) {
+                merge(flexibilityReservationRepository.streamReservationsBetween(
+                        ReservationBlock.timestamp(loaded.to()), ReservationBlock.timestamp(to)));
+            }
+            merge(flexibilityReservationRepository.streamReservationsChangedBetween(ReservationBlock.timestamp(changedWatermark),
+                    ReservationBlock.timestamp(changedUntil), ReservationBlock.timestamp(from), ReservationBlock.timestamp(to)));
+            changedWatermark = Math.max(changedWatermark, changedUntil);
+            staleBefore.forEach((pair, writes) -> reload(pair, writes, from, to));
+            bounds = new Bounds(from, to);
+        }
+    }
+
+    // Changes after changedUntil may be missing from the loaded rows, so the next refresh reads them
+    private void load(long from, long to, long changedUntil) {
+        bounds = Bounds.NONE;
+        pairs.clear();
+        changedWatermark = changedUntil;
+        Map<Pair, Long> staleBefore = Map.copyOf(stale);
+
+        Map<Pair, ReservationBlock> loaded = new HashMap<>();
+        try (Stream<FlexibilityReservationDTO> rows = flexibilityReservationRepository.streamReservationsBetween(
+                ReservationBlock.timestamp(from), ReservationBlock.timestamp(to))) {
+            groupByPair(rows, (pair, group) -> loaded.put(pair, ReservationBlock.of(group)));
+        }
+        pairs.putAll(loaded);
+        // Loaded pairs are current unless they were written again during the load
+        staleBefore.forEach(stale::remove);
+        bounds = new Bounds(from, to);
+        log.info("Hot window loaded {} reservations of {} assets and markets",
+                loaded.values().stream().mapToInt(ReservationBlock::size).sum(), loaded.size());
+    }
+
+    private void merge(Stream<FlexibilityReservationDTO> rows) {
+        try (rows) {
+            groupByPair(rows, (pair, updates) -> pairs.compute(pair, (key, current) -> merged(key, current, updates)));
+        }
+    }
+
+    // Replaces rows by ID and adds new ones; keeps the current block if nothing changed
+    private ReservationBlock merged(Pair pair, ReservationBlock current, List<FlexibilityReservationDTO> updates) {
+        if (stale.containsKey(pair)) {
+            return current;
+        }
+        Map<Long, FlexibilityReservationDTO> byId = new HashMap<>();
+        updates.forEach(update -> byId.put(update.getId(), update));
+        List<FlexibilityReservationDTO> rows = new ArrayList<>();
+        boolean changed = false;
+        if (current != null) {
+            for (FlexibilityReservationDTO row : current) {
+                FlexibilityReservationDTO update = byId.remove(row.getId());
+                rows.add(update != null ? update : row);
+                changed |= update != null && !update.equals(row);
+            }
+        }
+        if (!byId.isEmpty()) {
+            rows.addAll(byId.values());
+            changed = true;
+        }
+        if (!changed) {
+            return current;
+        }
+        rows.sort(ORDER);
+        return ReservationBlock.of(rows);
+    }
+
+    private void reload(Pair pair, long writes, long from, long to) {
+        ReservationBlock block;
+        try (Stream<FlexibilityReservationDTO> rows = flexibilityReservationRepository.streamFilteredReservations(
+                pair.assetId(), pair.marketId(), ReservationBlock.timestamp(from), ReservationBlock.timestamp(to - 1))) {
+            ReservationBlock.Builder builder = ReservationBlock.builder(0);
+            rows.forEach(builder::add);
+            block = builder.build();
+        }
+        // Stored only if the pair was not written again during the reload
+        pairs.compute(pair, (key, current) -> {
+            if (!stale.remove(key, writes)) {
+                return current;
+            }
+            return block.isEmpty() ? null : block;
+        });
+    }
+
+    private void trim(long from) {
+        pairs.replaceAll((pair, block) -> {
+            int first = firstRowAtOrAfter(block, from);
+            return first == 0 ? block : ReservationBlock.of(block.subList(first, block.size()));
+        });
+        pairs.values().removeIf(ReservationBlock::isEmpty);
+    }
+
+    // Rows arrive grouped by asset and market
+    private void groupByPair(Stream<FlexibilityReservationDTO> rows, BiConsumer<Pair, List<FlexibilityReservationDTO>> consumer) {
+        Pair current = null;
+        List<FlexibilityReservationDTO> group = new ArrayList<>();
+        for (FlexibilityReservationDTO row : (Iterable<FlexibilityReservationDTO>) rows::iterator) {
+            Pair pair = new Pair(row.getAssetId(), row.getMarketId());
+            if (!pair.equals(current) && current != null) {
+                consumer.accept(current, group);
+                group = new ArrayList<>();
+            }
+            current = pair;
+            group.add(row);
+        }
+        if (current != null) {
+            consumer.accept(current, group);
+        }
+    }
+
+    private static List<FlexibilityReservationDTO> sums(ReservationBlock block, int first, int end, long bucket,
+                                                         UUID assetId, UUID marketId) {
+        List<FlexibilityReservationDTO> sums = new ArrayList<>();
+        int row = first;
+        while (row < end) {
+            long start = bucketStart(block.timestampMicros(row), bucket);
+            long positive = 0;
+            long negative = 0;
+            while (row < end && bucketStart(block.timestampMicros(row), bucket) == start) {
+                positive += block.positiveValueUnscaled(row);
+                negative += block.negativeValueUnscaled(row);
+                row++;
+            }
+            sums.add(new FlexibilityReservationDTO(assetId, marketId, ReservationBlock.timestamp(start),
+                    ReservationBlock.decimal(positive, ReservationBlock.VALUE_SCALE),
+                    ReservationBlock.decimal(negative, ReservationBlock.VALUE_SCALE)));
+        }
+        return sums;
+    }
+
+    // Rows are sorted by timestamp
+    private static int firstRowAtOrAfter(ReservationBlock block, long micros) {
+        int low = 0;
+        int high = block.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (block.timestampMicros(middle) < micros) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long bucketMicros(RollupResolution resolution) {
+        return switch (resolution) {
+            case INTERVAL -> 0;
+            case HOUR -> MICROS_PER_HOUR;
+            case DAY -> MICROS_PER_DAY;
+        };
+    }
+
+    private static long bucketStart(long micros, long bucket) {
+        return bucket == 0 ? micros : Math.floorDiv(micros, bucket) * bucket;
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant.truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private static long floorMicros(Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000L + timestamp.getNanos() / 1000;
+    }
+
+    private static long ceilMicros(Timestamp timestamp) {
+        return floorMicros(timestamp) + (timestamp.getNanos() % 1000 == 0 ? 0 : 1);
+    }
+
+    private record Pair(UUID assetId, UUID marketId) {
+    }
+
+    // Loaded interval in epoch microseconds, from inclusive and to exclusive
+    private record Bounds(long from, long to) {
+
+        private static final Bounds NONE = new Bounds(Long.MIN_VALUE, Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,60 @@
+package com.invt.tech.cache;
+
+import com.invt.tech.entity.RollupResolution;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Cache key of a reservation query: the asset and market plus the interval, aggregation and resolution.
+ * Queries for all reservations of an asset and market have no interval.
+ *
+ * @param assetId    the UUID of the asset
+ * @param marketId   the UUID of the market
+ * @param from       the start of the interval, or null for all reservations
+ * @param to         the end of the interval, or null for all reservations
+ * @param total      whether aggregated sums are queried
+ * @param resolution the bucket size of the aggregated sums
+ */
+public record ReservationQueryKey(UUID assetId, UUID marketId, Instant from, Instant to, boolean total,
+                                  RollupResolution resolution) {
+
+    /**
+     * Key of the query for all reservations of an asset and market.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @return the cache key
+     */
+    public static ReservationQueryKey all(UUID assetId, UUID marketId) {
+        return new ReservationQueryKey(assetId, marketId, null, null, false, RollupResolution.INTERVAL);
+    }
+
+    /**
+     * Key of a filtered or aggregated query within an interval.
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param from       the start of the interval
+     * @param to         the end of the interval
+     * @param total      whether aggregated sums are queried
+     * @param resolution the bucket size of the aggregated sums
+     * @return the cache key
+     */
+    public static ReservationQueryKey of(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total,
+                                         RollupResolution resolution) {
+        return new ReservationQueryKey(assetId, marketId, from.toInstant(), to.toInstant(), total, resolution);
+    }
+
+    /**
+     * Returns true if this key belongs to the given asset and market.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @return true if asset and market match
+     */
+    public boolean isFor(UUID assetId, UUID marketId) {
+        return this.assetId.equals(assetId) && this.marketId.equals(marketId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.invt.tech.controller;
+
+import com.invt.tech.dto.ExportJobDTO;
+import com.invt.tech.dto.ExportJobFile;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.service.ExportJobService;
+import com.invt.tech.util.ExportFormat;
+import com.invt.tech.util.FileDownload;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * REST controller for asynchronous reservation export jobs.
+ * Provides endpoints to submit an export to a file on the server, follow its progress and download the file.
+ */
+@Tag(name = "Flexibility Reservation Export Jobs", description = "APIs for exporting large reservation intervals asynchronously")
+@RestController
+@RequestMapping("/api/v1/flexibility/reservations")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param exportJobService service to handle export jobs
+     */
+    public ExportJobController(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * POST endpoint to submit an asynchronous export job.
+     *
+     * <p>Takes the same parameters as the direct export. Submitting the same export again returns the existing job,
+     * and once it is done its file, instead of exporting again.</p>
+     *
+     * @param assetId  UUID of the asset
+     * @param marketId UUID of the market
+     * @param from     Start of the interval in ISO 8601 format
+     * @param to       End of the interval in ISO 8601 format
+     * @param total    If true, aggregates multiple records by timestamp, assetId, and marketId
+     * @param resolution Bucket size of the aggregated export, "interval", "PT1H" or "P1D"
+     * @param format   Export file format, "csv", "csv.gz", "parquet" or "arrow"
+     * @return ResponseEntity with HTTP 202 status, the job location and the ExportJobDTO
+     */
+    @Operation(summary = "Submit an asynchronous export of flexibility reservations to a file")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Export job accepted", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many export jobs queued", content = @Content)
+    })
+    @PostMapping("/{assetId}/market/{marketId}/export-jobs")
+    public ResponseEntity<ExportJobDTO> submitExportJob(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Start of the time interval (ISO 8601)")
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant from,
+            @Parameter(description = "End of the time interval (ISO 8601)")
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant to,
+            @Parameter(description = "Aggregate total values per timestamp")
+            @RequestParam(value = "total", required = false, defaultValue = "false") boolean total,
+            @Parameter(description = "Bucket size of aggregated totals: interval, PT1H or P1D")
+            @RequestParam(value = "resolution", required = false, defaultValue = "interval") String resolution,
+            @Parameter(description = "Export file format: csv, csv.gz, parquet or arrow")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format) {
+
+        RollupResolution rollupResolution = RollupResolution.fromValue(resolution);
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        ExportJobDTO job = exportJobService.submit(assetId, marketId, Timestamp.from(from), Timestamp.from(to),
+                total, rollupResolution, exportFormat);
+
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/v1/flexibility/reservations/export-jobs/{jobId}")
+                        .buildAndExpand(job.getId()).toUri())
+                .body(job);
+    }
+
+    /**
+     * GET endpoint to retrieve the state and progress of an export job.
+     *
+     * @param jobId ID of the export job
+     * @return ExportJobDTO describing the job
+     */
+    @Operation(summary = "Get the state of an export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export job retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Export job not found", content = @Content)
+    })
+    @GetMapping("/export-jobs/{jobId}")
+    public ExportJobDTO getExportJob(@Parameter(description = "Export job ID") @PathVariable String jobId) {
+        return exportJobService.getJob(jobId);
+    }
+
+    /**
+     * GET endpoint to download the file of a finished export job.
+     * Supports {@code Range} and {@code If-Range}, so interrupted downloads can be resumed.
+     *
+     * @param jobId    ID of the export job
+     * @param request  HttpServletRequest carrying the range headers
+     * @param response HttpServletResponse to write the file to
+     * @throws IOException if the file cannot be sent
+     */
+    @Operation(summary = "Download the file of a finished export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File downloaded", content = @Content),
+            @ApiResponse(responseCode = "206", description = "Requested range downloaded", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Export job not found or not done", content = @Content),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable", content = @Content)
+    })
+    @GetMapping("/export-jobs/{jobId}/file")
+    public void downloadExportJobFile(@Parameter(description = "Export job ID") @PathVariable String jobId,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        ExportJobFile file = exportJobService.getFile(jobId);
+        FileDownload.sendFile(file.path(), file.format().getContentType(), file.format().getFileName(),
+                file.etag(), request, response);
+    }
+}
@@ -1,21 +1,45 @@
 package com.invt.tech.controller;
 
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationChangesDTO;
 import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.FlexibilityReservationPageDTO;
+import com.invt.tech.dto.ReservationVersion;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationBroadcaster;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.service.FlexibilityReservationIngestService;
 import com.invt.tech.service.FlexibilityReservationService;
+import com.invt.tech.service.ReservationExportService;
+import com.invt.tech.util.ContentEncoding;
 import com.invt.tech.util.ExportCSV;
+import com.invt.tech.util.ExportColumnar;
+import com.invt.tech.util.ExportFormat;
+import com.invt.tech.util.ExportJSON;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import com.invt.tech.util.ReservationHandoff;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,14 +53,30 @@ import java.util.UUID;
 public class FlexibilityReservationController {
 
     private final FlexibilityReservationService flexibilityReservationService;
+    private final FlexibilityReservationIngestService flexibilityReservationIngestService;
+    private final ReservationExportService reservationExportService;
+    private final ExportMetrics exportMetrics;
+    private final ReservationBroadcaster reservationBroadcaster;
 
     /**
      * Constructor for dependency injection.
      *
      * @param flexibilityReservationService service to handle reservation logic
+     * @param flexibilityReservationIngestService service to handle bulk imports
+     * @param reservationExportService service to read exports in the background
+     * @param exportMetrics meters the written rows and bytes of each export are recorded in
+     * @param reservationBroadcaster broadcaster pushing written reservations to subscribers
      */
-    public FlexibilityReservationController(FlexibilityReservationService flexibilityReservationService){
+    public FlexibilityReservationController(FlexibilityReservationService flexibilityReservationService,
+                                            FlexibilityReservationIngestService flexibilityReservationIngestService,
+                                            ReservationExportService reservationExportService,
+                                            ExportMetrics exportMetrics,
+                                            ReservationBroadcaster reservationBroadcaster){
         this.flexibilityReservationService = flexibilityReservationService;
+        this.flexibilityReservationIngestService = flexibilityReservationIngestService;
+        this.reservationExportService = reservationExportService;
+        this.exportMetrics = exportMetrics;
+        this.reservationBroadcaster = reservationBroadcaster;
     }
 
     // Here we need to return all flexibility reservations by asset and market
@@ -44,39 +84,203 @@ public class FlexibilityReservationController {
     /**
      * GET endpoint to retrieve flexibility reservations by asset and market.
      *
-     * @param assetId  UUID of the asset
-     * @param marketId UUID of the market
-     * @return List of FlexibilityReservationDTO objects
+     * <p>Responses carry an {@code ETag} and {@code Last-Modified} of the stored reservations. Requests with a matching
+     * {@code If-None-Match} or {@code If-Modified-Since} are answered with 304 from an index-only version query.</p>
+     *
+     * @param assetId    UUID of the asset
+     * @param marketId   UUID of the market
+     * @param webRequest request whose conditional headers are checked
+     * @return List of FlexibilityReservationDTO objects, or null if the client's copy is up to date
      */
     @Operation(summary = "Get flexibility reservations by asset and market")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reservations retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "304", description = "Reservations not modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Reservations not found", content = @Content)
     })
     @GetMapping("/{assetId}/market/{marketId}")
     public List<FlexibilityReservationDTO> getReservations(@PathVariable UUID assetId,
-                                                           @PathVariable UUID marketId) {
+                                                           @PathVariable UUID marketId,
+                                                           WebRequest webRequest) {
 
+        if (isNotModified(flexibilityReservationService.getVersion(assetId, marketId), webRequest)) {
+            return null;
+        }
         return flexibilityReservationService.getReservations(assetId, marketId);
     }
 
     /**
-     * GET endpoint to export flexibility reservations in CSV format.
+     * GET endpoint to stream all flexibility reservations by asset and market as JSON.
+     *
+     * <p>With {@code format=ndjson} one reservation is written per line as {@code application/x-ndjson}, with
+     * {@code format=json} the reservations are written as one JSON array. Unlike {@link #getReservations}, rows are
+     * written while they are read from the database, ordered by timestamp and ID, so memory use stays constant and
+     * clients can start parsing right away. Null fields are left out. The output is compressed like exports, and
+     * conditional requests are answered like {@link #getReservations}.</p>
+     *
+     * @param assetId        UUID of the asset
+     * @param marketId       UUID of the market
+     * @param format         Output format, "ndjson" or "json"
+     * @param acceptEncoding Accept-Encoding request header used to negotiate compression
+     * @param webRequest     request whose conditional headers are checked
+     * @param response       HttpServletResponse to write the reservations to
+     * @return StreamingResponseBody writing the reservations, or null if the client's copy is up to date
+     */
+    @Operation(summary = "Stream flexibility reservations by asset and market as NDJSON or a JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reservations streamed successful", content = @Content),
+            @ApiResponse(responseCode = "304", description = "Reservations not modified", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid format", content = @Content)
+    })
+    @GetMapping("/{assetId}/market/{marketId}/stream")
+    public StreamingResponseBody streamReservations(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Output format: ndjson or json")
+            @RequestParam(value = "format", required = false, defaultValue = ExportJSON.NDJSON_FORMAT) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest,
+            HttpServletResponse response) {
+
+        boolean ndjson = ExportJSON.NDJSON_FORMAT.equalsIgnoreCase(format);
+        if (!ndjson && !ExportJSON.FORMAT.equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format + ". Supported formats: ndjson, json");
+        }
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+
+        if (isNotModified(flexibilityReservationService.getVersion(assetId, marketId), webRequest)) {
+            return null;
+        }
+
+        ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.STREAM, false, ndjson ? ExportJSON.NDJSON_FORMAT : ExportJSON.FORMAT);
+        ReservationHandoff reservations = reservationExportService.startStream(assetId, marketId);
+
+        return out -> recording.record(() -> {
+            try (reservations) {
+                ExportJSON.exportToJSON(recording.count(reservations), ndjson, encoding, recording.count(response));
+            }
+        });
+    }
+
+    /**
+     * GET endpoint to retrieve flexibility reservations by asset and market one page at a time.
+     * Pages are ordered by timestamp and ID; the {@code next} cursor of a page requests the following one.
+     *
+     * @param assetId  UUID of the asset
+     * @param marketId UUID of the market
+     * @param cursor   Cursor returned with the previous page, omitted for the first page
+     * @param limit    Maximum number of reservations on the page
+     * @return FlexibilityReservationPageDTO with the reservations and the cursor of the next page
+     */
+    @Operation(summary = "Get a page of flexibility reservations by asset and market")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reservations page retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit", content = @Content)
+    })
+    @GetMapping("/{assetId}/market/{marketId}/page")
+    public FlexibilityReservationPageDTO getReservationsPage(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Cursor of the next page as returned by the previous call")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Maximum number of reservations per page")
+            @RequestParam(value = "limit", required = false, defaultValue = "100") int limit) {
+
+        return flexibilityReservationService.getReservationsPage(assetId, marketId, cursor, limit);
+    }
+
+    /**
+     * GET endpoint to retrieve the flexibility reservations by asset and market changed since a watermark.
+     * Changes are ordered by the time the service stored them and by ID; the {@code watermark} of the response
+     * requests the following ones.
+     *
+     * <p>Lets clients keep a copy in sync with traffic proportional to the number of revised reservations instead of
+     * re-exporting whole intervals. While {@code hasMore} is true, further changes can be requested right away.</p>
+     *
+     * @param assetId   UUID of the asset
+     * @param marketId  UUID of the market
+     * @param watermark Watermark returned with the previous changes, omitted to start from the first change
+     * @param limit     Maximum number of changed reservations returned
+     * @return FlexibilityReservationChangesDTO with the changed reservations and the new watermark
+     */
+    @Operation(summary = "Get flexibility reservations by asset and market changed since a watermark")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid watermark or limit", content = @Content)
+    })
+    @GetMapping("/{assetId}/market/{marketId}/changes")
+    public FlexibilityReservationChangesDTO getChanges(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Watermark as returned by the previous call")
+            @RequestParam(value = "watermark", required = false) String watermark,
+            @Parameter(description = "Maximum number of changed reservations")
+            @RequestParam(value = "limit", required = false, defaultValue = "1000") int limit) {
+
+        return flexibilityReservationService.getChanges(assetId, marketId, watermark, limit);
+    }
+
+    /**
+     * GET endpoint to subscribe to the flexibility reservations written for an asset and market as Server-Sent Events.
+     *
+     * <p>Each {@code reservations} event carries the written rows as a JSON array, so dashboards no longer poll the
+     * full history. Updates for slow clients are coalesced; if too many are pending, a {@code resync} event is sent
+     * instead and the client catches up through the {@code changes} endpoint. Clients subscribe first and then read
+     * the current state, so no write is missed in between.</p>
+     *
+     * @param assetId  UUID of the asset
+     * @param marketId UUID of the market
+     * @return SseEmitter sending the written reservations until the subscription times out or the client disconnects
+     */
+    @Operation(summary = "Subscribe to flexibility reservations written for an asset and market")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Subscription opened", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many open subscriptions", content = @Content)
+    })
+    @GetMapping(value = "/{assetId}/market/{marketId}/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+                                @Parameter(description = "Market UUID") @PathVariable UUID marketId) {
+
+        return reservationBroadcaster.subscribe(assetId, marketId);
+    }
+
+    /**
+     * GET endpoint to export flexibility reservations in CSV or a columnar binary format.
+     *
+     * <p>The CSV is compressed with zstd or gzip when the client announces support in {@code Accept-Encoding}.
+     * With {@code format=csv.gz} a gzip file is downloaded instead. {@code format=parquet} and {@code format=arrow}
+     * export the same columns as an Apache Parquet file or an Apache Arrow IPC stream.</p>
+     *
+     * <p>With {@code total=true} the sums are read from pre-aggregated rollups; {@code resolution=PT1H} or
+     * {@code resolution=P1D} returns one row per UTC hour or day instead of one per timestamp.</p>
+     *
+     * <p>The export is written asynchronously: rows are read on a fetch thread and handed to the response writer
+     * through a bounded queue, and the request thread is released once the first rows have been read.</p>
+     *
+     * <p>Like {@link #getReservations}, conditional requests whose copy of the interval is up to date are answered
+     * with 304 before the export is started.</p>
      *
      * @param assetId  UUID of the asset
      * @param marketId UUID of the market
      * @param from     Start of the interval in ISO 8601 format
      * @param to       End of the interval in ISO 8601 format
      * @param total    If true, aggregates multiple records by timestamp, assetId, and marketId
-     * @param response HttpServletResponse to write the CSV file to
+     * @param resolution Bucket size of the aggregated export, "interval", "PT1H" or "P1D"
+     * @param format   Export file format, "csv", "csv.gz", "parquet" or "arrow"
+     * @param acceptEncoding Accept-Encoding request header used to negotiate compression
+     * @param webRequest request whose conditional headers are checked
+     * @param response HttpServletResponse to write the export file to
+     * @return StreamingResponseBody writing the export file, or null if the client's copy is up to date
      */
-    @Operation(summary = "Export flexibility reservations to CSV")
+    @Operation(summary = "Export flexibility reservations to CSV, Parquet or Arrow")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "CSV export successful", content = @Content),
+            @ApiResponse(responseCode = "200", description = "Export successful", content = @Content),
+            @ApiResponse(responseCode = "304", description = "Export not modified", content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Reservations not found", content = @Content)
     })
     @GetMapping("/{assetId}/market/{marketId}/export")
-    public void exportReservations(
+    public StreamingResponseBody exportReservations(
             @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
             @Parameter(description = "Market UUID") @PathVariable UUID marketId,
             @Parameter(description = "Start of the time interval (ISO 8601)")
@@ -85,13 +289,79 @@ public class FlexibilityReservationController {
             @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant to,
             @Parameter(description = "Aggregate total values per timestamp")
             @RequestParam(value = "total", required = false, defaultValue = "false") boolean total,
+            @Parameter(description = "Bucket size of aggregated totals: interval, PT1H or P1D")
+            @RequestParam(value = "resolution", required = false, defaultValue = "interval") String resolution,
+            @Parameter(description = "Export file format: csv, csv.gz, parquet or arrow")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest,
             HttpServletResponse response) {
 
         Timestamp fromAsTimestamp = Timestamp.from(from);
         Timestamp toAsTimestamp = Timestamp.from(to);
+        RollupResolution rollupResolution = RollupResolution.fromValue(resolution);
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+
+        if (isNotModified(flexibilityReservationService.getVersion(assetId, marketId, fromAsTimestamp, toAsTimestamp), webRequest)) {
+            return null;
+        }
 
-        List<FlexibilityReservationDTO> exportedData = flexibilityReservationService.getFilteredOrAggregatedReservations(assetId, marketId, fromAsTimestamp, toAsTimestamp, total);
-        ExportCSV.exportToCSV(exportedData, total, response);
+        ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.EXPORT, total, exportFormat.getValue());
+        ReservationHandoff reservations = reservationExportService.startExport(
+                assetId, marketId, fromAsTimestamp, toAsTimestamp, total, rollupResolution);
+
+        // Runs on an async request thread; the export sets its headers on the still uncommitted response
+        // and writes to the same servlet output stream as out
+        return out -> recording.record(() -> {
+            try (reservations) {
+                Iterator<FlexibilityReservationDTO> rows = recording.count(reservations);
+                HttpServletResponse counted = recording.count(response);
+                if (exportFormat.isColumnar()) {
+                    ExportColumnar.exportToColumnar(rows, total, exportFormat, encoding, counted);
+                } else {
+                    ExportCSV.exportToCSV(rows, total, exportFormat, encoding, counted);
+                }
+            }
+        });
     }
 
-}
\ No newline at end of file
+    /**
+     * POST endpoint to import flexibility reservations in bulk.
+     *
+     * <p>Accepts a JSON array, newline-delimited JSON or CSV with a header row. The upload is parsed while it is
+     * received and stored in batches, each in its own transaction. Rows failing validation are skipped and reported
+     * in the response; a malformed upload is rejected with 400 after the batches read so far have been stored.</p>
+     *
+     * <p>With {@code mode=upsert} rows replace stored reservations with the same asset, market, timestamp and bid IDs
+     * unless those have the same or a newer {@code updatedAt}, which makes re-delivering revised data idempotent. In the default
+     * insert mode a batch with such a stored reservation is rejected with 400.</p>
+     *
+     * @param mode        Import mode, "insert" or "upsert"
+     * @param contentType Content-Type of the upload, selecting the import format
+     * @param body        the uploaded reservations
+     * @return BulkIngestResultDTO with the number of stored and rejected rows
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary = "Import flexibility reservations from JSON, NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import completed", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Malformed upload", content = @Content),
+            @ApiResponse(responseCode = "415", description = "Unsupported upload format", content = @Content)
+    })
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, ImportFormat.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public BulkIngestResultDTO importReservations(
+            @Parameter(description = "Import mode: insert or upsert")
+            @RequestParam(value = "mode", required = false, defaultValue = "insert") String mode,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest body) throws IOException {
+
+        ImportMode importMode = ImportMode.fromValue(mode);
+        return flexibilityReservationIngestService.ingest(body.getInputStream(), ImportFormat.fromContentType(contentType), importMode);
+    }
+
+    // Sets ETag and Last-Modified; empty results are never validated, so they still end in 404 or an empty body
+    private static boolean isNotModified(ReservationVersion version, WebRequest webRequest) {
+        return version.count() > 0 && webRequest.checkNotModified(version.eTag(), version.lastModifiedMillis());
+    }
+}
@@ -0,0 +1,106 @@
+package com.invt.tech.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationBatchQueryDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.service.ReservationExportService;
+import com.invt.tech.util.ContentEncoding;
+import com.invt.tech.util.ExportCSV;
+import com.invt.tech.util.ExportColumnar;
+import com.invt.tech.util.ExportFormat;
+import com.invt.tech.util.ExportJSON;
+import com.invt.tech.util.ReservationHandoff;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.sql.Timestamp;
+import java.util.Iterator;
+
+/**
+ * REST controller for querying the reservations of many assets and markets in one request.
+ * Replaces one request per asset and market for portfolio views.
+ */
+@Tag(name = "Flexibility Reservation Batch Queries", description = "APIs for retrieving reservations of many assets and markets at once")
+@RestController
+@RequestMapping("/api/v1/flexibility/reservations")
+public class ReservationBatchController {
+
+    private final ReservationExportService reservationExportService;
+    private final ObjectMapper objectMapper;
+    private final ExportMetrics exportMetrics;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param reservationExportService service to read the reservations in the background
+     * @param objectMapper mapper to write the JSON result
+     * @param exportMetrics meters the written rows and bytes of each query are recorded in
+     */
+    public ReservationBatchController(ReservationExportService reservationExportService, ObjectMapper objectMapper,
+                                      ExportMetrics exportMetrics) {
+        this.reservationExportService = reservationExportService;
+        this.objectMapper = objectMapper;
+        this.exportMetrics = exportMetrics;
+    }
+
+    /**
+     * POST endpoint to retrieve the reservations of several assets and markets within one time interval.
+     *
+     * <p>The result is streamed grouped by asset and market, as a JSON array of groups or in one of the export
+     * formats ({@code csv}, {@code csv.gz}, {@code parquet}, {@code arrow}). With {@code total=true} the values are
+     * summed over all requested assets per market and bucket of the given resolution.</p>
+     *
+     * @param query          the asset and market IDs, interval, aggregation and result format
+     * @param acceptEncoding Accept-Encoding request header used to negotiate compression
+     * @param response       HttpServletResponse to write the result to
+     * @return StreamingResponseBody writing the result
+     */
+    @Operation(summary = "Get flexibility reservations of several assets and markets")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reservations retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid query", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Reservations not found", content = @Content)
+    })
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getBatchReservations(
+            @Valid @RequestBody ReservationBatchQueryDTO query,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+
+        RollupResolution rollupResolution = RollupResolution.fromValue(query.getResolution());
+        boolean json = query.getFormat() == null || query.getFormat().isBlank() || ExportJSON.FORMAT.equalsIgnoreCase(query.getFormat());
+        ExportFormat exportFormat = json ? null : ExportFormat.fromValue(query.getFormat());
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+        boolean total = query.isTotal();
+
+        ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.BATCH, total,
+                json ? ExportJSON.FORMAT : exportFormat.getValue());
+        ReservationHandoff reservations = reservationExportService.startBatchExport(query.getAssetIds(), query.getMarketIds(),
+                Timestamp.from(query.getFrom()), Timestamp.from(query.getTo()), total, rollupResolution);
+
+        return out -> recording.record(() -> {
+            try (reservations) {
+                Iterator<FlexibilityReservationDTO> rows = recording.count(reservations);
+                HttpServletResponse counted = recording.count(response);
+                if (json) {
+                    ExportJSON.exportGroupedToJSON(rows, objectMapper, encoding, counted);
+                } else if (exportFormat.isColumnar()) {
+                    ExportColumnar.exportToColumnar(rows, total, exportFormat, encoding, counted);
+                } else {
+                    ExportCSV.exportToCSV(rows, total, exportFormat, encoding, counted);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package com.invt.tech.controller;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.service.ReservationResampleService;
+import com.invt.tech.util.ContentEncoding;
+import com.invt.tech.util.ExportCSV;
+import com.invt.tech.util.ExportFormat;
+import com.invt.tech.util.ResampleResolution;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * REST controller for downsampled reservation series.
+ * Provides endpoints to read and export reservations aggregated into hourly, daily, weekly, monthly or yearly buckets.
+ */
+@Tag(name = "Flexibility Reservation Resampling", description = "APIs for retrieving reservations aggregated into time buckets")
+@RestController
+@RequestMapping("/api/v1/flexibility/reservations")
+public class ReservationResampleController {
+
+    private final ReservationResampleService reservationResampleService;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param reservationResampleService service to aggregate reservations into buckets
+     */
+    public ReservationResampleController(ReservationResampleService reservationResampleService) {
+        this.reservationResampleService = reservationResampleService;
+    }
+
+    /**
+     * GET endpoint to retrieve the reservations of an asset and market aggregated into time buckets.
+     *
+     * <p>Each bucket carries the sum, average, minimum and maximum of the positive and negative values per timestamp
+     * and the volume-weighted prices. Buckets start at the calendar boundaries of the given time zone.</p>
+     *
+     * @param assetId    UUID of the asset
+     * @param marketId   UUID of the market
+     * @param from       Start of the interval in ISO 8601 format
+     * @param to         End of the interval in ISO 8601 format
+     * @param resolution Bucket size, "PT1H", "P1D", "P1W", "P1M" or "P1Y"
+     * @param zone       Time zone of the bucket boundaries, e.g. "Europe/Berlin"
+     * @return List of ReservationBucketDTO objects, ordered by bucket start
+     */
+    @Operation(summary = "Get flexibility reservations aggregated into time buckets")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Buckets retrieved successful", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Reservations not found", content = @Content)
+    })
+    @GetMapping("/{assetId}/market/{marketId}/resample")
+    public List<ReservationBucketDTO> getResampledReservations(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Start of the time interval (ISO 8601)")
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant from,
+            @Parameter(description = "End of the time interval (ISO 8601)")
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant to,
+            @Parameter(description = "Bucket size: PT1H, P1D, P1W, P1M or P1Y")
+            @RequestParam(value = "resolution", required = false, defaultValue = "P1D") String resolution,
+            @Parameter(description = "Time zone of the bucket boundaries")
+            @RequestParam(value = "zone", required = false, defaultValue = "UTC") String zone) {
+
+        return reservationResampleService.getBuckets(assetId, marketId, Timestamp.from(from), Timestamp.from(to),
+                ResampleResolution.fromValue(resolution), parseZone(zone));
+    }
+
+    /**
+     * GET endpoint to export the reservations of an asset and market aggregated into time buckets as CSV.
+     * Power values are exported in MW.
+     *
+     * @param assetId    UUID of the asset
+     * @param marketId   UUID of the market
+     * @param from       Start of the interval in ISO 8601 format
+     * @param to         End of the interval in ISO 8601 format
+     * @param resolution Bucket size, "PT1H", "P1D", "P1W", "P1M" or "P1Y"
+     * @param zone       Time zone of the bucket boundaries, e.g. "Europe/Berlin"
+     * @param format     Export file format, "csv" or "csv.gz"
+     * @param acceptEncoding Accept-Encoding request header used to negotiate compression
+     * @param response   HttpServletResponse to write the export file to
+     */
+    @Operation(summary = "Export flexibility reservations aggregated into time buckets to CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export successful", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Reservations not found", content = @Content)
+    })
+    @GetMapping("/{assetId}/market/{marketId}/resample/export")
+    public void exportResampledReservations(
+            @Parameter(description = "Asset UUID") @PathVariable UUID assetId,
+            @Parameter(description = "Market UUID") @PathVariable UUID marketId,
+            @Parameter(description = "Start of the time interval (ISO 8601)")
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant from,
+            @Parameter(description = "End of the time interval (ISO 8601)")
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @NotNull Instant to,
+            @Parameter(description = "Bucket size: PT1H, P1D, P1W, P1M or P1Y")
+            @RequestParam(value = "resolution", required = false, defaultValue = "P1D") String resolution,
+            @Parameter(description = "Time zone of the bucket boundaries")
+            @RequestParam(value = "zone", required = false, defaultValue = "UTC") String zone,
+            @Parameter(description = "Export file format: csv or csv.gz")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        if (exportFormat.isColumnar()) {
+            throw new IllegalArgumentException("Resampled exports support csv and csv.gz, not " + exportFormat.getValue());
+        }
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+
+        reservationResampleService.streamBuckets(assetId, marketId, Timestamp.from(from), Timestamp.from(to),
+                ResampleResolution.fromValue(resolution), parseZone(zone),
+                buckets -> ExportCSV.exportBucketsToCSV(buckets, exportFormat, encoding, response));
+    }
+
+    private static ZoneId parseZone(String zone) {
+        try {
+            return ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Unsupported time zone: " + zone);
+        }
+    }
+}
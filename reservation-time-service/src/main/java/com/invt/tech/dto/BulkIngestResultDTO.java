@@ -0,0 +1,36 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk reservation import.
+ * Contains the number of stored, stale and rejected rows and the validation errors of the rejected rows.
+ */
+@Schema(description = "Result of a bulk reservation import")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResultDTO {
+
+    @Schema(description = "Number of reservations inserted or updated")
+    private long accepted;
+
+    @Schema(description = "Number of upserted rows ignored because a newer revision is stored")
+    private long stale;
+
+    @Schema(description = "Number of rows rejected by validation")
+    private long rejected;
+
+    @Schema(description = "Number of committed insert batches")
+    private int batches;
+
+    @Schema(description = "Validation errors of rejected rows, limited to the first ones")
+    private List<String> errors;
+}
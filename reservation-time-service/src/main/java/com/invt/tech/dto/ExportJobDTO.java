@@ -0,0 +1,55 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Represents an asynchronous export job writing reservations to a file on the server.
+ * Contains the state and progress of the job and, once it is done, the size of the file.
+ */
+@Schema(description = "Asynchronous reservation export job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobDTO {
+
+    /**
+     * Lifecycle states of an export job.
+     */
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    @Schema(description = "Job ID, derived from the export parameters")
+    private String id;
+
+    @Schema(description = "State of the job")
+    private Status status;
+
+    @Schema(description = "Export file format")
+    private String format;
+
+    @Schema(description = "Number of rows written so far")
+    private long rowsWritten;
+
+    @Schema(description = "Number of file bytes written so far")
+    private long bytesWritten;
+
+    @Schema(description = "Share of the requested time interval written so far, from 0 to 1")
+    private double progress;
+
+    @Schema(description = "Time the job was submitted")
+    private Instant createdAt;
+
+    @Schema(description = "Time the job finished, null while it is queued or running")
+    private Instant finishedAt;
+
+    @Schema(description = "Reason of the failure of a failed job")
+    private String error;
+}
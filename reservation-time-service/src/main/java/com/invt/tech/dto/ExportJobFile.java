@@ -0,0 +1,15 @@
+package com.invt.tech.dto;
+
+import com.invt.tech.util.ExportFormat;
+
+import java.nio.file.Path;
+
+/**
+ * The result file of a finished export job.
+ *
+ * @param path   location of the file on the server
+ * @param format format of the file
+ * @param etag   entity tag of this version of the file, changes when the job is run again
+ */
+public record ExportJobFile(Path path, ExportFormat format, String etag) {
+}
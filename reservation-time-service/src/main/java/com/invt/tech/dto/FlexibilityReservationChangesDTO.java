@@ -0,0 +1,31 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents the flexibility reservations of an asset and market changed since a watermark,
+ * ordered by change time and ID.
+ * Contains the changed reservations and the watermark to request the following changes with.
+ */
+@Schema(description = "Flexibility reservations changed since a watermark")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibilityReservationChangesDTO {
+
+    @Schema(description = "Changed reservations in their current revision, ordered by changedAt and ID")
+    private List<FlexibilityReservationDTO> items;
+
+    @Schema(description = "Watermark to request the following changes with, null if no change was returned yet")
+    private String watermark;
+
+    @Schema(description = "True if further changes are available right away")
+    private boolean hasMore;
+}
@@ -76,6 +76,35 @@ public class FlexibilityReservationDTO {
     @PastOrPresent(message = "updatedAt must be in the past or present")
     private Timestamp updatedAt;
 
+    @Schema(description = "Time the service stored the current revision of the reservation; only set in the change feed",
+            accessMode = Schema.AccessMode.READ_ONLY)
+    private Timestamp changedAt;
+
+    /**
+     * Constructor for reservations read without the time their revision was stored.
+     *
+     * @param id ID of the reservation
+     * @param assetId UUID of the asset
+     * @param marketId UUID of the market
+     * @param positiveBidId UUID of the positive bid
+     * @param negativeBidId UUID of the negative bid
+     * @param positiveValue positive power value in kW
+     * @param positiveCapacityPrice positive capacity price in EUR/MW/h
+     * @param positiveEnergyPrice positive energy price in EUR/MW/h
+     * @param negativeValue negative power value in kW
+     * @param negativeCapacityPrice negative capacity price in EUR/MW/h
+     * @param negativeEnergyPrice negative energy price in EUR/MW/h
+     * @param timestamp timestamp of the reservation
+     * @param updatedAt revision time set by the writer
+     */
+    public FlexibilityReservationDTO(long id, UUID assetId, UUID marketId, UUID positiveBidId, UUID negativeBidId,
+                                     BigDecimal positiveValue, BigDecimal positiveCapacityPrice, BigDecimal positiveEnergyPrice,
+                                     BigDecimal negativeValue, BigDecimal negativeCapacityPrice, BigDecimal negativeEnergyPrice,
+                                     Timestamp timestamp, Timestamp updatedAt) {
+        this(id, assetId, marketId, positiveBidId, negativeBidId, positiveValue, positiveCapacityPrice, positiveEnergyPrice,
+                negativeValue, negativeCapacityPrice, negativeEnergyPrice, timestamp, updatedAt, null);
+    }
+
     /**
      * Custom constructor for partial data.
      *
@@ -92,4 +121,16 @@ public class FlexibilityReservationDTO {
         this.positiveValue = positiveValue;
         this.negativeValue = negativeValue;
     }
+
+    /**
+     * Custom constructor for sums over several assets, which have no asset ID.
+     *
+     * @param marketId UUID of the market
+     * @param timestamp timestamp of the reservation
+     * @param positiveValue positive power value in kW
+     * @param negativeValue negative power value in kW
+     */
+    public FlexibilityReservationDTO(UUID marketId, Timestamp timestamp, BigDecimal positiveValue, BigDecimal negativeValue) {
+        this(null, marketId, timestamp, positiveValue, negativeValue);
+    }
 }
@@ -0,0 +1,27 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents one page of flexibility reservations ordered by timestamp and ID.
+ * Contains the reservations of the page and the cursor pointing at the next page.
+ */
+@Schema(description = "Page of flexibility reservations")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibilityReservationPageDTO {
+
+    @Schema(description = "Reservations on this page, ordered by timestamp and ID")
+    private List<FlexibilityReservationDTO> items;
+
+    @Schema(description = "Cursor for the next page, null if this is the last page")
+    private String next;
+}
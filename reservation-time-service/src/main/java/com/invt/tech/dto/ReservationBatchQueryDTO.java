@@ -0,0 +1,50 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Represents a query of the reservations of several assets and markets within one time interval.
+ * Every combination of the given asset and market IDs is queried.
+ */
+@Schema(description = "Query of the reservations of several assets and markets")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationBatchQueryDTO {
+
+    @Schema(description = "Asset IDs")
+    @NotEmpty(message = "assetIds must not be empty")
+    private Set<UUID> assetIds;
+
+    @Schema(description = "Market IDs")
+    @NotEmpty(message = "marketIds must not be empty")
+    private Set<UUID> marketIds;
+
+    @Schema(description = "Start of the time interval (ISO 8601)")
+    @NotNull(message = "from must not be null")
+    private Instant from;
+
+    @Schema(description = "End of the time interval (ISO 8601)")
+    @NotNull(message = "to must not be null")
+    private Instant to;
+
+    @Schema(description = "Sum the values of all assets per market and timestamp")
+    private boolean total;
+
+    @Schema(description = "Bucket size of aggregated totals: interval, PT1H or P1D", defaultValue = "interval")
+    private String resolution;
+
+    @Schema(description = "Result format: json, csv, csv.gz, parquet or arrow", defaultValue = "json")
+    private String format;
+}
@@ -0,0 +1,77 @@
+package com.invt.tech.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Represents the reservations of an asset and market within one bucket of a resampled series.
+ *
+ * <p>The series value at a timestamp is the sum over all reservations at that timestamp; sum, average, minimum and
+ * maximum are taken over the series values in the bucket. Power values are in kW. Prices are averages weighted
+ * by the reserved power of the reservations that have a price.</p>
+ */
+@Schema(description = "Aggregated flexibility reservations within one time bucket")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationBucketDTO {
+
+    @Schema(description = "Start of the bucket in the requested time zone")
+    private OffsetDateTime bucketStart;
+
+    @Schema(description = "Asset ID")
+    private UUID assetId;
+
+    @Schema(description = "Market ID")
+    private UUID marketId;
+
+    @Schema(description = "Number of timestamps with reservations in the bucket")
+    private long intervals;
+
+    @Schema(description = "Number of reservations in the bucket")
+    private long reservations;
+
+    @Schema(description = "Sum of the positive values in kW")
+    private BigDecimal positiveSum;
+
+    @Schema(description = "Average positive value per timestamp in kW")
+    private BigDecimal positiveAvg;
+
+    @Schema(description = "Lowest positive value of a timestamp in kW")
+    private BigDecimal positiveMin;
+
+    @Schema(description = "Highest positive value of a timestamp in kW")
+    private BigDecimal positiveMax;
+
+    @Schema(description = "Sum of the negative values in kW")
+    private BigDecimal negativeSum;
+
+    @Schema(description = "Average negative value per timestamp in kW")
+    private BigDecimal negativeAvg;
+
+    @Schema(description = "Lowest negative value of a timestamp in kW")
+    private BigDecimal negativeMin;
+
+    @Schema(description = "Highest negative value of a timestamp in kW")
+    private BigDecimal negativeMax;
+
+    @Schema(description = "Volume-weighted positive capacity price in EUR/MW/h")
+    private BigDecimal positiveCapacityPrice;
+
+    @Schema(description = "Volume-weighted positive energy price in EUR/MW/h")
+    private BigDecimal positiveEnergyPrice;
+
+    @Schema(description = "Volume-weighted negative capacity price in EUR/MW/h")
+    private BigDecimal negativeCapacityPrice;
+
+    @Schema(description = "Volume-weighted negative energy price in EUR/MW/h")
+    private BigDecimal negativeEnergyPrice;
+}
@@ -0,0 +1,77 @@
+package com.invt.tech.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Keyset pagination cursor pointing at the last reservation of a page.
+ * The next page starts right after the given {@code (timestamp, id)} pair.
+ *
+ * <p>Cursors are exchanged with clients as opaque URL-safe Base64 strings. The watermarks of the change feed use
+ * the same form with the change time in place of the timestamp, see {@link #ofChange}.</p>
+ *
+ * @param timestamp timestamp of the last reservation on the page
+ * @param id        ID of the last reservation on the page
+ */
+public record ReservationCursor(Timestamp timestamp, long id) {
+
+    /**
+     * Creates a cursor pointing at the given reservation.
+     *
+     * @param reservation the last reservation of a page
+     * @return the cursor for the following page
+     */
+    public static ReservationCursor of(FlexibilityReservationDTO reservation) {
+        return new ReservationCursor(reservation.getTimestamp(), reservation.getId());
+    }
+
+    /**
+     * Creates a change feed watermark pointing at the given reservation.
+     *
+     * @param reservation the last changed reservation returned to the client
+     * @return the watermark after which the next changes start
+     */
+    public static ReservationCursor ofChange(FlexibilityReservationDTO reservation) {
+        return new ReservationCursor(reservation.getChangedAt(), reservation.getId());
+    }
+
+    /**
+     * Encodes this cursor to its opaque string form.
+     *
+     * @return URL-safe Base64 representation of the cursor
+     */
+    public String encode() {
+        Instant instant = timestamp.toInstant();
+        String raw = instant.getEpochSecond() + ":" + instant.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param value the opaque cursor string
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static ReservationCursor decode(String value) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.US_ASCII).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+
+        try {
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new ReservationCursor(Timestamp.from(instant), Long.parseLong(parts[2]));
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+}
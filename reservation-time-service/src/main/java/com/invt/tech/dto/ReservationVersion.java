@@ -0,0 +1,40 @@
+package com.invt.tech.dto;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Cheap validator of the stored flexibility reservations of an asset and market, optionally within an interval.
+ *
+ * <p>Imports add rows or replace them, and archiving removes whole months. Every stored row and every replacement is
+ * stamped with the time the database wrote it, whatever {@code updatedAt} the writer sends, so a changed result also
+ * changes the row count or the latest change time. It is read from an index alone and lets reads answer conditional
+ * requests without running the query itself.</p>
+ *
+ * @param count        number of stored reservations
+ * @param lastModified latest {@code changedAt} of the reservations, null if there are none
+ */
+public record ReservationVersion(long count, Timestamp lastModified) {
+
+    /**
+     * Returns the entity tag of the reservations.
+     *
+     * <p>The tag is weak, as the same reservations may be sent in different content encodings.</p>
+     *
+     * @return the weak entity tag, including its quotes
+     */
+    public String eTag() {
+        Instant instant = lastModified == null ? Instant.EPOCH : lastModified.toInstant();
+        return "W/\"" + Long.toHexString(count) + "-" + Long.toHexString(instant.getEpochSecond())
+                + "-" + Integer.toHexString(instant.getNano()) + "\"";
+    }
+
+    /**
+     * Returns the latest change time as epoch milliseconds, for the {@code Last-Modified} header.
+     *
+     * @return the epoch milliseconds of {@link #lastModified}, or -1 if there are no reservations
+     */
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.getTime();
+    }
+}
@@ -106,4 +106,10 @@ public class FlexibilityReservation {
     @Column(name = "updatedAt", columnDefinition = "TIMESTAMP")
     @PastOrPresent(message = "updatedAt must be in the past or present")
     private Timestamp updatedAt;
+
+    /**
+     * Date time the current revision was stored, set by the database on every insert and update.
+     */
+    @Column(name = "changedAt", columnDefinition = "TIMESTAMP", insertable = false, updatable = false)
+    private Timestamp changedAt;
 }
\ No newline at end of file
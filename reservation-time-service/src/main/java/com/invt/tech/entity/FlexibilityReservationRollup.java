@@ -0,0 +1,45 @@
+package com.invt.tech.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Pre-aggregated sums of the flexibility reservations of one asset and market within one time bucket.
+ * Rollups are maintained from the raw reservations and read by the {@code total=true} queries.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "flexibility_reservation_rollups")
+public class FlexibilityReservationRollup {
+
+    /**
+     * Asset, market, resolution and start of the bucket.
+     */
+    @EmbeddedId
+    private FlexibilityReservationRollupId id;
+
+    /**
+     * Sum of the positive values in kW
+     */
+    @Column(nullable = false)
+    private BigDecimal positiveValue;
+
+    /**
+     * Sum of the negative values in kW
+     */
+    @Column(nullable = false)
+    private BigDecimal negativeValue;
+
+    /**
+     * Number of raw reservations in the bucket.
+     */
+    @Column(nullable = false)
+    private long reservationCount;
+}
@@ -0,0 +1,31 @@
+package com.invt.tech.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A day of an asset and market whose reservations changed after its rollups were computed.
+ * Queued days are recomputed by the rollup compaction.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "flexibility_reservation_rollup_dirty_days")
+public class FlexibilityReservationRollupDirtyDay {
+
+    /**
+     * Asset, market and start of the day.
+     */
+    @EmbeddedId
+    private FlexibilityReservationRollupDirtyDayId id;
+
+    /**
+     * Number of times the day was queued again while already queued.
+     */
+    @Column(nullable = false)
+    private long version;
+}
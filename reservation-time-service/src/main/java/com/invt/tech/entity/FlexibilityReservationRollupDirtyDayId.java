@@ -0,0 +1,39 @@
+package com.invt.tech.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Composite key of a {@link FlexibilityReservationRollupDirtyDay}: one UTC day of one asset and market.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibilityReservationRollupDirtyDayId implements Serializable {
+
+    /**
+     * Asset ID
+     */
+    @Column(nullable = false)
+    private UUID assetId;
+
+    /**
+     * Market ID
+     */
+    @Column(nullable = false)
+    private UUID marketId;
+
+    /**
+     * Start of the day, UTC.
+     */
+    @Column(nullable = false, columnDefinition = "TIMESTAMP")
+    private Timestamp dayStart;
+}
@@ -0,0 +1,48 @@
+package com.invt.tech.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Composite key of a {@link FlexibilityReservationRollup}: one bucket of one asset and market at one resolution.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibilityReservationRollupId implements Serializable {
+
+    /**
+     * Asset ID
+     */
+    @Column(nullable = false)
+    private UUID assetId;
+
+    /**
+     * Market ID
+     */
+    @Column(nullable = false)
+    private UUID marketId;
+
+    /**
+     * Bucket size of the rollup.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupResolution resolution;
+
+    /**
+     * Start of the bucket, UTC aligned.
+     */
+    @Column(nullable = false, columnDefinition = "TIMESTAMP")
+    private Timestamp bucketStart;
+}
@@ -0,0 +1,72 @@
+package com.invt.tech.entity;
+
+import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Bucket sizes of the pre-aggregated reservation rollups.
+ *
+ * <p>Buckets are aligned to UTC. {@link #INTERVAL} keeps one bucket per reservation timestamp,
+ * which is the grouping of the {@code total=true} export.</p>
+ */
+public enum RollupResolution {
+
+    /**
+     * One bucket per reservation timestamp.
+     */
+    INTERVAL("interval", null),
+
+    /**
+     * Hourly buckets.
+     */
+    HOUR("PT1H", ChronoUnit.HOURS),
+
+    /**
+     * Daily buckets.
+     */
+    DAY("P1D", ChronoUnit.DAYS);
+
+    private final String value;
+    private final ChronoUnit unit;
+
+    RollupResolution(String value, ChronoUnit unit) {
+        this.value = value;
+        this.unit = unit;
+    }
+
+    /**
+     * Resolves the rollup resolution from its request parameter value.
+     *
+     * @param value the requested resolution, case-insensitive; null or blank selects {@link #INTERVAL}
+     * @return the matching resolution
+     * @throws IllegalArgumentException if the resolution is not supported
+     */
+    public static RollupResolution fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return INTERVAL;
+        }
+        for (RollupResolution resolution : values()) {
+            if (resolution.value.equalsIgnoreCase(value)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported resolution: " + value + ". Supported resolutions: "
+                + Arrays.stream(values()).map(RollupResolution::getValue).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Returns the start of the bucket containing the given timestamp.
+     *
+     * @param timestamp a timestamp
+     * @return the bucket start, the timestamp itself for {@link #INTERVAL}
+     */
+    public Timestamp bucketStart(Timestamp timestamp) {
+        return unit == null ? timestamp : Timestamp.from(timestamp.toInstant().truncatedTo(unit));
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
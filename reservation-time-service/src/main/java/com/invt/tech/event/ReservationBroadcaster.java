@@ -0,0 +1,257 @@
+package com.invt.tech.event;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes written flexibility reservations to Server-Sent Events subscribers of their asset and market.
+ *
+ * <p>The committed {@link ReservationsChangedEvent}s are the single feed of changes, so subscribers add no load on
+ * the database. Publishing never waits for a subscriber: each one has its own buffer of pending rows and at most one
+ * send in flight on a sender thread. While a slow client is still being written to, further rows are coalesced in its
+ * buffer, keeping only the latest revision per timestamp and bid IDs. When more than
+ * {@code reservation.subscriptions.max-pending} rows are pending, the buffer is dropped and the client receives a
+ * {@code resync} event instead, after which it reads the changes it missed from the change feed.</p>
+ *
+ * <p>Events are named {@code reservations}, with a JSON array of rows as data, and {@code resync}. Idle subscriptions
+ * receive a comment every {@code reservation.subscriptions.heartbeat-interval}, so closed connections are noticed.
+ * Sender threads are virtual threads when {@code spring.threads.virtual.enabled} is active. At most
+ * {@code reservation.subscriptions.max-senders} sends run at once; a subscriber finding no free sender keeps its rows
+ * pending until the next rows or heartbeat schedule it again.</p>
+ */
+@Slf4j
+@Component
+public class ReservationBroadcaster {
+
+    /**
+     * Name of the events carrying written reservations.
+     */
+    public static final String RESERVATIONS_EVENT = "reservations";
+
+    /**
+     * Name of the event telling a subscriber that updates were dropped.
+     */
+    public static final String RESYNC_EVENT = "resync";
+
+    private final Map<List<UUID>, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final SimpleAsyncTaskExecutor senders;
+    private final int maxSubscribers;
+    private final int maxPending;
+    private final Duration timeout;
+
+    /**
+     * Constructs a new {@code ReservationBroadcaster}.
+     *
+     * @param environment environment deciding whether sender threads are virtual
+     * @param meterRegistry registry the number of subscribers is published to
+     * @param maxSubscribers number of open subscriptions before further ones are rejected
+     * @param maxPending number of rows buffered for a slow subscriber before they are dropped
+     * @param maxSenders number of subscribers sent to at once, each blocking a sender thread while its client is slow
+     * @param timeout time after which a subscription is closed and has to be renewed by the client
+     */
+    public ReservationBroadcaster(
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${reservation.subscriptions.max-subscribers:10000}") int maxSubscribers,
+            @Value("${reservation.subscriptions.max-pending:10000}") int maxPending,
+            @Value("${reservation.subscriptions.max-senders:64}") int maxSenders,
+            @Value("${reservation.subscriptions.timeout:PT30M}") Duration timeout
+    ) {
+        this.senders = new SimpleAsyncTaskExecutor("reservation-push-");
+        this.senders.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        this.senders.setConcurrencyLimit(maxSenders);
+        // Publishing must not wait for a sender, see schedule()
+        this.senders.setRejectTasksWhenLimitReached(true);
+        this.maxSubscribers = maxSubscribers;
+        this.maxPending = maxPending;
+        this.timeout = timeout;
+        Gauge.builder("reservation.subscriptions.active", subscriberCount, AtomicInteger::get)
+                .description("Open reservation update subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a subscription to the reservations written for an asset and market from now on.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @return the emitter of the subscription
+     * @throws TaskRejectedException if {@code reservation.subscriptions.max-subscribers} subscriptions are open
+     */
+    public SseEmitter subscribe(UUID assetId, UUID marketId) {
+        return subscribe(assetId, marketId, new SseEmitter(timeout.toMillis()));
+    }
+
+    SseEmitter subscribe(UUID assetId, UUID marketId, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TaskRejectedException("Too many reservation subscriptions");
+        }
+        List<UUID> pair = List.of(assetId, marketId);
+        Subscriber subscriber = new Subscriber(pair, emitter);
+        subscribers.computeIfAbsent(pair, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(e -> subscriber.remove());
+        return emitter;
+    }
+
+    /**
+     * Pushes the written reservations to the subscribers of their asset and market once the write has been committed.
+     *
+     * @param event the written reservations
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationsChanged(ReservationsChangedEvent event) {
+        Set<Subscriber> pairSubscribers = subscribers.get(List.of(event.assetId(), event.marketId()));
+        if (pairSubscribers == null || event.reservations().isEmpty()) {
+            return;
+        }
+        pairSubscribers.forEach(subscriber -> subscriber.offer(event.reservations()));
+    }
+
+    /**
+     * Sends a comment to every idle subscriber, so connections closed by the client are detected and released.
+     */
+    @Scheduled(fixedDelayString = "${reservation.subscriptions.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.values().forEach(pairSubscribers -> pairSubscribers.forEach(Subscriber::ping));
+    }
+
+    // Identity of a reservation for coalescing, the same as for upserts within an asset and market
+    private record Revision(Timestamp timestamp, UUID positiveBidId, UUID negativeBidId) {
+
+        private static Revision of(FlexibilityReservationDTO reservation) {
+            return new Revision(reservation.getTimestamp(), reservation.getPositiveBidId(), reservation.getNegativeBidId());
+        }
+    }
+
+    private final class Subscriber {
+
+        private final List<UUID> pair;
+        private final SseEmitter emitter;
+        // Guarded by this; sending runs outside of the lock
+        private final Map<Revision, FlexibilityReservationDTO> pending = new LinkedHashMap<>();
+        private boolean overflowed;
+        private boolean ping;
+        private boolean sending;
+        private boolean removed;
+
+        private Subscriber(List<UUID> pair, SseEmitter emitter) {
+            this.pair = pair;
+            this.emitter = emitter;
+        }
+
+        private void offer(List<FlexibilityReservationDTO> reservations) {
+            synchronized (this) {
+                if (!overflowed) {
+                    reservations.forEach(reservation -> pending.put(Revision.of(reservation), reservation));
+                    if (pending.size() > maxPending) {
+                        pending.clear();
+                        overflowed = true;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        private void ping() {
+            synchronized (this) {
+                ping = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (sending || removed) {
+                    return;
+                }
+                sending = true;
+            }
+            try {
+                senders.execute(this::send);
+            } catch (TaskRejectedException e) {
+                // All senders are busy; the pending rows are sent once the next rows or heartbeat find a free one
+                synchronized (this) {
+                    sending = false;
+                }
+                log.debug("Deferring push of reservations of asset {} market {}: {}", pair.get(0), pair.get(1), e.getMessage());
+            }
+        }
+
+        // Sends until nothing is pending; rows offered meanwhile are coalesced and sent in the next round
+        private void send() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    if (removed) {
+                        sending = false;
+                        return;
+                    }
+                    if (overflowed) {
+                        event = SseEmitter.event().name(RESYNC_EVENT).data("");
+                    } else if (!pending.isEmpty()) {
+                        event = SseEmitter.event().name(RESERVATIONS_EVENT)
+                                .data(new ArrayList<>(pending.values()), MediaType.APPLICATION_JSON);
+                    } else if (ping) {
+                        event = SseEmitter.event().comment("heartbeat");
+                    } else {
+                        sending = false;
+                        return;
+                    }
+                    pending.clear();
+                    overflowed = false;
+                    ping = false;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Closing reservation subscription of asset {} market {}: {}", pair.get(0), pair.get(1), e.getMessage());
+                    remove();
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+
+        private void remove() {
+            synchronized (this) {
+                if (removed) {
+                    return;
+                }
+                removed = true;
+                pending.clear();
+            }
+            subscribers.computeIfPresent(pair, (key, pairSubscribers) -> {
+                pairSubscribers.remove(this);
+                return pairSubscribers.isEmpty() ? null : pairSubscribers;
+            });
+            subscriberCount.decrementAndGet();
+        }
+    }
+}
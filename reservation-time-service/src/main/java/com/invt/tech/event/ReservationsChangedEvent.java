@@ -0,0 +1,32 @@
+package com.invt.tech.event;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published when flexibility reservations of an asset and market are written.
+ *
+ * @param assetId      the UUID of the asset
+ * @param marketId     the UUID of the market
+ * @param from         the earliest timestamp of the written reservations
+ * @param to           the latest timestamp of the written reservations
+ * @param reservations the written reservations as they were stored, empty if the writer does not provide them
+ */
+public record ReservationsChangedEvent(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                       List<FlexibilityReservationDTO> reservations) {
+
+    /**
+     * Creates an event without the written reservations.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the earliest timestamp of the written reservations
+     * @param to       the latest timestamp of the written reservations
+     */
+    public ReservationsChangedEvent(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        this(assetId, marketId, from, to, List.of());
+    }
+}
@@ -1,6 +1,7 @@
 package com.invt.tech.handler;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -47,4 +48,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
-}
\ No newline at end of file
+    /**
+     * Handles {@link TaskRejectedException} thrown when no thread is left to run an asynchronous export or export job,
+     * or when the limit of open subscriptions is reached.
+     *
+     * @param ex the exception instance
+     * @return ResponseEntity with HTTP 503 status and error message
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejected(TaskRejectedException ex) {
+        return new ResponseEntity<>("Too many concurrent exports or subscriptions, retry later", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.invt.tech.metrics;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the reservation export pipeline.
+ *
+ * <p>Each export is split into the stages that can make it slow:</p>
+ * <ul>
+ *     <li>{@code reservation.export.query}: time from the start of the export until the query returned its first row</li>
+ *     <li>{@code reservation.export.time-to-first-byte}: time from the start of the export until the first byte was
+ *     written to the response or file</li>
+ *     <li>{@code reservation.export.duration}: time until the export was completely written</li>
+ *     <li>{@code reservation.export.rows} and {@code reservation.export.bytes}: rows and bytes written per export,
+ *     bytes counted as sent, after compression</li>
+ * </ul>
+ *
+ * <p>All meters are tagged with the {@code endpoint} and the {@code total} flag, the written meters also with the
+ * {@code format} and the {@code outcome}. The repository calls themselves are timed by Spring Data as
+ * {@code spring.data.repository.invocations}.</p>
+ */
+@Component
+public class ExportMetrics {
+
+    /**
+     * Endpoint tag of the export of one asset and market.
+     */
+    public static final String EXPORT = "export";
+
+    /**
+     * Endpoint tag of the batch query of several assets and markets.
+     */
+    public static final String BATCH = "batch";
+
+    /**
+     * Endpoint tag of the streamed JSON read of one asset and market.
+     */
+    public static final String STREAM = "stream";
+
+    /**
+     * Endpoint tag of the asynchronous export jobs.
+     */
+    public static final String EXPORT_JOB = "export-job";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a new {@code ExportMetrics} publishing to the given registry.
+     *
+     * @param meterRegistry registry the meters are published to
+     */
+    public ExportMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the time an export waited for the first row of its query.
+     *
+     * @param endpoint  the endpoint tag
+     * @param total     whether aggregated sums were queried
+     * @param startNanos {@link System#nanoTime()} at the start of the export
+     */
+    public void recordQuery(String endpoint, boolean total, long startNanos) {
+        Timer.builder("reservation.export.query")
+                .description("Time until the export query returned its first row")
+                .tags(Tags.of("endpoint", endpoint, "total", Boolean.toString(total)))
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts recording an export.
+     *
+     * @param endpoint the endpoint tag
+     * @param total    whether aggregated sums are exported
+     * @param format   the export format
+     * @return the recording of the export
+     */
+    public Recording start(String endpoint, boolean total, String format) {
+        return new Recording(Tags.of("endpoint", endpoint, "total", Boolean.toString(total), "format", format));
+    }
+
+    /**
+     * Writes an export; the counterpart of {@code StreamingResponseBody} without the output stream.
+     */
+    @FunctionalInterface
+    public interface Export {
+
+        /**
+         * Writes the export.
+         *
+         * @throws IOException if writing fails
+         */
+        void write() throws IOException;
+    }
+
+    /**
+     * Counts the rows and bytes of one export and publishes them when it is finished.
+     * Counters are updated by the thread writing the export.
+     */
+    public final class Recording {
+
+        private final Tags tags;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long bytes;
+        private long firstByteNanos = -1;
+
+        private Recording(Tags tags) {
+            this.tags = tags;
+        }
+
+        /**
+         * Returns {@link System#nanoTime()} at the start of the export.
+         *
+         * @return the start time
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * Wraps the exported rows, counting every row read.
+         *
+         * @param reservations the exported rows
+         * @return an iterator over the same rows
+         */
+        public Iterator<FlexibilityReservationDTO> count(Iterator<FlexibilityReservationDTO> reservations) {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return reservations.hasNext();
+                }
+
+                @Override
+                public FlexibilityReservationDTO next() {
+                    FlexibilityReservationDTO next = reservations.next();
+                    rows++;
+                    return next;
+                }
+            };
+        }
+
+        /**
+         * Wraps a stream, counting the bytes written and the time of the first one.
+         *
+         * @param out the stream the export is written to
+         * @return a stream writing to {@code out}
+         */
+        public OutputStream count(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    written(1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    written(len);
+                }
+            };
+        }
+
+        /**
+         * Wraps a response, counting the bytes written to its output stream and the time of the first one.
+         *
+         * @param response the response the export is written to
+         * @return a response writing to the same output stream
+         */
+        public HttpServletResponse count(HttpServletResponse response) {
+            return new HttpServletResponseWrapper(response) {
+
+                private ServletOutputStream counted;
+
+                @Override
+                public ServletOutputStream getOutputStream() throws IOException {
+                    if (counted == null) {
+                        counted = new CountingServletOutputStream(super.getOutputStream());
+                    }
+                    return counted;
+                }
+            };
+        }
+
+        /**
+         * Writes the export and publishes its meters with the outcome {@code success} or {@code failure}.
+         *
+         * @param export writes the export
+         * @throws IOException if writing fails
+         */
+        public void record(Export export) throws IOException {
+            String outcome = "failure";
+            try {
+                export.write();
+                outcome = "success";
+            } finally {
+                stop(outcome);
+            }
+        }
+
+        private void stop(String outcome) {
+            Tags finished = tags.and("outcome", outcome);
+            Timer.builder("reservation.export.duration")
+                    .description("Time until the export was completely written")
+                    .tags(finished)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (firstByteNanos >= 0) {
+                Timer.builder("reservation.export.time-to-first-byte")
+                        .description("Time until the first byte of the export was written")
+                        .tags(finished)
+                        .register(meterRegistry)
+                        .record(firstByteNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+            DistributionSummary.builder("reservation.export.rows")
+                    .description("Rows written per export")
+                    .baseUnit("rows")
+                    .tags(finished)
+                    .register(meterRegistry)
+                    .record(rows);
+            DistributionSummary.builder("reservation.export.bytes")
+                    .description("Bytes written per export, after compression")
+                    .baseUnit("bytes")
+                    .tags(finished)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+
+        private void written(int length) {
+            if (firstByteNanos < 0 && length > 0) {
+                firstByteNanos = System.nanoTime();
+            }
+            bytes += length;
+        }
+
+        private final class CountingServletOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream out;
+
+            private CountingServletOutputStream(ServletOutputStream out) {
+                this.out = out;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                written(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                written(len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return out.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                out.setWriteListener(writeListener);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Writes flexibility reservations with JDBC batch statements.
+ * Used for bulk imports, where persisting one entity at a time through JPA would cost a round trip per row.
+ */
+@Repository
+public class FlexibilityReservationBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO flexibility_reservations (" +
+            "asset_id, market_id, positive_bid_id, negative_bid_id, " +
+            "positive_value, positive_capacity_price, positive_energy_price, " +
+            "negative_value, negative_capacity_price, negative_energy_price, " +
+            "timestamp, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Bid IDs are part of the natural key but nullable, hence IS NOT DISTINCT FROM instead of equality; the unique
+    // natural key constraint makes one of two concurrent inserts of the same reservation fail instead of duplicating it.
+    // Inserts get changed_at from its column default, replacements set it explicitly
+    private static final String UPSERT_SQL = "MERGE INTO flexibility_reservations t USING (VALUES (" +
+            "CAST(? AS UUID), CAST(? AS UUID), CAST(? AS UUID), CAST(? AS UUID), " +
+            "CAST(? AS DECIMAL(15,3)), CAST(? AS DECIMAL(10,6)), CAST(? AS DECIMAL(10,6)), " +
+            "CAST(? AS DECIMAL(15,3)), CAST(? AS DECIMAL(10,6)), CAST(? AS DECIMAL(10,6)), " +
+            "CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE))) " +
+            "s(asset_id, market_id, positive_bid_id, negative_bid_id, " +
+            "positive_value, positive_capacity_price, positive_energy_price, " +
+            "negative_value, negative_capacity_price, negative_energy_price, " +
+            "timestamp, updated_at) " +
+            "ON t.asset_id = s.asset_id AND t.market_id = s.market_id AND t.timestamp = s.timestamp " +
+            "AND t.positive_bid_id IS NOT DISTINCT FROM s.positive_bid_id " +
+            "AND t.negative_bid_id IS NOT DISTINCT FROM s.negative_bid_id " +
+            "WHEN MATCHED AND (t.updated_at IS NULL OR s.updated_at > t.updated_at) THEN UPDATE SET " +
+            "positive_value = s.positive_value, positive_capacity_price = s.positive_capacity_price, " +
+            "positive_energy_price = s.positive_energy_price, negative_value = s.negative_value, " +
+            "negative_capacity_price = s.negative_capacity_price, negative_energy_price = s.negative_energy_price, " +
+            "updated_at = s.updated_at, changed_at = CURRENT_TIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (asset_id, market_id, positive_bid_id, negative_bid_id, " +
+            "positive_value, positive_capacity_price, positive_energy_price, " +
+            "negative_value, negative_capacity_price, negative_energy_price, " +
+            "timestamp, updated_at) " +
+            "VALUES (s.asset_id, s.market_id, s.positive_bid_id, s.negative_bid_id, " +
+            "s.positive_value, s.positive_capacity_price, s.positive_energy_price, " +
+            "s.negative_value, s.negative_capacity_price, s.negative_energy_price, " +
+            "s.timestamp, s.updated_at)";
+
+    private static final ParameterizedPreparedStatementSetter<FlexibilityReservationDTO> PARAMETERS = (ps, reservation) -> {
+        ps.setObject(1, reservation.getAssetId());
+        ps.setObject(2, reservation.getMarketId());
+        ps.setObject(3, reservation.getPositiveBidId());
+        ps.setObject(4, reservation.getNegativeBidId());
+        ps.setBigDecimal(5, reservation.getPositiveValue());
+        ps.setBigDecimal(6, reservation.getPositiveCapacityPrice());
+        ps.setBigDecimal(7, reservation.getPositiveEnergyPrice());
+        ps.setBigDecimal(8, reservation.getNegativeValue());
+        ps.setBigDecimal(9, reservation.getNegativeCapacityPrice());
+        ps.setBigDecimal(10, reservation.getNegativeEnergyPrice());
+        ps.setTimestamp(11, reservation.getTimestamp());
+        ps.setTimestamp(12, reservation.getUpdatedAt());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a new {@code FlexibilityReservationBatchRepository}.
+     *
+     * @param jdbcTemplate template used to execute the batch statements
+     */
+    public FlexibilityReservationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts reservations as a single JDBC batch. IDs are assigned by the database.
+     *
+     * @param reservations the reservations to insert
+     * @throws org.springframework.dao.DuplicateKeyException if a reservation with the same natural key is stored
+     */
+    public void insertAll(List<FlexibilityReservationDTO> reservations) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, reservations, reservations.size(), PARAMETERS);
+    }
+
+    /**
+     * Inserts or replaces reservations as a single JDBC batch of {@code MERGE} statements.
+     *
+     * <p>A reservation matches a stored one with the same asset, market, timestamp and bid IDs. The stored values
+     * are replaced if the stored {@code updatedAt} is null or older than the uploaded one; otherwise the uploaded
+     * reservation is ignored as stale, so re-sending a revision changes nothing. Reservations without a match are
+     * inserted.</p>
+     *
+     * @param reservations the reservations to write, each with a non-null {@code updatedAt}
+     * @return for each reservation, true if it was inserted or replaced a stored one, false if it was stale
+     * @throws org.springframework.dao.DuplicateKeyException if a concurrent transaction inserted one of the reservations first
+     */
+    public boolean[] upsertAll(List<FlexibilityReservationDTO> reservations) {
+        int[][] counts = jdbcTemplate.batchUpdate(UPSERT_SQL, reservations, reservations.size(), PARAMETERS);
+        boolean[] written = new boolean[reservations.size()];
+        for (int i = 0; i < written.length; i++) {
+            // Drivers may report SUCCESS_NO_INFO (-2) instead of a row count
+            written[i] = counts[0][i] != 0;
+        }
+        return written;
+    }
+}
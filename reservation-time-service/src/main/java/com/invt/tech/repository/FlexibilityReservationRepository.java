@@ -1,32 +1,168 @@
 package com.invt.tech.repository;
 
 import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationVersion;
 import com.invt.tech.entity.FlexibilityReservation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 
 /**
  * Repository interface for accessing and querying {@link FlexibilityReservation} entities.
  * Provides methods to retrieve raw or aggregated reservation data from the database.
+ *
+ * <p>Read queries project straight into {@link FlexibilityReservationDTO} constructors, so no managed entities,
+ * snapshots for dirty checking or entity-to-DTO copies are created on the read path. Aggregated sums are read from
+ * the rollups, see {@link FlexibilityReservationRollupRepository}.</p>
  */
 @Repository
 public interface FlexibilityReservationRepository extends JpaRepository<FlexibilityReservation, Long> {
 
     /**
-     * Retrieves all flexibility reservation records by asset ID and market ID.
+     * Number of rows the JDBC driver fetches per round trip when a query result is streamed.
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * Select clause projecting all columns of a reservation {@code r} into a {@link FlexibilityReservationDTO}.
+     */
+    String DTO_PROJECTION = "SELECT new com.invt.tech.dto.FlexibilityReservationDTO(" +
+            "r.id, r.assetId, r.marketId, r.positiveBidId, r.negativeBidId, " +
+            "r.positiveValue, r.positiveCapacityPrice, r.positiveEnergyPrice, " +
+            "r.negativeValue, r.negativeCapacityPrice, r.negativeEnergyPrice, " +
+            "r.timestamp, r.updatedAt) " +
+            "FROM FlexibilityReservation r ";
+
+    /**
+     * Retrieves all flexibility reservations by asset ID and market ID as DTOs.
+     *
+     * @param assetId  the unique identifier of the asset
+     * @param marketId the unique identifier of the market
+     * @return a list of {@link FlexibilityReservationDTO} matching the asset and market
+     */
+    @Query(DTO_PROJECTION +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId")
+    List<FlexibilityReservationDTO> findReservations(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId
+    );
+
+    /**
+     * Streams all flexibility reservations for an asset and market, ordered by timestamp and ID.
+     *
+     * <p>Rows are fetched in chunks of {@link #STREAM_FETCH_SIZE}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
      *
      * @param assetId  the unique identifier of the asset
      * @param marketId the unique identifier of the market
-     * @return a list of {@link FlexibilityReservation} matching the asset and market
+     * @return a stream of {@link FlexibilityReservationDTO} ordered by timestamp and ID
      */
-    List<FlexibilityReservation> findByAssetIdAndMarketId(UUID assetId, UUID marketId);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(DTO_PROJECTION +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId " +
+            "ORDER BY r.timestamp, r.id")
+    Stream<FlexibilityReservationDTO> streamReservations(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId
+    );
+
+    /**
+     * Retrieves the first page of flexibility reservations for an asset and market, ordered by timestamp and ID.
+     *
+     * @param assetId  the unique identifier of the asset
+     * @param marketId the unique identifier of the market
+     * @param limit    the maximum number of reservations to return
+     * @return a list of at most {@code limit} {@link FlexibilityReservationDTO} records
+     */
+    @Query(DTO_PROJECTION +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId " +
+            "ORDER BY r.timestamp, r.id")
+    List<FlexibilityReservationDTO> findFirstPage(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            Limit limit
+    );
+
+    /**
+     * Retrieves the page of flexibility reservations that follows the given {@code (timestamp, id)} position,
+     * ordered by timestamp and ID.
+     *
+     * <p>Keyset (seek) pagination: the query starts at the cursor position in the
+     * {@code (asset_id, market_id, timestamp, changed_at)} index instead of skipping an offset, so its cost depends
+     * only on the page size.</p>
+     *
+     * @param assetId   the unique identifier of the asset
+     * @param marketId  the unique identifier of the market
+     * @param timestamp timestamp of the last reservation on the previous page
+     * @param id        ID of the last reservation on the previous page
+     * @param limit     the maximum number of reservations to return
+     * @return a list of at most {@code limit} {@link FlexibilityReservationDTO} records
+     */
+    @Query(DTO_PROJECTION +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId " +
+            "AND (r.timestamp > :timestamp OR (r.timestamp = :timestamp AND r.id > :id)) " +
+            "ORDER BY r.timestamp, r.id")
+    List<FlexibilityReservationDTO> findPageAfter(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("timestamp") Timestamp timestamp,
+            @Param("id") long id,
+            Limit limit
+    );
+
+    /**
+     * Retrieves the flexibility reservations of an asset and market stored after the given {@code (changedAt, id)}
+     * position and not after {@code until}, ordered by change time and ID, with their change time.
+     *
+     * <p>Reads the change feed of an asset and market, see
+     * {@link com.invt.tech.service.FlexibilityReservationService#getChanges}. Seeks in the
+     * {@code (asset_id, market_id, changed_at)} index, so its cost depends on the number of changes rather than on
+     * the number of stored reservations.</p>
+     *
+     * @param assetId   the unique identifier of the asset
+     * @param marketId  the unique identifier of the market
+     * @param changedAt change time of the last reservation already seen
+     * @param id        ID of the last reservation already seen
+     * @param until     the latest change time returned (inclusive)
+     * @param limit     the maximum number of reservations to return
+     * @return a list of at most {@code limit} {@link FlexibilityReservationDTO} records
+     */
+    @Query("SELECT new com.invt.tech.dto.FlexibilityReservationDTO(" +
+            "r.id, r.assetId, r.marketId, r.positiveBidId, r.negativeBidId, " +
+            "r.positiveValue, r.positiveCapacityPrice, r.positiveEnergyPrice, " +
+            "r.negativeValue, r.negativeCapacityPrice, r.negativeEnergyPrice, " +
+            "r.timestamp, r.updatedAt, r.changedAt) " +
+            "FROM FlexibilityReservation r " +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId " +
+            "AND (r.changedAt > :changedAt OR (r.changedAt = :changedAt AND r.id > :id)) " +
+            "AND r.changedAt <= :until " +
+            "ORDER BY r.changedAt, r.id")
+    List<FlexibilityReservationDTO> findChangesAfter(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("changedAt") Timestamp changedAt,
+            @Param("id") long id,
+            @Param("until") Timestamp until,
+            Limit limit
+    );
 
     /**
      * Retrieves filtered flexibility reservations within a specific time interval for a given asset and market.
@@ -35,13 +171,13 @@ public interface FlexibilityReservationRepository extends JpaRepository<Flexibil
      * @param marketId the UUID of the market
      * @param from     the start timestamp of the interval
      * @param to       the end timestamp of the interval
-     * @return a list of {@link FlexibilityReservation} that fall within the time range
+     * @return a list of {@link FlexibilityReservationDTO} that fall within the time range
      */
-    @Query("SELECT r FROM FlexibilityReservation r " +
+    @Query(DTO_PROJECTION +
             "WHERE r.assetId = :assetId " +
             "AND r.marketId = :marketId " +
             "AND r.timestamp BETWEEN :from AND :to")
-    List<FlexibilityReservation> findFilteredReservations(
+    List<FlexibilityReservationDTO> findFilteredReservations(
             @Param("assetId") UUID assetId,
             @Param("marketId") UUID marketId,
             @Param("from") Timestamp from,
@@ -49,29 +185,177 @@ public interface FlexibilityReservationRepository extends JpaRepository<Flexibil
     );
 
     /**
-     * Retrieves aggregated reservation data (sum of positive and negative values) for a given asset and market
-     * within a specific time interval. The earliest timestamp in the group is selected as a representative timestamp.
+     * Streams filtered flexibility reservations within a specific time interval for a given asset and market,
+     * ordered by timestamp.
      *
-     * <p>Useful for total summaries in CSV exports, where duplicate timestamps are grouped.</p>
+     * <p>Rows are fetched from the database in chunks of {@link #STREAM_FETCH_SIZE} instead of being collected into a list.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
      *
      * @param assetId  the UUID of the asset
      * @param marketId the UUID of the market
      * @param from     the start timestamp of the interval
      * @param to       the end timestamp of the interval
-     * @return a list of {@link FlexibilityReservationDTO} with aggregated values and the minimum timestamp
+     * @return a stream of {@link FlexibilityReservationDTO} that fall within the time range
      */
-    @Query("SELECT new com.invt.tech.dto.FlexibilityReservationDTO(" +
-            "r.assetId, r.marketId, r.timestamp, SUM(r.positiveValue), SUM(r.negativeValue)) " +
-            "FROM FlexibilityReservation r " +
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(DTO_PROJECTION +
             "WHERE r.assetId = :assetId " +
             "AND r.marketId = :marketId " +
             "AND r.timestamp BETWEEN :from AND :to " +
-            "GROUP BY r.timestamp, r.assetId, r.marketId")
-    List<FlexibilityReservationDTO> findAggregatedReservationSums(
+            "ORDER BY r.timestamp, r.id")
+    Stream<FlexibilityReservationDTO> streamFilteredReservations(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to
+    );
+
+    /**
+     * Streams filtered flexibility reservations of several assets and markets within a specific time interval,
+     * grouped by asset and market and ordered by timestamp within each group.
+     *
+     * <p>Callers bound the number of asset IDs per query, see
+     * {@link com.invt.tech.service.FlexibilityReservationServiceImpl#BATCH_QUERY_CHUNK_SIZE}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param assetIds  the UUIDs of the assets
+     * @param marketIds the UUIDs of the markets
+     * @param from      the start timestamp of the interval
+     * @param to        the end timestamp of the interval
+     * @return a stream of {@link FlexibilityReservationDTO} ordered by asset, market, timestamp and ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(DTO_PROJECTION +
+            "WHERE r.assetId IN :assetIds " +
+            "AND r.marketId IN :marketIds " +
+            "AND r.timestamp BETWEEN :from AND :to " +
+            "ORDER BY r.assetId, r.marketId, r.timestamp, r.id")
+    Stream<FlexibilityReservationDTO> streamFilteredReservationsOfAssets(
+            @Param("assetIds") Collection<UUID> assetIds,
+            @Param("marketIds") Collection<UUID> marketIds,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to
+    );
+
+    /**
+     * Streams the flexibility reservations of all assets and markets within a time interval,
+     * grouped by asset and market and ordered by timestamp and ID within each group.
+     *
+     * <p>Loads the in-memory hot window, see {@link com.invt.tech.cache.ReservationHotWindow}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param from the start of the interval (inclusive)
+     * @param to   the end of the interval (exclusive)
+     * @return a stream of {@link FlexibilityReservationDTO} ordered by asset, market, timestamp and ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(DTO_PROJECTION +
+            "WHERE r.timestamp >= :from " +
+            "AND r.timestamp < :to " +
+            "ORDER BY r.assetId, r.marketId, r.timestamp, r.id")
+    Stream<FlexibilityReservationDTO> streamReservationsBetween(
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to
+    );
+
+    /**
+     * Streams the flexibility reservations within a time interval that were stored in the given change time interval,
+     * grouped by asset and market and ordered by timestamp and ID within each group.
+     *
+     * <p>Refreshes the in-memory hot window, see {@link com.invt.tech.cache.ReservationHotWindow}. Reads the change
+     * times stamped by the database, like the change feed, so rows whose {@code updated_at} is set back by a writer are
+     * returned as well. The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param changedAfter the change time after which reservations are returned (exclusive)
+     * @param changedUntil the latest change time returned (inclusive)
+     * @param from         the start of the interval (inclusive)
+     * @param to           the end of the interval (exclusive)
+     * @return a stream of {@link FlexibilityReservationDTO} ordered by asset, market, timestamp and ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(DTO_PROJECTION +
+            "WHERE r.changedAt > :changedAfter " +
+            "AND r.changedAt <= :changedUntil " +
+            "AND r.timestamp >= :from " +
+            "AND r.timestamp < :to " +
+            "ORDER BY r.assetId, r.marketId, r.timestamp, r.id")
+    Stream<FlexibilityReservationDTO> streamReservationsChangedBetween(
+            @Param("changedAfter") Timestamp changedAfter,
+            @Param("changedUntil") Timestamp changedUntil,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to
+    );
+
+    /**
+     * Retrieves the version of all flexibility reservations of an asset and market.
+     *
+     * <p>Counts the entries of the {@code (asset_id, market_id, changed_at)} index and reads its last one,
+     * without touching the table rows.</p>
+     *
+     * @param assetId  the unique identifier of the asset
+     * @param marketId the unique identifier of the market
+     * @return the number of reservations and their latest change time
+     */
+    @Query("SELECT new com.invt.tech.dto.ReservationVersion(COUNT(r), MAX(r.changedAt)) " +
+            "FROM FlexibilityReservation r " +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId")
+    ReservationVersion findVersion(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId
+    );
+
+    /**
+     * Retrieves the version of the flexibility reservations of an asset and market within a time interval.
+     *
+     * <p>Answered from the {@code (asset_id, market_id, timestamp, changed_at)} index alone.</p>
+     *
+     * @param assetId  the unique identifier of the asset
+     * @param marketId the unique identifier of the market
+     * @param from     the start of the interval (inclusive)
+     * @param to       the end of the interval (inclusive)
+     * @return the number of reservations in the interval and their latest change time
+     */
+    @Query("SELECT new com.invt.tech.dto.ReservationVersion(COUNT(r), MAX(r.changedAt)) " +
+            "FROM FlexibilityReservation r " +
+            "WHERE r.assetId = :assetId " +
+            "AND r.marketId = :marketId " +
+            "AND r.timestamp BETWEEN :from AND :to")
+    ReservationVersion findVersionBetween(
             @Param("assetId") UUID assetId,
             @Param("marketId") UUID marketId,
             @Param("from") Timestamp from,
-            @Param("to") Timestamp to);
+            @Param("to") Timestamp to
+    );
+
+    /**
+     * Retrieves the timestamp of the oldest flexibility reservation.
+     *
+     * <p>Finds the first month to archive, see {@link com.invt.tech.service.ReservationArchiveService}.</p>
+     *
+     * @return the earliest timestamp, or null if there are no reservations
+     */
+    @Query("SELECT MIN(r.timestamp) FROM FlexibilityReservation r")
+    Timestamp findOldestTimestamp();
+
+    /**
+     * Deletes the flexibility reservations of all assets and markets within a time interval.
+     *
+     * <p>Removes archived reservations from the table, see {@link com.invt.tech.service.ReservationArchiveService}.
+     * Runs as a bulk delete without loading the entities and without queueing rollup days.</p>
+     *
+     * @param from the start of the interval (inclusive)
+     * @param to   the end of the interval (exclusive)
+     * @return the number of deleted reservations
+     */
+    @Modifying
+    @Query("DELETE FROM FlexibilityReservation r " +
+            "WHERE r.timestamp >= :from " +
+            "AND r.timestamp < :to")
+    int deleteReservationsBetween(
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to
+    );
 
 //    @Query("SELECT new com.invt.tech.dto.FlexibilityReservationDTO(" +
 //            "r.assetId, r.marketId, MIN(r.timestamp), SUM(r.positiveValue), SUM(r.negativeValue)) " +
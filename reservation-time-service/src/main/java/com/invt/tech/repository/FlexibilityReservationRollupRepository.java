@@ -0,0 +1,274 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.FlexibilityReservationRollup;
+import com.invt.tech.entity.FlexibilityReservationRollupDirtyDay;
+import com.invt.tech.entity.FlexibilityReservationRollupId;
+import com.invt.tech.entity.RollupResolution;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for reading and maintaining the pre-aggregated {@link FlexibilityReservationRollup} buckets.
+ *
+ * <p>Rollups are recomputed one UTC day at a time. Days whose raw reservations changed are queued in
+ * {@code flexibility_reservation_rollup_dirty_days}; queueing a day that is already queued bumps its version, so the
+ * writer locks the queue row and a compaction that read the previous version leaves the day queued. Compacting a day
+ * replaces all of its buckets:
+ * interval buckets are summed from the raw reservations, hourly buckets from the interval buckets
+ * and daily buckets from the hourly buckets.</p>
+ */
+@Repository
+public interface FlexibilityReservationRollupRepository extends JpaRepository<FlexibilityReservationRollup, FlexibilityReservationRollupId> {
+
+    /**
+     * Retrieves the rollup sums of an asset and market for buckets starting within a specific time interval.
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param resolution the bucket size
+     * @param from       the earliest bucket start
+     * @param to         the latest bucket start
+     * @return a list of {@link FlexibilityReservationDTO} with the bucket start as timestamp, ordered by timestamp
+     */
+    @Query("SELECT new com.invt.tech.dto.FlexibilityReservationDTO(" +
+            "r.id.assetId, r.id.marketId, r.id.bucketStart, r.positiveValue, r.negativeValue) " +
+            "FROM FlexibilityReservationRollup r " +
+            "WHERE r.id.assetId = :assetId " +
+            "AND r.id.marketId = :marketId " +
+            "AND r.id.resolution = :resolution " +
+            "AND r.id.bucketStart BETWEEN :from AND :to " +
+            "ORDER BY r.id.bucketStart")
+    List<FlexibilityReservationDTO> findRollupSums(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("resolution") RollupResolution resolution,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Queues the days of an asset and market touched by the given time interval for recomputation.
+     * Days with raw reservations or existing rollups in the interval are queued; days already queued get a new version.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the start of the changed interval, aligned to a UTC day
+     * @param to       the end of the changed interval
+     * @return the number of queued days
+     */
+    @Modifying
+    @Query(value = "MERGE INTO flexibility_reservation_rollup_dirty_days d " +
+            "USING (" +
+            "SELECT asset_id, market_id, DATE_TRUNC('DAY', timestamp AT TIME ZONE 'UTC') AS day_start " +
+            "FROM flexibility_reservations " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND timestamp BETWEEN :from AND :to " +
+            "UNION " +
+            "SELECT asset_id, market_id, bucket_start " +
+            "FROM flexibility_reservation_rollups " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND resolution = 'DAY' " +
+            "AND bucket_start BETWEEN :from AND :to" +
+            ") s " +
+            "ON d.asset_id = s.asset_id AND d.market_id = s.market_id AND d.day_start = s.day_start " +
+            "WHEN MATCHED THEN UPDATE SET version = d.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (asset_id, market_id, day_start, version) VALUES (s.asset_id, s.market_id, s.day_start, 0)",
+            nativeQuery = true)
+    int markDirtyDays(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Queues every day from the given start on with raw reservations or existing rollups for recomputation.
+     *
+     * @param from the start of the first day to queue, aligned to a UTC day
+     * @return the number of queued days
+     */
+    @Modifying
+    @Query(value = "MERGE INTO flexibility_reservation_rollup_dirty_days d " +
+            "USING (" +
+            "SELECT asset_id, market_id, DATE_TRUNC('DAY', timestamp AT TIME ZONE 'UTC') AS day_start " +
+            "FROM flexibility_reservations " +
+            "WHERE timestamp >= :from " +
+            "UNION " +
+            "SELECT asset_id, market_id, bucket_start " +
+            "FROM flexibility_reservation_rollups " +
+            "WHERE resolution = 'DAY' AND bucket_start >= :from" +
+            ") s " +
+            "ON d.asset_id = s.asset_id AND d.market_id = s.market_id AND d.day_start = s.day_start " +
+            "WHEN MATCHED THEN UPDATE SET version = d.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (asset_id, market_id, day_start, version) VALUES (s.asset_id, s.market_id, s.day_start, 0)",
+            nativeQuery = true)
+    int markAllDirtyDays(@Param("from") Timestamp from);
+
+    /**
+     * Retrieves queued days, oldest first.
+     *
+     * @param limit the maximum number of days to return
+     * @return the queued days
+     */
+    @Query("SELECT d FROM FlexibilityReservationRollupDirtyDay d " +
+            "ORDER BY d.id.dayStart, d.id.assetId, d.id.marketId")
+    List<FlexibilityReservationRollupDirtyDay> findDirtyDays(Limit limit);
+
+    /**
+     * Retrieves the queued days of an asset and market starting within a specific time interval.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the earliest day start
+     * @param to       the latest day start
+     * @return the queued days, oldest first
+     */
+    @Query("SELECT d FROM FlexibilityReservationRollupDirtyDay d " +
+            "WHERE d.id.assetId = :assetId " +
+            "AND d.id.marketId = :marketId " +
+            "AND d.id.dayStart BETWEEN :from AND :to " +
+            "ORDER BY d.id.dayStart")
+    List<FlexibilityReservationRollupDirtyDay> findDirtyDays(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Retrieves the current version of a queued day.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param dayStart the start of the day
+     * @return the version, or null if the day is not queued
+     */
+    @Query("SELECT d.version FROM FlexibilityReservationRollupDirtyDay d " +
+            "WHERE d.id.assetId = :assetId " +
+            "AND d.id.marketId = :marketId " +
+            "AND d.id.dayStart = :dayStart")
+    Long findDirtyDayVersion(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("dayStart") Timestamp dayStart);
+
+    /**
+     * Removes a day from the queue before it is recomputed, if it still has the version read by the caller.
+     * A writer that queues the day again holds the row until it commits, so the removal waits for it and then finds
+     * the new version; changes written after the removal queue the day again.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param dayStart the start of the day
+     * @param version  the version read by the caller
+     * @return 1 if the day was removed, 0 if it was queued again or another compaction already took it
+     */
+    @Modifying
+    @Query(value = "DELETE FROM flexibility_reservation_rollup_dirty_days " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND day_start = :dayStart AND version = :version",
+            nativeQuery = true)
+    int deleteDirtyDay(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("dayStart") Timestamp dayStart,
+            @Param("version") long version);
+
+    /**
+     * Deletes the rollups of an asset and market at one resolution with bucket starts in {@code [from, to)}.
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param resolution the bucket size, as stored in the rollup table
+     * @param from       the start of the interval (inclusive)
+     * @param to         the end of the interval (exclusive)
+     * @return the number of deleted rollups
+     */
+    @Modifying
+    @Query(value = "DELETE FROM flexibility_reservation_rollups " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND resolution = :resolution " +
+            "AND bucket_start >= :from AND bucket_start < :to",
+            nativeQuery = true)
+    int deleteRollups(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("resolution") String resolution,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Sums the raw reservations of an asset and market in {@code [from, to)} into interval rollups, one per timestamp.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the start of the interval (inclusive)
+     * @param to       the end of the interval (exclusive)
+     * @return the number of inserted rollups
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flexibility_reservation_rollups " +
+            "(asset_id, market_id, resolution, bucket_start, positive_value, negative_value, reservation_count) " +
+            "SELECT asset_id, market_id, 'INTERVAL', timestamp, SUM(positive_value), SUM(negative_value), COUNT(*) " +
+            "FROM flexibility_reservations " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND timestamp >= :from AND timestamp < :to " +
+            "GROUP BY asset_id, market_id, timestamp",
+            nativeQuery = true)
+    int insertIntervalRollups(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Sums the interval rollups of an asset and market in {@code [from, to)} into hourly rollups.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the start of the interval (inclusive), aligned to an hour
+     * @param to       the end of the interval (exclusive), aligned to an hour
+     * @return the number of inserted rollups
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flexibility_reservation_rollups " +
+            "(asset_id, market_id, resolution, bucket_start, positive_value, negative_value, reservation_count) " +
+            "SELECT asset_id, market_id, 'HOUR', DATE_TRUNC('HOUR', bucket_start AT TIME ZONE 'UTC'), " +
+            "SUM(positive_value), SUM(negative_value), SUM(reservation_count) " +
+            "FROM flexibility_reservation_rollups " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND resolution = 'INTERVAL' " +
+            "AND bucket_start >= :from AND bucket_start < :to " +
+            "GROUP BY asset_id, market_id, DATE_TRUNC('HOUR', bucket_start AT TIME ZONE 'UTC')",
+            nativeQuery = true)
+    int insertHourRollups(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+
+    /**
+     * Sums the hourly rollups of an asset and market in {@code [from, to)} into daily rollups.
+     *
+     * @param assetId  the UUID of the asset
+     * @param marketId the UUID of the market
+     * @param from     the start of the interval (inclusive), aligned to a day
+     * @param to       the end of the interval (exclusive), aligned to a day
+     * @return the number of inserted rollups
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flexibility_reservation_rollups " +
+            "(asset_id, market_id, resolution, bucket_start, positive_value, negative_value, reservation_count) " +
+            "SELECT asset_id, market_id, 'DAY', DATE_TRUNC('DAY', bucket_start AT TIME ZONE 'UTC'), " +
+            "SUM(positive_value), SUM(negative_value), SUM(reservation_count) " +
+            "FROM flexibility_reservation_rollups " +
+            "WHERE asset_id = :assetId AND market_id = :marketId AND resolution = 'HOUR' " +
+            "AND bucket_start >= :from AND bucket_start < :to " +
+            "GROUP BY asset_id, market_id, DATE_TRUNC('DAY', bucket_start AT TIME ZONE 'UTC')",
+            nativeQuery = true)
+    int insertDayRollups(
+            @Param("assetId") UUID assetId,
+            @Param("marketId") UUID marketId,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to);
+}
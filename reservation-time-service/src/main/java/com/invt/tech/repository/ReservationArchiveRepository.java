@@ -0,0 +1,179 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.util.ReservationParquetReader;
+import com.invt.tech.util.ReservationParquetWriter;
+import com.invt.tech.util.ReservationStreams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Repository of the archived flexibility reservations, one Parquet file per UTC month.
+ *
+ * <p>Months older than the retention period are moved out of the {@code flexibility_reservations} table into
+ * {@code reservations-<yyyy-MM>.parquet} files in {@code reservation.archive.directory}, see
+ * {@link com.invt.tech.service.ReservationArchiveService}. Each file is sorted by asset, market, timestamp and ID,
+ * like {@link FlexibilityReservationRepository#streamReservationsBetween}, so reads of a few assets skip most row
+ * groups by their statistics. Files are written to a temporary file and moved into place, so readers never see a
+ * partial month.</p>
+ */
+@Slf4j
+@Repository
+public class ReservationArchiveRepository {
+
+    private static final String PREFIX = "reservations-";
+    private static final String SUFFIX = ".parquet";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final Path directory;
+    private final NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+
+    /**
+     * Constructs a new {@code ReservationArchiveRepository} and loads the months archived in the directory.
+     *
+     * @param directory directory of the archive files
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ReservationArchiveRepository(@Value("${reservation.archive.directory:archive}") Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), MONTH));
+                } catch (DateTimeParseException e) {
+                    log.warn("Ignoring unexpected file {} in the reservation archive", file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the end of the last archived month, before which all reservations are archived.
+     *
+     * @return the start of the month after the last archived one, or null if nothing is archived
+     */
+    public Instant getHorizon() {
+        return months.isEmpty() ? null : start(months.last().plusMonths(1));
+    }
+
+    /**
+     * Returns whether reservations of the given month are archived.
+     *
+     * @param month the UTC month
+     * @return true if the month has an archive file
+     */
+    public boolean contains(YearMonth month) {
+        return months.contains(month);
+    }
+
+    /**
+     * Streams the archived reservations of several assets and markets within a time interval.
+     *
+     * @param assetIds  the UUIDs of the assets
+     * @param marketIds the UUIDs of the markets
+     * @param from      the start of the interval (inclusive)
+     * @param to        the end of the interval (inclusive)
+     * @return an open stream ordered by asset, market, timestamp and ID; must be closed
+     */
+    public Stream<FlexibilityReservationDTO> stream(Collection<UUID> assetIds, Collection<UUID> marketIds,
+                                                    Timestamp from, Timestamp to) {
+        if (months.isEmpty() || from.after(to)) {
+            return Stream.empty();
+        }
+        List<Stream<FlexibilityReservationDTO>> parts = months.subSet(month(from.toInstant()), true, month(to.toInstant()), true)
+                .stream()
+                .map(month -> ReservationParquetReader.read(file(month), assetIds, marketIds, from, to))
+                .toList();
+        return parts.size() == 1 ? parts.get(0) : ReservationStreams.merge(parts, ReservationStreams.DETAIL_ORDER);
+    }
+
+    /**
+     * Streams all archived reservations of a month.
+     *
+     * @param month the UTC month
+     * @return an open stream ordered by asset, market, timestamp and ID, empty if the month is not archived; must be closed
+     */
+    public Stream<FlexibilityReservationDTO> streamMonth(YearMonth month) {
+        return months.contains(month) ? ReservationParquetReader.read(file(month)) : Stream.empty();
+    }
+
+    /**
+     * Writes the reservations of a month, replacing its archive file if there is one.
+     *
+     * @param month        the UTC month
+     * @param reservations the reservations of the month, ordered by asset, market, timestamp and ID
+     * @return the number of written reservations
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public long write(YearMonth month, Iterator<FlexibilityReservationDTO> reservations) {
+        Path target = file(month);
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long rows = 0;
+        try {
+            try (OutputStream out = Files.newOutputStream(temp);
+                 ReservationParquetWriter writer = ReservationParquetWriter.archive(out)) {
+                while (reservations.hasNext()) {
+                    writer.write(reservations.next());
+                    rows++;
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Failed to archive reservations of " + month, e);
+        }
+        months.add(month);
+        return rows;
+    }
+
+    /**
+     * Returns the UTC month of an instant.
+     *
+     * @param instant the instant
+     * @return the month containing the instant in UTC
+     */
+    public static YearMonth month(Instant instant) {
+        return YearMonth.from(instant.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Returns the start of a UTC month.
+     *
+     * @param month the month
+     * @return the first instant of the month in UTC
+     */
+    public static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private Path file(YearMonth month) {
+        return directory.resolve(PREFIX + month.format(MONTH) + SUFFIX);
+    }
+}
@@ -0,0 +1,178 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.util.ResampleResolution;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates flexibility reservations into time buckets in the database.
+ *
+ * <p>The inner query sums the reservations of each timestamp into one series value, using the
+ * {@code (asset_id, market_id, timestamp, changed_at)} index; the outer query groups the series values into buckets
+ * of the requested calendar in the requested time zone. Only one row per bucket leaves the database.</p>
+ */
+@Repository
+public class ReservationBucketRepository {
+
+    // The innermost query sums the reservations of each timestamp; the next one converts each timestamp to the
+    // requested zone, and the one after truncates it to its bucket; the outer one groups by the local date and time of
+    // the bucket start, encoded as yyyyMMddHH. The truncated values themselves are not grouped on, as the database may
+    // keep the offset of the truncated timestamp, which splits day and longer buckets across a daylight saving change.
+    // Hourly buckets are grouped on the UTC offset of their timestamps as well, which tells apart the two local hours
+    // with the same wall clock time when the clocks are set back.
+    // The first %s is the DATE_TRUNC field of the resolution, taken from ResampleResolution and never from user input;
+    // the second one the database's expression of the UTC offset in seconds, or 0 for day and longer buckets
+    private static final String BUCKET_SQL = "SELECT " +
+            "EXTRACT(YEAR FROM b.bucket) * 1000000 + EXTRACT(MONTH FROM b.bucket) * 10000 " +
+            "+ EXTRACT(DAY FROM b.bucket) * 100 + EXTRACT(HOUR FROM b.bucket) AS bucket_key, " +
+            "b.utc_offset, COUNT(*) AS intervals, SUM(b.reservations) AS reservations, " +
+            "SUM(b.positive_value), AVG(b.positive_value), MIN(b.positive_value), MAX(b.positive_value), " +
+            "SUM(b.negative_value), AVG(b.negative_value), MIN(b.negative_value), MAX(b.negative_value), " +
+            "SUM(b.positive_capacity_cost) / NULLIF(SUM(b.positive_capacity_volume), 0), " +
+            "SUM(b.positive_energy_cost) / NULLIF(SUM(b.positive_energy_volume), 0), " +
+            "SUM(b.negative_capacity_cost) / NULLIF(SUM(b.negative_capacity_volume), 0), " +
+            "SUM(b.negative_energy_cost) / NULLIF(SUM(b.negative_energy_volume), 0) " +
+            "FROM (" +
+            "SELECT DATE_TRUNC('%s', l.local_time) AS bucket, %s AS utc_offset, l.* " +
+            "FROM (" +
+            "SELECT s.timestamp AT TIME ZONE ? AS local_time, s.* " +
+            "FROM (" +
+            "SELECT timestamp, COUNT(*) AS reservations, " +
+            "SUM(positive_value) AS positive_value, SUM(negative_value) AS negative_value, " +
+            "SUM(positive_value * positive_capacity_price) AS positive_capacity_cost, " +
+            "SUM(CASE WHEN positive_capacity_price IS NOT NULL THEN positive_value END) AS positive_capacity_volume, " +
+            "SUM(positive_value * positive_energy_price) AS positive_energy_cost, " +
+            "SUM(CASE WHEN positive_energy_price IS NOT NULL THEN positive_value END) AS positive_energy_volume, " +
+            "SUM(negative_value * negative_capacity_price) AS negative_capacity_cost, " +
+            "SUM(CASE WHEN negative_capacity_price IS NOT NULL THEN negative_value END) AS negative_capacity_volume, " +
+            "SUM(negative_value * negative_energy_price) AS negative_energy_cost, " +
+            "SUM(CASE WHEN negative_energy_price IS NOT NULL THEN negative_value END) AS negative_energy_volume " +
+            "FROM flexibility_reservations " +
+            "WHERE asset_id = ? AND market_id = ? AND timestamp BETWEEN ? AND ? " +
+            "GROUP BY timestamp" +
+            ") s" +
+            ") l" +
+            ") b " +
+            "GROUP BY bucket_key, b.utc_offset " +
+            "ORDER BY bucket_key, b.utc_offset DESC";
+
+    // UTC offset in seconds of the timestamp converted to the requested zone. H2 converts to a timestamp with the zone's
+    // offset; PostgreSQL to a local timestamp, whose epoch counts the local wall clock time from 1970-01-01 00:00.
+    private static final String H2_UTC_OFFSET_SQL =
+            "EXTRACT(TIMEZONE_HOUR FROM l.local_time) * 3600 + EXTRACT(TIMEZONE_MINUTE FROM l.local_time) * 60";
+    private static final String UTC_OFFSET_SQL = "EXTRACT(EPOCH FROM l.local_time) - EXTRACT(EPOCH FROM l.timestamp)";
+
+    // Scales of the power and price columns of flexibility_reservations
+    private static final int VALUE_SCALE = 3;
+    private static final int PRICE_SCALE = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final DatabaseDriver databaseDriver;
+
+    /**
+     * Constructs a new {@code ReservationBucketRepository} for the database of the given template.
+     *
+     * @param jdbcTemplate template used to execute the aggregation
+     */
+    public ReservationBucketRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(Integer.parseInt(FlexibilityReservationRepository.STREAM_FETCH_SIZE));
+        this.databaseDriver = DatabaseDriver.fromProductName(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * Retrieves the buckets of an asset and market within a specific time interval.
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param from       the start timestamp of the interval
+     * @param to         the end timestamp of the interval
+     * @param resolution the bucket size
+     * @param zone       the time zone whose calendar the buckets follow
+     * @return the non-empty buckets, ordered by bucket start
+     */
+    public List<ReservationBucketDTO> findBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                                  ResampleResolution resolution, ZoneId zone) {
+        return jdbcTemplate.query(bucketSql(resolution),
+                (rs, rowNum) -> toBucket(rs, assetId, marketId, resolution, zone),
+                zone.getId(), assetId, marketId, from, to);
+    }
+
+    /**
+     * Streams the buckets of an asset and market within a specific time interval.
+     *
+     * <p>Same query as {@link #findBuckets}, fetched in chunks of {@link FlexibilityReservationRepository#STREAM_FETCH_SIZE}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param from       the start timestamp of the interval
+     * @param to         the end timestamp of the interval
+     * @param resolution the bucket size
+     * @param zone       the time zone whose calendar the buckets follow
+     * @return a stream of the non-empty buckets, ordered by bucket start
+     */
+    public Stream<ReservationBucketDTO> streamBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                                      ResampleResolution resolution, ZoneId zone) {
+        return streamingJdbcTemplate.queryForStream(bucketSql(resolution),
+                (rs, rowNum) -> toBucket(rs, assetId, marketId, resolution, zone),
+                zone.getId(), assetId, marketId, from, to);
+    }
+
+    private String bucketSql(ResampleResolution resolution) {
+        String utcOffset = !resolution.isShorterThanDay() ? "0"
+                : databaseDriver == DatabaseDriver.H2 ? H2_UTC_OFFSET_SQL : UTC_OFFSET_SQL;
+        return BUCKET_SQL.formatted(resolution.getTruncationField(databaseDriver), utcOffset);
+    }
+
+    private static ReservationBucketDTO toBucket(ResultSet rs, UUID assetId, UUID marketId, ResampleResolution resolution,
+                                                 ZoneId zone) throws SQLException {
+        long key = rs.getLong(1);
+        LocalDateTime bucketStart = LocalDateTime.of((int) (key / 1000000), (int) (key / 10000 % 100),
+                (int) (key / 100 % 100), (int) (key % 100), 0);
+        // The offset picks the earlier or later of two local hours with the same wall clock time
+        ZoneOffset offset = resolution.isShorterThanDay() ? ZoneOffset.ofTotalSeconds(rs.getInt(2)) : null;
+        return ReservationBucketDTO.builder()
+                .bucketStart(ZonedDateTime.ofLocal(bucketStart, zone, offset).toOffsetDateTime())
+                .assetId(assetId)
+                .marketId(marketId)
+                .intervals(rs.getLong(3))
+                .reservations(rs.getLong(4))
+                .positiveSum(scale(rs.getBigDecimal(5), VALUE_SCALE))
+                .positiveAvg(scale(rs.getBigDecimal(6), VALUE_SCALE))
+                .positiveMin(scale(rs.getBigDecimal(7), VALUE_SCALE))
+                .positiveMax(scale(rs.getBigDecimal(8), VALUE_SCALE))
+                .negativeSum(scale(rs.getBigDecimal(9), VALUE_SCALE))
+                .negativeAvg(scale(rs.getBigDecimal(10), VALUE_SCALE))
+                .negativeMin(scale(rs.getBigDecimal(11), VALUE_SCALE))
+                .negativeMax(scale(rs.getBigDecimal(12), VALUE_SCALE))
+                .positiveCapacityPrice(scale(rs.getBigDecimal(13), PRICE_SCALE))
+                .positiveEnergyPrice(scale(rs.getBigDecimal(14), PRICE_SCALE))
+                .negativeCapacityPrice(scale(rs.getBigDecimal(15), PRICE_SCALE))
+                .negativeEnergyPrice(scale(rs.getBigDecimal(16), PRICE_SCALE))
+                .build();
+    }
+
+    private static BigDecimal scale(BigDecimal value, int scale) {
+        return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,156 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reads the reservation sums of the pre-aggregated {@link com.invt.tech.entity.FlexibilityReservationRollup} buckets
+ * without recomputing them.
+ *
+ * <p>Days queued in {@code flexibility_reservation_rollup_dirty_days} may have outdated rollups. Each query reads the
+ * rollups of the days that are not queued and sums the raw reservations of the queued days in the same statement, so
+ * readers see every committed change without writing; recomputing the queued days is left to the background compaction
+ * job. Only a few days are queued at a time, so the raw part stays small.</p>
+ */
+@Repository
+public class ReservationRollupSumRepository {
+
+    // Rollups of the days that are not queued, followed by the raw reservations of the queued days summed into buckets.
+    // The queue is read once per statement, so a day compacted in the meantime is either read from its old queue row
+    // and raw reservations or from its new rollups. The %s is the bucket expression of the resolution, taken from
+    // RollupResolution and never from user input
+    private static final String SUMS_SQL = "SELECT r.asset_id, r.bucket_start, r.positive_value, r.negative_value " +
+            "FROM flexibility_reservation_rollups r " +
+            "WHERE r.asset_id IN (:assetIds) AND r.market_id = :marketId AND r.resolution = :resolution " +
+            "AND r.bucket_start BETWEEN :from AND :to " +
+            "AND NOT EXISTS (" +
+            "SELECT 1 FROM flexibility_reservation_rollup_dirty_days d " +
+            "WHERE d.asset_id = r.asset_id AND d.market_id = r.market_id " +
+            "AND d.day_start <= r.bucket_start AND d.day_start > r.bucket_start - INTERVAL '1' DAY" +
+            ") " +
+            "UNION ALL " +
+            "SELECT q.asset_id, q.bucket_start, SUM(q.positive_value), SUM(q.negative_value) " +
+            "FROM (" +
+            "SELECT f.asset_id, %s AS bucket_start, f.positive_value, f.negative_value " +
+            "FROM flexibility_reservation_rollup_dirty_days d " +
+            "JOIN flexibility_reservations f ON f.asset_id = d.asset_id AND f.market_id = d.market_id " +
+            "AND f.timestamp >= d.day_start AND f.timestamp < d.day_start + INTERVAL '1' DAY " +
+            "WHERE d.asset_id IN (:assetIds) AND d.market_id = :marketId AND d.day_start BETWEEN :dayFrom AND :to " +
+            "AND f.timestamp >= :from" +
+            ") q " +
+            "GROUP BY q.asset_id, q.bucket_start " +
+            // A WHERE on the truncated bucket start would be pushed into the inner query, which H2 fails to evaluate
+            "HAVING q.bucket_start <= :to";
+
+    private static final String ASSET_SUMS_SQL = SUMS_SQL + " ORDER BY bucket_start";
+
+    private static final String PORTFOLIO_SUMS_SQL = "SELECT s.bucket_start, SUM(s.positive_value), SUM(s.negative_value) " +
+            "FROM (" + SUMS_SQL + ") s " +
+            "GROUP BY s.bucket_start " +
+            "ORDER BY s.bucket_start";
+
+    // Bucket starts of the raw reservations, truncated in UTC like the rollups
+    private static final String INTERVAL_BUCKET_SQL = "f.timestamp";
+    private static final String TRUNCATED_BUCKET_SQL = "DATE_TRUNC('%s', f.timestamp AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * Constructs a new {@code ReservationRollupSumRepository} for the database of the given template.
+     *
+     * @param jdbcTemplate template used to execute the queries
+     */
+    public ReservationRollupSumRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.parseInt(FlexibilityReservationRepository.STREAM_FETCH_SIZE));
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Retrieves the sums of an asset and market for buckets starting within a specific time interval.
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param resolution the bucket size
+     * @param from       the earliest bucket start, aligned to the resolution
+     * @param to         the latest bucket start
+     * @return a list of {@link FlexibilityReservationDTO} with the bucket start as timestamp, ordered by timestamp
+     */
+    public List<FlexibilityReservationDTO> findSums(UUID assetId, UUID marketId, RollupResolution resolution,
+                                                    Timestamp from, Timestamp to) {
+        return jdbcTemplate.query(ASSET_SUMS_SQL.formatted(bucket(resolution)),
+                parameters(List.of(assetId), marketId, resolution, from, to),
+                (rs, rowNum) -> new FlexibilityReservationDTO(rs.getObject(1, UUID.class), marketId,
+                        rs.getTimestamp(2), rs.getBigDecimal(3), rs.getBigDecimal(4)));
+    }
+
+    /**
+     * Streams the sums of an asset and market for buckets starting within a specific time interval.
+     *
+     * <p>Same query as {@link #findSums}, fetched in chunks of {@link FlexibilityReservationRepository#STREAM_FETCH_SIZE}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param assetId    the UUID of the asset
+     * @param marketId   the UUID of the market
+     * @param resolution the bucket size
+     * @param from       the earliest bucket start, aligned to the resolution
+     * @param to         the latest bucket start
+     * @return a stream of {@link FlexibilityReservationDTO} with the bucket start as timestamp, ordered by timestamp
+     */
+    public Stream<FlexibilityReservationDTO> streamSums(UUID assetId, UUID marketId, RollupResolution resolution,
+                                                        Timestamp from, Timestamp to) {
+        return streamingJdbcTemplate.queryForStream(ASSET_SUMS_SQL.formatted(bucket(resolution)),
+                parameters(List.of(assetId), marketId, resolution, from, to),
+                (rs, rowNum) -> new FlexibilityReservationDTO(rs.getObject(1, UUID.class), marketId,
+                        rs.getTimestamp(2), rs.getBigDecimal(3), rs.getBigDecimal(4)));
+    }
+
+    /**
+     * Streams the sums of one market summed over several assets, for buckets starting within a specific time interval.
+     *
+     * <p>Callers bound the number of asset IDs per query, see
+     * {@link com.invt.tech.service.FlexibilityReservationServiceImpl#BATCH_QUERY_CHUNK_SIZE}.
+     * The returned stream must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param assetIds   the UUIDs of the assets
+     * @param marketId   the UUID of the market
+     * @param resolution the bucket size
+     * @param from       the earliest bucket start, aligned to the resolution
+     * @param to         the latest bucket start
+     * @return a stream of {@link FlexibilityReservationDTO} without asset ID, with the bucket start as timestamp, ordered by timestamp
+     */
+    public Stream<FlexibilityReservationDTO> streamPortfolioSums(Collection<UUID> assetIds, UUID marketId,
+                                                                 RollupResolution resolution, Timestamp from, Timestamp to) {
+        return streamingJdbcTemplate.queryForStream(PORTFOLIO_SUMS_SQL.formatted(bucket(resolution)),
+                parameters(assetIds, marketId, resolution, from, to),
+                (rs, rowNum) -> new FlexibilityReservationDTO(marketId, rs.getTimestamp(1),
+                        rs.getBigDecimal(2), rs.getBigDecimal(3)));
+    }
+
+    private static String bucket(RollupResolution resolution) {
+        return resolution == RollupResolution.INTERVAL ? INTERVAL_BUCKET_SQL : TRUNCATED_BUCKET_SQL.formatted(resolution.name());
+    }
+
+    private static MapSqlParameterSource parameters(Collection<UUID> assetIds, UUID marketId, RollupResolution resolution,
+                                                    Timestamp from, Timestamp to) {
+        return new MapSqlParameterSource()
+                .addValue("assetIds", assetIds)
+                .addValue("marketId", marketId)
+                .addValue("resolution", resolution.name())
+                .addValue("from", from)
+                .addValue("dayFrom", RollupResolution.DAY.bucketStart(from))
+                .addValue("to", to);
+    }
+}
@@ -0,0 +1,53 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.ExportJobDTO;
+import com.invt.tech.dto.ExportJobFile;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.util.ExportFormat;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Service interface for asynchronous export jobs that write reservations to files on the server.
+ *
+ * <p>The job ID is derived from the export parameters, so submitting the same export again returns the existing
+ * job and its file. Jobs are dropped when reservations in their interval change and after a retention period.</p>
+ */
+public interface ExportJobService {
+
+    /**
+     * Submits an export job, or returns the existing job for the same export unless that one has failed.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start timestamp of the interval; must not be null and must be before {@code to}
+     * @param to the end timestamp of the interval; must not be null and must be after {@code from}
+     * @param total if true, exports aggregated reservation sums; if false, exports reservation details
+     * @param resolution the bucket size of the aggregated sums
+     * @param format the file format
+     * @return an {@link ExportJobDTO} describing the queued, running or finished job
+     * @throws IllegalArgumentException if a resolution other than interval is requested without total
+     * @throws org.springframework.core.task.TaskRejectedException if the job queue is full
+     */
+    ExportJobDTO submit(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total,
+                        RollupResolution resolution, ExportFormat format);
+
+    /**
+     * Returns the current state of an export job.
+     *
+     * @param jobId the ID of the job
+     * @return an {@link ExportJobDTO} describing the job
+     * @throws jakarta.persistence.EntityNotFoundException if the job does not exist
+     */
+    ExportJobDTO getJob(String jobId);
+
+    /**
+     * Returns the result file of a finished export job.
+     *
+     * @param jobId the ID of the job
+     * @return the {@link ExportJobFile} of the job
+     * @throws jakarta.persistence.EntityNotFoundException if the job does not exist or has not finished successfully
+     */
+    ExportJobFile getFile(String jobId);
+}
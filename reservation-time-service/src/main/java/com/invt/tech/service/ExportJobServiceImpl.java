@@ -0,0 +1,340 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.ExportJobDTO;
+import com.invt.tech.dto.ExportJobFile;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.util.ExportCSV;
+import com.invt.tech.util.ExportColumnar;
+import com.invt.tech.util.ExportFormat;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of the {@link ExportJobService} interface.
+ *
+ * <p>Jobs run on a pool of {@code reservation.export-jobs.workers} threads with a queue of
+ * {@code reservation.export-jobs.queue-capacity} jobs. Each job streams its query into a temporary file in
+ * {@code reservation.export-jobs.directory} and moves it to {@code <job ID>.<format>} when it is complete, so a
+ * download never sees a partial file. Jobs are kept in memory; their files are deleted together with them.</p>
+ */
+@Slf4j
+@Service
+public class ExportJobServiceImpl implements ExportJobService, DisposableBean {
+
+    // Hex digits of the SHA-256 of the export parameters used as job ID
+    private static final int JOB_ID_LENGTH = 32;
+
+    private final FlexibilityReservationService flexibilityReservationService;
+    private final ExportMetrics exportMetrics;
+    private final Path directory;
+    private final Duration retention;
+    private final ThreadPoolTaskExecutor workers;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@code ExportJobServiceImpl} and creates the export directory.
+     *
+     * @param flexibilityReservationService service streaming the reservations from the database
+     * @param exportMetrics meters the written rows and bytes of each job are recorded in
+     * @param directory directory the export files are written to
+     * @param workerCount number of jobs running at once
+     * @param queueCapacity number of jobs waiting for a worker before further jobs are rejected
+     * @param retention time a finished job and its file are kept
+     * @throws IOException if the export directory cannot be created
+     */
+    public ExportJobServiceImpl(
+            FlexibilityReservationService flexibilityReservationService,
+            ExportMetrics exportMetrics,
+            @Value("${reservation.export-jobs.directory:csv_files}") Path directory,
+            @Value("${reservation.export-jobs.workers:2}") int workerCount,
+            @Value("${reservation.export-jobs.queue-capacity:20}") int queueCapacity,
+            @Value("${reservation.export-jobs.retention:PT24H}") Duration retention
+    ) throws IOException {
+        this.flexibilityReservationService = flexibilityReservationService;
+        this.exportMetrics = exportMetrics;
+        this.directory = Files.createDirectories(directory);
+        this.retention = retention;
+        this.workers = new ThreadPoolTaskExecutor();
+        this.workers.setThreadNamePrefix("export-job-");
+        this.workers.setCorePoolSize(workerCount);
+        this.workers.setMaxPoolSize(workerCount);
+        this.workers.setQueueCapacity(queueCapacity);
+        this.workers.initialize();
+    }
+
+    @Override
+    public ExportJobDTO submit(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total,
+                               RollupResolution resolution, ExportFormat format) {
+        // Checked before queueing, so the request is rejected instead of the job failing later
+        if (!total && resolution != RollupResolution.INTERVAL) {
+            throw new IllegalArgumentException("Resolution " + resolution.getValue() + " requires total=true");
+        }
+        String id = jobId(assetId, marketId, from, to, total, resolution, format);
+        Job created = new Job(id, assetId, marketId, from, to, total, resolution, format,
+                directory.resolve(id + "." + format.getValue()));
+        Job job = jobs.compute(id, (key, existing) ->
+                existing != null && existing.status != ExportJobDTO.Status.FAILED ? existing : created);
+
+        if (job == created) {
+            try {
+                workers.execute(() -> run(job));
+            } catch (TaskRejectedException e) {
+                jobs.remove(id, job);
+                throw e;
+            }
+        }
+        return job.toDto();
+    }
+
+    @Override
+    public ExportJobDTO getJob(String jobId) {
+        return find(jobId).toDto();
+    }
+
+    @Override
+    public ExportJobFile getFile(String jobId) {
+        Job job = find(jobId);
+        if (job.status != ExportJobDTO.Status.DONE) {
+            throw new EntityNotFoundException("Export job " + jobId + " has no file, it is " + job.status);
+        }
+        return new ExportJobFile(job.path, job.format, job.id + "-" + job.finishedAt.toEpochMilli());
+    }
+
+    /**
+     * Drops the jobs whose interval overlaps written reservations, once the write has been committed.
+     *
+     * @param event the written reservations
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationsChanged(ReservationsChangedEvent event) {
+        jobs.values().removeIf(job -> job.overlaps(event) && discard(job));
+    }
+
+    /**
+     * Deletes finished jobs older than the retention period together with their files.
+     * Runs periodically with the delay configured in {@code reservation.export-jobs.cleanup-interval}.
+     */
+    @Scheduled(fixedDelayString = "${reservation.export-jobs.cleanup-interval:PT10M}")
+    public void removeExpiredJobs() {
+        Instant expiry = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry) && discard(job));
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdown();
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Export job " + jobId + " not found");
+        }
+        return job;
+    }
+
+    private void run(Job job) {
+        job.status = ExportJobDTO.Status.RUNNING;
+        Path part = null;
+        try {
+            part = Files.createTempFile(directory, job.id + "-", ".part");
+            Path file = part;
+            ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.EXPORT_JOB, job.total, job.format.getValue());
+            recording.record(() -> {
+                // The exporters close the stream when they finish; closing again here covers a failed query
+                try (OutputStream out = new BufferedOutputStream(
+                        recording.count(new CountingOutputStream(Files.newOutputStream(file), job)))) {
+                    flexibilityReservationService.streamFilteredOrAggregatedReservations(job.assetId, job.marketId,
+                            job.from, job.to, job.total, job.resolution, reservations -> {
+                                Iterator<FlexibilityReservationDTO> tracked = recording.count(job.track(reservations));
+                                if (job.format.isColumnar()) {
+                                    ExportColumnar.exportToFile(tracked, job.total, job.format, out);
+                                } else {
+                                    ExportCSV.exportToFile(tracked, job.total, job.format, out);
+                                }
+                            });
+                }
+            });
+            publish(job, part);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Export job {} failed: {}", job.id, e.getMessage());
+            job.error = e.getMessage();
+            job.finishedAt = Instant.now();
+            job.status = ExportJobDTO.Status.FAILED;
+        } finally {
+            deleteQuietly(part);
+        }
+    }
+
+    private void publish(Job job, Path part) {
+        // Moved under the map lock, so a job dropped meanwhile does not replace the file of its successor
+        jobs.computeIfPresent(job.id, (id, current) -> {
+            if (current == job) {
+                try {
+                    Files.move(part, job.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                job.progress = 1;
+                job.finishedAt = Instant.now();
+                job.status = ExportJobDTO.Status.DONE;
+            }
+            return current;
+        });
+    }
+
+    private boolean discard(Job job) {
+        if (job.status == ExportJobDTO.Status.DONE) {
+            deleteQuietly(job.path);
+        }
+        return true;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete export file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String jobId(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total,
+                                RollupResolution resolution, ExportFormat format) {
+        String parameters = String.join("|", assetId.toString(), marketId.toString(),
+                from.toInstant().toString(), to.toInstant().toString(), Boolean.toString(total),
+                resolution.name(), format.name());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(parameters.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest).substring(0, JOB_ID_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final UUID assetId;
+        private final UUID marketId;
+        private final Timestamp from;
+        private final Timestamp to;
+        private final boolean total;
+        private final RollupResolution resolution;
+        private final ExportFormat format;
+        private final Path path;
+        private final Instant createdAt = Instant.now();
+
+        private volatile ExportJobDTO.Status status = ExportJobDTO.Status.QUEUED;
+        private volatile long rowsWritten;
+        private volatile long bytesWritten;
+        private volatile double progress;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Job(String id, UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total,
+                    RollupResolution resolution, ExportFormat format, Path path) {
+            this.id = id;
+            this.assetId = assetId;
+            this.marketId = marketId;
+            this.from = from;
+            this.to = to;
+            this.total = total;
+            this.resolution = resolution;
+            this.format = format;
+            this.path = path;
+        }
+
+        private boolean overlaps(ReservationsChangedEvent event) {
+            return assetId.equals(event.assetId()) && marketId.equals(event.marketId())
+                    && !event.to().before(from) && !event.from().after(to);
+        }
+
+        // Rows arrive ordered by timestamp, so the last timestamp tells how much of the interval is written
+        private Iterator<FlexibilityReservationDTO> track(Iterator<FlexibilityReservationDTO> reservations) {
+            double span = Math.max(1, to.getTime() - from.getTime());
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return reservations.hasNext();
+                }
+
+                @Override
+                public FlexibilityReservationDTO next() {
+                    FlexibilityReservationDTO reservation = reservations.next();
+                    rowsWritten++;
+                    progress = Math.min(1, (reservation.getTimestamp().getTime() - from.getTime()) / span);
+                    return reservation;
+                }
+            };
+        }
+
+        private ExportJobDTO toDto() {
+            return ExportJobDTO.builder()
+                    .id(id)
+                    .status(status)
+                    .format(format.getValue())
+                    .rowsWritten(rowsWritten)
+                    .bytesWritten(bytesWritten)
+                    .progress(progress)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final Job job;
+
+        private CountingOutputStream(OutputStream out, Job job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.bytesWritten++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            job.bytesWritten += len;
+        }
+    }
+}
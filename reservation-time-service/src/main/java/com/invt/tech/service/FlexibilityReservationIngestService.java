@@ -0,0 +1,32 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+
+import java.io.InputStream;
+
+/**
+ * Service interface for importing flexibility reservations in bulk.
+ */
+public interface FlexibilityReservationIngestService {
+
+    /**
+     * Reads reservations from an upload, validates them and stores the valid ones in batches.
+     *
+     * <p>The upload is parsed while it is read, so it is never held in memory as a whole. Each batch is stored in
+     * its own transaction; batches committed before a failure stay stored. Rows that fail validation or belong to
+     * an archived month are skipped and reported in the result.</p>
+     *
+     * <p>In {@link ImportMode#UPSERT} mode a row replaces the stored reservation with the same asset, market,
+     * timestamp and bid IDs unless the stored one has the same or a newer {@code updatedAt}, so re-delivered data
+     * neither creates duplicates nor changes the stored revisions.</p>
+     *
+     * @param in the uploaded data; must not be null
+     * @param format the format of the upload; must not be null
+     * @param mode whether rows are inserted or upserted; must not be null
+     * @return a {@link BulkIngestResultDTO} with the number of stored and rejected rows
+     * @throws IllegalArgumentException if the upload is malformed or a batch is rejected by the database
+     */
+    BulkIngestResultDTO ingest(InputStream in, ImportFormat format, ImportMode mode);
+}
@@ -0,0 +1,226 @@
+package com.invt.tech.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.repository.FlexibilityReservationBatchRepository;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import com.invt.tech.util.ReservationReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the {@link FlexibilityReservationIngestService} interface.
+ *
+ * <p>Valid rows are collected into batches of {@code reservation.ingest.batch-size} rows and written with a single
+ * JDBC batch statement per transaction. Every committed batch publishes a {@link ReservationsChangedEvent} per asset
+ * and market with the written rows, which queues the touched days for rollup compaction, drops cached query results
+ * and is pushed to subscribers.</p>
+ *
+ * <p>The natural key of a reservation, its asset, market, timestamp and bid IDs, is unique in the database.
+ * In {@link ImportMode#INSERT} mode a batch with a reservation that is already stored is rejected. In
+ * {@link ImportMode#UPSERT} mode rows without {@code updatedAt} are stamped with the start time of the import, so a
+ * re-sent upload replaces the revisions stored by earlier ones; a batch that loses the race to insert a reservation
+ * against a concurrent import is written once more, when the reservation matches the stored one.</p>
+ *
+ * <p>Imports run under {@link ReservationArchiveService#write}; rows before the archive horizon are rejected,
+ * as archived months are read-only.</p>
+ */
+@Slf4j
+@Service
+public class FlexibilityReservationIngestServiceImpl implements FlexibilityReservationIngestService {
+
+    /**
+     * Maximum number of row errors returned in the result of an import.
+     */
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private final FlexibilityReservationBatchRepository batchRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReservationArchiveService archiveService;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+
+    /**
+     * Constructs a new {@code FlexibilityReservationIngestServiceImpl} with required dependencies.
+     *
+     * @param batchRepository repository for inserting reservations in batches
+     * @param validator validator checking the constraints of each row
+     * @param objectMapper mapper used to read JSON uploads
+     * @param eventPublisher publisher of the change events of each batch
+     * @param archiveService service providing the archive horizon, before which no rows are stored
+     * @param transactionManager transaction manager used to store each batch in its own transaction
+     * @param batchSize number of rows inserted per batch
+     */
+    public FlexibilityReservationIngestServiceImpl(
+            FlexibilityReservationBatchRepository batchRepository,
+            Validator validator,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            ReservationArchiveService archiveService,
+            PlatformTransactionManager transactionManager,
+            @Value("${reservation.ingest.batch-size:5000}") int batchSize
+    ) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("reservation.ingest.batch-size must be positive");
+        }
+        this.batchRepository = batchRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.archiveService = archiveService;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public BulkIngestResultDTO ingest(InputStream in, ImportFormat format, ImportMode mode) {
+        return archiveService.write(horizon -> ingest(in, format, mode, horizon));
+    }
+
+    private BulkIngestResultDTO ingest(InputStream in, ImportFormat format, ImportMode mode, Instant horizon) {
+        BulkIngestResultDTO result = new BulkIngestResultDTO(0, 0, 0, 0, new ArrayList<>());
+        Timestamp importedAt = Timestamp.from(Instant.now());
+        List<FlexibilityReservationDTO> batch = new ArrayList<>(batchSize);
+        long row = 0;
+
+        try (ReservationReader reader = format.open(in, objectMapper)) {
+            while (reader.hasNext()) {
+                FlexibilityReservationDTO reservation = reader.next();
+                row++;
+                Set<ConstraintViolation<FlexibilityReservationDTO>> violations = validator.validate(reservation);
+                if (!violations.isEmpty()) {
+                    reject(result, row, violations);
+                    continue;
+                }
+                if (horizon != null && reservation.getTimestamp().toInstant().isBefore(horizon)) {
+                    reject(result, row, "timestamp is before the archive horizon " + horizon);
+                    continue;
+                }
+                if (mode == ImportMode.UPSERT && reservation.getUpdatedAt() == null) {
+                    reservation.setUpdatedAt(importedAt);
+                }
+                batch.add(reservation);
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, mode, row, result);
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, mode, row, result);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " (" + result.getAccepted() + " reservations were stored before)", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read reservation upload", e);
+        }
+
+        log.info("Imported {} reservations in {} batches, {} stale, {} rejected",
+                result.getAccepted(), result.getBatches(), result.getStale(), result.getRejected());
+        return result;
+    }
+
+    private void writeBatch(List<FlexibilityReservationDTO> batch, ImportMode mode, long lastRow, BulkIngestResultDTO result) {
+        List<FlexibilityReservationDTO> written;
+        try {
+            try {
+                written = store(batch, mode);
+            } catch (DuplicateKeyException e) {
+                if (mode == ImportMode.INSERT) {
+                    throw new IllegalArgumentException("Batch ending at row " + lastRow + " contains a reservation that is "
+                            + "already stored with the same asset, market, timestamp and bid IDs; use mode=upsert to replace it", e);
+                }
+                // A concurrent import inserted one of the reservations first, which the MERGE now matches
+                written = store(batch, mode);
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Batch ending at row " + lastRow + " was rejected by the database: "
+                    + e.getMostSpecificCause().getMessage(), e);
+        }
+        result.setAccepted(result.getAccepted() + written.size());
+        result.setStale(result.getStale() + batch.size() - written.size());
+        result.setBatches(result.getBatches() + 1);
+        batch.clear();
+    }
+
+    private List<FlexibilityReservationDTO> store(List<FlexibilityReservationDTO> batch, ImportMode mode) {
+        return batchTransaction.execute(status -> {
+            List<FlexibilityReservationDTO> changed = mode == ImportMode.UPSERT ? upsert(batch) : insert(batch);
+            publishChanges(changed);
+            return changed;
+        });
+    }
+
+    private List<FlexibilityReservationDTO> insert(List<FlexibilityReservationDTO> batch) {
+        batchRepository.insertAll(batch);
+        return batch;
+    }
+
+    private List<FlexibilityReservationDTO> upsert(List<FlexibilityReservationDTO> batch) {
+        boolean[] written = batchRepository.upsertAll(batch);
+        List<FlexibilityReservationDTO> changed = new ArrayList<>(batch.size());
+        for (int i = 0; i < written.length; i++) {
+            if (written[i]) {
+                changed.add(batch.get(i));
+            }
+        }
+        return changed;
+    }
+
+    private void publishChanges(List<FlexibilityReservationDTO> batch) {
+        Map<List<UUID>, List<FlexibilityReservationDTO>> changes = new HashMap<>();
+        for (FlexibilityReservationDTO reservation : batch) {
+            changes.computeIfAbsent(List.of(reservation.getAssetId(), reservation.getMarketId()), pair -> new ArrayList<>())
+                    .add(reservation);
+        }
+        for (List<FlexibilityReservationDTO> reservations : changes.values()) {
+            FlexibilityReservationDTO first = reservations.get(0);
+            Timestamp from = first.getTimestamp();
+            Timestamp to = first.getTimestamp();
+            for (FlexibilityReservationDTO reservation : reservations) {
+                from = reservation.getTimestamp().before(from) ? reservation.getTimestamp() : from;
+                to = reservation.getTimestamp().after(to) ? reservation.getTimestamp() : to;
+            }
+            eventPublisher.publishEvent(new ReservationsChangedEvent(first.getAssetId(), first.getMarketId(), from, to,
+                    List.copyOf(reservations)));
+        }
+    }
+
+    private void reject(BulkIngestResultDTO result, long row, Set<ConstraintViolation<FlexibilityReservationDTO>> violations) {
+        reject(result, row, violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", ")));
+    }
+
+    private void reject(BulkIngestResultDTO result, long row, String reason) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add("Row " + row + ": " + reason);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.invt.tech.service;
 
+import com.invt.tech.dto.FlexibilityReservationChangesDTO;
 import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.FlexibilityReservationPageDTO;
+import com.invt.tech.dto.ReservationVersion;
+import com.invt.tech.entity.RollupResolution;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing flexibility reservations.
@@ -21,16 +28,78 @@ public interface FlexibilityReservationService {
      */
     List<FlexibilityReservationDTO> getReservations(UUID assetId, UUID marketId);
 
+    /**
+     * Streams all flexibility reservations for a given asset and market to the given consumer.
+     *
+     * <p>Rows are read from the database with a cursor, so the full history is never held in memory.
+     * The consumer is called inside a read-only transaction, also when no reservation matches.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param consumer callback receiving the reservations ordered by timestamp and ID
+     */
+    void streamReservations(UUID assetId, UUID marketId, Consumer<Iterator<FlexibilityReservationDTO>> consumer);
+
+    /**
+     * Retrieves one page of flexibility reservations for a given asset and market, ordered by timestamp and ID.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of reservations on the page
+     * @return a {@link FlexibilityReservationPageDTO} with the reservations and the cursor of the next page
+     */
+    FlexibilityReservationPageDTO getReservationsPage(UUID assetId, UUID marketId, String cursor, int limit);
+
+    /**
+     * Retrieves the flexibility reservations of a given asset and market changed after a watermark,
+     * ordered by change time and ID.
+     *
+     * <p>A change is a reservation stored after the watermark, by the time the service stored it rather than its
+     * {@code updatedAt}; it is returned in its current revision. Reservations are never deleted one by one, so the feed has no tombstones.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param watermark the watermark returned with the previous changes, or null to start from the first change
+     * @param limit the maximum number of changed reservations returned
+     * @return a {@link FlexibilityReservationChangesDTO} with the changed reservations and the new watermark
+     */
+    FlexibilityReservationChangesDTO getChanges(UUID assetId, UUID marketId, String watermark, int limit);
+
+    /**
+     * Retrieves the version of all flexibility reservations of a given asset and market,
+     * which changes whenever {@link #getReservations} would return a different result.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @return the {@link ReservationVersion} of the reservations
+     */
+    ReservationVersion getVersion(UUID assetId, UUID marketId);
+
+    /**
+     * Retrieves the version of the flexibility reservations of a given asset and market within a time interval,
+     * which changes whenever the reservations or sums of the interval would differ.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start of the interval (inclusive)
+     * @param to the end of the interval (inclusive)
+     * @return the {@link ReservationVersion} of the reservations in the interval
+     */
+    ReservationVersion getVersion(UUID assetId, UUID marketId, Timestamp from, Timestamp to);
+
     /**
      * Retrieves a list of filtered or aggregated flexibility reservations within a specified time range.
      *
-     * <p>If {@code total} is true, returns aggregated sums of reservation values; otherwise, returns filtered reservation details.</p>
+     * <p>If {@code total} is true, returns aggregated sums of reservation values per bucket of the given resolution;
+     * otherwise, returns filtered reservation details.</p>
      *
      * @param assetId the UUID of the asset; must not be null
      * @param marketId the UUID of the market; must not be null
      * @param from the start timestamp of the interval; must not be null and must be before {@code to}
      * @param to the end timestamp of the interval; must not be null and must be after {@code from}
      * @param total if true, returns aggregated reservation sums; if false, returns filtered reservation details
+     * @param resolution the bucket size of the aggregated sums
      * @return a list of {@link FlexibilityReservationDTO} matching the filtering or aggregation criteria
      */
     List<FlexibilityReservationDTO> getFilteredOrAggregatedReservations(
@@ -38,7 +107,57 @@ public interface FlexibilityReservationService {
             UUID marketId,
             Timestamp from,
             Timestamp to,
-            boolean total
+            boolean total,
+            RollupResolution resolution
+    );
+
+    /**
+     * Streams filtered or aggregated flexibility reservations within a specified time range to the given consumer.
+     *
+     * <p>Rows are read from the database with a cursor and handed over one by one, so the full result is never held in memory.
+     * The consumer is called inside a read-only transaction and only when at least one reservation matches.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start timestamp of the interval; must not be null and must be before {@code to}
+     * @param to the end timestamp of the interval; must not be null and must be after {@code from}
+     * @param total if true, streams aggregated reservation sums; if false, streams filtered reservation details
+     * @param resolution the bucket size of the aggregated sums
+     * @param consumer callback receiving the reservations ordered by timestamp
+     */
+    void streamFilteredOrAggregatedReservations(
+            UUID assetId,
+            UUID marketId,
+            Timestamp from,
+            Timestamp to,
+            boolean total,
+            RollupResolution resolution,
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer
+    );
+
+    /**
+     * Streams filtered or aggregated flexibility reservations of several assets and markets to the given consumer.
+     *
+     * <p>All assets and markets are read in one read-only transaction with a few set-based queries instead of one
+     * query per pair. If {@code total} is true, the sums are taken over all assets per market and carry no asset ID.
+     * The consumer is called only when at least one reservation matches.</p>
+     *
+     * @param assetIds the UUIDs of the assets; must not be empty
+     * @param marketIds the UUIDs of the markets; must not be empty
+     * @param from the start timestamp of the interval; must not be null and must be before {@code to}
+     * @param to the end timestamp of the interval; must not be null and must be after {@code from}
+     * @param total if true, streams portfolio sums per market; if false, streams filtered reservation details
+     * @param resolution the bucket size of the aggregated sums
+     * @param consumer callback receiving the reservations grouped by asset and market, each group ordered by timestamp
+     */
+    void streamBatchReservations(
+            Collection<UUID> assetIds,
+            Collection<UUID> marketIds,
+            Timestamp from,
+            Timestamp to,
+            boolean total,
+            RollupResolution resolution,
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer
     );
 
 }
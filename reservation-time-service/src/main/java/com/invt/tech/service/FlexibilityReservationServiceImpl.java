@@ -1,20 +1,49 @@
 package com.invt.tech.service;
 
+import com.invt.tech.cache.ReservationCache;
+import com.invt.tech.cache.ReservationHotWindow;
+import com.invt.tech.cache.ReservationQueryKey;
+import com.invt.tech.dto.FlexibilityReservationChangesDTO;
 import com.invt.tech.dto.FlexibilityReservationDTO;
-import com.invt.tech.mapper.FlexibilityReservationMapper;
+import com.invt.tech.dto.FlexibilityReservationPageDTO;
+import com.invt.tech.dto.ReservationCursor;
+import com.invt.tech.dto.ReservationVersion;
+import com.invt.tech.entity.RollupResolution;
 import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.ReservationArchiveRepository;
+import com.invt.tech.repository.ReservationRollupSumRepository;
+import com.invt.tech.util.ReservationStreams;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the {@link FlexibilityReservationService} interface.
  *
- * <p>This service provides methods to retrieve flexibility reservations from the repository,
- * convert entities to DTOs, and filter or aggregate reservation data based on given criteria.</p>
+ * <p>This service provides methods to retrieve flexibility reservations from the repository
+ * and filter or aggregate reservation data based on given criteria. Reservations are read as DTO projections,
+ * so reads neither fill the persistence context nor copy entities into DTOs.</p>
+ *
+ * <p>Detail rows of months moved to the {@link ReservationArchiveRepository} are merged into the results of queries
+ * starting before the archive horizon. The unbounded listing and its pages only cover the database; aggregated sums
+ * are read from the rollups, which are kept when a month is archived. Reads never recompute rollups: days still queued
+ * for recomputation are summed from their raw reservations in the same query.</p>
  *
  * <p>Exception handling for cases such as missing data or invalid input parameters
  * is performed within the service methods.</p>
@@ -22,25 +51,60 @@ import java.util.UUID;
 @Service
 public class FlexibilityReservationServiceImpl implements FlexibilityReservationService{
 
+    /**
+     * Largest page size accepted by {@link #getReservationsPage}.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Largest number of asset IDs bound to one query of {@link #streamBatchReservations}.
+     */
+    public static final int BATCH_QUERY_CHUNK_SIZE = 500;
+
+    /**
+     * Largest number of asset IDs, and of market IDs, accepted by {@link #streamBatchReservations}.
+     */
+    public static final int MAX_BATCH_IDS = 10000;
+
+    // Watermark before all changes; IDs start at 1
+    private static final ReservationCursor FIRST_CHANGE = new ReservationCursor(Timestamp.from(Instant.EPOCH), 0);
+
     private final FlexibilityReservationRepository flexibilityReservationRepository;
-    private final FlexibilityReservationMapper flexibilityReservationMapper;
+    private final ReservationRollupSumRepository rollupSumRepository;
+    private final ReservationCache reservationCache;
+    private final ReservationHotWindow hotWindow;
+    private final ReservationArchiveRepository archiveRepository;
+    private final Duration changesSettleTime;
 
     /**
      * Constructs a new {@code FlexibilityReservationServiceImpl} with required dependencies.
      *
      * @param flexibilityReservationRepository repository for accessing flexibility reservation data
-     * @param flexibilityReservationMapper mapper to convert between entities and DTOs
+     * @param rollupSumRepository repository for reading the pre-aggregated reservation sums
+     * @param reservationCache cache of query results, invalidated when reservations are written
+     * @param hotWindow in-memory store answering queries around the current time
+     * @param archiveRepository repository of the archived months, read for intervals before the archive horizon
+     * @param changesSettleTime time after which changes are returned by {@link #getChanges}
      */
     public FlexibilityReservationServiceImpl(
             FlexibilityReservationRepository flexibilityReservationRepository,
-            FlexibilityReservationMapper flexibilityReservationMapper
+            ReservationRollupSumRepository rollupSumRepository,
+            ReservationCache reservationCache,
+            ReservationHotWindow hotWindow,
+            ReservationArchiveRepository archiveRepository,
+            @Value("${reservation.changes.settle-time:PT1M}") Duration changesSettleTime
     ) {
         this.flexibilityReservationRepository = flexibilityReservationRepository;
-        this.flexibilityReservationMapper = flexibilityReservationMapper;
+        this.rollupSumRepository = rollupSumRepository;
+        this.reservationCache = reservationCache;
+        this.hotWindow = hotWindow;
+        this.archiveRepository = archiveRepository;
+        this.changesSettleTime = changesSettleTime;
     }
 
     /**
      * Retrieves a list of flexibility reservations for the given asset and market IDs.
+     * Results are served from the {@link ReservationCache} when possible.
      *
      * @param assetId the UUID of the asset; must not be null
      * @param marketId the UUID of the market; must not be null
@@ -48,9 +112,132 @@ public class FlexibilityReservationServiceImpl implements FlexibilityReservation
      * @throws EntityNotFoundException if no reservations are found
      */
     public List<FlexibilityReservationDTO> getReservations(UUID assetId, UUID marketId) {
-        return flexibilityReservationRepository.findByAssetIdAndMarketId(assetId, marketId).stream()
-                .map(flexibilityReservationMapper::toDto)
-                .toList();
+        return reservationCache.get(ReservationQueryKey.all(assetId, marketId), () ->
+                flexibilityReservationRepository.findReservations(assetId, marketId));
+    }
+
+    /**
+     * Streams all flexibility reservations for the given asset and market IDs, ordered by timestamp and ID.
+     * Unlike {@link #getReservations}, the rows bypass the {@link ReservationCache}, as the history may be large.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param consumer callback receiving the reservations inside a read-only transaction
+     * @throws IllegalArgumentException if an ID is null
+     */
+    @Transactional(readOnly = true)
+    public void streamReservations(UUID assetId, UUID marketId, Consumer<Iterator<FlexibilityReservationDTO>> consumer) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        try (Stream<FlexibilityReservationDTO> reservations = flexibilityReservationRepository.streamReservations(assetId, marketId)) {
+            consumer.accept(reservations.iterator());
+        }
+    }
+
+    /**
+     * Retrieves one page of flexibility reservations for the given asset and market IDs using keyset pagination.
+     *
+     * <p>One extra row is fetched to find out whether another page follows; if it does,
+     * the returned page carries the cursor of its last reservation.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of reservations on the page, between 1 and {@link #MAX_PAGE_SIZE}
+     * @return a {@link FlexibilityReservationPageDTO} with the reservations and the cursor of the next page
+     * @throws IllegalArgumentException if an ID is null, the limit is out of range or the cursor is malformed
+     */
+    public FlexibilityReservationPageDTO getReservationsPage(UUID assetId, UUID marketId, String cursor, int limit) {
+        validatePage(assetId, marketId, limit);
+
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<FlexibilityReservationDTO> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = flexibilityReservationRepository.findFirstPage(assetId, marketId, fetchLimit);
+        } else {
+            ReservationCursor position = ReservationCursor.decode(cursor);
+            rows = flexibilityReservationRepository.findPageAfter(assetId, marketId, position.timestamp(), position.id(), fetchLimit);
+        }
+
+        List<FlexibilityReservationDTO> items = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String next = rows.size() > limit ? ReservationCursor.of(items.get(items.size() - 1)).encode() : null;
+
+        return new FlexibilityReservationPageDTO(items, next);
+    }
+
+    /**
+     * Retrieves the flexibility reservations of the given asset and market changed after a watermark.
+     *
+     * <p>The watermark is the {@code (changedAt, id)} position of the last returned change, so the feed seeks in the
+     * {@code (asset_id, market_id, changed_at)} index and its cost grows with the number of changes, not with the
+     * stored interval. {@code changedAt} is stamped by the database on every insert and replacement, whatever
+     * {@code updatedAt} the writer sends. It is the start time of the writing transaction rather than its commit time,
+     * so changes are only returned once they are older than {@code reservation.changes.settle-time}; each import
+     * batch commits in a transaction of its own, well within that time.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param watermark the watermark returned with the previous changes, or null to start from the first change
+     * @param limit the maximum number of changes returned, between 1 and {@link #MAX_PAGE_SIZE}
+     * @return a {@link FlexibilityReservationChangesDTO} with the changes and the watermark to continue from
+     * @throws IllegalArgumentException if an ID is null, the limit is out of range or the watermark is malformed
+     */
+    public FlexibilityReservationChangesDTO getChanges(UUID assetId, UUID marketId, String watermark, int limit) {
+        validatePage(assetId, marketId, limit);
+
+        boolean first = watermark == null || watermark.isBlank();
+        ReservationCursor position = first ? FIRST_CHANGE : ReservationCursor.decode(watermark);
+        Timestamp until = Timestamp.from(Instant.now().minus(changesSettleTime));
+        List<FlexibilityReservationDTO> rows = flexibilityReservationRepository.findChangesAfter(
+                assetId, marketId, position.timestamp(), position.id(), until, Limit.of(limit + 1));
+
+        List<FlexibilityReservationDTO> items = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String next = items.isEmpty()
+                ? (first ? null : watermark)
+                : ReservationCursor.ofChange(items.get(items.size() - 1)).encode();
+
+        return new FlexibilityReservationChangesDTO(items, next, rows.size() > limit);
+    }
+
+    /**
+     * Retrieves the version of all flexibility reservations of the given asset and market.
+     * Reads only the {@code (asset_id, market_id, changed_at)} index, neither the rows nor the cache.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @return the number of reservations and their latest change time
+     * @throws IllegalArgumentException if an ID is null
+     */
+    public ReservationVersion getVersion(UUID assetId, UUID marketId) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        return flexibilityReservationRepository.findVersion(assetId, marketId);
+    }
+
+    /**
+     * Retrieves the version of the flexibility reservations of the given asset and market within a time interval.
+     *
+     * <p>Archived months are read-only, so only the reservations still in the database are counted; archiving a
+     * month changes the version once. Rollups are recomputed from the reservations, so the version covers the
+     * aggregated sums as well.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start of the interval (inclusive)
+     * @param to the end of the interval (inclusive)
+     * @return the number of reservations in the interval and their latest change time
+     * @throws IllegalArgumentException if an ID or timestamp is null
+     */
+    public ReservationVersion getVersion(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Start interval (from) and End interval (to) must not be null");
+        }
+        return flexibilityReservationRepository.findVersionBetween(assetId, marketId, from, to);
     }
 
     // Filtering and aggregation of data done directly when retrieving from the database
@@ -58,15 +245,18 @@ public class FlexibilityReservationServiceImpl implements FlexibilityReservation
      * Retrieves filtered or aggregated flexibility reservations within a specified time interval.
      * If {@code total} is true, returns aggregated sums of reservations; otherwise, returns filtered reservations.
      *
-     * <p>Validates input parameters and throws {@link IllegalArgumentException} if any parameter is invalid.</p>
+     * <p>Aggregated sums are read from the pre-aggregated rollups, one row per bucket of the requested resolution.
+     * Queries within the {@link ReservationHotWindow} are answered from memory, others from the {@link ReservationCache} when possible. Validates input parameters and throws {@link IllegalArgumentException} if any parameter is invalid.</p>
      *
      * @param assetId the UUID of the asset; must not be null
      * @param marketId the UUID of the market; must not be null
      * @param from the start of the interval (inclusive); must not be null and must be before {@code to}
      * @param to the end of the interval (inclusive); must not be null and must be after {@code from}
      * @param total if true, aggregates results by summing values; if false, returns detailed results
+     * @param resolution the bucket size of the aggregated sums; only {@link RollupResolution#INTERVAL} without {@code total}
      * @return a list of {@link FlexibilityReservationDTO} representing filtered or aggregated results
-     * @throws IllegalArgumentException if any parameter is null or if {@code from} is after {@code to}
+     * @throws IllegalArgumentException if any parameter is null, if {@code from} is after {@code to}
+     *                                  or if a coarser resolution is requested without {@code total}
      * @throws EntityNotFoundException if no reservations match the criteria
      */
     public List<FlexibilityReservationDTO> getFilteredOrAggregatedReservations(
@@ -74,31 +264,236 @@ public class FlexibilityReservationServiceImpl implements FlexibilityReservation
             UUID marketId,
             Timestamp from,
             Timestamp to,
-            boolean total
+            boolean total,
+            RollupResolution resolution
     ) {
 
-        if (assetId == null || marketId == null) {
-            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        validateCriteria(assetId, marketId, from, to, total, resolution);
+
+        List<FlexibilityReservationDTO> hot = hotWindow.find(assetId, marketId, from, to, total, resolution);
+        if (hot != null) {
+            if (hot.isEmpty()) {
+                throw notFound(assetId, marketId, from, to);
+            }
+            return hot;
         }
-        if (from == null || to == null) {
-            throw new IllegalArgumentException("Start interval (from) and End interval (to) must not be null");
+
+        ReservationQueryKey key = ReservationQueryKey.of(assetId, marketId, from, to, total, resolution);
+        List<FlexibilityReservationDTO> result = reservationCache.get(key, () -> {
+            if (total) {
+                return rollupSumRepository.findSums(assetId, marketId, resolution, resolution.bucketStart(from), to);
+            }
+            List<FlexibilityReservationDTO> rows = flexibilityReservationRepository.findFilteredReservations(assetId, marketId, from, to);
+            if (!isArchived(from)) {
+                return rows;
+            }
+            try (Stream<FlexibilityReservationDTO> merged = ReservationStreams.merge(List.of(
+                    rows.stream().sorted(ReservationStreams.DETAIL_ORDER),
+                    archiveRepository.stream(List.of(assetId), List.of(marketId), from, to)), ReservationStreams.DETAIL_ORDER)) {
+                return merged.toList();
+            }
+        });
+
+        if (result.isEmpty()) {
+            throw notFound(assetId, marketId, from, to);
         }
 
-        List<FlexibilityReservationDTO> result;
+        return result;
+    }
+
+    /**
+     * Streams filtered or aggregated flexibility reservations within a specified time interval to the given consumer.
+     *
+     * <p>Detail rows are projected into DTOs one at a time without entering the persistence context,
+     * so memory use does not grow with the length of the interval. Aggregated sums are read from the rollups,
+     * so their cost depends on the number of buckets rather than the number of reservations.
+     * Results within the {@link ReservationHotWindow} and cached results are replayed without a query; streamed results
+     * up to the cache's entry limit are cached once the consumer has read them completely.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start of the interval (inclusive); must not be null
+     * @param to the end of the interval (inclusive); must not be null
+     * @param total if true, streams aggregated sums; if false, streams detailed results
+     * @param resolution the bucket size of the aggregated sums; only {@link RollupResolution#INTERVAL} without {@code total}
+     * @param consumer callback receiving the reservations ordered by timestamp
+     * @throws IllegalArgumentException if any parameter is null or a coarser resolution is requested without {@code total}
+     * @throws EntityNotFoundException if no reservations match the criteria
+     */
+    @Transactional(readOnly = true)
+    public void streamFilteredOrAggregatedReservations(
+            UUID assetId,
+            UUID marketId,
+            Timestamp from,
+            Timestamp to,
+            boolean total,
+            RollupResolution resolution,
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer
+    ) {
+
+        validateCriteria(assetId, marketId, from, to, total, resolution);
+
+        List<FlexibilityReservationDTO> hot = hotWindow.find(assetId, marketId, from, to, total, resolution);
+        if (hot != null) {
+            if (hot.isEmpty()) {
+                throw notFound(assetId, marketId, from, to);
+            }
+            consumer.accept(hot.iterator());
+            return;
+        }
+
+        ReservationQueryKey key = ReservationQueryKey.of(assetId, marketId, from, to, total, resolution);
+        List<FlexibilityReservationDTO> cached = reservationCache.getIfPresent(key);
+        if (cached != null) {
+            consumer.accept(cached.iterator());
+            return;
+        }
+
+        try (Stream<FlexibilityReservationDTO> reservations = total
+                ? rollupSumRepository.streamSums(assetId, marketId, resolution, resolution.bucketStart(from), to)
+                : withArchive(flexibilityReservationRepository.streamFilteredReservations(assetId, marketId, from, to),
+                        List.of(assetId), List.of(marketId), from, to)) {
+
+            Iterator<FlexibilityReservationDTO> iterator = reservations.iterator();
+            if (!iterator.hasNext()) {
+                throw notFound(assetId, marketId, from, to);
+            }
+            consumer.accept(reservationCache.caching(key, iterator));
+        }
+    }
+
+    /**
+     * Streams filtered or aggregated flexibility reservations of several assets and markets to the given consumer.
+     *
+     * <p>Asset IDs are sorted and split into chunks of {@link #BATCH_QUERY_CHUNK_SIZE}; each chunk is read with one
+     * {@code IN} query over all markets, so 500 assets in 3 markets take one query instead of 1500. Chunks are read
+     * one after the other in the same read-only transaction, each streamed like {@link #streamFilteredOrAggregatedReservations}.
+     * Totals are summed over all assets per market from the rollups; the sums of the chunks are merged by timestamp.
+     * Batch results are not cached.</p>
+     *
+     * @param assetIds the UUIDs of the assets; must not be empty
+     * @param marketIds the UUIDs of the markets; must not be empty
+     * @param from the start of the interval (inclusive); must not be null
+     * @param to the end of the interval (inclusive); must not be null
+     * @param total if true, streams sums over all assets per market; if false, streams detailed results
+     * @param resolution the bucket size of the aggregated sums; only {@link RollupResolution#INTERVAL} without {@code total}
+     * @param consumer callback receiving the reservations grouped by asset and market, each group ordered by timestamp
+     * @throws IllegalArgumentException if an ID set is empty, too large or contains null, if {@code from} or {@code to}
+     *                                  is null or if a coarser resolution is requested without {@code total}
+     * @throws EntityNotFoundException if no reservations match the criteria
+     */
+    @Transactional(readOnly = true)
+    public void streamBatchReservations(
+            Collection<UUID> assetIds,
+            Collection<UUID> marketIds,
+            Timestamp from,
+            Timestamp to,
+            boolean total,
+            RollupResolution resolution,
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer
+    ) {
 
+        validateIds("Asset", assetIds);
+        validateIds("Market", marketIds);
+        validateInterval(from, to, total, resolution);
+
+        List<UUID> markets = List.copyOf(new TreeSet<>(marketIds));
+        List<List<UUID>> assetChunks = chunks(new TreeSet<>(assetIds));
+
+        List<Supplier<Stream<FlexibilityReservationDTO>>> parts = new ArrayList<>();
         if (total) {
-            result = flexibilityReservationRepository.findAggregatedReservationSums(assetId, marketId, from, to);
+            Timestamp bucketFrom = resolution.bucketStart(from);
+            for (UUID market : markets) {
+                parts.add(() -> ReservationStreams.sumByTimestamp(assetChunks.stream()
+                        .map(chunk -> rollupSumRepository.streamPortfolioSums(chunk, market, resolution, bucketFrom, to))
+                        .toList()));
+            }
         } else {
-            result = flexibilityReservationRepository.findFilteredReservations(assetId, marketId, from, to).stream()
-                    .map(flexibilityReservationMapper::toDto)
-                    .toList();
+            for (List<UUID> chunk : assetChunks) {
+                parts.add(() -> withArchive(flexibilityReservationRepository.streamFilteredReservationsOfAssets(chunk, markets, from, to),
+                        chunk, markets, from, to));
+            }
         }
 
-        if (result.isEmpty()) {
-            throw new EntityNotFoundException("No reservations found for AssetID: " + assetId + ", MarketID: " + marketId
-                    + " and Start: " + from + " and End interval: " + to);
+        try (Stream<FlexibilityReservationDTO> reservations = ReservationStreams.concat(parts)) {
+            Iterator<FlexibilityReservationDTO> iterator = reservations.iterator();
+            if (!iterator.hasNext()) {
+                throw new EntityNotFoundException("No reservations found for " + assetIds.size() + " assets and "
+                        + marketIds.size() + " markets and Start: " + from + " and End interval: " + to);
+            }
+            consumer.accept(iterator);
         }
+    }
 
-        return result;
+    private boolean isArchived(Timestamp from) {
+        Instant horizon = archiveRepository.getHorizon();
+        return horizon != null && from.toInstant().isBefore(horizon);
+    }
+
+    // Merges the archived rows into a stream ordered by asset, market, timestamp and ID; rows of a month that is
+    // being archived are in both and taken from the database
+    private Stream<FlexibilityReservationDTO> withArchive(Stream<FlexibilityReservationDTO> reservations,
+                                                          Collection<UUID> assetIds, Collection<UUID> marketIds,
+                                                          Timestamp from, Timestamp to) {
+        if (!isArchived(from)) {
+            return reservations;
+        }
+        return ReservationStreams.merge(List.of(reservations, archiveRepository.stream(assetIds, marketIds, from, to)),
+                ReservationStreams.DETAIL_ORDER);
+    }
+
+    private static void validatePage(UUID assetId, UUID marketId, int limit) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static void validateCriteria(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                         boolean total, RollupResolution resolution) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        validateInterval(from, to, total, resolution);
+    }
+
+    private static void validateIds(String name, Collection<UUID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException(name + " IDs must not be empty");
+        }
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " " + name.toLowerCase() + " IDs can be queried at once");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException(name + " IDs must not contain null");
+        }
+    }
+
+    private static void validateInterval(Timestamp from, Timestamp to, boolean total, RollupResolution resolution) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Start interval (from) and End interval (to) must not be null");
+        }
+        if (resolution == null) {
+            throw new IllegalArgumentException("Resolution must not be null");
+        }
+        if (!total && resolution != RollupResolution.INTERVAL) {
+            throw new IllegalArgumentException("Resolution " + resolution.getValue() + " requires total=true");
+        }
+    }
+
+    private static List<List<UUID>> chunks(Collection<UUID> ids) {
+        List<UUID> sorted = List.copyOf(ids);
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int start = 0; start < sorted.size(); start += BATCH_QUERY_CHUNK_SIZE) {
+            chunks.add(sorted.subList(start, Math.min(start + BATCH_QUERY_CHUNK_SIZE, sorted.size())));
+        }
+        return chunks;
+    }
+
+    private static EntityNotFoundException notFound(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        return new EntityNotFoundException("No reservations found for AssetID: " + assetId + ", MarketID: " + marketId
+                + " and Start: " + from + " and End interval: " + to);
     }
 }
@@ -0,0 +1,34 @@
+package com.invt.tech.service;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Service interface for moving old flexibility reservations out of the database into the archive.
+ *
+ * <p>Reservations of UTC months that ended more than the retention period ago are written to
+ * {@link com.invt.tech.repository.ReservationArchiveRepository} and deleted from {@code flexibility_reservations}.
+ * Archived months are read-only: imports of reservations before the archive horizon are rejected.</p>
+ */
+public interface ReservationArchiveService {
+
+    /**
+     * Runs a write of reservations while no month is being archived.
+     *
+     * <p>The write receives the archive horizon, before which it must not store reservations; the horizon does not
+     * move until the write has returned.</p>
+     *
+     * @param write the write, receiving the horizon or null if nothing is archived
+     * @param <T>   the result of the write
+     * @return the result of the write
+     */
+    <T> T write(Function<Instant, T> write);
+
+    /**
+     * Archives all months that ended more than the retention period ago and deletes their reservations
+     * from the database.
+     *
+     * @return the number of archived reservations
+     */
+    long archiveExpired();
+}
@@ -0,0 +1,165 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.ReservationArchiveRepository;
+import com.invt.tech.util.ReservationStreams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the {@link ReservationArchiveService} interface.
+ *
+ * <p>Months are archived oldest first. Before a month is written, the horizon is moved past it under the write lock,
+ * which waits for running imports; later imports reject reservations of the month. Queued rollup days are
+ * recomputed, so the rollups of the month stay valid once its reservations are gone. The month is then merged with
+ * its existing archive file, if an earlier run failed after writing it, and its reservations are deleted one day per
+ * transaction; months without reservations get no file. Readers see each reservation exactly once throughout,
+ * see {@link ReservationStreams#merge}.</p>
+ *
+ * <p>The horizon and its lock are held in memory, so imports into archived months are only rejected by the instance
+ * that archives them.</p>
+ */
+@Slf4j
+@Service
+public class ReservationArchiveServiceImpl implements ReservationArchiveService {
+
+    private final FlexibilityReservationRepository flexibilityReservationRepository;
+    private final ReservationArchiveRepository archiveRepository;
+    private final ReservationRollupService rollupService;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate deleteTransaction;
+    private final boolean enabled;
+    private final Duration retention;
+    private final ReadWriteLock horizonLock = new ReentrantReadWriteLock();
+    private final ReentrantLock archiveLock = new ReentrantLock();
+    private volatile Instant horizon;
+
+    /**
+     * Constructs a new {@code ReservationArchiveServiceImpl} with required dependencies.
+     *
+     * @param flexibilityReservationRepository repository for reading and deleting the reservations of a month
+     * @param archiveRepository repository of the archive files
+     * @param rollupService service recomputing the queued rollup days before a month is archived
+     * @param transactionManager transaction manager used to read a month and to delete each of its days
+     * @param enabled if false, no months are archived; archived months are still read and stay read-only
+     * @param retention time after the end of a month until it is archived
+     */
+    public ReservationArchiveServiceImpl(
+            FlexibilityReservationRepository flexibilityReservationRepository,
+            ReservationArchiveRepository archiveRepository,
+            ReservationRollupService rollupService,
+            PlatformTransactionManager transactionManager,
+            @Value("${reservation.archive.enabled:false}") boolean enabled,
+            @Value("${reservation.archive.retention:P90D}") Duration retention
+    ) {
+        if (retention.isNegative()) {
+            throw new IllegalArgumentException("reservation.archive.retention must not be negative");
+        }
+        this.flexibilityReservationRepository = flexibilityReservationRepository;
+        this.archiveRepository = archiveRepository;
+        this.rollupService = rollupService;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.deleteTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.retention = retention;
+        this.horizon = archiveRepository.getHorizon();
+    }
+
+    @Override
+    public <T> T write(Function<Instant, T> write) {
+        horizonLock.readLock().lock();
+        try {
+            return write.apply(horizon);
+        } finally {
+            horizonLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Archives all expired months.
+     * Runs periodically with the delay configured in {@code reservation.archive.interval}.
+     *
+     * @return the number of archived reservations
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${reservation.archive.interval:PT6H}",
+            initialDelayString = "${reservation.archive.interval:PT6H}")
+    public long archiveExpired() {
+        if (!enabled) {
+            return 0;
+        }
+        archiveLock.lock();
+        try {
+            Timestamp oldest = flexibilityReservationRepository.findOldestTimestamp();
+            if (oldest == null) {
+                return 0;
+            }
+            YearMonth cutoff = ReservationArchiveRepository.month(Instant.now().minus(retention));
+            long archived = 0;
+            for (YearMonth month = ReservationArchiveRepository.month(oldest.toInstant()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                archived += archive(month);
+            }
+            return archived;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private long archive(YearMonth month) {
+        Instant start = ReservationArchiveRepository.start(month);
+        Instant end = ReservationArchiveRepository.start(month.plusMonths(1));
+
+        horizonLock.writeLock().lock();
+        try {
+            if (horizon == null || horizon.isBefore(end)) {
+                horizon = end;
+            }
+        } finally {
+            horizonLock.writeLock().unlock();
+        }
+
+        rollupService.compactAll();
+
+        Long rows = readTransaction.execute(status -> {
+            try (Stream<FlexibilityReservationDTO> reservations = ReservationStreams.merge(List.of(
+                    flexibilityReservationRepository.streamReservationsBetween(Timestamp.from(start), Timestamp.from(end)),
+                    archiveRepository.streamMonth(month)), ReservationStreams.DETAIL_ORDER)) {
+                Iterator<FlexibilityReservationDTO> iterator = reservations.iterator();
+                return iterator.hasNext() ? archiveRepository.write(month, iterator) : 0L;
+            }
+        });
+        if (rows == 0) {
+            return 0;
+        }
+
+        int deleted = 0;
+        for (Instant day = start; day.isBefore(end); day = day.plus(1, ChronoUnit.DAYS)) {
+            Timestamp from = Timestamp.from(day);
+            Timestamp to = Timestamp.from(day.plus(1, ChronoUnit.DAYS));
+            Integer count = deleteTransaction.execute(status -> flexibilityReservationRepository.deleteReservationsBetween(from, to));
+            deleted += count;
+        }
+
+        log.info("Archived {} reservations of {}, deleted {} from the database", rows, month, deleted);
+        return rows;
+    }
+}
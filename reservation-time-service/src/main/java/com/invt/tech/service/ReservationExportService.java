@@ -0,0 +1,64 @@
+package com.invt.tech.service;
+
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.util.ReservationHandoff;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Service interface for exports that read reservations on a separate thread from the one writing the response.
+ */
+public interface ReservationExportService {
+
+    /**
+     * Starts reading filtered or aggregated reservations in the background and waits until the first rows arrive.
+     *
+     * <p>The rows are handed over through a bounded queue, so the database read runs ahead of the response by
+     * at most the queue size. The caller must close the returned hand-off when it stops reading.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start timestamp of the interval; must not be null and must be before {@code to}
+     * @param to the end timestamp of the interval; must not be null and must be after {@code from}
+     * @param total if true, reads aggregated reservation sums; if false, reads filtered reservation details
+     * @param resolution the bucket size of the aggregated sums
+     * @return the hand-off to iterate the reservations from, ordered by timestamp
+     * @throws jakarta.persistence.EntityNotFoundException if no reservation matches
+     * @throws IllegalArgumentException if the criteria are invalid
+     * @throws org.springframework.core.task.TaskRejectedException if {@code reservation.export.fetch-concurrency} exports are running
+     */
+    ReservationHandoff startExport(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total, RollupResolution resolution);
+
+    /**
+     * Starts reading all reservations of an asset and market in the background and waits until the first rows arrive.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @return the hand-off to iterate the reservations from, ordered by timestamp and ID; empty if there are none
+     * @throws IllegalArgumentException if an ID is null
+     * @throws org.springframework.core.task.TaskRejectedException if {@code reservation.export.stream-concurrency} streams are running
+     * @see FlexibilityReservationService#streamReservations
+     */
+    ReservationHandoff startStream(UUID assetId, UUID marketId);
+
+    /**
+     * Starts reading filtered or aggregated reservations of several assets and markets in the background
+     * and waits until the first rows arrive.
+     *
+     * @param assetIds the UUIDs of the assets; must not be empty
+     * @param marketIds the UUIDs of the markets; must not be empty
+     * @param from the start timestamp of the interval; must not be null
+     * @param to the end timestamp of the interval; must not be null
+     * @param total if true, reads sums over all assets per market; if false, reads filtered reservation details
+     * @param resolution the bucket size of the aggregated sums
+     * @return the hand-off to iterate the reservations from, grouped by asset and market
+     * @throws jakarta.persistence.EntityNotFoundException if no reservation matches
+     * @throws IllegalArgumentException if the criteria are invalid
+     * @throws org.springframework.core.task.TaskRejectedException if {@code reservation.export.fetch-concurrency} exports are running
+     * @see FlexibilityReservationService#streamBatchReservations
+     */
+    ReservationHandoff startBatchExport(Collection<UUID> assetIds, Collection<UUID> marketIds, Timestamp from, Timestamp to,
+                                        boolean total, RollupResolution resolution);
+}
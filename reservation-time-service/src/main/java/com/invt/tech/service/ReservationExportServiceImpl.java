@@ -0,0 +1,255 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.util.ReservationHandoff;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of the {@link ReservationExportService} interface.
+ *
+ * <p>Each export streams its query on a fetch thread, inside the read-only transaction of
+ * {@link FlexibilityReservationService#streamFilteredOrAggregatedReservations}. At most
+ * {@code reservation.export.fetch-concurrency} exports read at once; further exports are rejected with a
+ * {@link TaskRejectedException} rather than holding their request thread until a slow download finishes. Streams of
+ * the full history have a limit of their own, {@code reservation.export.stream-concurrency}, so they are never
+ * rejected because of running exports. Fetch threads are virtual threads when {@code spring.threads.virtual.enabled}
+ * is active.</p>
+ *
+ * <p>Exports of an asset and market spanning at least {@code reservation.export.split-min-interval} are split into
+ * {@code reservation.export.split-ranges} consecutive sub-ranges starting at UTC midnight, so neither a timestamp nor
+ * an hourly or daily rollup bucket spans two of them. The export's fetch thread reads the sub-ranges in order and hands
+ * their rows on; sub-ranges ahead of it are read in parallel on further threads, each with its own connection and
+ * bounded hand-off, while one of the {@code reservation.export.split-concurrency} permits shared by all exports is
+ * free. Permits are never waited for: a sub-range without one is read by the fetch thread when it gets there, so
+ * splitting only adds parallelism that is available and never holds an export back.</p>
+ */
+@Slf4j
+@Service
+public class ReservationExportServiceImpl implements ReservationExportService {
+
+    private final FlexibilityReservationService flexibilityReservationService;
+    private final ExportMetrics exportMetrics;
+    private final SimpleAsyncTaskExecutor fetchExecutor;
+    private final SimpleAsyncTaskExecutor streamExecutor;
+    private final SimpleAsyncTaskExecutor splitExecutor;
+    private final int queueChunks;
+    private final int chunkSize;
+    private final int splitRanges;
+    private final Duration splitMinInterval;
+    private final Semaphore splitPermits;
+
+    /**
+     * Constructs a new {@code ReservationExportServiceImpl} with required dependencies.
+     *
+     * @param flexibilityReservationService service streaming the reservations from the database
+     * @param exportMetrics meters the time until the first row is recorded in
+     * @param environment environment deciding whether fetch threads are virtual
+     * @param fetchConcurrency maximum number of exports reading from the database at once
+     * @param streamConcurrency maximum number of streams of the full history reading from the database at once
+     * @param queueChunks number of chunks buffered between the fetch thread and the response
+     * @param chunkSize number of rows per buffered chunk
+     * @param splitRanges number of sub-ranges a long export is split into; 1 disables splitting
+     * @param splitMinInterval length of the shortest export interval that is split
+     * @param splitConcurrency maximum number of sub-ranges read ahead of their exports at once
+     */
+    public ReservationExportServiceImpl(
+            FlexibilityReservationService flexibilityReservationService,
+            ExportMetrics exportMetrics,
+            Environment environment,
+            @Value("${reservation.export.fetch-concurrency:8}") int fetchConcurrency,
+            @Value("${reservation.export.stream-concurrency:8}") int streamConcurrency,
+            @Value("${reservation.export.queue-chunks:8}") int queueChunks,
+            @Value("${reservation.export.chunk-size:1024}") int chunkSize,
+            @Value("${reservation.export.split-ranges:8}") int splitRanges,
+            @Value("${reservation.export.split-min-interval:P7D}") Duration splitMinInterval,
+            @Value("${reservation.export.split-concurrency:4}") int splitConcurrency
+    ) {
+        if (splitRanges < 1) {
+            throw new IllegalArgumentException("reservation.export.split-ranges must be at least 1");
+        }
+        this.flexibilityReservationService = flexibilityReservationService;
+        this.exportMetrics = exportMetrics;
+        this.fetchExecutor = limitedExecutor("export-fetch-", fetchConcurrency, environment);
+        this.streamExecutor = limitedExecutor("export-stream-", streamConcurrency, environment);
+        this.splitExecutor = new SimpleAsyncTaskExecutor("export-split-");
+        this.splitExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        this.queueChunks = queueChunks;
+        this.chunkSize = chunkSize;
+        this.splitRanges = splitRanges;
+        this.splitMinInterval = splitMinInterval;
+        this.splitPermits = new Semaphore(splitConcurrency);
+    }
+
+    @Override
+    public ReservationHandoff startExport(UUID assetId, UUID marketId, Timestamp from, Timestamp to, boolean total, RollupResolution resolution) {
+        List<TimeRange> ranges = split(from, to);
+        if (ranges.size() == 1) {
+            return start(fetchExecutor, "asset " + assetId + " market " + marketId, ExportMetrics.EXPORT, total, consumer ->
+                    flexibilityReservationService.streamFilteredOrAggregatedReservations(assetId, marketId, from, to, total, resolution, consumer));
+        }
+        String description = "asset " + assetId + " market " + marketId + " in " + ranges.size() + " ranges";
+        return start(fetchExecutor, description, ExportMetrics.EXPORT, total, consumer -> {
+            if (!streamRanges(assetId, marketId, ranges, total, resolution, consumer)) {
+                throw new EntityNotFoundException("No reservations found for AssetID: " + assetId + ", MarketID: " + marketId
+                        + " and Start: " + from + " and End interval: " + to);
+            }
+        });
+    }
+
+    @Override
+    public ReservationHandoff startStream(UUID assetId, UUID marketId) {
+        return start(streamExecutor, "asset " + assetId + " market " + marketId, ExportMetrics.STREAM, false, consumer ->
+                flexibilityReservationService.streamReservations(assetId, marketId, consumer));
+    }
+
+    @Override
+    public ReservationHandoff startBatchExport(Collection<UUID> assetIds, Collection<UUID> marketIds, Timestamp from, Timestamp to,
+                                               boolean total, RollupResolution resolution) {
+        return start(fetchExecutor, assetIds.size() + " assets", ExportMetrics.BATCH, total, consumer ->
+                flexibilityReservationService.streamBatchReservations(assetIds, marketIds, from, to, total, resolution, consumer));
+    }
+
+    // Rejects further tasks once all threads are busy, so requests fail fast instead of queueing behind slow downloads
+    private static SimpleAsyncTaskExecutor limitedExecutor(String threadNamePrefix, int concurrency, Environment environment) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setConcurrencyLimit(concurrency);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+
+    private ReservationHandoff start(SimpleAsyncTaskExecutor executor, String description, String endpoint, boolean total,
+                                     Consumer<Consumer<Iterator<FlexibilityReservationDTO>>> query) {
+        long startNanos = System.nanoTime();
+        ReservationHandoff handoff = new ReservationHandoff(queueChunks, chunkSize);
+        executor.execute(() -> {
+            try {
+                query.accept(handoff::publish);
+                handoff.complete();
+            } catch (CancellationException e) {
+                log.debug("Export of {} cancelled: {}", description, e.getMessage());
+            } catch (RuntimeException | Error e) {
+                handoff.fail(e);
+            }
+        });
+
+        try {
+            // Surfaces validation and not-found errors before the response is committed
+            handoff.hasNext();
+            exportMetrics.recordQuery(endpoint, total, startNanos);
+        } catch (RuntimeException | Error e) {
+            handoff.close();
+            throw e;
+        }
+        return handoff;
+    }
+
+    // Splits at UTC midnights; sub-ranges end one microsecond, the database precision, before the next one starts
+    List<TimeRange> split(Timestamp from, Timestamp to) {
+        if (splitRanges == 1 || from == null || to == null
+                || Duration.between(from.toInstant(), to.toInstant()).compareTo(splitMinInterval) < 0) {
+            return List.of(new TimeRange(from, to));
+        }
+        Duration step = Duration.between(from.toInstant(), to.toInstant()).dividedBy(splitRanges);
+        List<TimeRange> ranges = new ArrayList<>(splitRanges);
+        Timestamp start = from;
+        for (int i = 1; i < splitRanges; i++) {
+            Instant boundary = from.toInstant().plus(step.multipliedBy(i)).truncatedTo(ChronoUnit.DAYS);
+            if (boundary.isAfter(start.toInstant()) && boundary.isBefore(to.toInstant())) {
+                ranges.add(new TimeRange(start, Timestamp.from(boundary.minus(1, ChronoUnit.MICROS))));
+                start = Timestamp.from(boundary);
+            }
+        }
+        ranges.add(new TimeRange(start, to));
+        return ranges;
+    }
+
+    // Hands on the rows of all sub-ranges in order and returns whether there were any
+    private boolean streamRanges(UUID assetId, UUID marketId, List<TimeRange> ranges, boolean total, RollupResolution resolution,
+                                 Consumer<Iterator<FlexibilityReservationDTO>> consumer) {
+        List<ReservationHandoff> handoffs = new ArrayList<>(ranges.size());
+        boolean found = false;
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                if (handoffs.size() == i) {
+                    // Not read ahead, read by this thread
+                    handoffs.add(null);
+                }
+                for (int ahead = handoffs.size(); ahead < ranges.size() && splitPermits.tryAcquire(); ahead++) {
+                    handoffs.add(readAhead(assetId, marketId, ranges.get(ahead), total, resolution));
+                }
+                ReservationHandoff handoff = handoffs.get(i);
+                if (handoff == null) {
+                    found |= read(assetId, marketId, ranges.get(i), total, resolution, consumer);
+                } else if (handoff.hasNext()) {
+                    found = true;
+                    consumer.accept(handoff);
+                }
+            }
+        } finally {
+            handoffs.stream().filter(Objects::nonNull).forEach(ReservationHandoff::close);
+        }
+        return found;
+    }
+
+    // Reads a sub-range on its own thread, holding a split permit until the export has taken its rows
+    private ReservationHandoff readAhead(UUID assetId, UUID marketId, TimeRange range, boolean total, RollupResolution resolution) {
+        ReservationHandoff handoff = new ReservationHandoff(queueChunks, chunkSize);
+        try {
+            splitExecutor.execute(() -> {
+                try {
+                    read(assetId, marketId, range, total, resolution, handoff::publish);
+                    handoff.complete();
+                } catch (CancellationException e) {
+                    log.debug("Export of asset {} market {} from {} cancelled: {}", assetId, marketId, range.from(), e.getMessage());
+                } catch (RuntimeException | Error e) {
+                    handoff.fail(e);
+                } finally {
+                    splitPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            splitPermits.release();
+            throw e;
+        }
+        return handoff;
+    }
+
+    // Sub-ranges without reservations are skipped; only an export without any is not found
+    private boolean read(UUID assetId, UUID marketId, TimeRange range, boolean total, RollupResolution resolution,
+                         Consumer<Iterator<FlexibilityReservationDTO>> consumer) {
+        try {
+            flexibilityReservationService.streamFilteredOrAggregatedReservations(
+                    assetId, marketId, range.from(), range.to(), total, resolution, consumer);
+            return true;
+        } catch (EntityNotFoundException e) {
+            return false;
+        }
+    }
+
+    record TimeRange(Timestamp from, Timestamp to) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.util.ResampleResolution;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Service interface for downsampling reservation series into calendar buckets.
+ */
+public interface ReservationResampleService {
+
+    /**
+     * Retrieves the reservations of an asset and market within a time interval, aggregated per bucket.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start timestamp of the interval; must not be null and must not be after {@code to}
+     * @param to the end timestamp of the interval; must not be null
+     * @param resolution the bucket size; must not be null
+     * @param zone the time zone whose calendar the buckets follow; must not be null
+     * @return one {@link ReservationBucketDTO} per bucket with reservations, ordered by bucket start
+     * @throws IllegalArgumentException if a parameter is null or {@code from} is after {@code to}
+     * @throws jakarta.persistence.EntityNotFoundException if no reservations match
+     */
+    List<ReservationBucketDTO> getBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                          ResampleResolution resolution, ZoneId zone);
+
+    /**
+     * Streams the reservations of an asset and market within a time interval, aggregated per bucket, to the given consumer.
+     *
+     * <p>Buckets are read from the database with a cursor; the consumer is called inside a read-only transaction,
+     * and only once the first bucket has been read.</p>
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start timestamp of the interval; must not be null and must not be after {@code to}
+     * @param to the end timestamp of the interval; must not be null
+     * @param resolution the bucket size; must not be null
+     * @param zone the time zone whose calendar the buckets follow; must not be null
+     * @param consumer callback receiving one {@link ReservationBucketDTO} per bucket with reservations, ordered by bucket start
+     * @throws IllegalArgumentException if a parameter is null or {@code from} is after {@code to}
+     * @throws jakarta.persistence.EntityNotFoundException if no reservations match
+     */
+    void streamBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to, ResampleResolution resolution,
+                       ZoneId zone, Consumer<Iterator<ReservationBucketDTO>> consumer);
+}
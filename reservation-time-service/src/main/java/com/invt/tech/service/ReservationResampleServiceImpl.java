@@ -0,0 +1,87 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.repository.ReservationBucketRepository;
+import com.invt.tech.util.ResampleResolution;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the {@link ReservationResampleService} interface.
+ *
+ * <p>Buckets are aggregated from the raw reservations by the database, so the cost of a request grows with the
+ * number of reservations read but the response only with the number of buckets. The pre-aggregated rollups are
+ * not used because they only hold sums of UTC hours and days.</p>
+ */
+@Service
+public class ReservationResampleServiceImpl implements ReservationResampleService {
+
+    private final ReservationBucketRepository bucketRepository;
+
+    /**
+     * Constructs a new {@code ReservationResampleServiceImpl} with required dependencies.
+     *
+     * @param bucketRepository repository aggregating the reservations into buckets
+     */
+    public ReservationResampleServiceImpl(ReservationBucketRepository bucketRepository) {
+        this.bucketRepository = bucketRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ReservationBucketDTO> getBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                                 ResampleResolution resolution, ZoneId zone) {
+        validateCriteria(assetId, marketId, from, to, resolution, zone);
+
+        List<ReservationBucketDTO> buckets = bucketRepository.findBuckets(assetId, marketId, from, to, resolution, zone);
+        if (buckets.isEmpty()) {
+            throw notFound(assetId, marketId, from, to);
+        }
+        return buckets;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamBuckets(UUID assetId, UUID marketId, Timestamp from, Timestamp to, ResampleResolution resolution,
+                              ZoneId zone, Consumer<Iterator<ReservationBucketDTO>> consumer) {
+        validateCriteria(assetId, marketId, from, to, resolution, zone);
+
+        try (Stream<ReservationBucketDTO> buckets = bucketRepository.streamBuckets(assetId, marketId, from, to, resolution, zone)) {
+            Iterator<ReservationBucketDTO> iterator = buckets.iterator();
+            if (!iterator.hasNext()) {
+                throw notFound(assetId, marketId, from, to);
+            }
+            consumer.accept(iterator);
+        }
+    }
+
+    private static void validateCriteria(UUID assetId, UUID marketId, Timestamp from, Timestamp to,
+                                         ResampleResolution resolution, ZoneId zone) {
+        if (assetId == null || marketId == null) {
+            throw new IllegalArgumentException("Asset ID and Market ID must not be null");
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Start interval (from) and End interval (to) must not be null");
+        }
+        if (from.after(to)) {
+            throw new IllegalArgumentException("Start interval (from) must not be after End interval (to)");
+        }
+        if (resolution == null || zone == null) {
+            throw new IllegalArgumentException("Resolution and time zone must not be null");
+        }
+    }
+
+    private static EntityNotFoundException notFound(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        return new EntityNotFoundException("No reservations found for AssetID: " + assetId + ", MarketID: " + marketId
+                + " and Start: " + from + " and End interval: " + to);
+    }
+}
@@ -0,0 +1,50 @@
+package com.invt.tech.service;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Service interface for maintaining the pre-aggregated reservation rollups.
+ *
+ * <p>Writers queue the days they change with {@link #markDirty}; queued days are recomputed by a background
+ * compaction job. Readers never wait for it: they sum the raw reservations of queued days themselves, see
+ * {@link com.invt.tech.repository.ReservationRollupSumRepository}.</p>
+ */
+public interface ReservationRollupService {
+
+    /**
+     * Queues the UTC days touched by a change of reservations for recomputation, except archived days.
+     * Joins the caller's transaction, so the days are queued together with the change.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start of the changed interval; must not be null
+     * @param to the end of the changed interval; must not be null
+     */
+    void markDirty(UUID assetId, UUID marketId, Timestamp from, Timestamp to);
+
+    /**
+     * Recomputes the queued days of an asset and market that overlap the given interval.
+     *
+     * @param assetId the UUID of the asset; must not be null
+     * @param marketId the UUID of the market; must not be null
+     * @param from the start of the interval; must not be null
+     * @param to the end of the interval; must not be null
+     * @return the number of recomputed days
+     */
+    int compact(UUID assetId, UUID marketId, Timestamp from, Timestamp to);
+
+    /**
+     * Recomputes all queued days.
+     *
+     * @return the number of recomputed days
+     */
+    int compactAll();
+
+    /**
+     * Queues every day with reservations that is not archived and recomputes all rollups.
+     *
+     * @return the number of recomputed days
+     */
+    int rebuild();
+}
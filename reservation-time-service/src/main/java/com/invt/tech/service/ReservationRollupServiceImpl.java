@@ -0,0 +1,172 @@
+package com.invt.tech.service;
+
+import com.invt.tech.entity.FlexibilityReservationRollupDirtyDay;
+import com.invt.tech.entity.FlexibilityReservationRollupDirtyDayId;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.repository.FlexibilityReservationRollupRepository;
+import com.invt.tech.repository.ReservationArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link ReservationRollupService} interface.
+ *
+ * <p>Each queued day is recomputed in its own transaction: the day is taken off the queue, its rollups are deleted
+ * and summed again from the raw reservations. Compactions are serialized, so two of them never rewrite the same day
+ * at once. A day is only taken off the queue at the version the compaction read: a writer that queued the day again
+ * in the meantime bumped the version and locked the queue row until its commit, so the day is read again and
+ * recomputed with that change. A change committed while a day is recomputed queues the day again.</p>
+ *
+ * <p>Days before the archive horizon are never queued: their reservations have been moved to the archive, so
+ * recomputing them would delete their rollups.</p>
+ */
+@Slf4j
+@Service
+public class ReservationRollupServiceImpl implements ReservationRollupService {
+
+    /**
+     * Number of queued days read per round of {@link #compactAll()}.
+     */
+    public static final int COMPACTION_BATCH_SIZE = 500;
+
+    private final FlexibilityReservationRollupRepository rollupRepository;
+    private final ReservationArchiveRepository archiveRepository;
+    private final TransactionTemplate compactionTransaction;
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    /**
+     * Constructs a new {@code ReservationRollupServiceImpl} with required dependencies.
+     *
+     * @param rollupRepository repository for reading and writing rollups and queued days
+     * @param archiveRepository repository of the archive files, whose horizon bounds the queued days
+     * @param transactionManager transaction manager used to recompute each day in a new transaction
+     */
+    public ReservationRollupServiceImpl(
+            FlexibilityReservationRollupRepository rollupRepository,
+            ReservationArchiveRepository archiveRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.rollupRepository = rollupRepository;
+        this.archiveRepository = archiveRepository;
+        this.compactionTransaction = new TransactionTemplate(transactionManager);
+        this.compactionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    @Transactional
+    public void markDirty(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        Timestamp start = unarchived(RollupResolution.DAY.bucketStart(from));
+        if (!start.after(to)) {
+            rollupRepository.markDirtyDays(assetId, marketId, start, to);
+        }
+    }
+
+    /**
+     * Queues the days of written reservations in the transaction that wrote them.
+     *
+     * @param event the written reservations
+     */
+    @EventListener
+    @Transactional
+    public void onReservationsChanged(ReservationsChangedEvent event) {
+        markDirty(event.assetId(), event.marketId(), event.from(), event.to());
+    }
+
+    @Override
+    public int compact(UUID assetId, UUID marketId, Timestamp from, Timestamp to) {
+        List<FlexibilityReservationRollupDirtyDay> days = rollupRepository.findDirtyDays(assetId, marketId, RollupResolution.DAY.bucketStart(from), to);
+        days.forEach(this::compactDay);
+        return days.size();
+    }
+
+    /**
+     * Recomputes all queued days, in rounds of {@link #COMPACTION_BATCH_SIZE} days.
+     * Runs periodically with the delay configured in {@code reservation.rollup.compaction-interval}.
+     *
+     * @return the number of recomputed days
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${reservation.rollup.compaction-interval:PT30S}",
+            initialDelayString = "${reservation.rollup.compaction-interval:PT30S}")
+    public int compactAll() {
+        int compacted = 0;
+        List<FlexibilityReservationRollupDirtyDay> days;
+        do {
+            days = rollupRepository.findDirtyDays(Limit.of(COMPACTION_BATCH_SIZE));
+            days.forEach(this::compactDay);
+            compacted += days.size();
+        } while (days.size() == COMPACTION_BATCH_SIZE);
+
+        if (compacted > 0) {
+            log.debug("Recomputed reservation rollups of {} days", compacted);
+        }
+        return compacted;
+    }
+
+    /**
+     * Recomputes all rollups once the application has started, covering reservations loaded at startup.
+     *
+     * @return the number of recomputed days
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int rebuild() {
+        compactionTransaction.executeWithoutResult(status -> rollupRepository.markAllDirtyDays(unarchived(Timestamp.from(Instant.EPOCH))));
+        return compactAll();
+    }
+
+    // Moves a day start past the archived months; the horizon is the start of a month, so it stays aligned to a day
+    private Timestamp unarchived(Timestamp dayStart) {
+        Instant horizon = archiveRepository.getHorizon();
+        return horizon != null && dayStart.toInstant().isBefore(horizon) ? Timestamp.from(horizon) : dayStart;
+    }
+
+    private void compactDay(FlexibilityReservationRollupDirtyDay queued) {
+        FlexibilityReservationRollupDirtyDayId day = queued.getId();
+        compactionLock.lock();
+        try {
+            Long version = queued.getVersion();
+            // Queued again since it was read: recompute the day with the writer's change
+            while (version != null && !compactDay(day, version)) {
+                version = rollupRepository.findDirtyDayVersion(day.getAssetId(), day.getMarketId(), day.getDayStart());
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private boolean compactDay(FlexibilityReservationRollupDirtyDayId day, long version) {
+        Timestamp from = day.getDayStart();
+        Timestamp to = Timestamp.from(from.toInstant().plus(1, ChronoUnit.DAYS));
+
+        return Boolean.TRUE.equals(compactionTransaction.execute(status -> {
+            if (rollupRepository.deleteDirtyDay(day.getAssetId(), day.getMarketId(), from, version) == 0) {
+                return false;
+            }
+            // One delete per resolution, so each one seeks on the full primary key
+            for (RollupResolution resolution : RollupResolution.values()) {
+                rollupRepository.deleteRollups(day.getAssetId(), day.getMarketId(), resolution.name(), from, to);
+            }
+            rollupRepository.insertIntervalRollups(day.getAssetId(), day.getMarketId(), from, to);
+            rollupRepository.insertHourRollups(day.getAssetId(), day.getMarketId(), from, to);
+            rollupRepository.insertDayRollups(day.getAssetId(), day.getMarketId(), from, to);
+            return true;
+        }));
+    }
+}
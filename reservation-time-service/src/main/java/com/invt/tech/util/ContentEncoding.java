@@ -0,0 +1,127 @@
+package com.invt.tech.util;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content encodings applied to streamed exports.
+ * The encoding is negotiated from the client's {@code Accept-Encoding} header and applied while the export is written.
+ */
+public enum ContentEncoding {
+
+    /**
+     * No compression.
+     */
+    IDENTITY(null),
+
+    /**
+     * Gzip compression from the JDK.
+     */
+    GZIP("gzip"),
+
+    /**
+     * Zstandard compression, only offered when the native library can be loaded on this platform.
+     */
+    ZSTD("zstd");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Picks the encoding for a response based on the {@code Accept-Encoding} request header.
+     *
+     * <p>The encoding with the highest quality value wins; on equal quality zstd is preferred over gzip.
+     * Encodings with {@code q=0} are never chosen, and a missing header results in {@link #IDENTITY}.</p>
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header, may be null
+     * @return the negotiated content encoding
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+
+        // -1 marks a coding the client did not list; it then falls back to the wildcard quality, if any
+        double zstd = -1;
+        double gzip = -1;
+        double wildcard = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(tokens);
+            switch (coding) {
+                case "zstd" -> zstd = quality;
+                case "gzip", "x-gzip" -> gzip = quality;
+                case "*" -> wildcard = quality;
+                default -> { }
+            }
+        }
+        zstd = zstd < 0 ? wildcard : zstd;
+        gzip = gzip < 0 ? wildcard : gzip;
+
+        if (ZSTD_AVAILABLE && zstd > 0 && zstd >= gzip) {
+            return ZSTD;
+        }
+        return gzip > 0 ? GZIP : IDENTITY;
+    }
+
+    /**
+     * Wraps the given stream so that everything written to it is compressed with this encoding.
+     * Closing the returned stream finishes the compressed data and closes the wrapped stream.
+     *
+     * @param out the stream receiving the encoded data
+     * @return the stream to write uncompressed data to
+     * @throws IOException if the compressor cannot be initialized
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        return switch (this) {
+            case IDENTITY -> out;
+            case GZIP -> new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+
+    /**
+     * Returns the value of the {@code Content-Encoding} header for this encoding.
+     *
+     * @return the header value, or null for {@link #IDENTITY}
+     */
+    public String getToken() {
+        return token;
+    }
+
+    private static double quality(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
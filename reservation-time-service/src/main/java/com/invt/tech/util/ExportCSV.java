@@ -1,15 +1,13 @@
 package com.invt.tech.util;
 
 import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationBucketDTO;
 import com.invt.tech.handler.CSVExportException;
-import com.opencsv.CSVWriter;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.math.BigDecimal;
-import java.util.List;
+import java.io.OutputStream;
+import java.util.Iterator;
 
 /**
  * Utility class for exporting flexibility reservation data to CSV format.
@@ -22,20 +20,71 @@ public class ExportCSV {
     // Here, we are exporting data to CSV file and return CSV file as response
 
     /**
-     * Exports a list of flexibility reservations as a CSV file and writes it to the HTTP response output stream.
-     * Sets the content type to "text/csv" and configures the response for file download with a fixed filename "reservations.csv".
+     * Exports flexibility reservations as a CSV file and writes it to the HTTP response output stream.
+     * Sets the content type and the download file name according to the requested format.
      *
-     * @param reservations the list of flexibility reservation DTOs to export
+     * <p>Reservations are written as they are read from the iterator, so the export can start before the query completes.
+     * For {@link ExportFormat#CSV} the negotiated content encoding compresses the stream on the wire;
+     * {@link ExportFormat#CSV_GZ} always produces a gzip file download.</p>
+     *
+     * @param reservations the flexibility reservation DTOs to export
      * @param isTotal      if true, exports aggregated data with fewer columns; otherwise exports full details
+     * @param format       the requested file format
+     * @param encoding     the content encoding negotiated from the request's Accept-Encoding header
      * @param response     the HttpServletResponse to write the CSV data to
      * @throws CSVExportException if an I/O error occurs during writing to the response output stream
      */
-    public static void exportToCSV(List<FlexibilityReservationDTO> reservations, boolean isTotal, HttpServletResponse response) {
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=reservations.csv");
+    public static void exportToCSV(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal,
+                                   ExportFormat format, ContentEncoding encoding, HttpServletResponse response) {
+        try (OutputStream out = format.openResponse(response, encoding)) {
+            writeReservationsToCSV(reservations, isTotal, out);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export CSV to response output stream", e);
+        }
+    }
+
+    /**
+     * Exports flexibility reservations as a CSV file, gzip compressed for {@link ExportFormat#CSV_GZ}.
+     *
+     * @param reservations the flexibility reservation DTOs to export
+     * @param isTotal      if true, exports aggregated data with fewer columns; otherwise exports full details
+     * @param format       the file format, {@link ExportFormat#CSV} or {@link ExportFormat#CSV_GZ}
+     * @param out          the stream of the file; closed when the export is finished
+     * @throws CSVExportException if an I/O error occurs while writing the file
+     */
+    public static void exportToFile(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal,
+                                    ExportFormat format, OutputStream out) {
+        try (OutputStream file = format.openFile(out)) {
+            writeReservationsToCSV(reservations, isTotal, file);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export CSV to file", e);
+        }
+    }
+
+    /**
+     * Exports resampled reservation buckets as a CSV file and writes it to the HTTP response output stream.
+     * Power values are converted from kW to MW; bucket starts are written as ISO 8601 date-times with offset.
+     *
+     * <p>Buckets are written by {@link ReservationCsvWriter} as they are read from the iterator.</p>
+     *
+     * @param buckets  the buckets to export
+     * @param format   the file format, {@link ExportFormat#CSV} or {@link ExportFormat#CSV_GZ}
+     * @param encoding the content encoding negotiated from the request's Accept-Encoding header
+     * @param response the HttpServletResponse to write the CSV data to
+     * @throws IllegalArgumentException if the format is columnar
+     * @throws CSVExportException if an I/O error occurs during writing to the response output stream
+     */
+    public static void exportBucketsToCSV(Iterator<ReservationBucketDTO> buckets, ExportFormat format,
+                                          ContentEncoding encoding, HttpServletResponse response) {
+        if (format.isColumnar()) {
+            throw new IllegalArgumentException("Resampled exports support csv and csv.gz, not " + format.getValue());
+        }
 
-        try (OutputStreamWriter writer = new OutputStreamWriter(response.getOutputStream())) {
-            writeReservationsToCSV(reservations, isTotal, writer);
+        try (ReservationCsvWriter writer = ReservationCsvWriter.forBuckets(format.openResponse(response, encoding))) {
+            writer.writeHeader();
+            while (buckets.hasNext()) {
+                writer.write(buckets.next());
+            }
         } catch (IOException e) {
             throw new CSVExportException("Failed to export CSV to response output stream", e);
         }
@@ -45,52 +94,22 @@ public class ExportCSV {
     // If total parameter true we will have 5 header columns, else we will have all header columns
 
     /**
-     * Helper method that writes reservation data to a CSV format using the provided Writer.
+     * Helper method that writes reservation data to a CSV format using the provided output stream.
      * Converts positive and negative power values from kilowatts (kW) to megawatts (MW) by dividing by 1000.
      * Writes either aggregated or full detail columns based on the isTotal flag.
      *
-     * @param reservations the list of flexibility reservation DTOs to write
+     * <p>Rows are serialized by {@link ReservationCsvWriter}, which encodes fields straight into a reusable buffer.</p>
+     *
+     * @param reservations the flexibility reservation DTOs to write
      * @param isTotal      if true, writes aggregated data columns; otherwise writes full detail columns
-     * @param outputWriter the Writer to write CSV data to
+     * @param out          the OutputStream to write CSV data to
      * @throws CSVExportException if an I/O error occurs while writing CSV data
      */
-    private static void writeReservationsToCSV(List<FlexibilityReservationDTO> reservations, boolean isTotal, Writer outputWriter) {
-        try (CSVWriter writer = new CSVWriter(outputWriter)) {
-            if (isTotal) {
-                writer.writeNext(new String[]{"timestamp", "assetId", "marketId", "positiveValue", "negativeValue"});
-                for (var r : reservations) {
-                    writer.writeNext(new String[]{
-                            r.getTimestamp() != null ? r.getTimestamp().toString() : "",
-                            r.getAssetId() != null ? r.getAssetId().toString() : "",
-                            r.getMarketId() != null ? r.getMarketId().toString() : "",
-                            r.getPositiveValue() != null ? r.getPositiveValue().divide(BigDecimal.valueOf(1000)).toPlainString() : "",
-                            r.getNegativeValue() != null ? r.getNegativeValue().divide(BigDecimal.valueOf(1000)).toPlainString() : ""
-                    });
-                }
-            } else {
-                writer.writeNext(new String[]{
-                        "assetId", "marketId",
-                        "positiveBidId", "negativeBidId",
-                        "positiveValue", "positiveCapacityPrice", "positiveEnergyPrice",
-                        "negativeValue", "negativeCapacityPrice", "negativeEnergyPrice",
-                        "timestamp", "updatedAt"
-                });
-                for (var r : reservations) {
-                    writer.writeNext(new String[]{
-                            r.getAssetId() != null ? r.getAssetId().toString() : "",
-                            r.getMarketId() != null ? r.getMarketId().toString() : "",
-                            r.getPositiveBidId() != null ? r.getPositiveBidId().toString() : "",
-                            r.getNegativeBidId() != null ? r.getNegativeBidId().toString() : "",
-                            r.getPositiveValue() != null ? r.getPositiveValue().divide(BigDecimal.valueOf(1000)).toPlainString() : "",
-                            r.getPositiveCapacityPrice() != null ? r.getPositiveCapacityPrice().toPlainString() : "",
-                            r.getPositiveEnergyPrice() != null ? r.getPositiveEnergyPrice().toPlainString() : "",
-                            r.getNegativeValue() != null ? r.getNegativeValue().divide(BigDecimal.valueOf(1000)).toPlainString() : "",
-                            r.getNegativeCapacityPrice() != null ? r.getNegativeCapacityPrice().toPlainString() : "",
-                            r.getNegativeEnergyPrice() != null ? r.getNegativeEnergyPrice().toPlainString() : "",
-                            r.getTimestamp() != null ? r.getTimestamp().toString() : "",
-                            r.getUpdatedAt() != null ? r.getUpdatedAt().toString() : ""
-                    });
-                }
+    static void writeReservationsToCSV(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal, OutputStream out) {
+        try (ReservationCsvWriter writer = new ReservationCsvWriter(out, isTotal)) {
+            writer.writeHeader();
+            while (reservations.hasNext()) {
+                writer.write(reservations.next());
             }
         } catch (IOException e) {
             throw new CSVExportException("Error while writing CSV data", e);
@@ -0,0 +1,77 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.handler.CSVExportException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Utility class for exporting flexibility reservation data in columnar binary formats (Apache Parquet and Apache Arrow IPC).
+ *
+ * <p>Columns match the CSV layouts. Power values are written in MW as decimals, timestamps as microseconds
+ * since the epoch and IDs as 16-byte UUIDs, so consumers do not have to parse text.</p>
+ */
+public class ExportColumnar {
+
+    /**
+     * Exports flexibility reservations in the given columnar format and writes them to the HTTP response output stream.
+     * Reservations are written as they are read from the iterator, one row group or record batch at a time.
+     *
+     * @param reservations the flexibility reservation DTOs to export
+     * @param isTotal      if true, exports aggregated data with fewer columns; otherwise exports full details
+     * @param format       the columnar format, {@link ExportFormat#PARQUET} or {@link ExportFormat#ARROW}
+     * @param encoding     the content encoding negotiated from the request's Accept-Encoding header
+     * @param response     the HttpServletResponse to write the data to
+     * @throws IllegalArgumentException if the format is not columnar
+     * @throws CSVExportException if an I/O error occurs during writing to the response output stream
+     */
+    public static void exportToColumnar(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal,
+                                        ExportFormat format, ContentEncoding encoding, HttpServletResponse response) {
+        if (!format.isColumnar()) {
+            throw new IllegalArgumentException("Not a columnar export format: " + format.getValue());
+        }
+
+        try (OutputStream out = format.openResponse(response, encoding)) {
+            writeReservations(reservations, isTotal, format, out);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export " + format.getValue() + " to response output stream", e);
+        }
+    }
+
+    /**
+     * Exports flexibility reservations in the given columnar format to a file.
+     *
+     * @param reservations the flexibility reservation DTOs to export
+     * @param isTotal      if true, exports aggregated data with fewer columns; otherwise exports full details
+     * @param format       the columnar format, {@link ExportFormat#PARQUET} or {@link ExportFormat#ARROW}
+     * @param out          the stream of the file; closed when the export is finished
+     * @throws IllegalArgumentException if the format is not columnar
+     * @throws CSVExportException if an I/O error occurs while writing the file
+     */
+    public static void exportToFile(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal,
+                                    ExportFormat format, OutputStream out) {
+        if (!format.isColumnar()) {
+            throw new IllegalArgumentException("Not a columnar export format: " + format.getValue());
+        }
+
+        try (out) {
+            writeReservations(reservations, isTotal, format, out);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export " + format.getValue() + " to file", e);
+        }
+    }
+
+    private static void writeReservations(Iterator<FlexibilityReservationDTO> reservations, boolean isTotal,
+                                          ExportFormat format, OutputStream out) throws IOException {
+        try (ReservationWriter writer = format == ExportFormat.PARQUET
+                ? new ReservationParquetWriter(out, isTotal)
+                : new ReservationArrowWriter(out, isTotal)) {
+            while (reservations.hasNext()) {
+                writer.write(reservations.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.invt.tech.util;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * File formats supported by the reservation export.
+ * Each format defines the value of the {@code format} request parameter, its content type and the download file name.
+ */
+public enum ExportFormat {
+
+    /**
+     * Plain CSV, optionally compressed on the wire through {@code Accept-Encoding}.
+     */
+    CSV("csv", "text/csv", "reservations.csv", false, true),
+
+    /**
+     * Gzip compressed CSV file, downloaded as {@code reservations.csv.gz}.
+     */
+    CSV_GZ("csv.gz", "application/gzip", "reservations.csv.gz", false, false),
+
+    /**
+     * Apache Parquet file with zstd compressed column chunks.
+     */
+    PARQUET("parquet", "application/vnd.apache.parquet", "reservations.parquet", true, false),
+
+    /**
+     * Apache Arrow IPC stream, optionally compressed on the wire through {@code Accept-Encoding}.
+     */
+    ARROW("arrow", "application/vnd.apache.arrow.stream", "reservations.arrows", true, true);
+
+    private final String value;
+    private final String contentType;
+    private final String fileName;
+    private final boolean columnar;
+    private final boolean negotiatesEncoding;
+
+    ExportFormat(String value, String contentType, String fileName, boolean columnar, boolean negotiatesEncoding) {
+        this.value = value;
+        this.contentType = contentType;
+        this.fileName = fileName;
+        this.columnar = columnar;
+        this.negotiatesEncoding = negotiatesEncoding;
+    }
+
+    /**
+     * Resolves the export format from its request parameter value.
+     *
+     * @param value the requested format, case-insensitive
+     * @return the matching export format
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public static ExportFormat fromValue(String value) {
+        for (ExportFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + value + ". Supported formats: "
+                + Arrays.stream(values()).map(ExportFormat::getValue).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Sets the content type and download headers for this format and opens the response body.
+     *
+     * <p>Formats that are not compressed themselves apply the negotiated content encoding and announce it
+     * with {@code Content-Encoding}; {@link #CSV_GZ} always writes a gzip file.</p>
+     *
+     * @param response the response to write the export to
+     * @param encoding the content encoding negotiated from the request's Accept-Encoding header
+     * @return the stream to write the uncompressed export data to
+     * @throws IOException if the response stream cannot be opened
+     */
+    public OutputStream openResponse(HttpServletResponse response, ContentEncoding encoding) throws IOException {
+        response.setContentType(contentType);
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+        ContentEncoding appliedEncoding = ContentEncoding.IDENTITY;
+        if (this == CSV_GZ) {
+            appliedEncoding = ContentEncoding.GZIP;
+        } else if (negotiatesEncoding) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (encoding != ContentEncoding.IDENTITY) {
+                response.setHeader("Content-Encoding", encoding.getToken());
+                appliedEncoding = encoding;
+            }
+        }
+        return appliedEncoding.wrap(response.getOutputStream());
+    }
+
+    /**
+     * Opens a file written in this format; {@link #CSV_GZ} compresses the data with gzip.
+     *
+     * @param out the stream of the file
+     * @return the stream to write the uncompressed export data to
+     * @throws IOException if the stream cannot be opened
+     */
+    public OutputStream openFile(OutputStream out) throws IOException {
+        return this == CSV_GZ ? ContentEncoding.GZIP.wrap(out) : out;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns true for the columnar binary formats written by {@link ExportColumnar}.
+     *
+     * @return true for Parquet and Arrow
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+}
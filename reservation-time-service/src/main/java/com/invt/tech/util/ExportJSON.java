@@ -0,0 +1,188 @@
+package com.invt.tech.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.handler.CSVExportException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Utility class for exporting flexibility reservations as JSON.
+ *
+ * <p>Reservations of several assets and markets are written as an array of groups, one per asset and market:
+ * {@code [{"assetId": ..., "marketId": ..., "reservations": [...]}, ...]}.
+ * Groups of sums over several assets have a null {@code assetId}.</p>
+ *
+ * <p>The reservations of one asset and market are streamed as a flat JSON array or as newline-delimited JSON. Their
+ * fields are written straight to the {@link JsonGenerator} without data binding, and null fields are left out.</p>
+ */
+public class ExportJSON {
+
+    /**
+     * Value of the {@code format} parameter selecting the JSON export.
+     */
+    public static final String FORMAT = "json";
+
+    /**
+     * Value of the {@code format} parameter selecting the newline-delimited JSON export.
+     */
+    public static final String NDJSON_FORMAT = "ndjson";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Same form as Jackson's default serialization of java.sql.Timestamp
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSxxx")
+            .withZone(ZoneOffset.UTC);
+
+    /**
+     * Writes reservations grouped by asset and market as a JSON array to the HTTP response output stream.
+     *
+     * <p>Reservations are written as they are read from the iterator; a new group starts whenever the asset or market
+     * changes. The negotiated content encoding compresses the stream on the wire.</p>
+     *
+     * @param reservations the flexibility reservation DTOs to export, grouped by asset and market
+     * @param objectMapper the mapper serializing the reservations
+     * @param encoding     the content encoding negotiated from the request's Accept-Encoding header
+     * @param response     the HttpServletResponse to write the JSON data to
+     * @throws CSVExportException if an I/O error occurs during writing to the response output stream
+     */
+    public static void exportGroupedToJSON(Iterator<FlexibilityReservationDTO> reservations, ObjectMapper objectMapper,
+                                           ContentEncoding encoding, HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (encoding != ContentEncoding.IDENTITY) {
+            response.setHeader("Content-Encoding", encoding.getToken());
+        }
+
+        try (OutputStream out = encoding.wrap(response.getOutputStream());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            writeGroups(reservations, generator);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export JSON to response output stream", e);
+        }
+    }
+
+    /**
+     * Writes reservations as a JSON array or as newline-delimited JSON to the HTTP response output stream.
+     *
+     * <p>Each reservation is written as soon as it is read from the iterator, so memory use does not depend on the
+     * number of reservations and clients can parse the first ones while the rest is still read. The negotiated
+     * content encoding compresses the stream on the wire.</p>
+     *
+     * @param reservations the flexibility reservation DTOs to export
+     * @param ndjson       if true, writes one JSON object per line; if false, writes a JSON array
+     * @param encoding     the content encoding negotiated from the request's Accept-Encoding header
+     * @param response     the HttpServletResponse to write the JSON data to
+     * @throws CSVExportException if an I/O error occurs during writing to the response output stream
+     */
+    public static void exportToJSON(Iterator<FlexibilityReservationDTO> reservations, boolean ndjson,
+                                    ContentEncoding encoding, HttpServletResponse response) {
+        response.setContentType(ndjson ? ImportFormat.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (encoding != ContentEncoding.IDENTITY) {
+            response.setHeader("Content-Encoding", encoding.getToken());
+        }
+
+        try (OutputStream out = encoding.wrap(response.getOutputStream());
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            write(reservations, ndjson, generator);
+        } catch (IOException e) {
+            throw new CSVExportException("Failed to export JSON to response output stream", e);
+        }
+    }
+
+    static void write(Iterator<FlexibilityReservationDTO> reservations, boolean ndjson, JsonGenerator generator) throws IOException {
+        if (ndjson) {
+            // Lines are ended explicitly instead of separating root values with a space
+            generator.setRootValueSeparator(null);
+        } else {
+            generator.writeStartArray();
+        }
+        while (reservations.hasNext()) {
+            writeReservation(reservations.next(), generator);
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+        }
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+    }
+
+    static void writeReservation(FlexibilityReservationDTO reservation, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", reservation.getId());
+        writeField(generator, "assetId", reservation.getAssetId());
+        writeField(generator, "marketId", reservation.getMarketId());
+        writeField(generator, "positiveBidId", reservation.getPositiveBidId());
+        writeField(generator, "negativeBidId", reservation.getNegativeBidId());
+        writeField(generator, "positiveValue", reservation.getPositiveValue());
+        writeField(generator, "positiveCapacityPrice", reservation.getPositiveCapacityPrice());
+        writeField(generator, "positiveEnergyPrice", reservation.getPositiveEnergyPrice());
+        writeField(generator, "negativeValue", reservation.getNegativeValue());
+        writeField(generator, "negativeCapacityPrice", reservation.getNegativeCapacityPrice());
+        writeField(generator, "negativeEnergyPrice", reservation.getNegativeEnergyPrice());
+        writeField(generator, "timestamp", reservation.getTimestamp());
+        writeField(generator, "updatedAt", reservation.getUpdatedAt());
+        generator.writeEndObject();
+    }
+
+    private static void writeField(JsonGenerator generator, String name, UUID value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value.toString());
+        }
+    }
+
+    private static void writeField(JsonGenerator generator, String name, BigDecimal value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeField(JsonGenerator generator, String name, Timestamp value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, TIMESTAMP.format(value.toInstant()));
+        }
+    }
+
+    static void writeGroups(Iterator<FlexibilityReservationDTO> reservations, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        boolean inGroup = false;
+        FlexibilityReservationDTO previous = null;
+        while (reservations.hasNext()) {
+            FlexibilityReservationDTO reservation = reservations.next();
+            if (previous == null || !Objects.equals(previous.getAssetId(), reservation.getAssetId())
+                    || !Objects.equals(previous.getMarketId(), reservation.getMarketId())) {
+                if (inGroup) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.writeStartObject();
+                generator.writeStringField("assetId", Objects.toString(reservation.getAssetId(), null));
+                generator.writeStringField("marketId", Objects.toString(reservation.getMarketId(), null));
+                generator.writeArrayFieldStart("reservations");
+                inGroup = true;
+            }
+            generator.writeObject(reservation);
+            previous = reservation;
+        }
+        if (inGroup) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+}
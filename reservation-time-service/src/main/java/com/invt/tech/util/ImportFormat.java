@@ -0,0 +1,62 @@
+package com.invt.tech.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Upload formats supported by the bulk reservation import, selected by the request content type.
+ */
+public enum ImportFormat {
+
+    /**
+     * A JSON array of reservations or newline-delimited JSON objects.
+     */
+    JSON,
+
+    /**
+     * CSV with a header row naming the reservation fields.
+     */
+    CSV;
+
+    /**
+     * Media type of newline-delimited JSON uploads.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Resolves the import format from the content type of an upload.
+     *
+     * @param contentType the request content type
+     * @return the matching import format
+     * @throws IllegalArgumentException if the content type is missing or not supported
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            throw new IllegalArgumentException("Content type of the upload is missing");
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)
+                || MediaType.parseMediaType(APPLICATION_NDJSON_VALUE).isCompatibleWith(mediaType)) {
+            return JSON;
+        }
+        if (MediaType.parseMediaType("text/csv").isCompatibleWith(mediaType)) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("Unsupported upload content type: " + contentType);
+    }
+
+    /**
+     * Opens a reader for an upload in this format.
+     *
+     * @param in           the uploaded data
+     * @param objectMapper mapper used to read JSON uploads
+     * @return a reader returning the uploaded reservations one by one
+     * @throws IOException if the upload cannot be read
+     */
+    public ReservationReader open(InputStream in, ObjectMapper objectMapper) throws IOException {
+        return this == JSON ? new ReservationJsonReader(in, objectMapper) : new ReservationCsvReader(in);
+    }
+}
@@ -0,0 +1,57 @@
+package com.invt.tech.util;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * How the bulk reservation import writes uploaded rows.
+ */
+public enum ImportMode {
+
+    /**
+     * Every row is inserted as a new reservation; a batch with a row whose asset, market, timestamp and bid IDs are
+     * already stored is rejected.
+     */
+    INSERT("insert"),
+
+    /**
+     * Rows replace the stored reservation with the same asset, market, timestamp and bid IDs if they are
+     * more recent by {@code updatedAt}; rows without a stored match are inserted.
+     */
+    UPSERT("upsert");
+
+    private final String value;
+
+    ImportMode(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Resolves the import mode from its request parameter value.
+     *
+     * @param value the requested mode, case-insensitive; null or blank selects {@link #INSERT}
+     * @return the matching import mode
+     * @throws IllegalArgumentException if the mode is not supported
+     */
+    public static ImportMode fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return INSERT;
+        }
+        for (ImportMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import mode: " + value + ". Supported modes: "
+                + Arrays.stream(values()).map(ImportMode::getValue).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Returns the request parameter value of this mode.
+     *
+     * @return the mode value
+     */
+    public String getValue() {
+        return value;
+    }
+}
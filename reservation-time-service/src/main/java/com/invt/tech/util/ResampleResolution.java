@@ -0,0 +1,82 @@
+package com.invt.tech.util;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Bucket sizes of resampled reservation series.
+ * Buckets follow the calendar of the requested time zone, so a day bucket starts at local midnight
+ * and lasts 23 or 25 hours on daylight saving changes.
+ */
+public enum ResampleResolution {
+
+    HOUR("PT1H", "HOUR"),
+
+    DAY("P1D", "DAY"),
+
+    /**
+     * ISO week, starting on Monday. H2 names it {@code ISO_WEEK}; its {@code WEEK} depends on the locale.
+     */
+    WEEK("P1W", "WEEK", "ISO_WEEK"),
+
+    MONTH("P1M", "MONTH"),
+
+    YEAR("P1Y", "YEAR");
+
+    private final String value;
+    private final String truncationField;
+    private final String h2TruncationField;
+
+    ResampleResolution(String value, String truncationField) {
+        this(value, truncationField, truncationField);
+    }
+
+    ResampleResolution(String value, String truncationField, String h2TruncationField) {
+        this.value = value;
+        this.truncationField = truncationField;
+        this.h2TruncationField = h2TruncationField;
+    }
+
+    /**
+     * Resolves the resolution from its request parameter value.
+     *
+     * @param value the requested resolution as ISO 8601 duration, case-insensitive
+     * @return the matching resolution
+     * @throws IllegalArgumentException if the resolution is not supported
+     */
+    public static ResampleResolution fromValue(String value) {
+        for (ResampleResolution resolution : values()) {
+            if (resolution.value.equalsIgnoreCase(value)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported resample resolution: " + value + ". Supported resolutions: "
+                + Arrays.stream(values()).map(ResampleResolution::getValue).collect(Collectors.joining(", ")));
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Tells whether buckets are shorter than a day. Those are told apart by their UTC offset as well, as the same
+     * local hour occurs twice when the clocks are set back.
+     *
+     * @return true for hourly buckets
+     */
+    public boolean isShorterThanDay() {
+        return this == HOUR;
+    }
+
+    /**
+     * Returns the field passed to the database's {@code DATE_TRUNC} to find the start of a bucket.
+     *
+     * @param databaseDriver the database the query runs on
+     * @return the truncation field
+     */
+    public String getTruncationField(DatabaseDriver databaseDriver) {
+        return databaseDriver == DatabaseDriver.H2 ? h2TruncationField : truncationField;
+    }
+}
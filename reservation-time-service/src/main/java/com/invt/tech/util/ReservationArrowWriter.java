@@ -0,0 +1,138 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.FixedSizeBinaryVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes flexibility reservations in the Apache Arrow IPC streaming format.
+ *
+ * <p>Rows are collected into record batches of {@link #BATCH_SIZE} rows; each full batch is written to the stream
+ * and its vectors are reused for the next one, so memory use is bounded by one batch.</p>
+ */
+public class ReservationArrowWriter implements ReservationWriter {
+
+    /**
+     * Number of rows per record batch.
+     */
+    public static final int BATCH_SIZE = 8192;
+
+    private final List<ReservationColumn> columns;
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+    private final byte[] uuidBuffer = new byte[16];
+    private int rowCount;
+
+    /**
+     * Creates a writer for the given layout and writes the stream schema.
+     *
+     * @param out   the stream to write the Arrow data to
+     * @param total if true, writes the aggregated layout; otherwise the full detail layout
+     * @throws IOException if writing the schema fails
+     */
+    public ReservationArrowWriter(OutputStream out, boolean total) throws IOException {
+        this.columns = ReservationColumn.layout(total);
+        this.allocator = new RootAllocator();
+        this.root = VectorSchemaRoot.create(schema(columns), allocator);
+        this.writer = new ArrowStreamWriter(root, null, Channels.newChannel(out));
+        allocateBatch();
+        writer.start();
+    }
+
+    /**
+     * Adds one reservation to the current record batch, writing the batch when it is full.
+     *
+     * @param reservation the reservation to write
+     * @throws IOException if writing a batch fails
+     */
+    @Override
+    public void write(FlexibilityReservationDTO reservation) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            ReservationColumn column = columns.get(i);
+            Object value = column.valueOf(reservation);
+            FieldVector vector = root.getVector(i);
+            if (value == null) {
+                vector.setNull(rowCount);
+            } else if (vector instanceof FixedSizeBinaryVector uuids) {
+                uuids.set(rowCount, ReservationColumn.encodeUuid((UUID) value, uuidBuffer));
+            } else if (vector instanceof BigIntVector ids) {
+                ids.set(rowCount, column.encodeLong(value));
+            } else if (vector instanceof DecimalVector decimals) {
+                decimals.set(rowCount, column.encodeLong(value));
+            } else {
+                ((TimeStampMicroTZVector) vector).set(rowCount, column.encodeLong(value));
+            }
+        }
+        if (++rowCount == BATCH_SIZE) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Writes the last partial batch, ends the stream and releases the vector memory.
+     * The underlying stream is closed as well.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowCount > 0) {
+                writeBatch();
+            }
+            writer.end();
+        } finally {
+            writer.close();
+            root.close();
+            allocator.close();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        root.setRowCount(rowCount);
+        writer.writeBatch();
+        rowCount = 0;
+        root.getFieldVectors().forEach(FieldVector::reset);
+    }
+
+    private void allocateBatch() {
+        for (FieldVector vector : root.getFieldVectors()) {
+            vector.setInitialCapacity(BATCH_SIZE);
+            vector.allocateNew();
+        }
+    }
+
+    private static Schema schema(List<ReservationColumn> columns) {
+        return new Schema(columns.stream()
+                .map(column -> new Field(column.columnName(), new FieldType(column.isOptional(), arrowType(column), null), null))
+                .toList());
+    }
+
+    private static ArrowType arrowType(ReservationColumn column) {
+        return switch (column.type()) {
+            case ID -> new ArrowType.Int(64, true);
+            case TIMESTAMP -> new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+            case UUID -> new ArrowType.FixedSizeBinary(16);
+            case POWER, PRICE -> new ArrowType.Decimal(ReservationColumn.DECIMAL_PRECISION, ReservationColumn.DECIMAL_SCALE, 128);
+        };
+    }
+}
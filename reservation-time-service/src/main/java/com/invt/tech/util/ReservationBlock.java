@@ -0,0 +1,386 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+/**
+ * Compact, column-oriented list of flexibility reservations.
+ *
+ * <p>Every field is held in a primitive array: timestamps as epoch microseconds, power values and prices as unscaled
+ * longs at the scale of their database columns ({@value #VALUE_SCALE} and {@value #PRICE_SCALE} decimal places),
+ * and asset, market and bid IDs as {@code int} codes into one dictionary of the distinct UUIDs. A row takes about
+ * 90 bytes instead of several hundred for a {@link FlexibilityReservationDTO} with its boxed fields.</p>
+ *
+ * <p>The block is immutable. As a read-only {@link List} it can be passed wherever DTOs are consumed;
+ * {@link #get} creates a new DTO on every call, so callers may modify the DTOs they receive.
+ * Decimals are returned at the scale of their column. The primitive accessors read single columns without creating objects.</p>
+ */
+public final class ReservationBlock extends AbstractList<FlexibilityReservationDTO> implements RandomAccess {
+
+    /**
+     * Decimal places of the power values, as in the {@code positive_value} and {@code negative_value} columns.
+     */
+    public static final int VALUE_SCALE = 3;
+
+    /**
+     * Decimal places of the prices, as in the price columns.
+     */
+    public static final int PRICE_SCALE = 6;
+
+    /**
+     * Marks a null value in a {@code long} column.
+     */
+    public static final long NULL = Long.MIN_VALUE;
+
+    private static final int NULL_CODE = -1;
+
+    private static final int MICROS_PER_SECOND = 1_000_000;
+
+    private final int size;
+    private final UUID[] dictionary;
+    private final long[] ids;
+    private final int[] assetIds;
+    private final int[] marketIds;
+    private final int[] positiveBidIds;
+    private final int[] negativeBidIds;
+    private final long[] positiveValues;
+    private final long[] positiveCapacityPrices;
+    private final long[] positiveEnergyPrices;
+    private final long[] negativeValues;
+    private final long[] negativeCapacityPrices;
+    private final long[] negativeEnergyPrices;
+    private final long[] timestamps;
+    private final long[] updatedAts;
+
+    private ReservationBlock(Builder builder) {
+        this.size = builder.size;
+        this.dictionary = builder.dictionary.toArray(new UUID[0]);
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.assetIds = Arrays.copyOf(builder.assetIds, size);
+        this.marketIds = Arrays.copyOf(builder.marketIds, size);
+        this.positiveBidIds = Arrays.copyOf(builder.positiveBidIds, size);
+        this.negativeBidIds = Arrays.copyOf(builder.negativeBidIds, size);
+        this.positiveValues = Arrays.copyOf(builder.positiveValues, size);
+        this.positiveCapacityPrices = Arrays.copyOf(builder.positiveCapacityPrices, size);
+        this.positiveEnergyPrices = Arrays.copyOf(builder.positiveEnergyPrices, size);
+        this.negativeValues = Arrays.copyOf(builder.negativeValues, size);
+        this.negativeCapacityPrices = Arrays.copyOf(builder.negativeCapacityPrices, size);
+        this.negativeEnergyPrices = Arrays.copyOf(builder.negativeEnergyPrices, size);
+        this.timestamps = Arrays.copyOf(builder.timestamps, size);
+        this.updatedAts = Arrays.copyOf(builder.updatedAts, size);
+    }
+
+    /**
+     * Creates a block holding the given reservations in their iteration order.
+     *
+     * @param reservations the reservations to hold
+     * @return the block
+     * @throws IllegalArgumentException if a value has more decimal places than its column or a timestamp
+     *                                  is more precise than microseconds
+     */
+    public static ReservationBlock of(Collection<FlexibilityReservationDTO> reservations) {
+        if (reservations instanceof ReservationBlock block) {
+            return block;
+        }
+        Builder builder = new Builder(reservations.size());
+        reservations.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Creates a builder for a block.
+     *
+     * @param expectedSize the expected number of rows, used to size the columns
+     * @return a new builder
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a DTO of the reservation in the given row.
+     *
+     * @param row the row index
+     * @return a new {@link FlexibilityReservationDTO}
+     */
+    @Override
+    public FlexibilityReservationDTO get(int row) {
+        checkRow(row);
+        return FlexibilityReservationDTO.builder()
+                .id(ids[row])
+                .assetId(uuid(assetIds[row]))
+                .marketId(uuid(marketIds[row]))
+                .positiveBidId(uuid(positiveBidIds[row]))
+                .negativeBidId(uuid(negativeBidIds[row]))
+                .positiveValue(decimal(positiveValues[row], VALUE_SCALE))
+                .positiveCapacityPrice(decimal(positiveCapacityPrices[row], PRICE_SCALE))
+                .positiveEnergyPrice(decimal(positiveEnergyPrices[row], PRICE_SCALE))
+                .negativeValue(decimal(negativeValues[row], VALUE_SCALE))
+                .negativeCapacityPrice(decimal(negativeCapacityPrices[row], PRICE_SCALE))
+                .negativeEnergyPrice(decimal(negativeEnergyPrices[row], PRICE_SCALE))
+                .timestamp(timestamp(timestamps[row]))
+                .updatedAt(timestamp(updatedAts[row]))
+                .build();
+    }
+
+    /**
+     * Returns the asset ID of a row.
+     *
+     * @param row the row index
+     * @return the asset UUID, or null
+     */
+    public UUID assetId(int row) {
+        checkRow(row);
+        return uuid(assetIds[row]);
+    }
+
+    /**
+     * Returns the market ID of a row.
+     *
+     * @param row the row index
+     * @return the market UUID, or null
+     */
+    public UUID marketId(int row) {
+        checkRow(row);
+        return uuid(marketIds[row]);
+    }
+
+    /**
+     * Returns the timestamp of a row in microseconds since the epoch.
+     *
+     * @param row the row index
+     * @return the timestamp, or {@link #NULL}
+     */
+    public long timestampMicros(int row) {
+        checkRow(row);
+        return timestamps[row];
+    }
+
+    /**
+     * Returns the positive value of a row in thousandths of a kW.
+     *
+     * @param row the row index
+     * @return the unscaled value at {@link #VALUE_SCALE}, or {@link #NULL}
+     */
+    public long positiveValueUnscaled(int row) {
+        checkRow(row);
+        return positiveValues[row];
+    }
+
+    /**
+     * Returns the negative value of a row in thousandths of a kW.
+     *
+     * @param row the row index
+     * @return the unscaled value at {@link #VALUE_SCALE}, or {@link #NULL}
+     */
+    public long negativeValueUnscaled(int row) {
+        checkRow(row);
+        return negativeValues[row];
+    }
+
+    /**
+     * Converts a timestamp to microseconds since the epoch.
+     *
+     * @param timestamp the timestamp, may be null
+     * @return the microseconds, or {@link #NULL} for null
+     * @throws IllegalArgumentException if the timestamp is more precise than microseconds
+     */
+    public static long toMicros(Timestamp timestamp) {
+        if (timestamp == null) {
+            return NULL;
+        }
+        if (timestamp.getNanos() % 1000 != 0) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is more precise than microseconds");
+        }
+        long seconds = Math.floorDiv(timestamp.getTime(), 1000L);
+        return Math.addExact(Math.multiplyExact(seconds, MICROS_PER_SECOND), timestamp.getNanos() / 1000);
+    }
+
+    /**
+     * Converts microseconds since the epoch to a timestamp.
+     *
+     * @param micros the microseconds, or {@link #NULL}
+     * @return the timestamp, or null for {@link #NULL}
+     */
+    public static Timestamp timestamp(long micros) {
+        if (micros == NULL) {
+            return null;
+        }
+        Timestamp timestamp = new Timestamp(Math.floorDiv(micros, MICROS_PER_SECOND) * 1000L);
+        timestamp.setNanos((int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000);
+        return timestamp;
+    }
+
+    /**
+     * Converts a decimal to an unscaled long at the given scale.
+     *
+     * @param value the decimal, may be null
+     * @param scale the number of decimal places
+     * @return the unscaled value, or {@link #NULL} for null
+     * @throws IllegalArgumentException if the value has more decimal places than the scale or does not fit into a long
+     */
+    public static long unscaled(BigDecimal value, int scale) {
+        if (value == null) {
+            return NULL;
+        }
+        try {
+            long unscaled = value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+            if (unscaled != NULL) {
+                return unscaled;
+            }
+        } catch (ArithmeticException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Value " + value + " does not fit into " + scale + " decimal places");
+    }
+
+    /**
+     * Converts an unscaled long back to a decimal.
+     *
+     * @param unscaled the unscaled value, or {@link #NULL}
+     * @param scale    the number of decimal places
+     * @return the decimal, or null for {@link #NULL}
+     */
+    public static BigDecimal decimal(long unscaled, int scale) {
+        return unscaled == NULL ? null : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private UUID uuid(int code) {
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for block of " + size + " rows");
+        }
+    }
+
+    /**
+     * Appends reservations to the columns of a new {@link ReservationBlock}.
+     * Not thread-safe; the builder must not be used after {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final Map<UUID, Integer> codes = new HashMap<>();
+        private final List<UUID> dictionary = new ArrayList<>();
+        private int size;
+        private long[] ids;
+        private int[] assetIds;
+        private int[] marketIds;
+        private int[] positiveBidIds;
+        private int[] negativeBidIds;
+        private long[] positiveValues;
+        private long[] positiveCapacityPrices;
+        private long[] positiveEnergyPrices;
+        private long[] negativeValues;
+        private long[] negativeCapacityPrices;
+        private long[] negativeEnergyPrices;
+        private long[] timestamps;
+        private long[] updatedAts;
+
+        private Builder(int expectedSize) {
+            allocate(Math.max(expectedSize, 16));
+        }
+
+        /**
+         * Appends one reservation.
+         * A reservation that does not fit leaves the builder unchanged.
+         *
+         * @param r the reservation to append
+         * @return this builder
+         * @throws IllegalArgumentException if a value has more decimal places than its column or a timestamp
+         *                                  is more precise than microseconds
+         */
+        public Builder add(FlexibilityReservationDTO r) {
+            // Converted before anything is stored, so a rejected row leaves no partial state
+            long positiveValue = unscaled(r.getPositiveValue(), VALUE_SCALE);
+            long positiveCapacityPrice = unscaled(r.getPositiveCapacityPrice(), PRICE_SCALE);
+            long positiveEnergyPrice = unscaled(r.getPositiveEnergyPrice(), PRICE_SCALE);
+            long negativeValue = unscaled(r.getNegativeValue(), VALUE_SCALE);
+            long negativeCapacityPrice = unscaled(r.getNegativeCapacityPrice(), PRICE_SCALE);
+            long negativeEnergyPrice = unscaled(r.getNegativeEnergyPrice(), PRICE_SCALE);
+            long timestamp = toMicros(r.getTimestamp());
+            long updatedAt = toMicros(r.getUpdatedAt());
+
+            if (size == ids.length) {
+                allocate(size * 2);
+            }
+            ids[size] = r.getId();
+            assetIds[size] = code(r.getAssetId());
+            marketIds[size] = code(r.getMarketId());
+            positiveBidIds[size] = code(r.getPositiveBidId());
+            negativeBidIds[size] = code(r.getNegativeBidId());
+            positiveValues[size] = positiveValue;
+            positiveCapacityPrices[size] = positiveCapacityPrice;
+            positiveEnergyPrices[size] = positiveEnergyPrice;
+            negativeValues[size] = negativeValue;
+            negativeCapacityPrices[size] = negativeCapacityPrice;
+            negativeEnergyPrices[size] = negativeEnergyPrice;
+            timestamps[size] = timestamp;
+            updatedAts[size] = updatedAt;
+            size++;
+            return this;
+        }
+
+        /**
+         * Returns the number of rows appended so far.
+         *
+         * @return the number of rows
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Creates the block, trimming the columns to the number of rows.
+         *
+         * @return the block
+         */
+        public ReservationBlock build() {
+            return new ReservationBlock(this);
+        }
+
+        private int code(UUID id) {
+            if (id == null) {
+                return NULL_CODE;
+            }
+            return codes.computeIfAbsent(id, key -> {
+                dictionary.add(key);
+                return dictionary.size() - 1;
+            });
+        }
+
+        private void allocate(int capacity) {
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            assetIds = assetIds == null ? new int[capacity] : Arrays.copyOf(assetIds, capacity);
+            marketIds = marketIds == null ? new int[capacity] : Arrays.copyOf(marketIds, capacity);
+            positiveBidIds = positiveBidIds == null ? new int[capacity] : Arrays.copyOf(positiveBidIds, capacity);
+            negativeBidIds = negativeBidIds == null ? new int[capacity] : Arrays.copyOf(negativeBidIds, capacity);
+            positiveValues = positiveValues == null ? new long[capacity] : Arrays.copyOf(positiveValues, capacity);
+            positiveCapacityPrices = positiveCapacityPrices == null ? new long[capacity] : Arrays.copyOf(positiveCapacityPrices, capacity);
+            positiveEnergyPrices = positiveEnergyPrices == null ? new long[capacity] : Arrays.copyOf(positiveEnergyPrices, capacity);
+            negativeValues = negativeValues == null ? new long[capacity] : Arrays.copyOf(negativeValues, capacity);
+            negativeCapacityPrices = negativeCapacityPrices == null ? new long[capacity] : Arrays.copyOf(negativeCapacityPrices, capacity);
+            negativeEnergyPrices = negativeEnergyPrices == null ? new long[capacity] : Arrays.copyOf(negativeEnergyPrices, capacity);
+            timestamps = timestamps == null ? new long[capacity] : Arrays.copyOf(timestamps, capacity);
+            updatedAts = updatedAts == null ? new long[capacity] : Arrays.copyOf(updatedAts, capacity);
+        }
+    }
+}
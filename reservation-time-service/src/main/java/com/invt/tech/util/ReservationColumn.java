@@ -0,0 +1,218 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Columns of the columnar export formats and the encoding of their values.
+ *
+ * <p>Columns and their order match the CSV layouts. Power values are exported in MW as decimals with scale 6,
+ * which is exactly the unscaled kW value stored with scale 3. Prices keep their scale of 6,
+ * timestamps are microseconds since the epoch in UTC and UUIDs are 16 big-endian bytes.</p>
+ */
+enum ReservationColumn {
+
+    ID("id", Type.ID, false, FlexibilityReservationDTO::getId),
+    TIMESTAMP("timestamp", Type.TIMESTAMP, false, FlexibilityReservationDTO::getTimestamp),
+    ASSET_ID("assetId", Type.UUID, false, FlexibilityReservationDTO::getAssetId),
+    MARKET_ID("marketId", Type.UUID, false, FlexibilityReservationDTO::getMarketId),
+    POSITIVE_BID_ID("positiveBidId", Type.UUID, true, FlexibilityReservationDTO::getPositiveBidId),
+    NEGATIVE_BID_ID("negativeBidId", Type.UUID, true, FlexibilityReservationDTO::getNegativeBidId),
+    POSITIVE_VALUE("positiveValue", Type.POWER, false, FlexibilityReservationDTO::getPositiveValue),
+    POSITIVE_CAPACITY_PRICE("positiveCapacityPrice", Type.PRICE, true, FlexibilityReservationDTO::getPositiveCapacityPrice),
+    POSITIVE_ENERGY_PRICE("positiveEnergyPrice", Type.PRICE, true, FlexibilityReservationDTO::getPositiveEnergyPrice),
+    NEGATIVE_VALUE("negativeValue", Type.POWER, false, FlexibilityReservationDTO::getNegativeValue),
+    NEGATIVE_CAPACITY_PRICE("negativeCapacityPrice", Type.PRICE, true, FlexibilityReservationDTO::getNegativeCapacityPrice),
+    NEGATIVE_ENERGY_PRICE("negativeEnergyPrice", Type.PRICE, true, FlexibilityReservationDTO::getNegativeEnergyPrice),
+    UPDATED_AT("updatedAt", Type.TIMESTAMP, true, FlexibilityReservationDTO::getUpdatedAt);
+
+    /**
+     * Value encodings of the columns.
+     */
+    enum Type {
+        /** Database ID. */
+        ID,
+        /** Microseconds since the epoch, UTC. */
+        TIMESTAMP,
+        /** 16 bytes, most significant bits first. */
+        UUID,
+        /** kW value exported as MW decimal. */
+        POWER,
+        /** Price decimal. */
+        PRICE
+    }
+
+    /**
+     * Scale of all decimal columns.
+     */
+    static final int DECIMAL_SCALE = 6;
+
+    /**
+     * Precision of all decimal columns, the largest that fits into a long.
+     */
+    static final int DECIMAL_PRECISION = 18;
+
+    // kW values stored with scale 3 have the same unscaled value as MW with scale 6
+    private static final int KILOWATT_SCALE = DECIMAL_SCALE - 3;
+
+    private final String columnName;
+    private final Type type;
+    private final boolean optional;
+    private final Function<FlexibilityReservationDTO, Object> accessor;
+
+    ReservationColumn(String columnName, Type type, boolean optional, Function<FlexibilityReservationDTO, Object> accessor) {
+        this.columnName = columnName;
+        this.type = type;
+        this.optional = optional;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Returns the columns of the aggregated or the detail layout.
+     *
+     * @param total if true, the aggregated layout; otherwise the detail layout
+     * @return the columns in export order
+     */
+    static List<ReservationColumn> layout(boolean total) {
+        return total
+                ? List.of(TIMESTAMP, ASSET_ID, MARKET_ID, POSITIVE_VALUE, NEGATIVE_VALUE)
+                : List.of(ASSET_ID, MARKET_ID, POSITIVE_BID_ID, NEGATIVE_BID_ID,
+                        POSITIVE_VALUE, POSITIVE_CAPACITY_PRICE, POSITIVE_ENERGY_PRICE,
+                        NEGATIVE_VALUE, NEGATIVE_CAPACITY_PRICE, NEGATIVE_ENERGY_PRICE,
+                        TIMESTAMP, UPDATED_AT);
+    }
+
+    /**
+     * Returns the columns of archived reservations: the detail layout preceded by the database ID.
+     *
+     * @return the columns in archive order
+     */
+    static List<ReservationColumn> archiveLayout() {
+        return List.of(ID, ASSET_ID, MARKET_ID, POSITIVE_BID_ID, NEGATIVE_BID_ID,
+                POSITIVE_VALUE, POSITIVE_CAPACITY_PRICE, POSITIVE_ENERGY_PRICE,
+                NEGATIVE_VALUE, NEGATIVE_CAPACITY_PRICE, NEGATIVE_ENERGY_PRICE,
+                TIMESTAMP, UPDATED_AT);
+    }
+
+    String columnName() {
+        return columnName;
+    }
+
+    Type type() {
+        return type;
+    }
+
+    boolean isOptional() {
+        return optional;
+    }
+
+    /**
+     * Reads the raw value of this column from a reservation.
+     *
+     * @param reservation the reservation
+     * @return the value, or null if not set
+     */
+    Object valueOf(FlexibilityReservationDTO reservation) {
+        return accessor.apply(reservation);
+    }
+
+    /**
+     * Encodes an ID, timestamp, power or price value of this column as a long.
+     *
+     * @param value a non-null value read by {@link #valueOf}
+     * @return the ID, epoch microseconds for timestamps, otherwise the unscaled decimal with scale {@link #DECIMAL_SCALE}
+     */
+    long encodeLong(Object value) {
+        return switch (type) {
+            case ID -> (Long) value;
+            case TIMESTAMP -> epochMicros((Timestamp) value);
+            case POWER -> unscaled((BigDecimal) value, KILOWATT_SCALE);
+            case PRICE -> unscaled((BigDecimal) value, DECIMAL_SCALE);
+            case UUID -> throw new IllegalStateException("UUID column " + columnName + " has no long encoding");
+        };
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encodeLong}; power values are returned in kW with scale 3.
+     *
+     * @param value the encoded value
+     * @return the ID, timestamp or decimal
+     */
+    Object decodeLong(long value) {
+        return switch (type) {
+            case ID -> value;
+            case TIMESTAMP -> timestamp(value);
+            case POWER -> BigDecimal.valueOf(value, DECIMAL_SCALE - KILOWATT_SCALE);
+            case PRICE -> BigDecimal.valueOf(value, DECIMAL_SCALE);
+            case UUID -> throw new IllegalStateException("UUID column " + columnName + " has no long encoding");
+        };
+    }
+
+    /**
+     * Sets the value of this column on a reservation.
+     *
+     * @param reservation the reservation
+     * @param value       the decoded value
+     */
+    void set(FlexibilityReservationDTO reservation, Object value) {
+        switch (this) {
+            case ID -> reservation.setId((Long) value);
+            case TIMESTAMP -> reservation.setTimestamp((Timestamp) value);
+            case ASSET_ID -> reservation.setAssetId((UUID) value);
+            case MARKET_ID -> reservation.setMarketId((UUID) value);
+            case POSITIVE_BID_ID -> reservation.setPositiveBidId((UUID) value);
+            case NEGATIVE_BID_ID -> reservation.setNegativeBidId((UUID) value);
+            case POSITIVE_VALUE -> reservation.setPositiveValue((BigDecimal) value);
+            case POSITIVE_CAPACITY_PRICE -> reservation.setPositiveCapacityPrice((BigDecimal) value);
+            case POSITIVE_ENERGY_PRICE -> reservation.setPositiveEnergyPrice((BigDecimal) value);
+            case NEGATIVE_VALUE -> reservation.setNegativeValue((BigDecimal) value);
+            case NEGATIVE_CAPACITY_PRICE -> reservation.setNegativeCapacityPrice((BigDecimal) value);
+            case NEGATIVE_ENERGY_PRICE -> reservation.setNegativeEnergyPrice((BigDecimal) value);
+            case UPDATED_AT -> reservation.setUpdatedAt((Timestamp) value);
+        }
+    }
+
+    /**
+     * Encodes a UUID into the given 16-byte buffer.
+     *
+     * @param uuid   the UUID
+     * @param target the buffer to fill, reused between calls
+     * @return the filled buffer
+     */
+    static byte[] encodeUuid(UUID uuid, byte[] target) {
+        ByteBuffer.wrap(target).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return target;
+    }
+
+    /**
+     * Decodes a UUID encoded by {@link #encodeUuid}.
+     *
+     * @param bytes the 16 bytes
+     * @return the UUID
+     */
+    static UUID decodeUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static Timestamp timestamp(long epochMicros) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(epochMicros, 1_000_000L) * 1000L);
+        timestamp.setNanos((int) Math.floorMod(epochMicros, 1_000_000L) * 1000);
+        return timestamp;
+    }
+
+    private static long epochMicros(Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000L + timestamp.getNanos() / 1000;
+    }
+
+    private static long unscaled(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+}
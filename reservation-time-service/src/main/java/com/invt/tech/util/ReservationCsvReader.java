@@ -0,0 +1,136 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Reads flexibility reservations from a CSV upload.
+ *
+ * <p>The first row names the columns, using the field names of the detail export
+ * ({@code assetId}, {@code marketId}, {@code positiveValue}, ..., {@code timestamp}, {@code updatedAt}) in any order.
+ * Unknown columns are ignored and empty fields are read as null. Power values are in kW, as in the JSON API.
+ * Timestamps are ISO 8601 instants or {@code yyyy-mm-dd hh:mm:ss[.f]} in the server time zone.</p>
+ */
+public class ReservationCsvReader implements ReservationReader {
+
+    private final CSVReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private String[] nextRow;
+
+    /**
+     * Creates a reader over the given upload and reads its header row.
+     *
+     * @param in the uploaded CSV, UTF-8 encoded
+     * @throws IOException if the upload cannot be read
+     * @throws IllegalArgumentException if the header row is missing
+     */
+    public ReservationCsvReader(InputStream in) throws IOException {
+        this.reader = new CSVReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        String[] header = readRow();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV upload has no header row");
+        }
+        for (int i = 0; i < header.length; i++) {
+            columns.put(header[i].strip(), i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null) {
+            try {
+                nextRow = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public FlexibilityReservationDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] row = nextRow;
+        nextRow = null;
+        try {
+            return FlexibilityReservationDTO.builder()
+                    .assetId(uuid(row, "assetId"))
+                    .marketId(uuid(row, "marketId"))
+                    .positiveBidId(uuid(row, "positiveBidId"))
+                    .negativeBidId(uuid(row, "negativeBidId"))
+                    .positiveValue(decimal(row, "positiveValue"))
+                    .positiveCapacityPrice(decimal(row, "positiveCapacityPrice"))
+                    .positiveEnergyPrice(decimal(row, "positiveEnergyPrice"))
+                    .negativeValue(decimal(row, "negativeValue"))
+                    .negativeCapacityPrice(decimal(row, "negativeCapacityPrice"))
+                    .negativeEnergyPrice(decimal(row, "negativeEnergyPrice"))
+                    .timestamp(timestamp(row, "timestamp"))
+                    .updatedAt(timestamp(row, "updatedAt"))
+                    .build();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed CSV upload at line " + reader.getLinesRead() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String[] readRow() throws IOException {
+        try {
+            String[] row;
+            do {
+                row = reader.readNext();
+            } while (row != null && row.length == 1 && row[0].isBlank());
+            return row;
+        } catch (CsvValidationException e) {
+            throw new IllegalArgumentException("Malformed CSV upload at line " + reader.getLinesRead() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String field(String[] row, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.length || row[index].isBlank()) {
+            return null;
+        }
+        return row[index].strip();
+    }
+
+    private UUID uuid(String[] row, String column) {
+        String value = field(row, column);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    private BigDecimal decimal(String[] row, String column) {
+        String value = field(row, column);
+        return value == null ? null : new BigDecimal(value);
+    }
+
+    private Timestamp timestamp(String[] row, String column) {
+        String value = field(row, column);
+        if (value == null) {
+            return null;
+        }
+        // Exports write timestamps in Timestamp#toString format, which has a space instead of the 'T'
+        return value.indexOf('T') >= 0 ? Timestamp.from(Instant.parse(value)) : Timestamp.valueOf(value);
+    }
+}
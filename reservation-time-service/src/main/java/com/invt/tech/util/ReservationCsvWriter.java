@@ -0,0 +1,490 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationBucketDTO;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.UUID;
+
+/**
+ * CSV writer specialized for the fixed reservation export layouts.
+ *
+ * <p>Produces the same output as the generic opencsv writer (every field quoted, {@code \n} line endings,
+ * timestamps in {@link Timestamp#toString()} format, power values converted from kW to MW), but encodes each field
+ * directly into a reusable byte buffer instead of building a {@code String[]} per row.
+ * Asset and market IDs are encoded once and reused while they repeat. Resampled buckets are written in a layout of
+ * their own, with bucket starts in {@link OffsetDateTime#toString()} format.</p>
+ *
+ * <p>Not thread-safe; one instance writes one export.</p>
+ */
+public class ReservationCsvWriter implements ReservationWriter, Flushable {
+
+    private static final byte[] TOTAL_HEADER = header("timestamp", "assetId", "marketId", "positiveValue", "negativeValue");
+
+    private static final byte[] DETAIL_HEADER = header(
+            "assetId", "marketId",
+            "positiveBidId", "negativeBidId",
+            "positiveValue", "positiveCapacityPrice", "positiveEnergyPrice",
+            "negativeValue", "negativeCapacityPrice", "negativeEnergyPrice",
+            "timestamp", "updatedAt");
+
+    private static final byte[] BUCKET_HEADER = header(
+            "bucketStart", "assetId", "marketId", "intervals", "reservations",
+            "positiveSum", "positiveAvg", "positiveMin", "positiveMax",
+            "negativeSum", "negativeAvg", "negativeMin", "negativeMax",
+            "positiveCapacityPrice", "positiveEnergyPrice", "negativeCapacityPrice", "negativeEnergyPrice");
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Longest possible row is far below this, so a row never has to be split across flushes
+    private static final int MAX_ROW_SIZE = 1024;
+
+    // kW to MW conversion moves the decimal point three places to the left
+    private static final int KW_TO_MW_SHIFT = 3;
+
+    private static final BigDecimal THOUSAND = BigDecimal.valueOf(1000);
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final OutputStream out;
+    private final Layout layout;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    private final UuidSlot assetSlot = new UuidSlot();
+    private final UuidSlot marketSlot = new UuidSlot();
+
+    private final ZoneRules zoneRules = ZoneId.systemDefault().getRules();
+    private long offsetValidFrom = Long.MAX_VALUE;
+    private long offsetValidUntil = Long.MIN_VALUE;
+    private int offsetSeconds;
+
+    /**
+     * Creates a writer for the given layout.
+     *
+     * @param out   the stream to write the CSV data to
+     * @param total if true, writes the aggregated layout; otherwise the full detail layout
+     */
+    public ReservationCsvWriter(OutputStream out, boolean total) {
+        this(out, total ? Layout.TOTAL : Layout.DETAIL);
+    }
+
+    private ReservationCsvWriter(OutputStream out, Layout layout) {
+        this.out = out;
+        this.layout = layout;
+    }
+
+    /**
+     * Creates a writer for the resampled bucket layout, whose rows are written with {@link #write(ReservationBucketDTO)}.
+     *
+     * @param out the stream to write the CSV data to
+     * @return the bucket writer
+     */
+    public static ReservationCsvWriter forBuckets(OutputStream out) {
+        return new ReservationCsvWriter(out, Layout.BUCKET);
+    }
+
+    /**
+     * Writes the header line of the layout.
+     *
+     * @throws IOException if writing to the underlying stream fails
+     */
+    public void writeHeader() throws IOException {
+        byte[] header = switch (layout) {
+            case TOTAL -> TOTAL_HEADER;
+            case DETAIL -> DETAIL_HEADER;
+            case BUCKET -> BUCKET_HEADER;
+        };
+        ensureCapacity(header.length);
+        System.arraycopy(header, 0, buffer, position, header.length);
+        position += header.length;
+    }
+
+    /**
+     * Writes one reservation as a CSV line.
+     * Null fields are written as empty quoted values.
+     *
+     * @param r the reservation to write
+     * @throws IOException if writing to the underlying stream fails
+     * @throws IllegalStateException if the writer was created for buckets
+     */
+    @Override
+    public void write(FlexibilityReservationDTO r) throws IOException {
+        if (layout == Layout.BUCKET) {
+            throw new IllegalStateException("Bucket writer cannot write reservations");
+        }
+        ensureCapacity(MAX_ROW_SIZE);
+        if (layout == Layout.TOTAL) {
+            quoted(r.getTimestamp());
+            comma();
+            quoted(r.getAssetId(), assetSlot);
+            comma();
+            quoted(r.getMarketId(), marketSlot);
+            comma();
+            quoted(r.getPositiveValue(), KW_TO_MW_SHIFT);
+            comma();
+            quoted(r.getNegativeValue(), KW_TO_MW_SHIFT);
+        } else {
+            quoted(r.getAssetId(), assetSlot);
+            comma();
+            quoted(r.getMarketId(), marketSlot);
+            comma();
+            quoted(r.getPositiveBidId(), null);
+            comma();
+            quoted(r.getNegativeBidId(), null);
+            comma();
+            quoted(r.getPositiveValue(), KW_TO_MW_SHIFT);
+            comma();
+            quoted(r.getPositiveCapacityPrice(), 0);
+            comma();
+            quoted(r.getPositiveEnergyPrice(), 0);
+            comma();
+            quoted(r.getNegativeValue(), KW_TO_MW_SHIFT);
+            comma();
+            quoted(r.getNegativeCapacityPrice(), 0);
+            comma();
+            quoted(r.getNegativeEnergyPrice(), 0);
+            comma();
+            quoted(r.getTimestamp());
+            comma();
+            quoted(r.getUpdatedAt());
+        }
+        buffer[position++] = '\n';
+    }
+
+    /**
+     * Writes one resampled bucket as a CSV line.
+     * Null fields are written as empty quoted values.
+     *
+     * @param b the bucket to write
+     * @throws IOException if writing to the underlying stream fails
+     * @throws IllegalStateException if the writer was not created by {@link #forBuckets(OutputStream)}
+     */
+    public void write(ReservationBucketDTO b) throws IOException {
+        if (layout != Layout.BUCKET) {
+            throw new IllegalStateException("Reservation writer cannot write buckets");
+        }
+        ensureCapacity(MAX_ROW_SIZE);
+        quoted(b.getBucketStart());
+        comma();
+        quoted(b.getAssetId(), assetSlot);
+        comma();
+        quoted(b.getMarketId(), marketSlot);
+        comma();
+        quoted(b.getIntervals());
+        comma();
+        quoted(b.getReservations());
+        comma();
+        quoted(b.getPositiveSum(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getPositiveAvg(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getPositiveMin(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getPositiveMax(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getNegativeSum(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getNegativeAvg(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getNegativeMin(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getNegativeMax(), KW_TO_MW_SHIFT);
+        comma();
+        quoted(b.getPositiveCapacityPrice(), 0);
+        comma();
+        quoted(b.getPositiveEnergyPrice(), 0);
+        comma();
+        quoted(b.getNegativeCapacityPrice(), 0);
+        comma();
+        quoted(b.getNegativeEnergyPrice(), 0);
+        buffer[position++] = '\n';
+    }
+
+    /**
+     * Writes buffered data to the underlying stream and flushes it.
+     *
+     * @throws IOException if writing to the underlying stream fails
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes buffered data and closes the underlying stream.
+     *
+     * @throws IOException if writing to the underlying stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (position + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void comma() {
+        buffer[position++] = ',';
+    }
+
+    private void quote() {
+        buffer[position++] = '"';
+    }
+
+    private void quoted(UUID value, UuidSlot slot) {
+        quote();
+        if (value != null) {
+            if (slot == null) {
+                position = encodeUuid(value, buffer, position);
+            } else {
+                System.arraycopy(slot.encode(value), 0, buffer, position, 36);
+                position += 36;
+            }
+        }
+        quote();
+    }
+
+    private void quoted(BigDecimal value, int shift) {
+        quote();
+        if (value != null) {
+            writeDecimal(value, shift);
+        }
+        quote();
+    }
+
+    private void quoted(Timestamp value) {
+        quote();
+        if (value != null) {
+            writeTimestamp(value);
+        }
+        quote();
+    }
+
+    // Counts are never negative
+    private void quoted(long value) {
+        quote();
+        writeLong(value);
+        quote();
+    }
+
+    // One bucket start per row at most, so the ISO form is not worth encoding by hand
+    private void quoted(OffsetDateTime value) {
+        quote();
+        if (value != null) {
+            writeAscii(value.toString());
+        }
+        quote();
+    }
+
+    // Writes value / 10^shift in the exact form BigDecimal.divide(...).toPlainString() produces for a power of ten divisor
+    private void writeDecimal(BigDecimal value, int shift) {
+        int scale = value.scale();
+        if (scale < 0 || value.precision() > 18 || scale + shift > 18) {
+            writeAscii(shift == 0 ? value.toPlainString() : value.divide(THOUSAND).toPlainString());
+            return;
+        }
+
+        long unscaled = value.unscaledValue().longValue();
+        if (shift > 0) {
+            int trailingZeros = 0;
+            if (unscaled == 0) {
+                trailingZeros = shift;
+            } else {
+                while (trailingZeros < shift && unscaled % 10 == 0) {
+                    unscaled /= 10;
+                    trailingZeros++;
+                }
+            }
+            // divide keeps the original scale as preferred scale and only widens it as far as the exact quotient needs
+            scale += shift - trailingZeros;
+        }
+
+        if (unscaled < 0) {
+            buffer[position++] = '-';
+            unscaled = -unscaled;
+        }
+        if (scale == 0) {
+            writeLong(unscaled);
+            return;
+        }
+        writeLong(unscaled / POWERS_OF_TEN[scale]);
+        buffer[position++] = '.';
+        writePadded(unscaled % POWERS_OF_TEN[scale], scale);
+    }
+
+    // Writes the timestamp in the java.sql.Timestamp.toString() format using the JVM default time zone
+    private void writeTimestamp(Timestamp value) {
+        long epochSecond = Math.floorDiv(value.getTime(), 1000L);
+        long localSecond = epochSecond + offsetAt(epochSecond);
+        long epochDay = Math.floorDiv(localSecond, 86_400L);
+        int secondOfDay = (int) Math.floorMod(localSecond, 86_400L);
+
+        // civil date from days since 1970-01-01 in the proleptic Gregorian calendar
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        // java.util.Date switches to the Julian calendar and wider years outside this range
+        if (year < 1900 || year > 9999) {
+            writeAscii(value.toString());
+            return;
+        }
+
+        writePadded(year, 4);
+        buffer[position++] = '-';
+        writePadded(month, 2);
+        buffer[position++] = '-';
+        writePadded(day, 2);
+        buffer[position++] = ' ';
+        writePadded(secondOfDay / 3600, 2);
+        buffer[position++] = ':';
+        writePadded(secondOfDay / 60 % 60, 2);
+        buffer[position++] = ':';
+        writePadded(secondOfDay % 60, 2);
+        buffer[position++] = '.';
+
+        int nanos = value.getNanos();
+        if (nanos == 0) {
+            buffer[position++] = '0';
+            return;
+        }
+        int width = 9;
+        while (nanos % 10 == 0) {
+            nanos /= 10;
+            width--;
+        }
+        writePadded(nanos, width);
+    }
+
+    // The offset is cached until the next zone transition, so the zone rules are only consulted a few times per export
+    private int offsetAt(long epochSecond) {
+        if (epochSecond < offsetValidFrom || epochSecond >= offsetValidUntil) {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            offsetSeconds = zoneRules.getOffset(instant).getTotalSeconds();
+            ZoneOffsetTransition previous = zoneRules.previousTransition(instant);
+            ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+            offsetValidFrom = previous != null ? previous.toEpochSecond() : Long.MIN_VALUE;
+            offsetValidUntil = next != null ? next.toEpochSecond() : Long.MAX_VALUE;
+        }
+        return offsetSeconds;
+    }
+
+    private void writeLong(long value) {
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            buffer[position++] = digits[--length];
+        }
+    }
+
+    private void writePadded(long value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private static int encodeUuid(UUID value, byte[] target, int offset) {
+        long msb = value.getMostSignificantBits();
+        long lsb = value.getLeastSignificantBits();
+        offset = hex(msb >>> 32, 8, target, offset);
+        target[offset++] = '-';
+        offset = hex(msb >>> 16, 4, target, offset);
+        target[offset++] = '-';
+        offset = hex(msb, 4, target, offset);
+        target[offset++] = '-';
+        offset = hex(lsb >>> 48, 4, target, offset);
+        target[offset++] = '-';
+        return hex(lsb, 12, target, offset);
+    }
+
+    private static int hex(long value, int digits, byte[] target, int offset) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            target[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return offset + digits;
+    }
+
+    private static byte[] header(String... columns) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(columns[i]).append('"');
+        }
+        return line.append('\n').toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private enum Layout {
+        TOTAL, DETAIL, BUCKET
+    }
+
+    // Remembers the encoded form of the last UUID written to a column
+    private static final class UuidSlot {
+
+        private final byte[] encoded = new byte[36];
+        private UUID value;
+
+        byte[] encode(UUID uuid) {
+            if (!uuid.equals(value)) {
+                encodeUuid(uuid, encoded, 0);
+                value = uuid;
+            }
+            return encoded;
+        }
+    }
+}
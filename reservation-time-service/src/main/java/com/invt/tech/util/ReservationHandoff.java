@@ -0,0 +1,168 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off of reservations from a thread reading them from the database to a thread writing them out.
+ *
+ * <p>The producer {@link #publish publishes} rows in chunks and finishes with {@link #complete()} or
+ * {@link #fail(Throwable)}; it blocks while the queue is full, so a slow consumer throttles the database read
+ * instead of letting rows pile up in memory. The consumer iterates over the rows and {@link #close() closes} the
+ * hand-off when it stops, which makes a blocked producer give up with a {@link CancellationException}.</p>
+ *
+ * <p>One producer and one consumer thread; the iterator methods must only be called by the consumer.</p>
+ */
+public class ReservationHandoff implements Iterator<FlexibilityReservationDTO>, AutoCloseable {
+
+    private static final List<FlexibilityReservationDTO> END = Collections.unmodifiableList(new ArrayList<>());
+
+    // How often a producer blocked on a full queue checks whether the consumer is gone
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private final BlockingQueue<List<FlexibilityReservationDTO>> queue;
+    private final int chunkSize;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+
+    private List<FlexibilityReservationDTO> current = List.of();
+    private int index;
+    private boolean done;
+
+    /**
+     * Creates a hand-off buffering at most {@code capacity * chunkSize} rows.
+     *
+     * @param capacity  the number of chunks the queue holds
+     * @param chunkSize the number of rows per chunk
+     */
+    public ReservationHandoff(int capacity, int chunkSize) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Hands over all rows of the source, blocking while the queue is full.
+     *
+     * @param source the rows read from the database
+     * @throws CancellationException if the consumer has closed the hand-off
+     */
+    public void publish(Iterator<FlexibilityReservationDTO> source) {
+        List<FlexibilityReservationDTO> chunk = new ArrayList<>(chunkSize);
+        while (source.hasNext()) {
+            chunk.add(source.next());
+            if (chunk.size() == chunkSize) {
+                put(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            put(chunk);
+        }
+    }
+
+    /**
+     * Signals that all rows have been published.
+     */
+    public void complete() {
+        putEnd();
+    }
+
+    /**
+     * Signals that reading the rows failed; the consumer rethrows the failure once it has taken the rows before it.
+     *
+     * @param failure the cause of the failure
+     */
+    public void fail(Throwable failure) {
+        this.failure = failure;
+        putEnd();
+    }
+
+    /**
+     * Waits until the next row has been published.
+     *
+     * @return true if there is another row, false once the producer has completed
+     * @throws RuntimeException the failure passed to {@link #fail(Throwable)}
+     */
+    @Override
+    public boolean hasNext() {
+        while (index == current.size()) {
+            if (done) {
+                return false;
+            }
+            List<FlexibilityReservationDTO> next = take();
+            if (next == END) {
+                done = true;
+                if (failure instanceof RuntimeException e) {
+                    throw e;
+                }
+                if (failure instanceof Error e) {
+                    throw e;
+                }
+                if (failure != null) {
+                    throw new IllegalStateException(failure);
+                }
+                return false;
+            }
+            current = next;
+            index = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public FlexibilityReservationDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.get(index++);
+    }
+
+    /**
+     * Stops consuming; a producer blocked on the full queue is released and stops publishing.
+     */
+    @Override
+    public void close() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    private void put(List<FlexibilityReservationDTO> chunk) {
+        try {
+            while (!queue.offer(chunk, CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new CancellationException("Export consumer has stopped");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Export producer was interrupted");
+        }
+    }
+
+    private void putEnd() {
+        try {
+            put(END);
+        } catch (CancellationException e) {
+            // Nobody is left to read the end marker
+        }
+    }
+
+    private List<FlexibilityReservationDTO> take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CancellationException("Export consumer was interrupted");
+        }
+    }
+}
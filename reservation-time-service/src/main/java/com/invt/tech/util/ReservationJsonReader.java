@@ -0,0 +1,62 @@
+package com.invt.tech.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads flexibility reservations from a JSON array or from newline-delimited JSON objects.
+ * Objects are parsed one at a time while the upload is read.
+ */
+public class ReservationJsonReader implements ReservationReader {
+
+    private final MappingIterator<FlexibilityReservationDTO> reservations;
+
+    /**
+     * Creates a reader over the given upload.
+     *
+     * @param in           the uploaded JSON
+     * @param objectMapper mapper used to bind the JSON objects
+     * @throws IOException if the upload cannot be read
+     */
+    public ReservationJsonReader(InputStream in, ObjectMapper objectMapper) throws IOException {
+        try {
+            this.reservations = objectMapper.readerFor(FlexibilityReservationDTO.class).readValues(in);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON upload: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return reservations.hasNext();
+        } catch (RuntimeJsonMappingException e) {
+            throw malformed(e);
+        }
+    }
+
+    @Override
+    public FlexibilityReservationDTO next() {
+        try {
+            return reservations.next();
+        } catch (RuntimeJsonMappingException e) {
+            throw malformed(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reservations.close();
+    }
+
+    private static IllegalArgumentException malformed(RuntimeJsonMappingException e) {
+        String message = e.getCause() instanceof JsonProcessingException cause ? cause.getOriginalMessage() : e.getMessage();
+        return new IllegalArgumentException("Malformed JSON upload: " + message, e);
+    }
+}
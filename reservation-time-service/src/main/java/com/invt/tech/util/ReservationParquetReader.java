@@ -0,0 +1,232 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the reservations of archive files written by {@link ReservationParquetWriter#archive}.
+ *
+ * <p>Filters are pushed down to the Parquet reader: row groups whose statistics cannot match are skipped without
+ * being decompressed, and the remaining rows are filtered before they are materialized.</p>
+ */
+public class ReservationParquetReader {
+
+    private static final Map<String, ReservationColumn> COLUMNS = ReservationColumn.archiveLayout().stream()
+            .collect(Collectors.toUnmodifiableMap(ReservationColumn::columnName, Function.identity()));
+
+    private ReservationParquetReader() {
+    }
+
+    /**
+     * Streams all reservations of an archive file in file order.
+     *
+     * @param file the archive file
+     * @return an open stream of the reservations; must be closed
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Stream<FlexibilityReservationDTO> read(Path file) {
+        return stream(new LocalInputFile(file), FilterCompat.NOOP);
+    }
+
+    /**
+     * Streams the reservations of an archive file of the given assets and markets with timestamps in {@code [from, to]}.
+     *
+     * @param file      the archive file
+     * @param assetIds  the UUIDs of the assets
+     * @param marketIds the UUIDs of the markets
+     * @param from      the start of the interval (inclusive)
+     * @param to        the end of the interval (inclusive)
+     * @return an open stream of the matching reservations in file order; must be closed
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Stream<FlexibilityReservationDTO> read(Path file, Collection<UUID> assetIds, Collection<UUID> marketIds,
+                                                         Timestamp from, Timestamp to) {
+        FilterPredicate filter = FilterApi.and(
+                FilterApi.and(
+                        FilterApi.in(FilterApi.binaryColumn(ReservationColumn.ASSET_ID.columnName()), binaries(assetIds)),
+                        FilterApi.in(FilterApi.binaryColumn(ReservationColumn.MARKET_ID.columnName()), binaries(marketIds))),
+                FilterApi.and(
+                        FilterApi.gtEq(FilterApi.longColumn(ReservationColumn.TIMESTAMP.columnName()),
+                                ReservationColumn.TIMESTAMP.encodeLong(from)),
+                        FilterApi.ltEq(FilterApi.longColumn(ReservationColumn.TIMESTAMP.columnName()),
+                                ReservationColumn.TIMESTAMP.encodeLong(to))));
+        return stream(new LocalInputFile(file), FilterCompat.get(filter));
+    }
+
+    private static Set<Binary> binaries(Collection<UUID> ids) {
+        return ids.stream()
+                .map(id -> Binary.fromConstantByteArray(ReservationColumn.encodeUuid(id, new byte[16])))
+                .collect(Collectors.toSet());
+    }
+
+    private static Stream<FlexibilityReservationDTO> stream(InputFile file, FilterCompat.Filter filter) {
+        ParquetReader<FlexibilityReservationDTO> reader;
+        try {
+            reader = new Builder(file)
+                    .withConf(new Configuration(false))
+                    .withFilter(filter)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive " + file, e);
+        }
+        Iterator<FlexibilityReservationDTO> iterator = new Iterator<>() {
+
+            private FlexibilityReservationDTO next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = reader.read();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read archive " + file, e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public FlexibilityReservationDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FlexibilityReservationDTO current = next;
+                next = null;
+                return current;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to close archive " + file, e);
+                    }
+                });
+    }
+
+    private static final class Builder extends ParquetReader.Builder<FlexibilityReservationDTO> {
+
+        private Builder(InputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected ReadSupport<FlexibilityReservationDTO> getReadSupport() {
+            return new ReservationReadSupport();
+        }
+    }
+
+    // Maps the flat Parquet schema back onto the reservation DTO; absent optional values stay null
+    private static final class ReservationReadSupport extends ReadSupport<FlexibilityReservationDTO> {
+
+        @Override
+        public ReadContext init(InitContext context) {
+            return new ReadContext(context.getFileSchema());
+        }
+
+        @Override
+        public RecordMaterializer<FlexibilityReservationDTO> prepareForRead(ParquetConfiguration configuration, Map<String, String> keyValueMetaData,
+                                                                              MessageType fileSchema, ReadContext readContext) {
+            return materializer(readContext);
+        }
+
+        // Still abstract in Parquet, but only called through the ParquetConfiguration overload
+        @Override
+        @Deprecated
+        public RecordMaterializer<FlexibilityReservationDTO> prepareForRead(Configuration configuration, Map<String, String> keyValueMetaData,
+                                                                              MessageType fileSchema, ReadContext readContext) {
+            return materializer(readContext);
+        }
+
+        private static RecordMaterializer<FlexibilityReservationDTO> materializer(ReadContext readContext) {
+            RecordConverter root = new RecordConverter(readContext.getRequestedSchema());
+            return new RecordMaterializer<>() {
+                @Override
+                public FlexibilityReservationDTO getCurrentRecord() {
+                    return root.current;
+                }
+
+                @Override
+                public GroupConverter getRootConverter() {
+                    return root;
+                }
+            };
+        }
+    }
+
+    private static final class RecordConverter extends GroupConverter {
+
+        private final Converter[] converters;
+        private FlexibilityReservationDTO current;
+
+        private RecordConverter(MessageType schema) {
+            converters = new Converter[schema.getFieldCount()];
+            for (int i = 0; i < converters.length; i++) {
+                Type field = schema.getType(i);
+                ReservationColumn column = COLUMNS.get(field.getName());
+                if (column == null) {
+                    throw new IllegalStateException("Unknown archive column " + field.getName());
+                }
+                converters[i] = new PrimitiveConverter() {
+                    @Override
+                    public void addLong(long value) {
+                        column.set(current, column.decodeLong(value));
+                    }
+
+                    @Override
+                    public void addBinary(Binary value) {
+                        column.set(current, ReservationColumn.decodeUuid(value.getBytesUnsafe()));
+                    }
+                };
+            }
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return converters[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+            current = new FlexibilityReservationDTO();
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
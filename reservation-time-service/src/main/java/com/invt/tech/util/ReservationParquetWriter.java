@@ -0,0 +1,247 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes flexibility reservations as an Apache Parquet file to a stream.
+ *
+ * <p>Rows are buffered per row group of at most {@link #ROW_GROUP_SIZE} bytes and compressed with zstd;
+ * each completed row group is written to the stream right away, followed by the file footer on close.</p>
+ */
+public class ReservationParquetWriter implements ReservationWriter {
+
+    /**
+     * Maximum size of a buffered row group in bytes.
+     */
+    public static final long ROW_GROUP_SIZE = 16 * 1024 * 1024;
+
+    private static final int PAGE_SIZE = 1024 * 1024;
+
+    private final ParquetWriter<FlexibilityReservationDTO> writer;
+
+    /**
+     * Creates a writer for the given layout.
+     *
+     * @param out   the stream to write the Parquet file to
+     * @param total if true, writes the aggregated layout; otherwise the full detail layout
+     * @throws IOException if the writer cannot be created
+     */
+    public ReservationParquetWriter(OutputStream out, boolean total) throws IOException {
+        this(out, ReservationColumn.layout(total));
+    }
+
+    private ReservationParquetWriter(OutputStream out, List<ReservationColumn> columns) throws IOException {
+        this.writer = new Builder(new StreamOutputFile(out), columns)
+                .withConf(new Configuration(false))
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .withCompressionCodec(CompressionCodecName.ZSTD)
+                .withRowGroupSize(ROW_GROUP_SIZE)
+                .withPageSize(PAGE_SIZE)
+                .build();
+    }
+
+    /**
+     * Creates a writer of an archive file, which holds the detail layout and the database ID of each reservation.
+     * Archive files are read back with {@link ReservationParquetReader}.
+     *
+     * @param out the stream to write the Parquet file to
+     * @return the writer
+     * @throws IOException if the writer cannot be created
+     */
+    public static ReservationParquetWriter archive(OutputStream out) throws IOException {
+        return new ReservationParquetWriter(out, ReservationColumn.archiveLayout());
+    }
+
+    @Override
+    public void write(FlexibilityReservationDTO reservation) throws IOException {
+        writer.write(reservation);
+    }
+
+    /**
+     * Writes the last row group and the file footer and closes the underlying stream.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    static MessageType schema(List<ReservationColumn> columns) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (ReservationColumn column : columns) {
+            Repetition repetition = column.isOptional() ? Repetition.OPTIONAL : Repetition.REQUIRED;
+            switch (column.type()) {
+                case ID -> builder.primitive(PrimitiveTypeName.INT64, repetition)
+                        .named(column.columnName());
+                case TIMESTAMP -> builder.primitive(PrimitiveTypeName.INT64, repetition)
+                        .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS))
+                        .named(column.columnName());
+                case UUID -> builder.primitive(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, repetition).length(16)
+                        .as(LogicalTypeAnnotation.uuidType())
+                        .named(column.columnName());
+                case POWER, PRICE -> builder.primitive(PrimitiveTypeName.INT64, repetition)
+                        .as(LogicalTypeAnnotation.decimalType(ReservationColumn.DECIMAL_SCALE, ReservationColumn.DECIMAL_PRECISION))
+                        .named(column.columnName());
+            }
+        }
+        return builder.named("reservation");
+    }
+
+    private static final class Builder extends ParquetWriter.Builder<FlexibilityReservationDTO, Builder> {
+
+        private final List<ReservationColumn> columns;
+
+        private Builder(OutputFile file, List<ReservationColumn> columns) {
+            super(file);
+            this.columns = columns;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<FlexibilityReservationDTO> getWriteSupport(ParquetConfiguration conf) {
+            return new ReservationWriteSupport(columns);
+        }
+
+        // Still abstract in Parquet, but only called through the ParquetConfiguration overload
+        @Override
+        @Deprecated
+        protected WriteSupport<FlexibilityReservationDTO> getWriteSupport(Configuration conf) {
+            return new ReservationWriteSupport(columns);
+        }
+    }
+
+    // Maps the reservation DTO onto the flat Parquet schema, skipping null values of optional columns
+    private static final class ReservationWriteSupport extends WriteSupport<FlexibilityReservationDTO> {
+
+        private final List<ReservationColumn> columns;
+        private final byte[] uuidBuffer = new byte[16];
+        private RecordConsumer recordConsumer;
+
+        private ReservationWriteSupport(List<ReservationColumn> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public WriteContext init(ParquetConfiguration configuration) {
+            return new WriteContext(schema(columns), Map.of());
+        }
+
+        // Still abstract in Parquet, but only called through the ParquetConfiguration overload
+        @Override
+        @Deprecated
+        public WriteContext init(Configuration configuration) {
+            return new WriteContext(schema(columns), Map.of());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(FlexibilityReservationDTO reservation) {
+            recordConsumer.startMessage();
+            for (int i = 0; i < columns.size(); i++) {
+                ReservationColumn column = columns.get(i);
+                Object value = column.valueOf(reservation);
+                if (value == null) {
+                    continue;
+                }
+                recordConsumer.startField(column.columnName(), i);
+                if (column.type() == ReservationColumn.Type.UUID) {
+                    recordConsumer.addBinary(Binary.fromReusedByteArray(ReservationColumn.encodeUuid((UUID) value, uuidBuffer)));
+                } else {
+                    recordConsumer.addLong(column.encodeLong(value));
+                }
+                recordConsumer.endField(column.columnName(), i);
+            }
+            recordConsumer.endMessage();
+        }
+    }
+
+    // Parquet output file on top of a plain stream, tracking the position the footer offsets are based on
+    private static final class StreamOutputFile implements OutputFile {
+
+        private final OutputStream out;
+
+        private StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
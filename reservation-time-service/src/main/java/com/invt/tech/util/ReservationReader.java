@@ -0,0 +1,14 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Reads flexibility reservations one at a time from an uploaded file.
+ *
+ * <p>{@link #hasNext()} and {@link #next()} throw {@link IllegalArgumentException} if the upload is malformed.</p>
+ */
+public interface ReservationReader extends Iterator<FlexibilityReservationDTO>, Closeable {
+}
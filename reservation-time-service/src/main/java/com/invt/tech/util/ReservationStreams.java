@@ -0,0 +1,247 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Utility class for combining the streamed results of several queries into one stream.
+ *
+ * <p>Unlike {@link Stream#flatMap}, the combined streams pull one row at a time from their parts,
+ * so a part is never buffered completely. Closing a combined stream closes the parts it opened.</p>
+ */
+public class ReservationStreams {
+
+    /**
+     * Order of the detail rows of several assets and markets: by asset, market, timestamp and ID.
+     * UUIDs are compared as unsigned 128-bit values, as the databases order them.
+     */
+    public static final Comparator<FlexibilityReservationDTO> DETAIL_ORDER =
+            Comparator.comparing(FlexibilityReservationDTO::getAssetId, ReservationStreams::compareUnsigned)
+                    .thenComparing(FlexibilityReservationDTO::getMarketId, ReservationStreams::compareUnsigned)
+                    .thenComparing(FlexibilityReservationDTO::getTimestamp)
+                    .thenComparing(FlexibilityReservationDTO::getId);
+
+    /**
+     * Concatenates streams that are opened one after the other.
+     * Each part is opened when the previous one is exhausted and closed right after.
+     *
+     * @param parts suppliers opening the parts, in order
+     * @param <T>   the type of the rows
+     * @return a stream of the rows of all parts
+     */
+    public static <T> Stream<T> concat(List<Supplier<Stream<T>>> parts) {
+        ConcatIterator<T> iterator = new ConcatIterator<>(parts);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Merges streams ordered by timestamp and sums the values of rows with the same timestamp.
+     * The merged rows keep the market ID of the parts and have no asset ID.
+     *
+     * @param parts open streams of one market, each ordered by timestamp without repeating a timestamp
+     * @return a stream with one row per timestamp, ordered by timestamp
+     */
+    public static Stream<FlexibilityReservationDTO> sumByTimestamp(List<Stream<FlexibilityReservationDTO>> parts) {
+        Iterator<FlexibilityReservationDTO> iterator = new SumIterator(parts.stream().map(Stream::iterator).toList());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> closeAll(parts));
+    }
+
+    /**
+     * Merges streams ordered by the same comparator into one ordered stream.
+     * Rows that are equal under the comparator are emitted once, taken from the earliest part that has them.
+     *
+     * @param parts      open streams, each ordered by {@code comparator}
+     * @param comparator the order of the parts
+     * @return a stream of the rows of all parts, ordered by {@code comparator}
+     */
+    public static Stream<FlexibilityReservationDTO> merge(List<Stream<FlexibilityReservationDTO>> parts,
+                                                          Comparator<FlexibilityReservationDTO> comparator) {
+        Iterator<FlexibilityReservationDTO> iterator = new MergeIterator(parts.stream().map(Stream::iterator).toList(), comparator);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> closeAll(parts));
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        int most = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return most != 0 ? most : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    private static void closeAll(List<? extends Stream<?>> streams) {
+        RuntimeException failure = null;
+        for (Stream<?> stream : streams) {
+            try {
+                stream.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class ConcatIterator<T> implements Iterator<T> {
+
+        private final Iterator<Supplier<Stream<T>>> parts;
+        private Stream<T> current;
+        private Iterator<T> rows;
+
+        private ConcatIterator(List<Supplier<Stream<T>>> parts) {
+            this.parts = parts.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (rows == null || !rows.hasNext()) {
+                close();
+                if (!parts.hasNext()) {
+                    return false;
+                }
+                current = parts.next().get();
+                rows = current.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.next();
+        }
+
+        private void close() {
+            if (current != null) {
+                Stream<T> closing = current;
+                current = null;
+                rows = null;
+                closing.close();
+            }
+        }
+    }
+
+    private static final class SumIterator implements Iterator<FlexibilityReservationDTO> {
+
+        // Heads of the parts, earliest timestamp first
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(head -> head.row.getTimestamp()));
+
+        private SumIterator(List<Iterator<FlexibilityReservationDTO>> parts) {
+            for (Iterator<FlexibilityReservationDTO> part : parts) {
+                if (part.hasNext()) {
+                    heads.add(new Head(part.next(), part));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public FlexibilityReservationDTO next() {
+            if (heads.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Head first = heads.poll();
+            FlexibilityReservationDTO sum = new FlexibilityReservationDTO(first.row.getMarketId(), first.row.getTimestamp(),
+                    first.row.getPositiveValue(), first.row.getNegativeValue());
+            List<Head> advanced = new ArrayList<>();
+            advanced.add(first);
+            while (!heads.isEmpty() && heads.peek().row.getTimestamp().equals(sum.getTimestamp())) {
+                Head same = heads.poll();
+                sum.setPositiveValue(sum.getPositiveValue().add(same.row.getPositiveValue()));
+                sum.setNegativeValue(sum.getNegativeValue().add(same.row.getNegativeValue()));
+                advanced.add(same);
+            }
+            for (Head head : advanced) {
+                if (head.part.hasNext()) {
+                    head.row = head.part.next();
+                    heads.add(head);
+                }
+            }
+            return sum;
+        }
+    }
+
+    private static final class MergeIterator implements Iterator<FlexibilityReservationDTO> {
+
+        // Heads of the parts, smallest row first and the earliest part first among equal rows
+        private final PriorityQueue<Head> heads;
+        private final Comparator<FlexibilityReservationDTO> comparator;
+
+        private MergeIterator(List<Iterator<FlexibilityReservationDTO>> parts, Comparator<FlexibilityReservationDTO> comparator) {
+            this.comparator = comparator;
+            heads = new PriorityQueue<>(Comparator.<Head, FlexibilityReservationDTO>comparing(head -> head.row, comparator)
+                    .thenComparingInt(head -> head.index));
+            for (int i = 0; i < parts.size(); i++) {
+                Iterator<FlexibilityReservationDTO> part = parts.get(i);
+                if (part.hasNext()) {
+                    heads.add(new Head(part.next(), part, i));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public FlexibilityReservationDTO next() {
+            if (heads.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Head first = heads.poll();
+            FlexibilityReservationDTO row = first.row;
+            advance(first);
+            while (!heads.isEmpty() && comparator.compare(heads.peek().row, row) == 0) {
+                advance(heads.poll());
+            }
+            return row;
+        }
+
+        private void advance(Head head) {
+            if (head.part.hasNext()) {
+                head.row = head.part.next();
+                heads.add(head);
+            }
+        }
+    }
+
+    private static final class Head {
+
+        private FlexibilityReservationDTO row;
+        private final Iterator<FlexibilityReservationDTO> part;
+        private final int index;
+
+        private Head(FlexibilityReservationDTO row, Iterator<FlexibilityReservationDTO> part) {
+            this(row, part, 0);
+        }
+
+        private Head(FlexibilityReservationDTO row, Iterator<FlexibilityReservationDTO> part, int index) {
+            this.row = row;
+            this.part = part;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes flexibility reservations one at a time in an export file format.
+ * Implementations buffer as little as their format allows and finish the file when closed.
+ */
+public interface ReservationWriter extends Closeable {
+
+    /**
+     * Writes one reservation.
+     *
+     * @param reservation the reservation to write
+     * @throws IOException if writing to the underlying stream fails
+     */
+    void write(FlexibilityReservationDTO reservation) throws IOException;
+}
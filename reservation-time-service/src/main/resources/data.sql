@@ -56,4 +56,6 @@ INSERT INTO flexibility_reservations (
     2.0,
     '2022-10-10T14:15:22Z',
     '2022-10-24T11:42:12.794363Z'
-);
\ No newline at end of file
+);
+-- Seed rows use explicit IDs; continue generated IDs after them
+ALTER TABLE flexibility_reservations ALTER COLUMN id RESTART WITH 2049;
@@ -0,0 +1,11 @@
+-- Runs after schema.sql in the postgres profile. Turns the reservations into a TimescaleDB hypertable with one
+-- chunk per week of timestamps, so interval queries only scan the chunks of their interval. Chunks are created
+-- as data arrives, and whole chunks can be dropped or archived once they fall out of retention.
+CREATE EXTENSION IF NOT EXISTS timescaledb;
+
+SELECT create_hypertable('flexibility_reservations', 'timestamp',
+    chunk_time_interval => INTERVAL '7 days', if_not_exists => TRUE, migrate_data => TRUE);
+
+-- Adds the natural key of schema.sql to tables created before it; duplicates have to be removed first
+CREATE UNIQUE INDEX IF NOT EXISTS uq_flexibility_reservations_natural_key
+    ON flexibility_reservations (asset_id, market_id, timestamp, positive_bid_id, negative_bid_id) NULLS NOT DISTINCT;
@@ -1,5 +1,7 @@
+-- Runs on H2 and PostgreSQL; schema-postgresql.sql partitions the reservations by timestamp on TimescaleDB,
+-- which requires the timestamp to be part of the primary key
 CREATE TABLE IF NOT EXISTS flexibility_reservations (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
     asset_id UUID NOT NULL,
     market_id UUID NOT NULL,
     positive_bid_id UUID,
@@ -11,5 +13,55 @@ CREATE TABLE IF NOT EXISTS flexibility_reservations (
     negative_capacity_price DECIMAL(10,6),
     negative_energy_price DECIMAL(10,6),
     timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
-    updated_at TIMESTAMP WITH TIME ZONE
-);
\ No newline at end of file
+    updated_at TIMESTAMP WITH TIME ZONE,
+    changed_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, timestamp),
+    -- Natural key of upserts; a missing bid ID is a value of its own, so rows without bid IDs are unique as well
+    CONSTRAINT uq_flexibility_reservations_natural_key
+        UNIQUE NULLS NOT DISTINCT (asset_id, market_id, timestamp, positive_bid_id, negative_bid_id)
+);
+
+-- Replaced by the changed_at indexes below
+DROP INDEX IF EXISTS idx_flexibility_reservations_asset_market_timestamp;
+DROP INDEX IF EXISTS idx_flexibility_reservations_asset_market_timestamp_updated_at;
+DROP INDEX IF EXISTS idx_flexibility_reservations_asset_market_updated_at;
+DROP INDEX IF EXISTS idx_flexibility_reservations_updated_at;
+
+-- Stamped by the database on every insert and update, unlike updated_at, which is set by the writers; rows stored
+-- before the column existed get the time of the migration
+ALTER TABLE flexibility_reservations
+    ADD COLUMN IF NOT EXISTS changed_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+-- Covers changed_at, so the versions of conditional requests are read from the index alone
+CREATE INDEX IF NOT EXISTS idx_flexibility_reservations_asset_market_timestamp_changed_at
+    ON flexibility_reservations (asset_id, market_id, timestamp, changed_at);
+
+-- Backs the change feed and the versions of whole assets and markets
+CREATE INDEX IF NOT EXISTS idx_flexibility_reservations_asset_market_changed_at
+    ON flexibility_reservations (asset_id, market_id, changed_at);
+
+-- Backs the refresh of the hot window, which reads the changes of all assets and markets
+CREATE INDEX IF NOT EXISTS idx_flexibility_reservations_changed_at
+    ON flexibility_reservations (changed_at);
+
+CREATE TABLE IF NOT EXISTS flexibility_reservation_rollups (
+    asset_id UUID NOT NULL,
+    market_id UUID NOT NULL,
+    resolution VARCHAR(16) NOT NULL,
+    bucket_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    positive_value DECIMAL(18,3) NOT NULL,
+    negative_value DECIMAL(18,3) NOT NULL,
+    reservation_count BIGINT NOT NULL,
+    PRIMARY KEY (asset_id, market_id, resolution, bucket_start)
+);
+
+CREATE TABLE IF NOT EXISTS flexibility_reservation_rollup_dirty_days (
+    asset_id UUID NOT NULL,
+    market_id UUID NOT NULL,
+    day_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (asset_id, market_id, day_start)
+);
+
+-- Bumped by writers that find their day already queued, so a compaction only dequeues the version it has read
+ALTER TABLE flexibility_reservation_rollup_dirty_days ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
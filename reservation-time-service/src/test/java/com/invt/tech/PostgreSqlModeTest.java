@@ -0,0 +1,111 @@
+package com.invt.tech;
+
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.ReservationBucketRepository;
+import com.invt.tech.service.FlexibilityReservationIngestService;
+import com.invt.tech.service.FlexibilityReservationService;
+import com.invt.tech.service.ReservationRollupService;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import com.invt.tech.util.ResampleResolution;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Stand-in for the postgres profile: runs the shared schema and the native queries on H2 in PostgreSQL mode,
+// without the seed data, as the profile does
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:postgresdb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.sql.init.data-locations="
+})
+public class PostgreSqlModeTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2024-03-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2024-03-31T00:00:00Z"));
+
+    @Autowired
+    private FlexibilityReservationIngestService ingestService;
+
+    @Autowired
+    private FlexibilityReservationService reservationService;
+
+    @Autowired
+    private ReservationRollupService rollupService;
+
+    @Autowired
+    private FlexibilityReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationBucketRepository bucketRepository;
+
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @Test
+    void startup_shouldNotLoadSeedData() {
+        assertThat(reservationRepository.findReservations(UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6"), marketId))
+                .isEmpty();
+    }
+
+    @Test
+    void ingest_shouldUpsertAndRollUpReservations() {
+        UUID assetId = UUID.randomUUID();
+        ingestService.ingest(upload(reservation(assetId, "2024-03-04T10:00:00Z", 100, "2024-03-01T08:00:00Z")
+                + reservation(assetId, "2024-03-04T10:15:00Z", 50, "2024-03-01T08:00:00Z")), ImportFormat.JSON, ImportMode.UPSERT);
+
+        BulkIngestResultDTO result = ingestService.ingest(upload(reservation(assetId, "2024-03-04T10:00:00Z", 120, "2024-03-02T08:00:00Z")
+                + reservation(assetId, "2024-03-04T10:15:00Z", 10, "2024-02-28T08:00:00Z")), ImportFormat.JSON, ImportMode.UPSERT);
+        // Queued days are summed from the raw reservations until they are compacted
+        assertThat(reservationService.getFilteredOrAggregatedReservations(assetId, marketId, FROM, TO, true, RollupResolution.HOUR))
+                .extracting(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue().intValue())
+                .containsExactly("2024-03-04T10:00:00Z 170");
+        rollupService.compact(assetId, marketId, FROM, TO);
+
+        assertThat(result.getAccepted()).isEqualTo(1);
+        assertThat(result.getStale()).isEqualTo(1);
+        assertThat(reservationService.getFilteredOrAggregatedReservations(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL))
+                .extracting(FlexibilityReservationDTO::getId)
+                .doesNotHaveDuplicates()
+                .hasSize(2);
+        assertThat(reservationService.getFilteredOrAggregatedReservations(assetId, marketId, FROM, TO, true, RollupResolution.DAY))
+                .extracting(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue().intValue())
+                .containsExactly("2024-03-04T00:00:00Z 170");
+    }
+
+    @Test
+    void findBuckets_shouldAggregateIsoWeeks() {
+        UUID assetId = UUID.randomUUID();
+        ingestService.ingest(upload(reservation(assetId, "2024-03-03T22:00:00Z", 10, "2024-03-01T08:00:00Z")
+                + reservation(assetId, "2024-03-04T08:00:00Z", 20, "2024-03-01T08:00:00Z")), ImportFormat.JSON, ImportMode.INSERT);
+
+        assertThat(bucketRepository.findBuckets(assetId, marketId, FROM, TO, ResampleResolution.WEEK, ZoneId.of("UTC")))
+                .extracting(ReservationBucketDTO::getBucketStart, b -> b.getPositiveSum().intValue())
+                .containsExactly(
+                        tuple(OffsetDateTime.parse("2024-02-26T00:00Z"), 10),
+                        tuple(OffsetDateTime.parse("2024-03-04T00:00Z"), 20));
+    }
+
+    private String reservation(UUID assetId, String timestamp, int positiveValue, String updatedAt) {
+        return "{\"assetId\":\"" + assetId + "\",\"marketId\":\"" + marketId + "\","
+                + "\"positiveValue\":" + positiveValue + ",\"negativeValue\":0,"
+                + "\"timestamp\":\"" + timestamp + "\",\"updatedAt\":\"" + updatedAt + "\"}\n";
+    }
+
+    private static ByteArrayInputStream upload(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.invt.tech.cache;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationCacheTest {
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+    private final Timestamp from = Timestamp.from(Instant.parse("2022-10-01T00:00:00Z"));
+    private final Timestamp to = Timestamp.from(Instant.parse("2022-10-31T00:00:00Z"));
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReservationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ReservationCache(1000, 10, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void get_shouldLoadOnceAndRecordHitsAndMisses() {
+        AtomicInteger loads = new AtomicInteger();
+        ReservationQueryKey key = ReservationQueryKey.of(assetId, marketId, from, to, true, RollupResolution.DAY);
+
+        List<FlexibilityReservationDTO> first = cache.get(key, () -> rows(loads, 3));
+        List<FlexibilityReservationDTO> second = cache.get(key, () -> rows(loads, 3));
+
+        assertThat(second).isSameAs(first).hasSize(3);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", ReservationCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldReturnNewDtosOnEveryRead() {
+        ReservationQueryKey key = ReservationQueryKey.all(assetId, marketId);
+        cache.get(key, () -> rows(new AtomicInteger(), 1));
+
+        cache.getIfPresent(key).get(0).setAssetId(UUID.randomUUID());
+
+        assertThat(cache.getIfPresent(key).get(0).getAssetId()).isNull();
+    }
+
+    @Test
+    void get_shouldNotCacheEmptyOrOversizedResults() {
+        AtomicInteger loads = new AtomicInteger();
+        ReservationQueryKey empty = ReservationQueryKey.of(assetId, marketId, from, to, false, RollupResolution.INTERVAL);
+        ReservationQueryKey oversized = ReservationQueryKey.all(assetId, marketId);
+
+        cache.get(empty, Collections::emptyList);
+        cache.get(oversized, () -> rows(loads, 11));
+
+        assertThat(cache.getIfPresent(empty)).isNull();
+        assertThat(cache.getIfPresent(oversized)).isNull();
+    }
+
+    @Test
+    void onReservationsChanged_shouldDropEntriesOfThePairOnly() {
+        UUID otherAssetId = UUID.randomUUID();
+        ReservationQueryKey key = ReservationQueryKey.all(assetId, marketId);
+        ReservationQueryKey otherKey = ReservationQueryKey.all(otherAssetId, marketId);
+        cache.get(key, () -> rows(new AtomicInteger(), 1));
+        cache.get(otherKey, () -> rows(new AtomicInteger(), 1));
+
+        cache.onReservationsChanged(new ReservationsChangedEvent(assetId, marketId, from, to));
+
+        assertThat(cache.getIfPresent(key)).isNull();
+        assertThat(cache.getIfPresent(otherKey)).isNotNull();
+    }
+
+    @Test
+    void get_shouldNotCacheResultLoadedAcrossAnInvalidation() {
+        ReservationQueryKey key = ReservationQueryKey.all(assetId, marketId);
+
+        cache.get(key, () -> {
+            cache.invalidate(assetId, marketId);
+            return rows(new AtomicInteger(), 1);
+        });
+
+        assertThat(cache.getIfPresent(key)).isNull();
+    }
+
+    @Test
+    void caching_shouldCacheFullyConsumedStreamsWithinTheEntryLimit() {
+        ReservationQueryKey small = ReservationQueryKey.of(assetId, marketId, from, to, false, RollupResolution.INTERVAL);
+        ReservationQueryKey large = ReservationQueryKey.of(assetId, marketId, from, to, true, RollupResolution.INTERVAL);
+        ReservationQueryKey partial = ReservationQueryKey.of(assetId, marketId, from, to, true, RollupResolution.HOUR);
+
+        cache.caching(small, rows(new AtomicInteger(), 10).iterator()).forEachRemaining(row -> { });
+        cache.caching(large, rows(new AtomicInteger(), 11).iterator()).forEachRemaining(row -> { });
+        Iterator<FlexibilityReservationDTO> iterator = cache.caching(partial, rows(new AtomicInteger(), 2).iterator());
+        iterator.next();
+
+        assertThat(cache.getIfPresent(small)).hasSize(10);
+        assertThat(cache.getIfPresent(large)).isNull();
+        assertThat(cache.getIfPresent(partial)).isNull();
+    }
+
+    private static List<FlexibilityReservationDTO> rows(AtomicInteger loads, int count) {
+        loads.incrementAndGet();
+        List<FlexibilityReservationDTO> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new FlexibilityReservationDTO());
+        }
+        return rows;
+    }
+}
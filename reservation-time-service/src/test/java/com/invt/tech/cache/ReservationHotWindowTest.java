@@ -0,0 +1,138 @@
+package com.invt.tech.cache;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReservationHotWindowTest {
+
+    private static final Duration SETTLE_TIME = Duration.ofMinutes(1);
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+    private final Instant hour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+    private FlexibilityReservationRepository repository;
+    private ReservationHotWindow window;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(FlexibilityReservationRepository.class);
+        window = new ReservationHotWindow(repository, true, Duration.ofDays(2), Duration.ofDays(2), SETTLE_TIME);
+        when(repository.streamReservationsBetween(any(), any())).thenAnswer(invocation -> Stream.of(
+                row(1, hour.minus(45, ChronoUnit.MINUTES), "1.000"),
+                row(2, hour.minus(15, ChronoUnit.MINUTES), "2.000"),
+                row(3, hour, "4.000"),
+                row(4, hour, "3.000")));
+        when(repository.streamReservationsChangedBetween(any(), any(), any(), any())).thenAnswer(invocation -> Stream.empty());
+    }
+
+    @Test
+    void find_shouldServeDetailRowsAndSumsWithinTheWindow() {
+        assertThat(window.find(assetId, marketId, at(hour.minus(1, ChronoUnit.HOURS)), at(hour), false, RollupResolution.INTERVAL)).isNull();
+
+        window.refresh();
+
+        assertThat(window.find(assetId, marketId, at(hour.minus(30, ChronoUnit.MINUTES)), at(hour), false, RollupResolution.INTERVAL))
+                .extracting(FlexibilityReservationDTO::getId)
+                .containsExactly(2L, 3L, 4L);
+        assertThat(window.find(assetId, marketId, at(hour.minus(30, ChronoUnit.MINUTES)), at(hour), true, RollupResolution.HOUR))
+                .containsExactly(
+                        new FlexibilityReservationDTO(assetId, marketId, at(hour.minus(1, ChronoUnit.HOURS)), new BigDecimal("3.000"), BigDecimal.ZERO.setScale(3)),
+                        new FlexibilityReservationDTO(assetId, marketId, at(hour), new BigDecimal("7.000"), BigDecimal.ZERO.setScale(3)));
+        assertThat(window.find(UUID.randomUUID(), marketId, at(hour), at(hour), false, RollupResolution.INTERVAL)).isEmpty();
+    }
+
+    @Test
+    void find_shouldLeaveQueriesOutsideTheWindowToTheDatabase() {
+        window.refresh();
+
+        assertThat(window.find(assetId, marketId, at(hour.minus(3, ChronoUnit.DAYS)), at(hour), false, RollupResolution.INTERVAL)).isNull();
+        assertThat(window.find(assetId, marketId, at(hour), at(hour.plus(3, ChronoUnit.DAYS)), true, RollupResolution.DAY)).isNull();
+    }
+
+    @Test
+    void refresh_shouldReloadPairsWrittenSinceTheLastRefresh() {
+        window.refresh();
+        window.onReservationsChanged(new ReservationsChangedEvent(assetId, marketId, at(hour), at(hour)));
+
+        assertThat(window.find(assetId, marketId, at(hour), at(hour), false, RollupResolution.INTERVAL)).isNull();
+
+        when(repository.streamFilteredReservations(eq(assetId), eq(marketId), any(), any()))
+                .thenAnswer(invocation -> Stream.of(row(5, hour, "9.000")));
+        window.refresh();
+
+        assertThat(window.find(assetId, marketId, at(hour), at(hour), false, RollupResolution.INTERVAL))
+                .extracting(FlexibilityReservationDTO::getId)
+                .containsExactly(5L);
+    }
+
+    @Test
+    void refresh_shouldMergeRowsChangedSinceTheLastRefresh() {
+        window.refresh();
+        when(repository.streamReservationsChangedBetween(any(), any(), any(), any()))
+                .thenAnswer(invocation -> Stream.of(row(3, hour, "8.000"), row(6, hour.plus(15, ChronoUnit.MINUTES), "5.000")));
+
+        window.refresh();
+
+        assertThat(window.find(assetId, marketId, at(hour), at(hour.plus(15, ChronoUnit.MINUTES)), false, RollupResolution.INTERVAL))
+                .extracting(FlexibilityReservationDTO::getId, r -> r.getPositiveValue().toPlainString())
+                .containsExactly(
+                        tuple(3L, "8.000"),
+                        tuple(4L, "3.000"),
+                        tuple(6L, "5.000"));
+    }
+
+    @Test
+    void refresh_shouldReadSettledChangesWhereThePreviousRefreshStopped() {
+        Instant start = Instant.now();
+        window.refresh();
+        window.refresh();
+        window.refresh();
+
+        ArgumentCaptor<Timestamp> after = ArgumentCaptor.forClass(Timestamp.class);
+        ArgumentCaptor<Timestamp> until = ArgumentCaptor.forClass(Timestamp.class);
+        verify(repository, times(2)).streamReservationsChangedBetween(after.capture(), until.capture(), any(), any());
+        // The first refresh loads the window, including the changes up to its own settled time
+        assertThat(after.getAllValues().get(0).toInstant()).isAfterOrEqualTo(start.minus(SETTLE_TIME).truncatedTo(ChronoUnit.MICROS));
+        assertThat(after.getAllValues().get(1)).isEqualTo(until.getAllValues().get(0));
+        assertThat(until.getAllValues().get(1).toInstant()).isBeforeOrEqualTo(Instant.now().minus(SETTLE_TIME));
+    }
+
+    private FlexibilityReservationDTO row(long id, Instant timestamp, String positiveValue) {
+        return FlexibilityReservationDTO.builder()
+                .id(id)
+                .assetId(assetId)
+                .marketId(marketId)
+                .positiveValue(new BigDecimal(positiveValue))
+                .negativeValue(BigDecimal.ZERO.setScale(3))
+                .timestamp(at(timestamp))
+                .updatedAt(at(hour.minus(1, ChronoUnit.DAYS)))
+                .build();
+    }
+
+    private static Timestamp at(Instant instant) {
+        return Timestamp.from(instant);
+    }
+}
@@ -0,0 +1,118 @@
+package com.invt.tech.controller;
+
+import com.invt.tech.dto.ExportJobDTO;
+import com.invt.tech.dto.ExportJobFile;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.handler.GlobalExceptionHandler;
+import com.invt.tech.service.ExportJobService;
+import com.invt.tech.util.ExportFormat;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportJobControllerTest {
+
+    private static final String CONTENT = "\"timestamp\",\"assetId\"\n\"2023-01-01 00:00:00.0\",\"abc\"\n";
+
+    @TempDir
+    Path directory;
+
+    private MockMvc mockMvc;
+    private ExportJobService service;
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = mock(ExportJobService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ExportJobController(service))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        Path file = Files.writeString(directory.resolve("job.csv"), CONTENT, StandardCharsets.US_ASCII);
+        when(service.getFile("job")).thenReturn(new ExportJobFile(file, ExportFormat.CSV, "job-1"));
+        when(service.getFile("missing")).thenThrow(new EntityNotFoundException("Export job missing not found"));
+    }
+
+    @Test
+    void submitExportJob_shouldReturnJobLocation() throws Exception {
+        when(service.submit(eq(assetId), eq(marketId), any(Timestamp.class), any(Timestamp.class), eq(true),
+                eq(RollupResolution.HOUR), eq(ExportFormat.CSV_GZ)))
+                .thenReturn(ExportJobDTO.builder().id("job").status(ExportJobDTO.Status.QUEUED).format("csv.gz").build());
+
+        mockMvc.perform(post("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export-jobs", assetId, marketId)
+                        .param("from", "2020-01-01T00:00:00Z")
+                        .param("to", "2023-01-01T00:00:00Z")
+                        .param("total", "true")
+                        .param("resolution", "PT1H")
+                        .param("format", "csv.gz"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/v1/flexibility/reservations/export-jobs/job"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void downloadExportJobFile_shouldSendWholeFile() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/export-jobs/{jobId}/file", "job"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"job-1\""))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void downloadExportJobFile_shouldResumeFromRange() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/export-jobs/{jobId}/file", "job")
+                        .header(HttpHeaders.RANGE, "bytes=10-")
+                        .header(HttpHeaders.IF_RANGE, "\"job-1\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-" + (CONTENT.length() - 1) + "/" + CONTENT.length()))
+                .andExpect(content().string(CONTENT.substring(10)));
+    }
+
+    @Test
+    void downloadExportJobFile_shouldSendWholeFileWhenIfRangeIsOutdated() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/export-jobs/{jobId}/file", "job")
+                        .header(HttpHeaders.RANGE, "bytes=10-")
+                        .header(HttpHeaders.IF_RANGE, "\"job-0\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void downloadExportJobFile_shouldRejectRangeBeyondEnd() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/export-jobs/{jobId}/file", "job")
+                        .header(HttpHeaders.RANGE, "bytes=1000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT.length()));
+    }
+
+    @Test
+    void downloadExportJobFile_shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/export-jobs/{jobId}/file", "missing"))
+                .andExpect(status().isNotFound());
+    }
+}
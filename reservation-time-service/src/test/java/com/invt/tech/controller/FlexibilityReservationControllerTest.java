@@ -1,26 +1,61 @@
 package com.invt.tech.controller;
 
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationChangesDTO;
 import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.FlexibilityReservationPageDTO;
+import com.invt.tech.dto.ReservationVersion;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationBroadcaster;
+import com.invt.tech.handler.GlobalExceptionHandler;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.service.FlexibilityReservationIngestService;
 import com.invt.tech.service.FlexibilityReservationService;
+import com.invt.tech.service.ReservationExportService;
+import com.invt.tech.service.ReservationExportServiceImpl;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
+import org.springframework.http.HttpHeaders;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class FlexibilityReservationControllerTest {
 
     private MockMvc mockMvc;
     private FlexibilityReservationService service;
+    private FlexibilityReservationIngestService ingestService;
 
     private UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
     private UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
@@ -28,8 +63,16 @@ public class FlexibilityReservationControllerTest {
     @BeforeEach
     void setUp() {
         service = mock(FlexibilityReservationService.class);
-        FlexibilityReservationController controller = new FlexibilityReservationController(service);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        ingestService = mock(FlexibilityReservationIngestService.class);
+        when(service.getVersion(any(), any())).thenReturn(new ReservationVersion(0, null));
+        when(service.getVersion(any(), any(), any(), any())).thenReturn(new ReservationVersion(0, null));
+        ExportMetrics exportMetrics = new ExportMetrics(new SimpleMeterRegistry());
+        ReservationExportService exportService = new ReservationExportServiceImpl(service, exportMetrics, new MockEnvironment(), 2, 2, 2, 16, 1, Duration.ofDays(7), 0);
+        FlexibilityReservationController controller = new FlexibilityReservationController(service, ingestService, exportService, exportMetrics,
+                new ReservationBroadcaster(new MockEnvironment(), new SimpleMeterRegistry(), 10, 10, 10, Duration.ofMinutes(1)));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
     }
 
     @Test
@@ -46,26 +89,150 @@ public class FlexibilityReservationControllerTest {
         verify(service).getReservations(assetId, marketId);
     }
 
+    @Test
+    void getReservationsPage_shouldReturnItemsAndNextCursor() throws Exception {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        dto.setAssetId(assetId);
+        dto.setMarketId(marketId);
+
+        when(service.getReservationsPage(assetId, marketId, "abc", 1))
+                .thenReturn(new FlexibilityReservationPageDTO(List.of(dto), "def"));
+
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/page", assetId, marketId)
+                        .param("cursor", "abc")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.next").value("def"));
+    }
+
+    @Test
+    void getReservations_shouldReturnNotModifiedForMatchingETag() throws Exception {
+        ReservationVersion version = new ReservationVersion(3, Timestamp.from(Instant.parse("2024-01-01T10:00:00Z")));
+        when(service.getVersion(assetId, marketId)).thenReturn(version);
+        when(service.getReservations(assetId, marketId)).thenReturn(List.of(new FlexibilityReservationDTO()));
+        String uri = "/api/v1/flexibility/reservations/{assetId}/market/{marketId}";
+
+        mockMvc.perform(get(uri, assetId, marketId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, version.eTag()))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Mon, 01 Jan 2024 10:00:00 GMT"));
+        mockMvc.perform(get(uri, assetId, marketId).header(HttpHeaders.IF_NONE_MATCH, version.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get(uri, assetId, marketId).header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 01 Jan 2024 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(service, times(1)).getReservations(assetId, marketId);
+    }
+
+    @Test
+    void exportReservations_shouldReturnNotModifiedWithoutStartingTheExport() throws Exception {
+        ReservationVersion version = new ReservationVersion(3, Timestamp.from(Instant.parse("2024-01-01T10:00:00Z")));
+        when(service.getVersion(eq(assetId), eq(marketId), any(), any())).thenReturn(version);
+
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("to", "2024-01-02T00:00:00Z")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"other\", " + version.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(request().asyncNotStarted());
+
+        verify(service, never()).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void getChanges_shouldReturnItemsAndWatermark() throws Exception {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        dto.setAssetId(assetId);
+        dto.setMarketId(marketId);
+
+        when(service.getChanges(assetId, marketId, "abc", 1000))
+                .thenReturn(new FlexibilityReservationChangesDTO(List.of(dto), "def", true));
+
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/changes", assetId, marketId)
+                        .param("watermark", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.watermark").value("def"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void subscribe_shouldOpenEventStreamAndRejectAboveTheLimit() throws Exception {
+        String uri = "/api/v1/flexibility/reservations/{assetId}/market/{marketId}/subscribe";
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get(uri, assetId, marketId).accept("text/event-stream"))
+                    .andExpect(request().asyncStarted());
+        }
+
+        mockMvc.perform(get(uri, assetId, marketId).accept("text/event-stream"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     void exportReservations_shouldCallService_withTotalTrue() throws Exception {
         FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
         dto.setAssetId(assetId);
         dto.setMarketId(marketId);
         dto.setTimestamp(Timestamp.from(Instant.now()));
+        dto.setPositiveValue(new BigDecimal("200.000"));
+        dto.setNegativeValue(new BigDecimal("150.000"));
 
-        when(service.getFilteredOrAggregatedReservations(
-                any(), any(), any(), any(), eq(true)))
-                .thenReturn(List.of(dto));
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(dto).iterator());
+            return null;
+        }).when(service).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), eq(true), any(), any());
 
-        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+        export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
                         .param("from", "2022-10-01T00:00:00Z")
                         .param("to", "2022-12-31T23:59:59Z")
                         .param("total", "true")
+                        .param("resolution", "P1D")
                         .accept(APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"));
+
+        verify(service).streamFilteredOrAggregatedReservations(eq(assetId), eq(marketId),
+                any(Timestamp.class), any(Timestamp.class), eq(true), eq(RollupResolution.DAY), any());
+    }
+
+    @Test
+    void streamReservations_shouldWriteOneReservationPerLine() throws Exception {
+        FlexibilityReservationDTO first = new FlexibilityReservationDTO();
+        first.setAssetId(assetId);
+        first.setPositiveValue(new BigDecimal("200.000"));
+        FlexibilityReservationDTO second = new FlexibilityReservationDTO();
+        second.setTimestamp(Timestamp.from(Instant.parse("2024-01-01T10:15:00Z")));
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(first, second).iterator());
+            return null;
+        }).when(service).streamReservations(eq(assetId), eq(marketId), any());
+
+        export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/stream", assetId, marketId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":0,\"assetId\":\"" + assetId + "\",\"positiveValue\":200.000}\n"
+                        + "{\"id\":0,\"timestamp\":\"2024-01-01T10:15:00.000+00:00\"}\n"));
+    }
+
+    @Test
+    void streamReservations_shouldWriteJsonArrayAndRejectUnknownFormats() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(new FlexibilityReservationDTO(), new FlexibilityReservationDTO()).iterator());
+            return null;
+        }).when(service).streamReservations(eq(assetId), eq(marketId), any());
+        String uri = "/api/v1/flexibility/reservations/{assetId}/market/{marketId}/stream";
 
-        verify(service).getFilteredOrAggregatedReservations(eq(assetId), eq(marketId),
-                any(Timestamp.class), any(Timestamp.class), eq(true));
+        export(get(uri, assetId, marketId).param("format", "json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(content().string("[{\"id\":0},{\"id\":0}]"));
+        mockMvc.perform(get(uri, assetId, marketId).param("format", "xml"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -77,4 +244,158 @@ public class FlexibilityReservationControllerTest {
                         .accept(APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void exportReservations_shouldGzipWhenAccepted() throws Exception {
+        streamReservation();
+
+        byte[] body = export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z")
+                        .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(gunzip(body)).startsWith("\"assetId\",\"marketId\"");
+    }
+
+    @Test
+    void exportReservations_shouldDownloadGzipFileForCsvGzFormat() throws Exception {
+        streamReservation();
+
+        byte[] body = export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z")
+                        .param("format", "csv.gz"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=reservations.csv.gz"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(gunzip(body)).startsWith("\"assetId\",\"marketId\"");
+    }
+
+    @Test
+    void exportReservations_shouldDownloadParquetFile() throws Exception {
+        streamReservation();
+
+        byte[] body = export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z")
+                        .param("format", "parquet")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.apache.parquet"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=reservations.parquet"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(new String(body, 0, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+        assertThat(new String(body, body.length - 4, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+    }
+
+    @Test
+    void exportReservations_shouldStreamArrowWithNegotiatedEncoding() throws Exception {
+        streamReservation();
+
+        export(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z")
+                        .param("total", "true")
+                        .param("format", "arrow")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.apache.arrow.stream"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=reservations.arrows"))
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    void exportReservations_shouldFailWithUnsupportedFormat() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z")
+                        .param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportReservations_shouldReturnNotFoundBeforeStartingResponse() throws Exception {
+        doThrow(new EntityNotFoundException("No reservations found")).when(service)
+                .streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/export", assetId, marketId)
+                        .param("from", "2022-10-01T00:00:00Z")
+                        .param("to", "2022-12-31T23:59:59Z"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
+
+    private ResultActions export(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private void streamReservation() {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        dto.setAssetId(assetId);
+        dto.setMarketId(marketId);
+        dto.setTimestamp(Timestamp.from(Instant.now()));
+        dto.setPositiveValue(new BigDecimal("200.000"));
+        dto.setNegativeValue(new BigDecimal("150.000"));
+
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(dto).iterator());
+            return null;
+        }).when(service).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    private static String gunzip(byte[] body) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Test
+    void importReservations_shouldSelectFormatFromContentType() throws Exception {
+        when(ingestService.ingest(any(), eq(ImportFormat.CSV), eq(ImportMode.INSERT)))
+                .thenReturn(new BulkIngestResultDTO(2, 0, 1, 1, List.of("Row 3: timestamp must not be null")));
+
+        mockMvc.perform(post("/api/v1/flexibility/reservations/bulk")
+                        .contentType("text/csv")
+                        .content("assetId,marketId\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0]").value("Row 3: timestamp must not be null"));
+    }
+
+    @Test
+    void importReservations_shouldRejectUnsupportedContentType() throws Exception {
+        mockMvc.perform(post("/api/v1/flexibility/reservations/bulk")
+                        .contentType("application/xml")
+                        .content("<reservations/>"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(ingestService);
+    }
+
+    @Test
+    void importReservations_shouldPassUpsertMode() throws Exception {
+        when(ingestService.ingest(any(), eq(ImportFormat.JSON), eq(ImportMode.UPSERT)))
+                .thenReturn(new BulkIngestResultDTO(1, 1, 1, 0, List.of()));
+
+        mockMvc.perform(post("/api/v1/flexibility/reservations/bulk")
+                        .param("mode", "upsert")
+                        .contentType(ImportFormat.APPLICATION_NDJSON_VALUE)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stale").value(1));
+    }
 }
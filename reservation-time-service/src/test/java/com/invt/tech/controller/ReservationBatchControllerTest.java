@@ -0,0 +1,143 @@
+package com.invt.tech.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.handler.GlobalExceptionHandler;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.service.FlexibilityReservationService;
+import com.invt.tech.service.ReservationExportServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ReservationBatchControllerTest {
+
+    private MockMvc mockMvc;
+    private FlexibilityReservationService service;
+
+    private final UUID firstAsset = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID secondAsset = UUID.fromString("11111111-2222-3333-4444-555555555555");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() {
+        service = mock(FlexibilityReservationService.class);
+        ExportMetrics exportMetrics = new ExportMetrics(new SimpleMeterRegistry());
+        ReservationBatchController controller = new ReservationBatchController(
+                new ReservationExportServiceImpl(service, exportMetrics, new MockEnvironment(), 2, 2, 2, 16, 1, Duration.ofDays(7), 0), new ObjectMapper(), exportMetrics);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getBatchReservations_shouldGroupJsonByAssetAndMarket() throws Exception {
+        answerWith(false, row(firstAsset, "2022-10-10T00:00:00Z"), row(firstAsset, "2022-10-10T00:15:00Z"),
+                row(secondAsset, "2022-10-10T00:00:00Z"));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/flexibility/reservations/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(query(false, "json")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].assetId").value(firstAsset.toString()))
+                .andExpect(jsonPath("$[0].marketId").value(marketId.toString()))
+                .andExpect(jsonPath("$[0].reservations.length()").value(2))
+                .andExpect(jsonPath("$[1].assetId").value(secondAsset.toString()))
+                .andExpect(jsonPath("$[1].reservations.length()").value(1));
+    }
+
+    @Test
+    void getBatchReservations_shouldExportPortfolioTotalsAsCsv() throws Exception {
+        answerWith(true, new FlexibilityReservationDTO(marketId, Timestamp.from(Instant.parse("2022-10-10T00:00:00Z")),
+                new BigDecimal("3000.000"), new BigDecimal("1000.000")));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/flexibility/reservations/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(query(true, "csv")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(containsString(
+                        ",\"\",\"" + marketId + "\",\"3.000\",\"1.000\"")));
+    }
+
+    @Test
+    void getBatchReservations_shouldReturnNotFoundBeforeStreaming() throws Exception {
+        doThrow(new EntityNotFoundException("No reservations found")).when(service)
+                .streamBatchReservations(any(), any(), any(), any(), eq(false), any(), any());
+
+        mockMvc.perform(post("/api/v1/flexibility/reservations/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(query(false, null)))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getBatchReservations_shouldRejectMissingIds() throws Exception {
+        mockMvc.perform(post("/api/v1/flexibility/reservations/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"marketIds\":[\"" + marketId + "\"],\"from\":\"2022-10-10T00:00:00Z\",\"to\":\"2022-10-11T00:00:00Z\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void answerWith(boolean total, FlexibilityReservationDTO... rows) {
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(rows).iterator());
+            return null;
+        }).when(service).streamBatchReservations(eq(Set.of(firstAsset, secondAsset)), eq(Set.of(marketId)), any(), any(),
+                eq(total), eq(RollupResolution.INTERVAL), any());
+    }
+
+    private String query(boolean total, String format) {
+        return "{\"assetIds\":[\"" + firstAsset + "\",\"" + secondAsset + "\"],"
+                + "\"marketIds\":[\"" + marketId + "\"],"
+                + "\"from\":\"2022-10-10T00:00:00Z\",\"to\":\"2022-10-11T00:00:00Z\","
+                + "\"total\":" + total
+                + (format == null ? "" : ",\"format\":\"" + format + "\"") + "}";
+    }
+
+    private FlexibilityReservationDTO row(UUID assetId, String timestamp) {
+        return new FlexibilityReservationDTO(assetId, marketId, Timestamp.from(Instant.parse(timestamp)),
+                new BigDecimal("100.000"), new BigDecimal("10.000"));
+    }
+}
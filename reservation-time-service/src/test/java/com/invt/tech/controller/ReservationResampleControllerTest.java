@@ -0,0 +1,103 @@
+package com.invt.tech.controller;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.handler.GlobalExceptionHandler;
+import com.invt.tech.service.ReservationResampleService;
+import com.invt.tech.util.ResampleResolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ReservationResampleControllerTest {
+
+    private MockMvc mockMvc;
+    private ReservationResampleService service;
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() {
+        service = mock(ReservationResampleService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReservationResampleController(service))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        ReservationBucketDTO bucket = ReservationBucketDTO.builder()
+                .bucketStart(OffsetDateTime.parse("2024-03-31T00:00+01:00"))
+                .assetId(assetId)
+                .marketId(marketId)
+                .intervals(92)
+                .reservations(92)
+                .positiveSum(new BigDecimal("18400.000"))
+                .positiveAvg(new BigDecimal("200.000"))
+                .positiveCapacityPrice(new BigDecimal("1.500000"))
+                .build();
+        when(service.getBuckets(eq(assetId), eq(marketId), any(), any(), eq(ResampleResolution.DAY), eq(ZoneId.of("Europe/Berlin"))))
+                .thenReturn(List.of(bucket));
+        doAnswer(invocation -> {
+            Consumer<Iterator<ReservationBucketDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(bucket).iterator());
+            return null;
+        }).when(service).streamBuckets(eq(assetId), eq(marketId), any(), any(), eq(ResampleResolution.DAY),
+                eq(ZoneId.of("Europe/Berlin")), any());
+    }
+
+    @Test
+    void getResampledReservations_shouldReturnBuckets() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/resample", assetId, marketId)
+                        .param("from", "2024-03-30T00:00:00Z")
+                        .param("to", "2024-04-02T00:00:00Z")
+                        .param("resolution", "P1D")
+                        .param("zone", "Europe/Berlin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].intervals").value(92))
+                .andExpect(jsonPath("$[0].positiveAvg").value(200.0));
+    }
+
+    @Test
+    void exportResampledReservations_shouldWriteCsvInMegawatts() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/resample/export", assetId, marketId)
+                        .param("from", "2024-03-30T00:00:00Z")
+                        .param("to", "2024-04-02T00:00:00Z")
+                        .param("zone", "Europe/Berlin"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(containsString(
+                        "\"2024-03-31T00:00+01:00\",\"" + assetId + "\",\"" + marketId + "\",\"92\",\"92\",\"18.400\",\"0.200\",\"\"")));
+    }
+
+    @Test
+    void getResampledReservations_shouldRejectUnknownZoneAndResolution() throws Exception {
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/resample", assetId, marketId)
+                        .param("from", "2024-03-30T00:00:00Z")
+                        .param("to", "2024-04-02T00:00:00Z")
+                        .param("zone", "Mars/Olympus"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/flexibility/reservations/{assetId}/market/{marketId}/resample", assetId, marketId)
+                        .param("from", "2024-03-30T00:00:00Z")
+                        .param("to", "2024-04-02T00:00:00Z")
+                        .param("resolution", "PT7M"))
+                .andExpect(status().isBadRequest());
+    }
+}
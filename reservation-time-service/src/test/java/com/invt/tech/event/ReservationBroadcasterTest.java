@@ -0,0 +1,181 @@
+package com.invt.tech.event;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReservationBroadcasterTest {
+
+    private final UUID assetId = UUID.randomUUID();
+    private final UUID marketId = UUID.randomUUID();
+
+    @Test
+    void onReservationsChanged_shouldCoalesceRowsWhileASubscriberIsSlow() throws Exception {
+        ReservationBroadcaster broadcaster = broadcaster(2, 10);
+        RecordingEmitter emitter = new RecordingEmitter();
+        RecordingEmitter otherMarket = new RecordingEmitter();
+        broadcaster.subscribe(assetId, marketId, emitter);
+        broadcaster.subscribe(assetId, UUID.randomUUID(), otherMarket);
+
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:00:00Z", 1)));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:15:00Z", 2)));
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:15:00Z", 3), reservation("2024-01-01T00:30:00Z", 4)));
+        emitter.release.countDown();
+
+        assertThat(emitter.next()).contains("event:reservations").contains("[1]");
+        assertThat(emitter.next()).contains("event:reservations").contains("[3, 4]");
+        assertThat(otherMarket.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void onReservationsChanged_shouldSendResyncWhenTooManyRowsArePending() throws Exception {
+        ReservationBroadcaster broadcaster = broadcaster(1, 2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(assetId, marketId, emitter);
+
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:00:00Z", 1)));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:15:00Z", 2),
+                reservation("2024-01-01T00:30:00Z", 3), reservation("2024-01-01T00:45:00Z", 4)));
+        emitter.release.countDown();
+
+        assertThat(emitter.next()).contains("event:reservations");
+        assertThat(emitter.next()).contains("event:resync");
+    }
+
+    @Test
+    void subscribe_shouldRejectSubscriptionsAboveTheLimitUntilOneIsClosed() throws Exception {
+        ReservationBroadcaster broadcaster = broadcaster(1, 10);
+        RecordingEmitter failing = new RecordingEmitter();
+        failing.failure = new IOException("Broken pipe");
+        failing.release.countDown();
+        broadcaster.subscribe(assetId, marketId, failing);
+
+        assertThatThrownBy(() -> broadcaster.subscribe(assetId, marketId, new RecordingEmitter()))
+                .isInstanceOf(TaskRejectedException.class);
+
+        broadcaster.heartbeat();
+        assertThat(failing.next()).contains(":heartbeat");
+        RecordingEmitter next = new RecordingEmitter();
+        next.release.countDown();
+        awaitSubscribed(broadcaster, next);
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:00:00Z", 5)));
+        assertThat(next.next()).contains("[5]");
+    }
+
+    @Test
+    void onReservationsChanged_shouldKeepRowsPendingWhileAllSendersAreBusy() throws Exception {
+        ReservationBroadcaster broadcaster = broadcaster(2, 10, 1);
+        RecordingEmitter slow = new RecordingEmitter();
+        RecordingEmitter waiting = new RecordingEmitter();
+        waiting.release.countDown();
+        broadcaster.subscribe(assetId, marketId, slow);
+
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:00:00Z", 1)));
+        assertThat(slow.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        broadcaster.subscribe(assetId, marketId, waiting);
+        broadcaster.onReservationsChanged(changed(reservation("2024-01-01T00:15:00Z", 2)));
+        assertThat(waiting.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        slow.release.countDown();
+
+        // Heartbeats schedule the waiting subscriber again until the slow one has freed the sender
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String event;
+        do {
+            broadcaster.heartbeat();
+            event = waiting.events.poll(50, TimeUnit.MILLISECONDS);
+        } while (event == null && System.nanoTime() < deadline);
+        assertThat(event).contains("event:reservations").contains("[2]");
+    }
+
+    private void awaitSubscribed(ReservationBroadcaster broadcaster, SseEmitter emitter) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                broadcaster.subscribe(assetId, marketId, emitter);
+                return;
+            } catch (TaskRejectedException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static ReservationBroadcaster broadcaster(int maxSubscribers, int maxPending) {
+        return broadcaster(maxSubscribers, maxPending, 10);
+    }
+
+    private static ReservationBroadcaster broadcaster(int maxSubscribers, int maxPending, int maxSenders) {
+        return new ReservationBroadcaster(new MockEnvironment(), new SimpleMeterRegistry(), maxSubscribers, maxPending,
+                maxSenders, Duration.ofMinutes(1));
+    }
+
+    private ReservationsChangedEvent changed(FlexibilityReservationDTO... reservations) {
+        Timestamp timestamp = reservations[0].getTimestamp();
+        return new ReservationsChangedEvent(assetId, marketId, timestamp, timestamp, List.of(reservations));
+    }
+
+    private FlexibilityReservationDTO reservation(String timestamp, int positiveValue) {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        dto.setAssetId(assetId);
+        dto.setMarketId(marketId);
+        dto.setTimestamp(Timestamp.from(Instant.parse(timestamp)));
+        dto.setPositiveValue(BigDecimal.valueOf(positiveValue));
+        dto.setNegativeValue(BigDecimal.ZERO);
+        return dto;
+    }
+
+    // Records sent events as text, with each reservation written as its positive value; blocks the first send until released
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile IOException failure;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> event.append(part.getData() instanceof List<?> rows
+                    ? rows.stream().map(row -> ((FlexibilityReservationDTO) row).getPositiveValue().intValue()).toList()
+                    : part.getData()));
+            events.add(event.toString());
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertThat(event).isNotNull();
+            return event;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.invt.tech.metrics;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExportMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExportMetrics exportMetrics = new ExportMetrics(registry);
+
+    @Test
+    void record_shouldPublishRowsBytesAndTimesOfTheExport() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.EXPORT, true, "csv");
+
+        recording.record(() -> {
+            Iterator<FlexibilityReservationDTO> rows = recording.count(
+                    List.of(new FlexibilityReservationDTO(), new FlexibilityReservationDTO()).iterator());
+            HttpServletResponse counted = recording.count(response);
+            while (rows.hasNext()) {
+                rows.next();
+                counted.getOutputStream().write("row\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        assertThat(response.getContentAsString()).isEqualTo("row\nrow\n");
+        assertThat(summary("reservation.export.rows").totalAmount()).isEqualTo(2);
+        assertThat(summary("reservation.export.bytes").totalAmount()).isEqualTo(8);
+        assertThat(registry.get("reservation.export.duration").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("reservation.export.time-to-first-byte").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void record_shouldPublishFailedExportsWithoutTimeToFirstByte() {
+        ExportMetrics.Recording recording = exportMetrics.start(ExportMetrics.BATCH, false, "json");
+
+        assertThrows(UncheckedIOException.class, () -> recording.record(() -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        }));
+
+        assertThat(registry.get("reservation.export.duration").tags("endpoint", "batch", "outcome", "failure").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.find("reservation.export.time-to-first-byte").timer()).isNull();
+    }
+
+    private DistributionSummary summary(String name) {
+        return registry.get(name).tags("endpoint", "export", "total", "true", "format", "csv", "outcome", "success").summary();
+    }
+}
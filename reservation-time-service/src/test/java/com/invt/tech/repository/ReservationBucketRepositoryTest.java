@@ -0,0 +1,128 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.invt.tech.util.ResampleResolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest
+@Import(ReservationBucketRepository.class)
+public class ReservationBucketRepositoryTest {
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservationBucketRepository repository;
+
+    private final UUID assetId = UUID.randomUUID();
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() {
+        // 2024-03-31 is the spring DST change in Berlin: the day starts at 23:00 UTC and lasts 23 hours
+        insert("2024-03-30T22:45:00Z", "100", "10", "2.000000");
+        insert("2024-03-30T22:45:00Z", "300", "30", "4.000000");
+        insert("2024-03-30T23:00:00Z", "200", "20", null);
+        insert("2024-03-31T21:45:00Z", "600", "60", "1.000000");
+        insert("2024-03-31T22:00:00Z", "50", "5", "3.000000");
+    }
+
+    @Test
+    void findBuckets_shouldAggregateLocalDays() {
+        List<ReservationBucketDTO> buckets = repository.findBuckets(assetId, marketId,
+                Timestamp.from(Instant.parse("2024-03-30T00:00:00Z")), Timestamp.from(Instant.parse("2024-04-02T00:00:00Z")),
+                ResampleResolution.DAY, BERLIN);
+
+        assertThat(buckets).extracting(ReservationBucketDTO::getBucketStart).containsExactly(
+                OffsetDateTime.parse("2024-03-30T00:00+01:00"),
+                OffsetDateTime.parse("2024-03-31T00:00+01:00"),
+                OffsetDateTime.parse("2024-04-01T00:00+02:00"));
+
+        ReservationBucketDTO first = buckets.get(0);
+        assertThat(first.getIntervals()).isEqualTo(1);
+        assertThat(first.getReservations()).isEqualTo(2);
+        assertThat(first.getPositiveSum()).isEqualByComparingTo("400");
+        // (100 * 2 + 300 * 4) / 400
+        assertThat(first.getPositiveCapacityPrice()).isEqualByComparingTo("3.5");
+
+        ReservationBucketDTO dstDay = buckets.get(1);
+        assertThat(dstDay.getIntervals()).isEqualTo(2);
+        assertThat(dstDay.getPositiveSum()).isEqualByComparingTo("800");
+        assertThat(dstDay.getPositiveAvg()).isEqualByComparingTo("400");
+        assertThat(dstDay.getPositiveMin()).isEqualByComparingTo("200");
+        assertThat(dstDay.getPositiveMax()).isEqualByComparingTo("600");
+        assertThat(dstDay.getNegativeMax()).isEqualByComparingTo("60");
+        // Reservations without price do not weigh in
+        assertThat(dstDay.getPositiveCapacityPrice()).isEqualByComparingTo("1");
+    }
+
+    @Test
+    void findBuckets_shouldAggregateUtcMonths() {
+        List<ReservationBucketDTO> buckets = repository.findBuckets(assetId, marketId,
+                Timestamp.from(Instant.parse("2024-03-01T00:00:00Z")), Timestamp.from(Instant.parse("2024-05-01T00:00:00Z")),
+                ResampleResolution.MONTH, ZoneId.of("UTC"));
+
+        assertThat(buckets).hasSize(1);
+        assertThat(buckets.get(0).getBucketStart()).isEqualTo(OffsetDateTime.parse("2024-03-01T00:00Z"));
+        assertThat(buckets.get(0).getIntervals()).isEqualTo(4);
+        assertThat(buckets.get(0).getReservations()).isEqualTo(5);
+        assertThat(buckets.get(0).getPositiveSum()).isEqualByComparingTo("1250");
+    }
+
+    @Test
+    void findBuckets_shouldKeepTheRepeatedLocalHourApartWhenClocksAreSetBack() {
+        // 2024-10-27 is the autumn DST change in Berlin: 02:00 to 03:00 local time occurs at +02:00 and again at +01:00
+        insert("2024-10-27T00:15:00Z", "10", "1", null);
+        insert("2024-10-27T00:45:00Z", "20", "2", null);
+        insert("2024-10-27T01:15:00Z", "40", "4", null);
+        insert("2024-10-27T02:00:00Z", "80", "8", null);
+
+        List<ReservationBucketDTO> buckets = repository.findBuckets(assetId, marketId,
+                Timestamp.from(Instant.parse("2024-10-26T22:00:00Z")), Timestamp.from(Instant.parse("2024-10-27T23:00:00Z")),
+                ResampleResolution.HOUR, BERLIN);
+
+        assertThat(buckets).extracting(ReservationBucketDTO::getBucketStart, b -> b.getPositiveSum().intValue()).containsExactly(
+                tuple(OffsetDateTime.parse("2024-10-27T02:00+02:00"), 30),
+                tuple(OffsetDateTime.parse("2024-10-27T02:00+01:00"), 40),
+                tuple(OffsetDateTime.parse("2024-10-27T03:00+01:00"), 80));
+    }
+
+    @Test
+    void streamBuckets_shouldReadTheSameBucketsAsFind() {
+        Timestamp from = Timestamp.from(Instant.parse("2024-03-30T00:00:00Z"));
+        Timestamp to = Timestamp.from(Instant.parse("2024-04-02T00:00:00Z"));
+
+        try (Stream<ReservationBucketDTO> buckets = repository.streamBuckets(assetId, marketId, from, to,
+                ResampleResolution.DAY, BERLIN)) {
+            assertThat(buckets.toList()).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyElementsOf(repository.findBuckets(assetId, marketId, from, to, ResampleResolution.DAY, BERLIN));
+        }
+    }
+
+    // Each reservation has a bid of its own, so several of them can share a timestamp
+    private void insert(String timestamp, String positiveValue, String negativeValue, String capacityPrice) {
+        jdbcTemplate.update("INSERT INTO flexibility_reservations (asset_id, market_id, positive_bid_id, positive_value, "
+                        + "positive_capacity_price, negative_value, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                assetId, marketId, UUID.randomUUID(), new BigDecimal(positiveValue), capacityPrice == null ? null : new BigDecimal(capacityPrice),
+                new BigDecimal(negativeValue), Timestamp.from(Instant.parse(timestamp)));
+    }
+}
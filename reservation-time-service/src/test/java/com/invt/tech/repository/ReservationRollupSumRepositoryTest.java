@@ -0,0 +1,132 @@
+package com.invt.tech.repository;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import(ReservationRollupSumRepository.class)
+public class ReservationRollupSumRepositoryTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2023-03-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2023-03-02T23:59:59Z"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservationRollupSumRepository repository;
+
+    private final UUID assetId = UUID.randomUUID();
+    private final UUID otherAssetId = UUID.randomUUID();
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() {
+        // 2023-03-01 is compacted; its raw reservations are left out, so only its rollups can account for it
+        insertRollup(assetId, "INTERVAL", "2023-03-01T10:00:00Z", "150.500", "15.000");
+        insertRollup(assetId, "HOUR", "2023-03-01T10:00:00Z", "150.500", "15.000");
+        insertRollup(assetId, "DAY", "2023-03-01T00:00:00Z", "150.500", "15.000");
+
+        // 2023-03-02 changed after its last compaction: its rollups are outdated
+        insertRollup(assetId, "INTERVAL", "2023-03-02T10:00:00Z", "999.000", "99.000");
+        insertRollup(assetId, "DAY", "2023-03-02T00:00:00Z", "999.000", "99.000");
+        insert(assetId, "2023-03-02T10:00:00Z", "150.000", "15.000");
+        insert(assetId, "2023-03-02T10:00:00Z", "50.000", "5.000");
+        insert(assetId, "2023-03-02T10:15:00Z", "50.000", "5.000");
+        queue(assetId, "2023-03-02T00:00:00Z");
+
+        insert(otherAssetId, "2023-03-02T10:00:00Z", "1.000", "0.500");
+        queue(otherAssetId, "2023-03-02T00:00:00Z");
+    }
+
+    @Test
+    void findSums_shouldSumTheRawReservationsOfQueuedDays() {
+        assertThat(sums(repository.findSums(assetId, marketId, RollupResolution.INTERVAL, FROM, TO))).containsExactly(
+                "2023-03-01T10:00:00Z 150.500 15.000",
+                "2023-03-02T10:00:00Z 200.000 20.000",
+                "2023-03-02T10:15:00Z 50.000 5.000");
+        assertThat(sums(repository.findSums(assetId, marketId, RollupResolution.HOUR, FROM, TO))).containsExactly(
+                "2023-03-01T10:00:00Z 150.500 15.000",
+                "2023-03-02T10:00:00Z 250.000 25.000");
+        assertThat(sums(repository.findSums(assetId, marketId, RollupResolution.DAY, FROM, TO))).containsExactly(
+                "2023-03-01T00:00:00Z 150.500 15.000",
+                "2023-03-02T00:00:00Z 250.000 25.000");
+    }
+
+    @Test
+    void findSums_shouldOnlyReadBucketsStartingWithinTheInterval() {
+        Timestamp from = Timestamp.from(Instant.parse("2023-03-02T10:15:00Z"));
+
+        assertThat(sums(repository.findSums(assetId, marketId, RollupResolution.INTERVAL, from, TO)))
+                .containsExactly("2023-03-02T10:15:00Z 50.000 5.000");
+        assertThat(sums(repository.findSums(assetId, marketId, RollupResolution.INTERVAL, FROM, from)))
+                .containsExactly("2023-03-01T10:00:00Z 150.500 15.000", "2023-03-02T10:00:00Z 200.000 20.000",
+                        "2023-03-02T10:15:00Z 50.000 5.000");
+    }
+
+    @Test
+    void streamPortfolioSums_shouldSumAllAssets() {
+        try (Stream<FlexibilityReservationDTO> sums = repository.streamPortfolioSums(List.of(assetId, otherAssetId), marketId,
+                RollupResolution.INTERVAL, FROM, TO)) {
+            assertThat(sums(sums.toList())).containsExactly(
+                    "2023-03-01T10:00:00Z 150.500 15.000",
+                    "2023-03-02T10:00:00Z 201.000 20.500",
+                    "2023-03-02T10:15:00Z 50.000 5.000");
+        }
+    }
+
+    @Test
+    void streamSums_shouldLeaveTheQueueUntouched() {
+        try (Stream<FlexibilityReservationDTO> sums = repository.streamSums(assetId, marketId, RollupResolution.DAY, FROM, TO)) {
+            assertThat(sums).hasSize(2);
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flexibility_reservation_rollup_dirty_days " +
+                "WHERE asset_id = ? AND version = 0", Integer.class, assetId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT positive_value FROM flexibility_reservation_rollups " +
+                "WHERE asset_id = ? AND resolution = 'DAY' AND bucket_start = ?", BigDecimal.class,
+                assetId, Timestamp.from(Instant.parse("2023-03-02T00:00:00Z")))).isEqualByComparingTo("999");
+    }
+
+    // Each reservation has a bid of its own, so several of them can share a timestamp
+    private void insert(UUID asset, String timestamp, String positiveValue, String negativeValue) {
+        jdbcTemplate.update("INSERT INTO flexibility_reservations " +
+                        "(asset_id, market_id, positive_bid_id, positive_value, negative_value, timestamp) VALUES (?, ?, ?, ?, ?, ?)",
+                asset, marketId, UUID.randomUUID(), new BigDecimal(positiveValue), new BigDecimal(negativeValue),
+                Timestamp.from(Instant.parse(timestamp)));
+    }
+
+    private void insertRollup(UUID asset, String resolution, String bucketStart, String positiveValue, String negativeValue) {
+        jdbcTemplate.update("INSERT INTO flexibility_reservation_rollups " +
+                        "(asset_id, market_id, resolution, bucket_start, positive_value, negative_value, reservation_count) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, 1)",
+                asset, marketId, resolution, Timestamp.from(Instant.parse(bucketStart)),
+                new BigDecimal(positiveValue), new BigDecimal(negativeValue));
+    }
+
+    private void queue(UUID asset, String dayStart) {
+        jdbcTemplate.update("INSERT INTO flexibility_reservation_rollup_dirty_days (asset_id, market_id, day_start, version) " +
+                "VALUES (?, ?, ?, 0)", asset, marketId, Timestamp.from(Instant.parse(dayStart)));
+    }
+
+    private static List<String> sums(List<FlexibilityReservationDTO> rows) {
+        return rows.stream()
+                .map(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue() + " " + r.getNegativeValue())
+                .toList();
+    }
+}
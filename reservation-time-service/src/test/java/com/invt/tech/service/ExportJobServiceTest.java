@@ -0,0 +1,152 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.ExportJobDTO;
+import com.invt.tech.dto.ExportJobFile;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.event.ReservationsChangedEvent;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.util.ExportFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+public class ExportJobServiceTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2023-01-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2023-01-03T00:00:00Z"));
+
+    @TempDir
+    Path directory;
+
+    private FlexibilityReservationService reservationService;
+    private ExportJobServiceImpl exportJobService;
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reservationService = mock(FlexibilityReservationService.class);
+        exportJobService = new ExportJobServiceImpl(reservationService, new ExportMetrics(new SimpleMeterRegistry()), directory, 1, 10, Duration.ofHours(1));
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(
+                    reservation("2023-01-01T00:00:00Z"),
+                    reservation("2023-01-02T00:00:00Z")).iterator());
+            return null;
+        }).when(reservationService).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.destroy();
+    }
+
+    @Test
+    void submit_shouldWriteFileAndReportProgress() throws Exception {
+        ExportJobDTO submitted = exportJobService.submit(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL, ExportFormat.CSV_GZ);
+
+        ExportJobDTO done = awaitFinished(submitted.getId());
+        assertThat(done.getStatus()).isEqualTo(ExportJobDTO.Status.DONE);
+        assertThat(done.getRowsWritten()).isEqualTo(2);
+        assertThat(done.getProgress()).isEqualTo(1.0);
+
+        ExportJobFile file = exportJobService.getFile(submitted.getId());
+        assertThat(file.path().getFileName().toString()).isEqualTo(submitted.getId() + ".csv.gz");
+        assertThat(Files.size(file.path())).isEqualTo(done.getBytesWritten());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.path()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()).hasSize(3);
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(file.path());
+        }
+    }
+
+    @Test
+    void submit_shouldReuseJobOfIdenticalExport() throws Exception {
+        ExportJobDTO first = exportJobService.submit(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL, ExportFormat.CSV);
+        awaitFinished(first.getId());
+
+        ExportJobDTO second = exportJobService.submit(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL, ExportFormat.CSV);
+        ExportJobDTO otherFormat = exportJobService.submit(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL, ExportFormat.PARQUET);
+        awaitFinished(otherFormat.getId());
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(second.getStatus()).isEqualTo(ExportJobDTO.Status.DONE);
+        assertThat(otherFormat.getId()).isNotEqualTo(first.getId());
+        verify(reservationService, times(2)).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void onReservationsChanged_shouldDropOverlappingJobsAndFiles() throws Exception {
+        ExportJobDTO job = exportJobService.submit(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL, ExportFormat.CSV);
+        awaitFinished(job.getId());
+        Path file = exportJobService.getFile(job.getId()).path();
+
+        exportJobService.onReservationsChanged(new ReservationsChangedEvent(assetId, marketId,
+                Timestamp.from(Instant.parse("2023-02-01T00:00:00Z")), Timestamp.from(Instant.parse("2023-02-02T00:00:00Z"))));
+        assertThat(exportJobService.getJob(job.getId()).getStatus()).isEqualTo(ExportJobDTO.Status.DONE);
+
+        exportJobService.onReservationsChanged(new ReservationsChangedEvent(assetId, marketId,
+                Timestamp.from(Instant.parse("2023-01-02T12:00:00Z")), Timestamp.from(Instant.parse("2023-01-02T12:00:00Z"))));
+        assertThatThrownBy(() -> exportJobService.getJob(job.getId())).isInstanceOf(EntityNotFoundException.class);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void submit_shouldReportFailedQuery() throws Exception {
+        doThrow(new EntityNotFoundException("No reservations found")).when(reservationService)
+                .streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        ExportJobDTO job = exportJobService.submit(assetId, marketId, FROM, TO, true, RollupResolution.DAY, ExportFormat.ARROW);
+
+        ExportJobDTO failed = awaitFinished(job.getId());
+        assertThat(failed.getStatus()).isEqualTo(ExportJobDTO.Status.FAILED);
+        assertThat(failed.getError()).isEqualTo("No reservations found");
+        assertThatThrownBy(() -> exportJobService.getFile(job.getId())).isInstanceOf(EntityNotFoundException.class);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private ExportJobDTO awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ExportJobDTO job = exportJobService.getJob(jobId);
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Export job " + jobId + " did not finish");
+    }
+
+    private FlexibilityReservationDTO reservation(String timestamp) {
+        return new FlexibilityReservationDTO(assetId, marketId, Timestamp.from(Instant.parse(timestamp)),
+                new BigDecimal("100.000"), new BigDecimal("10.000"));
+    }
+}
@@ -0,0 +1,248 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationVersion;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.FlexibilityReservationRollupRepository;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Own database, as the seed data cannot be loaded twice into the one shared by the default test context
+@SpringBootTest(properties = {"reservation.ingest.batch-size=2", "spring.datasource.url=jdbc:h2:mem:ingestdb"})
+public class FlexibilityReservationIngestServiceTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2023-04-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2023-04-02T23:59:59Z"));
+
+    @Autowired
+    private FlexibilityReservationIngestService ingestService;
+
+    @Autowired
+    private FlexibilityReservationRepository reservationRepository;
+
+    @Autowired
+    private FlexibilityReservationRollupRepository rollupRepository;
+
+    @Autowired
+    private ReservationRollupService rollupService;
+
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @Test
+    void ingest_shouldStoreJsonArrayInBatchesAndQueueRollups() {
+        UUID assetId = UUID.randomUUID();
+        String json = "[" + reservation(assetId, "2023-04-01T10:00:00Z", 100) + ","
+                + reservation(assetId, "2023-04-01T10:15:00Z", 50) + ","
+                + reservation(assetId, "2023-04-02T10:00:00Z", 25) + "]";
+
+        BulkIngestResultDTO result = ingestService.ingest(upload(json), ImportFormat.JSON, ImportMode.INSERT);
+
+        assertThat(result.getAccepted()).isEqualTo(3);
+        assertThat(result.getRejected()).isZero();
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(reservationRepository.findReservations(assetId, marketId)).hasSize(3);
+        assertThat(reservationRepository.findFilteredReservations(assetId, marketId, FROM, TO))
+                .extracting(FlexibilityReservationDTO::getAssetId, r -> r.getPositiveValue().intValue())
+                .containsExactlyInAnyOrder(tuple(assetId, 100), tuple(assetId, 50), tuple(assetId, 25));
+        assertThat(rollupService.compact(assetId, marketId, FROM, TO)).isEqualTo(2);
+        assertThat(rollupRepository.findRollupSums(assetId, marketId, RollupResolution.DAY, FROM, TO))
+                .extracting(r -> r.getPositiveValue().intValue())
+                .containsExactly(150, 25);
+    }
+
+    @Test
+    void ingest_shouldSkipAndReportInvalidNdjsonRows() {
+        UUID assetId = UUID.randomUUID();
+        String ndjson = reservation(assetId, "2023-04-01T10:00:00Z", 100) + "\n"
+                + reservation(assetId, "2023-04-01T10:15:00Z", -5) + "\n"
+                + "{\"assetId\":\"" + assetId + "\",\"marketId\":\"" + marketId + "\",\"positiveValue\":1,\"negativeValue\":1}\n";
+
+        BulkIngestResultDTO result = ingestService.ingest(upload(ndjson), ImportFormat.JSON, ImportMode.INSERT);
+
+        assertThat(result.getAccepted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getErrors()).containsExactly(
+                "Row 2: positiveValue must be zero or positive",
+                "Row 3: timestamp must not be null");
+        assertThat(reservationRepository.findReservations(assetId, marketId)).hasSize(1);
+    }
+
+    @Test
+    void ingest_shouldReadCsvByHeaderName() {
+        UUID assetId = UUID.randomUUID();
+        String csv = "timestamp,marketId,assetId,positiveValue,negativeValue,positiveCapacityPrice\n"
+                + "2023-04-01T10:00:00Z," + marketId + "," + assetId + ",100.5,10,1.25\n"
+                + "\"2023-04-01T10:15:00Z\",\"" + marketId + "\",\"" + assetId + "\",\"20\",\"2\",\n";
+
+        BulkIngestResultDTO result = ingestService.ingest(upload(csv), ImportFormat.CSV, ImportMode.INSERT);
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        List<FlexibilityReservationDTO> stored = reservationRepository.findReservations(assetId, marketId);
+        assertThat(stored).extracting(r -> r.getTimestamp().toInstant())
+                .containsExactlyInAnyOrder(Instant.parse("2023-04-01T10:00:00Z"), Instant.parse("2023-04-01T10:15:00Z"));
+        assertThat(stored).extracting(r -> r.getPositiveValue().toPlainString())
+                .containsExactlyInAnyOrder("100.500", "20.000");
+    }
+
+    @Test
+    void ingest_shouldKeepCommittedBatchesWhenUploadIsMalformed() {
+        UUID assetId = UUID.randomUUID();
+        String json = "[" + reservation(assetId, "2023-04-01T10:00:00Z", 100) + ","
+                + reservation(assetId, "2023-04-01T10:15:00Z", 50) + ","
+                + "{\"assetId\": \"not-a-uuid\"}]";
+
+        assertThatThrownBy(() -> ingestService.ingest(upload(json), ImportFormat.JSON, ImportMode.INSERT))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Malformed JSON upload")
+                .hasMessageEndingWith("(2 reservations were stored before)");
+        assertThat(reservationRepository.findReservations(assetId, marketId)).hasSize(2);
+    }
+
+    @Test
+    void ingest_shouldRejectBatchesInsertingAStoredReservation() {
+        UUID assetId = UUID.randomUUID();
+        ingestService.ingest(upload(reservation(assetId, "2023-04-01T10:00:00Z", 100)), ImportFormat.JSON, ImportMode.INSERT);
+
+        assertThatThrownBy(() -> ingestService.ingest(upload(reservation(assetId, "2023-04-01T10:00:00Z", 50)),
+                ImportFormat.JSON, ImportMode.INSERT))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Batch ending at row 1 contains a reservation that is already stored");
+        assertThat(reservationRepository.findFilteredReservations(assetId, marketId, FROM, TO))
+                .extracting(r -> r.getPositiveValue().intValue())
+                .containsExactly(100);
+    }
+
+    @Test
+    void ingest_shouldReplaceOnlyOlderRevisionsWhenUpserting() {
+        UUID assetId = UUID.randomUUID();
+        UUID bidId = UUID.randomUUID();
+        String first = revision(assetId, null, "2023-04-01T10:00:00Z", 100, "2023-03-30T08:00:00Z") + "\n"
+                + revision(assetId, bidId, "2023-04-01T10:00:00Z", 10, "2023-03-30T08:00:00Z") + "\n"
+                + revision(assetId, null, "2023-04-01T10:15:00Z", 50, "2023-03-30T08:00:00Z") + "\n";
+        String second = revision(assetId, null, "2023-04-01T10:00:00Z", 120, "2023-03-31T08:00:00Z") + "\n"
+                + revision(assetId, bidId, "2023-04-01T10:00:00Z", 5, "2023-03-29T08:00:00Z") + "\n"
+                + revision(assetId, null, "2023-04-01T10:30:00Z", 30, "2023-03-31T08:00:00Z") + "\n";
+
+        ingestService.ingest(upload(first), ImportFormat.JSON, ImportMode.UPSERT);
+        BulkIngestResultDTO result = ingestService.ingest(upload(second), ImportFormat.JSON, ImportMode.UPSERT);
+        BulkIngestResultDTO resent = ingestService.ingest(upload(second), ImportFormat.JSON, ImportMode.UPSERT);
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        assertThat(result.getStale()).isEqualTo(1);
+        assertThat(resent.getAccepted()).isZero();
+        assertThat(resent.getStale()).isEqualTo(3);
+        assertThat(reservationRepository.findReservations(assetId, marketId)).hasSize(4);
+        rollupService.compact(assetId, marketId, FROM, TO);
+        assertThat(rollupRepository.findRollupSums(assetId, marketId, RollupResolution.INTERVAL, FROM, TO))
+                .extracting(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue().intValue())
+                .containsExactlyInAnyOrder(
+                        "2023-04-01T10:00:00Z 130",
+                        "2023-04-01T10:15:00Z 50",
+                        "2023-04-01T10:30:00Z 30");
+    }
+
+    @Test
+    void ingest_shouldChangeTheVersionOfTheTouchedInterval() {
+        UUID assetId = UUID.randomUUID();
+        UUID bidId = UUID.randomUUID();
+        Timestamp otherDay = Timestamp.from(Instant.parse("2023-04-02T00:00:00Z"));
+        ingestService.ingest(upload(revision(assetId, bidId, "2023-04-01T10:00:00Z", 10, "2023-05-01T00:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+        ReservationVersion inserted = reservationRepository.findVersionBetween(assetId, marketId, FROM, TO);
+        ReservationVersion otherDayBefore = reservationRepository.findVersionBetween(assetId, marketId, otherDay, TO);
+
+        ingestService.ingest(upload(revision(assetId, bidId, "2023-04-01T10:00:00Z", 20, "2023-05-02T00:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+
+        ReservationVersion revised = reservationRepository.findVersionBetween(assetId, marketId, FROM, TO);
+        assertThat(inserted.count()).isEqualTo(1);
+        assertThat(revised.count()).isEqualTo(1);
+        assertThat(revised.lastModified()).isAfter(inserted.lastModified());
+        assertThat(reservationRepository.findVersion(assetId, marketId).eTag()).isNotEqualTo(inserted.eTag());
+        assertThat(reservationRepository.findVersionBetween(assetId, marketId, otherDay, TO))
+                .isEqualTo(otherDayBefore)
+                .isEqualTo(new ReservationVersion(0, null));
+    }
+
+    @Test
+    void ingest_shouldChangeTheVersionOnlyWhenARevisionIsStored() {
+        UUID assetId = UUID.randomUUID();
+        UUID bidId = UUID.randomUUID();
+        ingestService.ingest(upload(revision(assetId, null, "2023-04-01T10:00:00Z", 10, "2023-05-02T00:00:00Z")
+                        + revision(assetId, bidId, "2023-04-01T10:00:00Z", 20, "2023-05-01T00:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+        ReservationVersion stored = reservationRepository.findVersion(assetId, marketId);
+
+        // Same updatedAt as the stored revision: a re-delivery, ignored as stale
+        BulkIngestResultDTO resent = ingestService.ingest(upload(revision(assetId, bidId, "2023-04-01T10:00:00Z", 30,
+                "2023-05-01T00:00:00Z")), ImportFormat.JSON, ImportMode.UPSERT);
+
+        assertThat(resent.getStale()).isEqualTo(1);
+        assertThat(reservationRepository.findVersion(assetId, marketId)).isEqualTo(stored);
+
+        // Newer than its stored revision, but older than the latest updatedAt of the asset and market
+        ingestService.ingest(upload(revision(assetId, bidId, "2023-04-01T10:00:00Z", 40, "2023-05-01T12:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+
+        assertThat(reservationRepository.findVersion(assetId, marketId).eTag()).isNotEqualTo(stored.eTag());
+        assertThat(reservationRepository.findReservations(assetId, marketId))
+                .extracting(r -> r.getPositiveValue().intValue())
+                .containsExactlyInAnyOrder(10, 40);
+    }
+
+    @Test
+    void ingest_shouldStampEveryStoredRevisionForTheChangeFeed() {
+        UUID assetId = UUID.randomUUID();
+        ingestService.ingest(upload(revision(assetId, null, "2023-04-01T10:00:00Z", 100, "2023-03-30T08:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+        List<FlexibilityReservationDTO> changes = changesAfter(assetId, Timestamp.from(Instant.EPOCH), 0);
+        assertThat(changes).singleElement().extracting(FlexibilityReservationDTO::getChangedAt).isNotNull();
+        FlexibilityReservationDTO seen = changes.get(0);
+
+        // Newer than the stored revision, but by an updatedAt long before the change feed position
+        ingestService.ingest(upload(revision(assetId, null, "2023-04-01T10:00:00Z", 120, "2023-03-31T08:00:00Z")),
+                ImportFormat.JSON, ImportMode.UPSERT);
+
+        assertThat(changesAfter(assetId, seen.getChangedAt(), seen.getId()))
+                .extracting(r -> r.getPositiveValue().intValue())
+                .containsExactly(120);
+    }
+
+    private List<FlexibilityReservationDTO> changesAfter(UUID assetId, Timestamp changedAt, long id) {
+        return reservationRepository.findChangesAfter(assetId, marketId, changedAt, id,
+                Timestamp.from(Instant.now().plusSeconds(60)), Limit.of(10));
+    }
+
+    private String revision(UUID assetId, UUID positiveBidId, String timestamp, int positiveValue, String updatedAt) {
+        return "{\"assetId\":\"" + assetId + "\",\"marketId\":\"" + marketId + "\","
+                + (positiveBidId == null ? "" : "\"positiveBidId\":\"" + positiveBidId + "\",")
+                + "\"positiveValue\":" + positiveValue + ",\"negativeValue\":0,"
+                + "\"timestamp\":\"" + timestamp + "\",\"updatedAt\":\"" + updatedAt + "\"}";
+    }
+
+    private String reservation(UUID assetId, String timestamp, int positiveValue) {
+        return "{\"assetId\":\"" + assetId + "\",\"marketId\":\"" + marketId + "\","
+                + "\"positiveValue\":" + positiveValue + ",\"negativeValue\":0,\"timestamp\":\"" + timestamp + "\"}";
+    }
+
+    private static ByteArrayInputStream upload(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
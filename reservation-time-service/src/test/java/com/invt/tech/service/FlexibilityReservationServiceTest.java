@@ -1,28 +1,43 @@
 package com.invt.tech.service;
 
+import com.invt.tech.cache.ReservationCache;
+import com.invt.tech.cache.ReservationHotWindow;
+import com.invt.tech.dto.FlexibilityReservationChangesDTO;
 import com.invt.tech.dto.FlexibilityReservationDTO;
-import com.invt.tech.entity.FlexibilityReservation;
-import com.invt.tech.mapper.FlexibilityReservationMapper;
+import com.invt.tech.dto.FlexibilityReservationPageDTO;
+import com.invt.tech.dto.ReservationCursor;
+import com.invt.tech.entity.RollupResolution;
 import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.ReservationArchiveRepository;
+import com.invt.tech.repository.ReservationRollupSumRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class FlexibilityReservationServiceTest {
 
     private FlexibilityReservationRepository repository;
-    private FlexibilityReservationMapper mapper;
+    private ReservationRollupSumRepository rollupSumRepository;
     private FlexibilityReservationServiceImpl service;
 
     private UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
@@ -31,21 +46,21 @@ public class FlexibilityReservationServiceTest {
     @BeforeEach
     void setUp() {
         repository = mock(FlexibilityReservationRepository.class);
-        mapper = mock(FlexibilityReservationMapper.class);
-        service = new FlexibilityReservationServiceImpl(repository, mapper);
+        rollupSumRepository = mock(ReservationRollupSumRepository.class);
+        service = new FlexibilityReservationServiceImpl(repository, rollupSumRepository,
+                new ReservationCache(1000, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                new ReservationHotWindow(repository, false, Duration.ofDays(2), Duration.ofDays(2), Duration.ofMinutes(1)),
+                mock(ReservationArchiveRepository.class), Duration.ofMinutes(1));
     }
 
     @Test
     void getFilteredOrAggregatedReservations_shouldReturnFilteredList() {
-        FlexibilityReservation reservation = new FlexibilityReservation();
-        when(repository.findFilteredReservations(any(), any(), any(), any()))
-                .thenReturn(List.of(reservation));
-
         FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
-        when(mapper.toDto(reservation)).thenReturn(dto);
+        when(repository.findFilteredReservations(any(), any(), any(), any()))
+                .thenReturn(List.of(dto));
 
         List<FlexibilityReservationDTO> result = service.getFilteredOrAggregatedReservations(
-                assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), false);
+                assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), false, RollupResolution.INTERVAL);
 
         assertThat(result).hasSize(1);
     }
@@ -53,25 +68,197 @@ public class FlexibilityReservationServiceTest {
     @Test
     void getFilteredOrAggregatedReservations_shouldReturnAggregatedList() {
         FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
-        when(repository.findAggregatedReservationSums(any(), any(), any(), any())).thenReturn(List.of(dto));
+        when(rollupSumRepository.findSums(any(), any(), eq(RollupResolution.INTERVAL), any(), any())).thenReturn(List.of(dto));
 
         List<FlexibilityReservationDTO> result = service.getFilteredOrAggregatedReservations(
-                assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), true);
+                assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), true, RollupResolution.INTERVAL);
 
         assertThat(result).hasSize(1);
     }
 
+    @Test
+    void getFilteredOrAggregatedReservations_shouldReadWholeBuckets() {
+        Timestamp from = Timestamp.from(Instant.parse("2022-10-10T14:15:22Z"));
+        Timestamp to = Timestamp.from(Instant.parse("2022-10-12T00:00:00Z"));
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        when(rollupSumRepository.findSums(assetId, marketId, RollupResolution.DAY,
+                Timestamp.from(Instant.parse("2022-10-10T00:00:00Z")), to)).thenReturn(List.of(dto));
+
+        List<FlexibilityReservationDTO> result = service.getFilteredOrAggregatedReservations(
+                assetId, marketId, from, to, true, RollupResolution.DAY);
+
+        assertThat(result).containsExactly(dto);
+    }
+
+    @Test
+    void getFilteredOrAggregatedReservations_shouldThrowForResolutionWithoutTotal() {
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getFilteredOrAggregatedReservations(assetId, marketId, Timestamp.from(Instant.now()),
+                        Timestamp.from(Instant.now().plusSeconds(3600)), false, RollupResolution.HOUR));
+    }
+
     @Test
     void getFilteredOrAggregatedReservations_shouldThrowForNullAsset() {
         assertThrows(IllegalArgumentException.class, () ->
-                service.getFilteredOrAggregatedReservations(null, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now()), true));
+                service.getFilteredOrAggregatedReservations(null, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now()), true, RollupResolution.INTERVAL));
     }
 
     @Test
     void getFilteredOrAggregatedReservations_shouldThrowForEmptyResult() {
-        when(repository.findAggregatedReservationSums(any(), any(), any(), any())).thenReturn(List.of());
+        when(rollupSumRepository.findSums(any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        assertThrows(EntityNotFoundException.class, () ->
+                service.getFilteredOrAggregatedReservations(assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), true, RollupResolution.INTERVAL));
+    }
+
+    @Test
+    void streamFilteredOrAggregatedReservations_shouldStreamProjectedRows() {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        when(repository.streamFilteredReservations(any(), any(), any(), any()))
+                .thenReturn(Stream.of(dto));
+
+        List<FlexibilityReservationDTO> result = new ArrayList<>();
+        service.streamFilteredOrAggregatedReservations(assetId, marketId, Timestamp.from(Instant.now()),
+                Timestamp.from(Instant.now().plusSeconds(3600)), false, RollupResolution.INTERVAL, iterator -> iterator.forEachRemaining(result::add));
+
+        assertThat(result).containsExactly(dto);
+    }
+
+    @Test
+    void streamFilteredOrAggregatedReservations_shouldReplayCachedResult() {
+        Timestamp from = Timestamp.from(Instant.parse("2022-10-10T00:00:00Z"));
+        Timestamp to = Timestamp.from(Instant.parse("2022-10-11T00:00:00Z"));
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        when(rollupSumRepository.streamSums(any(), any(), any(), any(), any())).thenAnswer(invocation -> Stream.of(dto));
+
+        List<FlexibilityReservationDTO> first = new ArrayList<>();
+        List<FlexibilityReservationDTO> second = new ArrayList<>();
+        service.streamFilteredOrAggregatedReservations(assetId, marketId, from, to, true, RollupResolution.INTERVAL,
+                iterator -> iterator.forEachRemaining(first::add));
+        service.streamFilteredOrAggregatedReservations(assetId, marketId, from, to, true, RollupResolution.INTERVAL,
+                iterator -> iterator.forEachRemaining(second::add));
+
+        assertThat(first).containsExactly(dto);
+        assertThat(second).containsExactly(dto);
+        verify(rollupSumRepository, times(1)).streamSums(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void streamFilteredOrAggregatedReservations_shouldThrowForEmptyResult() {
+        when(rollupSumRepository.streamSums(any(), any(), any(), any(), any())).thenReturn(Stream.empty());
 
         assertThrows(EntityNotFoundException.class, () ->
-                service.getFilteredOrAggregatedReservations(assetId, marketId, Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)), true));
+                service.streamFilteredOrAggregatedReservations(assetId, marketId, Timestamp.from(Instant.now()),
+                        Timestamp.from(Instant.now().plusSeconds(3600)), true, RollupResolution.INTERVAL, iterator -> { }));
+    }
+
+    @Test
+    void streamBatchReservations_shouldQueryAssetsInChunks() {
+        List<UUID> assetIds = new ArrayList<>();
+        for (int i = 0; i < FlexibilityReservationServiceImpl.BATCH_QUERY_CHUNK_SIZE + 1; i++) {
+            assetIds.add(UUID.randomUUID());
+        }
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(repository.streamFilteredReservationsOfAssets(any(), eq(List.of(marketId)), any(), any())).thenAnswer(invocation -> {
+            chunkSizes.add(invocation.<List<UUID>>getArgument(0).size());
+            return Stream.of(dto);
+        });
+
+        List<FlexibilityReservationDTO> result = new ArrayList<>();
+        service.streamBatchReservations(assetIds, List.of(marketId), Timestamp.from(Instant.now()),
+                Timestamp.from(Instant.now().plusSeconds(3600)), false, RollupResolution.INTERVAL, iterator -> iterator.forEachRemaining(result::add));
+
+        assertThat(result).containsExactly(dto, dto);
+        assertThat(chunkSizes).containsExactly(FlexibilityReservationServiceImpl.BATCH_QUERY_CHUNK_SIZE, 1);
+    }
+
+    @Test
+    void streamBatchReservations_shouldSumTotalsOfAllChunksPerMarket() {
+        List<UUID> assetIds = new ArrayList<>();
+        for (int i = 0; i < FlexibilityReservationServiceImpl.BATCH_QUERY_CHUNK_SIZE + 1; i++) {
+            assetIds.add(UUID.randomUUID());
+        }
+        Timestamp from = Timestamp.from(Instant.parse("2022-10-10T00:00:00Z"));
+        Timestamp later = Timestamp.from(Instant.parse("2022-10-10T00:15:00Z"));
+        Timestamp to = Timestamp.from(Instant.parse("2022-10-11T00:00:00Z"));
+        when(rollupSumRepository.streamPortfolioSums(any(), eq(marketId), eq(RollupResolution.INTERVAL), eq(from), eq(to)))
+                .thenAnswer(invocation -> Stream.of(
+                        new FlexibilityReservationDTO(marketId, from, new BigDecimal("1.000"), new BigDecimal("2.000")),
+                        new FlexibilityReservationDTO(marketId, later, new BigDecimal("3.000"), new BigDecimal("4.000"))))
+                .thenAnswer(invocation -> Stream.of(
+                        new FlexibilityReservationDTO(marketId, later, new BigDecimal("5.000"), new BigDecimal("6.000"))));
+
+        List<FlexibilityReservationDTO> result = new ArrayList<>();
+        service.streamBatchReservations(assetIds, List.of(marketId), from, to, true, RollupResolution.INTERVAL,
+                iterator -> iterator.forEachRemaining(result::add));
+
+        assertThat(result).containsExactly(
+                new FlexibilityReservationDTO(marketId, from, new BigDecimal("1.000"), new BigDecimal("2.000")),
+                new FlexibilityReservationDTO(marketId, later, new BigDecimal("8.000"), new BigDecimal("10.000")));
+    }
+
+    @Test
+    void streamBatchReservations_shouldThrowForInvalidIds() {
+        Timestamp from = Timestamp.from(Instant.now());
+        Timestamp to = Timestamp.from(Instant.now().plusSeconds(3600));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.streamBatchReservations(List.of(), List.of(marketId), from, to, false, RollupResolution.INTERVAL, iterator -> { }));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.streamBatchReservations(List.of(assetId), Arrays.asList(marketId, null), from, to, false, RollupResolution.INTERVAL, iterator -> { }));
+    }
+
+    @Test
+    void getReservationsPage_shouldReturnNextCursorWhenMoreRowsExist() {
+        Timestamp timestamp = Timestamp.from(Instant.parse("2022-10-10T14:15:22Z"));
+        FlexibilityReservationDTO dto = FlexibilityReservationDTO.builder().id(1024).timestamp(timestamp).build();
+        FlexibilityReservationDTO second = FlexibilityReservationDTO.builder().id(1025).timestamp(timestamp).build();
+        when(repository.findFirstPage(eq(assetId), eq(marketId), any())).thenReturn(List.of(dto, second));
+
+        FlexibilityReservationPageDTO page = service.getReservationsPage(assetId, marketId, null, 1);
+
+        assertThat(page.getItems()).containsExactly(dto);
+        assertThat(ReservationCursor.decode(page.getNext())).isEqualTo(new ReservationCursor(timestamp, 1024));
+    }
+
+    @Test
+    void getReservationsPage_shouldSeekAfterCursor() {
+        Timestamp timestamp = Timestamp.from(Instant.parse("2022-10-10T14:15:22Z"));
+        String cursor = new ReservationCursor(timestamp, 1024).encode();
+        when(repository.findPageAfter(eq(assetId), eq(marketId), eq(timestamp), eq(1024L), any())).thenReturn(List.of());
+
+        FlexibilityReservationPageDTO page = service.getReservationsPage(assetId, marketId, cursor, 10);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNext()).isNull();
+    }
+
+    @Test
+    void getChanges_shouldReturnWatermarkOfLastChangeAndSeekAfterIt() {
+        Timestamp changedAt = Timestamp.from(Instant.parse("2025-10-10T11:42:12Z"));
+        FlexibilityReservationDTO dto = FlexibilityReservationDTO.builder().id(1024).changedAt(changedAt).build();
+        FlexibilityReservationDTO second = FlexibilityReservationDTO.builder().id(1025).changedAt(changedAt).build();
+        when(repository.findChangesAfter(eq(assetId), eq(marketId), eq(Timestamp.from(Instant.EPOCH)), eq(0L), any(), any()))
+                .thenReturn(List.of(dto, second));
+
+        FlexibilityReservationChangesDTO changes = service.getChanges(assetId, marketId, null, 1);
+
+        assertThat(changes.getItems()).containsExactly(dto);
+        assertThat(changes.isHasMore()).isTrue();
+        assertThat(ReservationCursor.decode(changes.getWatermark())).isEqualTo(new ReservationCursor(changedAt, 1024));
+
+        when(repository.findChangesAfter(eq(assetId), eq(marketId), eq(changedAt), eq(1024L), any(), any())).thenReturn(List.of());
+
+        FlexibilityReservationChangesDTO none = service.getChanges(assetId, marketId, changes.getWatermark(), 1);
+
+        assertThat(none.getItems()).isEmpty();
+        assertThat(none.isHasMore()).isFalse();
+        assertThat(none.getWatermark()).isEqualTo(changes.getWatermark());
+    }
+
+    @Test
+    void getReservationsPage_shouldThrowForInvalidLimitOrCursor() {
+        assertThrows(IllegalArgumentException.class, () -> service.getReservationsPage(assetId, marketId, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getReservationsPage(assetId, marketId, "not-a-cursor", 10));
     }
 }
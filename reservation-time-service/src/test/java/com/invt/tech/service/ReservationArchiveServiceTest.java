@@ -0,0 +1,134 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.BulkIngestResultDTO;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.FlexibilityReservationRollupRepository;
+import com.invt.tech.repository.ReservationArchiveRepository;
+import com.invt.tech.util.ImportFormat;
+import com.invt.tech.util.ImportMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Own database and archive directory, as archiving deletes the seed data of the shared test context
+@SpringBootTest(properties = {"reservation.archive.enabled=true", "spring.datasource.url=jdbc:h2:mem:archivedb"})
+public class ReservationArchiveServiceTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2023-03-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2023-04-30T23:59:59Z"));
+    private static final Timestamp UNCACHED_TO = Timestamp.from(Instant.parse("2023-04-30T23:59:58Z"));
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("reservation.archive.directory", archiveDirectory::toString);
+    }
+
+    @Autowired
+    private ReservationArchiveService archiveService;
+
+    @Autowired
+    private ReservationArchiveRepository archiveRepository;
+
+    @Autowired
+    private FlexibilityReservationIngestService ingestService;
+
+    @Autowired
+    private FlexibilityReservationService reservationService;
+
+    @Autowired
+    private FlexibilityReservationRepository reservationRepository;
+
+    @Autowired
+    private FlexibilityReservationRollupRepository rollupRepository;
+
+    @Autowired
+    private ReservationRollupService rollupService;
+
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    // One test, as the archive horizon moves for the whole context; queries after archiving use a different
+    // interval than before, so they are not answered by the result cache
+    @Test
+    void archiveExpired_shouldMoveOldMonthsToTheArchiveWithoutChangingQueryResults() {
+        UUID assetId = UUID.randomUUID();
+        UUID otherAssetId = UUID.randomUUID();
+        Instant recent = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        ingestService.ingest(upload(reservation(assetId, "2023-03-31T23:45:00Z", 10)
+                + reservation(assetId, "2023-04-01T00:00:00Z", 20)
+                + reservation(otherAssetId, "2023-04-01T00:00:00Z", 40)
+                + reservation(assetId, recent.toString(), 30)), ImportFormat.JSON, ImportMode.INSERT);
+        List<FlexibilityReservationDTO> details = reservationService.getFilteredOrAggregatedReservations(
+                assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL);
+        List<FlexibilityReservationDTO> sums = reservationService.getFilteredOrAggregatedReservations(
+                assetId, marketId, FROM, TO, true, RollupResolution.DAY);
+
+        assertThat(archiveService.archiveExpired()).isGreaterThanOrEqualTo(3);
+
+        assertThat(archiveRepository.contains(YearMonth.of(2023, 3))).isTrue();
+        assertThat(reservationRepository.findReservations(assetId, marketId))
+                .extracting(r -> r.getTimestamp().toInstant())
+                .containsExactly(recent);
+        assertThat(reservationService.getFilteredOrAggregatedReservations(assetId, marketId, FROM, UNCACHED_TO, false, RollupResolution.INTERVAL))
+                .containsExactlyInAnyOrderElementsOf(details);
+        assertThat(reservationService.getFilteredOrAggregatedReservations(assetId, marketId, FROM, UNCACHED_TO, true, RollupResolution.DAY))
+                .isEqualTo(sums);
+        assertThat(streamed(assetId, FROM, Timestamp.from(recent)))
+                .extracting(r -> r.getPositiveValue().intValue())
+                .containsExactly(10, 20, 30);
+
+        // Rebuilding at startup keeps the rollups of archived days, whose reservations are gone
+        rollupService.rebuild();
+        assertThat(rollupRepository.findRollupSums(assetId, marketId, RollupResolution.DAY, FROM, TO))
+                .extracting(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue().intValue())
+                .containsExactly("2023-03-31T00:00:00Z 10", "2023-04-01T00:00:00Z 20");
+
+        List<FlexibilityReservationDTO> batch = new ArrayList<>();
+        reservationService.streamBatchReservations(List.of(assetId, otherAssetId), List.of(marketId), FROM, TO,
+                false, RollupResolution.INTERVAL, rows -> rows.forEachRemaining(batch::add));
+        assertThat(batch).extracting(r -> r.getPositiveValue().intValue()).containsExactlyInAnyOrder(10, 20, 40);
+
+        BulkIngestResultDTO result = ingestService.ingest(upload(reservation(assetId, "2023-04-10T10:15:00Z", 50)),
+                ImportFormat.JSON, ImportMode.INSERT);
+        assertThat(result.getAccepted()).isZero();
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().startsWith("Row 1: timestamp is before the archive horizon");
+    }
+
+    private List<FlexibilityReservationDTO> streamed(UUID assetId, Timestamp from, Timestamp to) {
+        List<FlexibilityReservationDTO> rows = new ArrayList<>();
+        reservationService.streamFilteredOrAggregatedReservations(assetId, marketId, from, to, false, RollupResolution.INTERVAL,
+                iterator -> iterator.forEachRemaining(rows::add));
+        return rows;
+    }
+
+    private String reservation(UUID assetId, String timestamp, int positiveValue) {
+        return "{\"assetId\":\"" + assetId + "\",\"marketId\":\"" + marketId + "\","
+                + "\"positiveValue\":" + positiveValue + ",\"negativeValue\":0,"
+                + "\"timestamp\":\"" + timestamp + "\"}\n";
+    }
+
+    private static ByteArrayInputStream upload(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.metrics.ExportMetrics;
+import com.invt.tech.util.ReservationHandoff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ReservationExportServiceTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2022-01-01T06:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2024-01-01T05:59:59Z"));
+
+    private final FlexibilityReservationService service = mock(FlexibilityReservationService.class);
+    private final UUID assetId = UUID.randomUUID();
+    private final UUID marketId = UUID.randomUUID();
+
+    @Test
+    void split_shouldCoverTheIntervalWithContiguousRangesStartingAtMidnight() {
+        List<ReservationExportServiceImpl.TimeRange> ranges = exportService(8, 4).split(FROM, TO);
+
+        assertThat(ranges).hasSize(8);
+        assertThat(ranges.get(0).from()).isEqualTo(FROM);
+        assertThat(ranges.get(7).to()).isEqualTo(TO);
+        for (int i = 1; i < ranges.size(); i++) {
+            Instant start = ranges.get(i).from().toInstant();
+            assertThat(start).isEqualTo(start.truncatedTo(ChronoUnit.DAYS));
+            assertThat(ranges.get(i - 1).to().toInstant()).isEqualTo(start.minus(1, ChronoUnit.MICROS));
+        }
+        assertThat(exportService(8, 4).split(FROM, Timestamp.from(FROM.toInstant().plus(Duration.ofDays(6))))).hasSize(1);
+        assertThat(exportService(1, 4).split(FROM, TO)).hasSize(1);
+    }
+
+    @Test
+    void startExport_shouldConcatenateTheRangesInOrderAndSkipEmptyOnes() {
+        // One reservation every 30 days, so some of the ranges have none
+        List<Instant> timestamps = new ArrayList<>();
+        for (Instant t = FROM.toInstant(); t.isBefore(TO.toInstant()); t = t.plus(30, ChronoUnit.DAYS)) {
+            timestamps.add(t);
+        }
+        stubReservations(timestamps);
+
+        List<Instant> exported = new ArrayList<>();
+        try (ReservationHandoff handoff = exportService(32, 4).startExport(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL)) {
+            handoff.forEachRemaining(r -> exported.add(r.getTimestamp().toInstant()));
+        }
+
+        assertThat(exported).containsExactlyElementsOf(timestamps);
+        verify(service, times(32)).streamFilteredOrAggregatedReservations(eq(assetId), eq(marketId), any(), any(),
+                anyBoolean(), any(), any());
+    }
+
+    @Test
+    void startExport_shouldThrowNotFoundIfNoRangeHasReservations() {
+        stubReservations(List.of());
+
+        assertThatThrownBy(() -> exportService(8, 4).startExport(assetId, marketId, FROM, TO, false, RollupResolution.INTERVAL))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessageContaining("AssetID: " + assetId);
+    }
+
+    @Test
+    void startExport_shouldRejectExportsBeyondTheFetchLimitButNotStreams() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(List.of(reservation(FROM.toInstant())).iterator());
+            // A slow download keeps its fetch thread
+            release.await();
+            return null;
+        }).when(service).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+        doAnswer(invocation -> {
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(2);
+            consumer.accept(List.of(reservation(FROM.toInstant())).iterator());
+            return null;
+        }).when(service).streamReservations(any(), any(), any());
+        ReservationExportServiceImpl exportService = exportService(1, 0);
+        Timestamp to = Timestamp.from(FROM.toInstant().plus(1, ChronoUnit.DAYS));
+
+        try (ReservationHandoff running = exportService.startExport(assetId, marketId, FROM, to, false, RollupResolution.INTERVAL)) {
+            assertThatThrownBy(() -> exportService.startExport(assetId, marketId, FROM, to, false, RollupResolution.INTERVAL))
+                    .isInstanceOf(TaskRejectedException.class);
+            try (ReservationHandoff stream = exportService.startStream(assetId, marketId)) {
+                assertThat(stream).toIterable().hasSize(1);
+            }
+            release.countDown();
+            assertThat(running).toIterable().hasSize(1);
+        }
+    }
+
+    private void stubReservations(List<Instant> timestamps) {
+        doAnswer(invocation -> {
+            Instant from = invocation.<Timestamp>getArgument(2).toInstant();
+            Instant to = invocation.<Timestamp>getArgument(3).toInstant();
+            List<FlexibilityReservationDTO> rows = timestamps.stream()
+                    .filter(t -> !t.isBefore(from) && !t.isAfter(to))
+                    .map(this::reservation)
+                    .toList();
+            if (rows.isEmpty()) {
+                throw new EntityNotFoundException("No reservations found");
+            }
+            Consumer<Iterator<FlexibilityReservationDTO>> consumer = invocation.getArgument(6);
+            consumer.accept(rows.iterator());
+            return null;
+        }).when(service).streamFilteredOrAggregatedReservations(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    private ReservationExportServiceImpl exportService(int splitRanges, int splitConcurrency) {
+        return new ReservationExportServiceImpl(service, new ExportMetrics(new SimpleMeterRegistry()), new MockEnvironment(),
+                1, 1, 2, 4, splitRanges, Duration.ofDays(7), splitConcurrency);
+    }
+
+    private FlexibilityReservationDTO reservation(Instant timestamp) {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+        dto.setAssetId(assetId);
+        dto.setMarketId(marketId);
+        dto.setTimestamp(Timestamp.from(timestamp));
+        return dto;
+    }
+}
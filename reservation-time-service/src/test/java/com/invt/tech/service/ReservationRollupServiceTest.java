@@ -0,0 +1,136 @@
+package com.invt.tech.service;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.entity.RollupResolution;
+import com.invt.tech.repository.FlexibilityReservationRepository;
+import com.invt.tech.repository.FlexibilityReservationRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class ReservationRollupServiceTest {
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2023-03-01T00:00:00Z"));
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2023-03-03T23:59:59Z"));
+
+    @Autowired
+    private ReservationRollupService rollupService;
+
+    @Autowired
+    private FlexibilityReservationRollupRepository rollupRepository;
+
+    @Autowired
+    private FlexibilityReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @Test
+    void rebuild_shouldCoverReservationsLoadedAtStartup() {
+        UUID seededAssetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+        Timestamp from = Timestamp.from(Instant.parse("2022-10-01T00:00:00Z"));
+        Timestamp to = Timestamp.from(Instant.parse("2022-12-31T23:59:59Z"));
+
+        assertThat(rollupRepository.findRollupSums(seededAssetId, marketId, RollupResolution.INTERVAL, from, to))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(reservationRepository.findFilteredReservations(seededAssetId, marketId, from, to).stream()
+                        // The seed data has one reservation per timestamp
+                        .map(r -> new FlexibilityReservationDTO(r.getAssetId(), r.getMarketId(), r.getTimestamp(),
+                                r.getPositiveValue(), r.getNegativeValue()))
+                        .sorted(Comparator.comparing(FlexibilityReservationDTO::getTimestamp)).toList());
+    }
+
+    @Test
+    void compact_shouldSumReservationsPerBucket() {
+        UUID assetId = UUID.randomUUID();
+        insert(assetId, "2023-03-01T10:00:00Z", "100.000", "10.000");
+        insert(assetId, "2023-03-01T10:00:00Z", "50.500", "5.000");
+        insert(assetId, "2023-03-01T10:15:00Z", "25.000", "2.500");
+        insert(assetId, "2023-03-02T23:45:00Z", "1.000", "0.000");
+        rollupService.markDirty(assetId, marketId, FROM, TO);
+
+        assertThat(rollupService.compact(assetId, marketId, FROM, TO)).isEqualTo(2);
+
+        assertThat(sums(assetId, RollupResolution.INTERVAL)).containsExactly(
+                "2023-03-01T10:00:00Z 150.500 15.000",
+                "2023-03-01T10:15:00Z 25.000 2.500",
+                "2023-03-02T23:45:00Z 1.000 0.000");
+        assertThat(sums(assetId, RollupResolution.HOUR)).containsExactly(
+                "2023-03-01T10:00:00Z 175.500 17.500",
+                "2023-03-02T23:00:00Z 1.000 0.000");
+        assertThat(sums(assetId, RollupResolution.DAY)).containsExactly(
+                "2023-03-01T00:00:00Z 175.500 17.500",
+                "2023-03-02T00:00:00Z 1.000 0.000");
+    }
+
+    @Test
+    void compact_shouldRecomputeOnlyChangedDays() {
+        UUID assetId = UUID.randomUUID();
+        insert(assetId, "2023-03-01T10:00:00Z", "100.000", "10.000");
+        insert(assetId, "2023-03-02T10:00:00Z", "200.000", "20.000");
+        rollupService.markDirty(assetId, marketId, FROM, TO);
+        rollupService.compactAll();
+
+        jdbcTemplate.update("DELETE FROM flexibility_reservations WHERE asset_id = ? AND timestamp < ?",
+                assetId, Timestamp.from(Instant.parse("2023-03-02T00:00:00Z")));
+        insert(assetId, "2023-03-02T11:00:00Z", "50.000", "5.000");
+        rollupService.markDirty(assetId, marketId, FROM, TO);
+
+        assertThat(rollupService.compact(assetId, marketId, FROM, TO)).isEqualTo(2);
+        assertThat(rollupService.compact(assetId, marketId, FROM, TO)).isZero();
+        assertThat(sums(assetId, RollupResolution.DAY)).containsExactly("2023-03-02T00:00:00Z 250.000 25.000");
+    }
+
+    @Test
+    void markDirty_shouldBumpTheVersionOfAQueuedDaySoAStaleCompactionLeavesItQueued() {
+        UUID assetId = UUID.randomUUID();
+        Timestamp day = Timestamp.from(Instant.parse("2023-03-01T00:00:00Z"));
+        insert(assetId, "2023-03-01T10:00:00Z", "100.000", "10.000");
+        rollupService.markDirty(assetId, marketId, FROM, TO);
+        Long version = rollupRepository.findDirtyDayVersion(assetId, marketId, day);
+
+        // A writer queues the day again after a compaction has read it
+        insert(assetId, "2023-03-01T11:00:00Z", "50.000", "5.000");
+        rollupService.markDirty(assetId, marketId, FROM, TO);
+
+        assertThat(rollupRepository.findDirtyDayVersion(assetId, marketId, day)).isEqualTo(version + 1);
+        Integer dequeued = new TransactionTemplate(transactionManager).execute(status ->
+                rollupRepository.deleteDirtyDay(assetId, marketId, day, version));
+        assertThat(dequeued).isZero();
+        assertThat(rollupService.compact(assetId, marketId, FROM, TO)).isEqualTo(1);
+        assertThat(sums(assetId, RollupResolution.DAY)).containsExactly("2023-03-01T00:00:00Z 150.000 15.000");
+        assertThat(rollupRepository.findDirtyDayVersion(assetId, marketId, day)).isNull();
+    }
+
+    // Each reservation has a bid of its own, so several of them can share a timestamp
+    private void insert(UUID assetId, String timestamp, String positiveValue, String negativeValue) {
+        jdbcTemplate.update("INSERT INTO flexibility_reservations " +
+                        "(asset_id, market_id, positive_bid_id, positive_value, negative_value, timestamp) VALUES (?, ?, ?, ?, ?, ?)",
+                assetId, marketId, UUID.randomUUID(), new BigDecimal(positiveValue), new BigDecimal(negativeValue),
+                Timestamp.from(Instant.parse(timestamp)));
+    }
+
+    private List<String> sums(UUID assetId, RollupResolution resolution) {
+        return rollupRepository.findRollupSums(assetId, marketId, resolution, FROM, TO).stream()
+                .map(r -> r.getTimestamp().toInstant() + " " + r.getPositiveValue() + " " + r.getNegativeValue())
+                .toList();
+    }
+}
@@ -0,0 +1,30 @@
+package com.invt.tech.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentEncodingTest {
+
+    @Test
+    void negotiate_shouldReturnIdentityWithoutHeader() {
+        assertThat(ContentEncoding.negotiate(null)).isEqualTo(ContentEncoding.IDENTITY);
+        assertThat(ContentEncoding.negotiate("identity")).isEqualTo(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    void negotiate_shouldPreferZstdOverGzipOnEqualQuality() {
+        assertThat(ContentEncoding.negotiate("gzip, deflate, br, zstd")).isEqualTo(ContentEncoding.ZSTD);
+    }
+
+    @Test
+    void negotiate_shouldRespectQualityValues() {
+        assertThat(ContentEncoding.negotiate("zstd;q=0.5, gzip;q=0.8")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("gzip;q=0")).isEqualTo(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    void negotiate_shouldApplyWildcardToUnlistedCodings() {
+        assertThat(ContentEncoding.negotiate("zstd;q=0, *")).isEqualTo(ContentEncoding.GZIP);
+    }
+}
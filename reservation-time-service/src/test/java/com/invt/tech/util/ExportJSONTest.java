@@ -0,0 +1,80 @@
+package com.invt.tech.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExportJSONTest {
+
+    // Configured like the application's mapper, which writes dates as ISO strings
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @Test
+    void write_shouldMatchDataBindingWithoutNullFields() throws IOException {
+        List<FlexibilityReservationDTO> reservations = randomReservations(500);
+
+        assertThat(write(reservations, false)).isEqualTo(objectMapper.writeValueAsString(reservations));
+    }
+
+    @Test
+    void write_shouldWriteOneObjectPerLineForNdjson() throws IOException {
+        List<FlexibilityReservationDTO> reservations = randomReservations(3);
+
+        StringBuilder expected = new StringBuilder();
+        for (FlexibilityReservationDTO reservation : reservations) {
+            expected.append(objectMapper.writeValueAsString(reservation)).append('\n');
+        }
+        assertThat(write(reservations, true)).isEqualTo(expected.toString());
+        assertThat(write(List.of(), true)).isEmpty();
+        assertThat(write(List.of(), false)).isEqualTo("[]");
+    }
+
+    private static String write(List<FlexibilityReservationDTO> reservations, boolean ndjson) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            ExportJSON.write(reservations.iterator(), ndjson, generator);
+        }
+        return out.toString();
+    }
+
+    private static List<FlexibilityReservationDTO> randomReservations(int count) {
+        Random random = new Random(42);
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+            dto.setId(i);
+            dto.setAssetId(UUID.randomUUID());
+            dto.setMarketId(UUID.randomUUID());
+            dto.setPositiveBidId(random.nextBoolean() ? UUID.randomUUID() : null);
+            dto.setNegativeBidId(random.nextBoolean() ? UUID.randomUUID() : null);
+            dto.setPositiveValue(BigDecimal.valueOf(random.nextInt(1_000_000), 3));
+            dto.setPositiveCapacityPrice(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(100_000_000), 6) : null);
+            dto.setPositiveEnergyPrice(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(100_000_000), 6) : null);
+            dto.setNegativeValue(BigDecimal.valueOf(-random.nextInt(1_000_000), 3));
+            dto.setNegativeCapacityPrice(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(100_000_000), 6) : null);
+            dto.setNegativeEnergyPrice(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(100_000_000), 6) : null);
+            dto.setTimestamp(Timestamp.from(Instant.ofEpochSecond(1_700_000_000L + 900L * i, random.nextInt(1000) * 1_000_000)));
+            dto.setUpdatedAt(random.nextBoolean() ? Timestamp.from(Instant.ofEpochMilli(1_700_000_000_000L + random.nextInt())) : null);
+            reservations.add(dto);
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,82 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReservationBlockTest {
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+    private final UUID bidId = UUID.fromString("8a5075bf-2552-4119-b135-61ddcfd37ba2");
+
+    @Test
+    void of_shouldRoundTripAllFieldsIncludingNulls() {
+        FlexibilityReservationDTO full = new FlexibilityReservationDTO(2048, assetId, marketId, bidId, bidId,
+                new BigDecimal("200.000"), new BigDecimal("1.500000"), new BigDecimal("1.500000"),
+                new BigDecimal("-250.125"), new BigDecimal("2.000000"), new BigDecimal("2.000000"),
+                micros("2022-10-10T14:15:22.123456Z"), micros("1969-12-31T23:59:59.999999Z"));
+        FlexibilityReservationDTO sparse = new FlexibilityReservationDTO(marketId, micros("2022-10-10T14:30:00Z"),
+                new BigDecimal("1.000"), new BigDecimal("0.000"));
+
+        ReservationBlock block = ReservationBlock.of(List.of(full, sparse));
+
+        assertThat(block).containsExactly(full, sparse);
+        assertThat(block.get(0)).isNotSameAs(block.get(0));
+        assertThat(block.assetId(1)).isNull();
+        assertThat(block.timestampMicros(0)).isEqualTo(1665411322123456L);
+        assertThat(block.negativeValueUnscaled(0)).isEqualTo(-250125L);
+        assertThat(block.get(1).getUpdatedAt()).isNull();
+    }
+
+    @Test
+    void of_shouldReturnValuesAtTheColumnScale() {
+        FlexibilityReservationDTO reservation = new FlexibilityReservationDTO(assetId, marketId,
+                micros("2022-10-10T14:15:22Z"), new BigDecimal("1.5"), BigDecimal.TEN);
+
+        FlexibilityReservationDTO copy = ReservationBlock.of(List.of(reservation)).get(0);
+
+        assertThat(copy.getPositiveValue()).isEqualTo(new BigDecimal("1.500"));
+        assertThat(copy.getNegativeValue()).isEqualTo(new BigDecimal("10.000"));
+    }
+
+    @Test
+    void builder_shouldRejectRowsItCannotHoldExactly() {
+        ReservationBlock.Builder builder = ReservationBlock.builder(1);
+        Timestamp nanos = micros("2022-10-10T14:15:22Z");
+        nanos.setNanos(1);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(new FlexibilityReservationDTO(assetId, marketId,
+                micros("2022-10-10T14:15:22Z"), new BigDecimal("1.0005"), BigDecimal.ONE)));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(new FlexibilityReservationDTO(assetId, marketId,
+                nanos, BigDecimal.ONE, BigDecimal.ONE)));
+        assertThat(builder.size()).isZero();
+    }
+
+    @Test
+    void builder_shouldGrowBeyondTheExpectedSize() {
+        ReservationBlock.Builder builder = ReservationBlock.builder(1);
+        List<FlexibilityReservationDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            FlexibilityReservationDTO row = new FlexibilityReservationDTO(i % 2 == 0 ? assetId : UUID.randomUUID(), marketId,
+                    micros("2022-10-10T00:00:00Z"), BigDecimal.valueOf(i, 3), BigDecimal.ZERO.setScale(3));
+            rows.add(row);
+            builder.add(row);
+        }
+
+        assertThat(builder.build()).containsExactlyElementsOf(rows);
+    }
+
+    private static Timestamp micros(String instant) {
+        return Timestamp.from(Instant.parse(instant));
+    }
+}
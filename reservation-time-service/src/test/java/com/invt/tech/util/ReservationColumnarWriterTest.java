@@ -0,0 +1,200 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FixedSizeBinaryVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationColumnarWriterTest {
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+    private final UUID bidId = UUID.fromString("1f0c4a52-7e55-4b77-9d2a-6f5e3f1d2c10");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void arrow_shouldRoundTripDetailLayoutAcrossBatches() throws IOException {
+        List<FlexibilityReservationDTO> reservations = reservations(ReservationArrowWriter.BATCH_SIZE + 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReservationWriter writer = new ReservationArrowWriter(out, false)) {
+            for (FlexibilityReservationDTO reservation : reservations) {
+                writer.write(reservation);
+            }
+        }
+
+        List<FlexibilityReservationDTO> read = new ArrayList<>();
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields()).extracting("name").containsExactly(
+                    "assetId", "marketId", "positiveBidId", "negativeBidId",
+                    "positiveValue", "positiveCapacityPrice", "positiveEnergyPrice",
+                    "negativeValue", "negativeCapacityPrice", "negativeEnergyPrice",
+                    "timestamp", "updatedAt");
+            while (reader.loadNextBatch()) {
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    FixedSizeBinaryVector negativeBidIds = (FixedSizeBinaryVector) root.getVector("negativeBidId");
+                    read.add(FlexibilityReservationDTO.builder()
+                            .assetId(uuid(((FixedSizeBinaryVector) root.getVector("assetId")).get(row)))
+                            .positiveBidId(uuid(((FixedSizeBinaryVector) root.getVector("positiveBidId")).get(row)))
+                            .negativeBidId(negativeBidIds.isNull(row) ? null : uuid(negativeBidIds.get(row)))
+                            .positiveValue(((DecimalVector) root.getVector("positiveValue")).getObject(row))
+                            .positiveCapacityPrice(((DecimalVector) root.getVector("positiveCapacityPrice")).getObject(row))
+                            .timestamp(timestamp(((TimeStampMicroTZVector) root.getVector("timestamp")).get(row)))
+                            .build());
+                }
+            }
+        }
+
+        assertThat(read).hasSize(reservations.size());
+        for (int i = 0; i < reservations.size(); i++) {
+            FlexibilityReservationDTO expected = reservations.get(i);
+            FlexibilityReservationDTO actual = read.get(i);
+            assertThat(actual.getAssetId()).isEqualTo(expected.getAssetId());
+            assertThat(actual.getPositiveBidId()).isEqualTo(expected.getPositiveBidId());
+            assertThat(actual.getNegativeBidId()).isNull();
+            assertThat(actual.getPositiveValue()).isEqualByComparingTo(megawatts(expected.getPositiveValue()));
+            assertThat(actual.getPositiveCapacityPrice()).isEqualByComparingTo(expected.getPositiveCapacityPrice());
+            assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+        }
+    }
+
+    @Test
+    void parquet_shouldRoundTripTotalLayout() throws IOException {
+        List<FlexibilityReservationDTO> reservations = reservations(1000).stream()
+                .map(r -> new FlexibilityReservationDTO(r.getAssetId(), r.getMarketId(), r.getTimestamp(),
+                        r.getPositiveValue(), r.getNegativeValue()))
+                .toList();
+        Path file = tempDir.resolve("reservations.parquet");
+        try (ReservationWriter writer = new ReservationParquetWriter(Files.newOutputStream(file), true)) {
+            for (FlexibilityReservationDTO reservation : reservations) {
+                writer.write(reservation);
+            }
+        }
+
+        List<Group> groups = new ArrayList<>();
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+            assertThat(schema.getFields()).extracting("name")
+                    .containsExactly("timestamp", "assetId", "marketId", "positiveValue", "negativeValue");
+            PageReadStore rowGroup;
+            while ((rowGroup = reader.readNextRowGroup()) != null) {
+                RecordReader<Group> records = new ColumnIOFactory().getColumnIO(schema)
+                        .getRecordReader(rowGroup, new GroupRecordConverter(schema));
+                for (long i = 0; i < rowGroup.getRowCount(); i++) {
+                    groups.add(records.read());
+                }
+            }
+        }
+
+        assertThat(groups).hasSize(reservations.size());
+        for (int i = 0; i < reservations.size(); i++) {
+            FlexibilityReservationDTO expected = reservations.get(i);
+            Group group = groups.get(i);
+            assertThat(timestamp(group.getLong("timestamp", 0))).isEqualTo(expected.getTimestamp());
+            assertThat(uuid(group.getBinary("marketId", 0).getBytes())).isEqualTo(expected.getMarketId());
+            assertThat(BigDecimal.valueOf(group.getLong("positiveValue", 0), ReservationColumn.DECIMAL_SCALE))
+                    .isEqualByComparingTo(megawatts(expected.getPositiveValue()));
+            assertThat(BigDecimal.valueOf(group.getLong("negativeValue", 0), ReservationColumn.DECIMAL_SCALE))
+                    .isEqualByComparingTo(megawatts(expected.getNegativeValue()));
+        }
+    }
+
+    @Test
+    void parquetArchive_shouldReadBackReservationsMatchingTheFilter() throws IOException {
+        UUID otherAssetId = UUID.fromString("0e7d6a8b-3c1f-4a92-8b5e-7f3a2d1c9e40");
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>();
+        long id = 1;
+        for (UUID asset : List.of(otherAssetId, assetId)) {
+            for (FlexibilityReservationDTO reservation : reservations(100)) {
+                reservation.setId(id++);
+                reservation.setAssetId(asset);
+                reservation.setNegativeValue(reservation.getNegativeValue().setScale(3));
+                reservations.add(reservation);
+            }
+        }
+        Path file = tempDir.resolve("reservations-2022-10.parquet");
+        try (ReservationWriter writer = ReservationParquetWriter.archive(Files.newOutputStream(file))) {
+            for (FlexibilityReservationDTO reservation : reservations) {
+                writer.write(reservation);
+            }
+        }
+
+        try (Stream<FlexibilityReservationDTO> all = ReservationParquetReader.read(file)) {
+            assertThat(all.toList()).isEqualTo(reservations);
+        }
+        Timestamp from = reservations.get(110).getTimestamp();
+        Timestamp to = reservations.get(119).getTimestamp();
+        try (Stream<FlexibilityReservationDTO> filtered = ReservationParquetReader.read(file, List.of(assetId), List.of(marketId), from, to)) {
+            assertThat(filtered.toList()).isEqualTo(reservations.subList(110, 120));
+        }
+        try (Stream<FlexibilityReservationDTO> otherMarket = ReservationParquetReader.read(file, List.of(assetId), List.of(bidId), from, to)) {
+            assertThat(otherMarket).isEmpty();
+        }
+    }
+
+    private List<FlexibilityReservationDTO> reservations(int count) {
+        Instant start = Instant.parse("2022-10-10T00:00:00Z");
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Timestamp timestamp = Timestamp.from(start.plusSeconds(900L * i));
+            timestamp.setNanos(i * 1000);
+            reservations.add(FlexibilityReservationDTO.builder()
+                    .assetId(assetId)
+                    .marketId(marketId)
+                    .positiveBidId(bidId)
+                    .positiveValue(BigDecimal.valueOf(i * 1250L, 3))
+                    .positiveCapacityPrice(BigDecimal.valueOf(i * 7L + 1, 6))
+                    .negativeValue(BigDecimal.valueOf(-i, 1))
+                    .timestamp(timestamp)
+                    .build());
+        }
+        return reservations;
+    }
+
+    private static BigDecimal megawatts(BigDecimal kilowatts) {
+        return kilowatts.movePointLeft(3);
+    }
+
+    private static UUID uuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static Timestamp timestamp(long epochMicros) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(epochMicros, 1_000_000L) * 1000);
+        timestamp.setNanos((int) Math.floorMod(epochMicros, 1_000_000L) * 1000);
+        return timestamp;
+    }
+}
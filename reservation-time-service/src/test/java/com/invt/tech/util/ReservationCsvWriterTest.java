@@ -0,0 +1,194 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import com.invt.tech.dto.ReservationBucketDTO;
+import com.opencsv.CSVWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationCsvWriterTest {
+
+    private final UUID assetId = UUID.fromString("9179b887-04ef-4ce5-ab3a-b5bbd39eb4d6");
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @Test
+    void write_shouldMatchOpenCsvOutputForDetailLayout() throws IOException {
+        List<FlexibilityReservationDTO> reservations = randomReservations(2000);
+
+        assertThat(write(reservations, false)).isEqualTo(writeWithOpenCsv(reservations, false));
+    }
+
+    @Test
+    void write_shouldMatchOpenCsvOutputForTotalLayout() throws IOException {
+        List<FlexibilityReservationDTO> reservations = randomReservations(2000);
+
+        assertThat(write(reservations, true)).isEqualTo(writeWithOpenCsv(reservations, true));
+    }
+
+    @Test
+    void write_shouldConvertKilowattsToMegawattsLikeDivide() throws IOException {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO(assetId, marketId,
+                Timestamp.from(Instant.parse("2022-10-10T14:15:22Z")), new BigDecimal("200.000"), new BigDecimal("250"));
+
+        assertThat(write(List.of(dto), true)).endsWith("\"0.200\",\"0.25\"\n");
+    }
+
+    @Test
+    void write_shouldWriteEmptyQuotedValuesForNullFields() throws IOException {
+        FlexibilityReservationDTO dto = new FlexibilityReservationDTO();
+
+        assertThat(write(List.of(dto), false)).endsWith("\"\",\"\",\"\",\"\",\"\",\"\",\"\",\"\",\"\",\"\",\"\",\"\"\n");
+    }
+
+    @Test
+    void write_shouldMatchOpenCsvOutputForBucketLayout() throws IOException {
+        Random random = new Random(42);
+        List<ReservationBucketDTO> buckets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            buckets.add(ReservationBucketDTO.builder()
+                    .bucketStart(OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(random.nextInt(3))).plusHours(i))
+                    .assetId(assetId)
+                    .marketId(marketId)
+                    .intervals(random.nextInt(100) + 1)
+                    .reservations(random.nextInt(1000) + 1)
+                    .positiveSum(BigDecimal.valueOf(random.nextInt(1_000_000_000), 3))
+                    .positiveAvg(BigDecimal.valueOf(random.nextInt(10_000_000), 3))
+                    .positiveMin(BigDecimal.valueOf(random.nextInt(10_000), 3))
+                    .positiveMax(BigDecimal.valueOf(random.nextInt(10_000_000), 3))
+                    .negativeSum(BigDecimal.valueOf(random.nextInt(20_000_000) - 10_000_000, 3))
+                    .negativeAvg(BigDecimal.valueOf(random.nextInt(20_000) - 10_000, 3))
+                    .negativeMin(BigDecimal.ZERO.setScale(3))
+                    .negativeMax(BigDecimal.valueOf(random.nextInt(10_000), 3))
+                    .positiveCapacityPrice(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(10_000_000), 6) : null)
+                    .positiveEnergyPrice(BigDecimal.valueOf(random.nextInt(10_000_000), 6))
+                    .negativeCapacityPrice(null)
+                    .negativeEnergyPrice(BigDecimal.valueOf(random.nextInt(1000), 6))
+                    .build());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReservationCsvWriter writer = ReservationCsvWriter.forBuckets(out)) {
+            writer.writeHeader();
+            for (ReservationBucketDTO bucket : buckets) {
+                writer.write(bucket);
+            }
+        }
+
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo(writeBucketsWithOpenCsv(buckets));
+    }
+
+    private String write(List<FlexibilityReservationDTO> reservations, boolean total) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReservationCsvWriter writer = new ReservationCsvWriter(out, total)) {
+            writer.writeHeader();
+            for (FlexibilityReservationDTO reservation : reservations) {
+                writer.write(reservation);
+            }
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    // Reference output of the previous opencsv based implementation
+    private String writeWithOpenCsv(List<FlexibilityReservationDTO> reservations, boolean total) throws IOException {
+        StringWriter out = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(out)) {
+            if (total) {
+                writer.writeNext(new String[]{"timestamp", "assetId", "marketId", "positiveValue", "negativeValue"});
+                for (var r : reservations) {
+                    writer.writeNext(new String[]{
+                            r.getTimestamp().toString(), r.getAssetId().toString(), r.getMarketId().toString(),
+                            megawatts(r.getPositiveValue()), megawatts(r.getNegativeValue())});
+                }
+            } else {
+                writer.writeNext(new String[]{
+                        "assetId", "marketId", "positiveBidId", "negativeBidId",
+                        "positiveValue", "positiveCapacityPrice", "positiveEnergyPrice",
+                        "negativeValue", "negativeCapacityPrice", "negativeEnergyPrice", "timestamp", "updatedAt"});
+                for (var r : reservations) {
+                    writer.writeNext(new String[]{
+                            r.getAssetId().toString(), r.getMarketId().toString(),
+                            r.getPositiveBidId() != null ? r.getPositiveBidId().toString() : "",
+                            r.getNegativeBidId() != null ? r.getNegativeBidId().toString() : "",
+                            megawatts(r.getPositiveValue()),
+                            r.getPositiveCapacityPrice().toPlainString(), r.getPositiveEnergyPrice().toPlainString(),
+                            megawatts(r.getNegativeValue()),
+                            r.getNegativeCapacityPrice().toPlainString(), r.getNegativeEnergyPrice().toPlainString(),
+                            r.getTimestamp().toString(),
+                            r.getUpdatedAt() != null ? r.getUpdatedAt().toString() : ""});
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    // Reference output of the previous opencsv based bucket export
+    private String writeBucketsWithOpenCsv(List<ReservationBucketDTO> buckets) throws IOException {
+        StringWriter out = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(out)) {
+            writer.writeNext(new String[]{
+                    "bucketStart", "assetId", "marketId", "intervals", "reservations",
+                    "positiveSum", "positiveAvg", "positiveMin", "positiveMax",
+                    "negativeSum", "negativeAvg", "negativeMin", "negativeMax",
+                    "positiveCapacityPrice", "positiveEnergyPrice", "negativeCapacityPrice", "negativeEnergyPrice"});
+            for (var b : buckets) {
+                writer.writeNext(new String[]{
+                        b.getBucketStart().toString(), b.getAssetId().toString(), b.getMarketId().toString(),
+                        Long.toString(b.getIntervals()), Long.toString(b.getReservations()),
+                        megawatts(b.getPositiveSum()), megawatts(b.getPositiveAvg()),
+                        megawatts(b.getPositiveMin()), megawatts(b.getPositiveMax()),
+                        megawatts(b.getNegativeSum()), megawatts(b.getNegativeAvg()),
+                        megawatts(b.getNegativeMin()), megawatts(b.getNegativeMax()),
+                        plain(b.getPositiveCapacityPrice()), plain(b.getPositiveEnergyPrice()),
+                        plain(b.getNegativeCapacityPrice()), plain(b.getNegativeEnergyPrice())});
+            }
+        }
+        return out.toString();
+    }
+
+    private static String megawatts(BigDecimal kilowatts) {
+        return kilowatts.divide(BigDecimal.valueOf(1000)).toPlainString();
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+
+    private List<FlexibilityReservationDTO> randomReservations(int count) {
+        Random random = new Random(42);
+        List<FlexibilityReservationDTO> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Timestamp timestamp = Timestamp.from(Instant.ofEpochSecond(
+                    946_684_800L + random.nextInt(1_000_000_000), random.nextBoolean() ? 0 : random.nextInt(1_000_000) * 1000));
+            reservations.add(FlexibilityReservationDTO.builder()
+                    .assetId(i % 100 == 0 ? UUID.randomUUID() : assetId)
+                    .marketId(marketId)
+                    .positiveBidId(random.nextBoolean() ? new UUID(random.nextLong(), random.nextLong()) : null)
+                    .negativeBidId(random.nextBoolean() ? new UUID(random.nextLong(), random.nextLong()) : null)
+                    .positiveValue(BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(4)))
+                    .positiveCapacityPrice(BigDecimal.valueOf(random.nextInt(10_000_000), 6))
+                    .positiveEnergyPrice(BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(7)))
+                    .negativeValue(BigDecimal.valueOf(random.nextInt(20_000_000) - 10_000_000, 3))
+                    .negativeCapacityPrice(BigDecimal.valueOf(random.nextInt(1000), 6))
+                    .negativeEnergyPrice(BigDecimal.ZERO.setScale(random.nextInt(7)))
+                    .timestamp(timestamp)
+                    .updatedAt(random.nextBoolean() ? Timestamp.from(timestamp.toInstant().minusSeconds(random.nextInt(86_400))) : null)
+                    .build());
+        }
+        return reservations;
+    }
+}
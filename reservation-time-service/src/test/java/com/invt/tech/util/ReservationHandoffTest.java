@@ -0,0 +1,86 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReservationHandoffTest {
+
+    @Test
+    void shouldHandOverAllRowsInOrderWhileBoundingTheBuffer() throws Exception {
+        ReservationHandoff handoff = new ReservationHandoff(2, 10);
+        AtomicInteger read = new AtomicInteger();
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            handoff.publish(counting(rows(1000), read));
+            handoff.complete();
+        });
+
+        // Producer stops after filling the queue and the chunk it is building
+        Thread.sleep(200);
+        assertThat(read.get()).isLessThanOrEqualTo(2 * 10 + 10);
+
+        List<Long> ids = new ArrayList<>();
+        handoff.forEachRemaining(r -> ids.add(r.getId()));
+        producer.get(5, TimeUnit.SECONDS);
+        assertThat(ids).containsExactlyElementsOf(IntStream.range(0, 1000).mapToObj(Long::valueOf).toList());
+    }
+
+    @Test
+    void shouldRethrowProducerFailureAfterPublishedRows() {
+        ReservationHandoff handoff = new ReservationHandoff(4, 10);
+        handoff.publish(rows(15).iterator());
+        handoff.fail(new EntityNotFoundException("gone"));
+
+        for (int i = 0; i < 15; i++) {
+            handoff.next();
+        }
+        assertThatThrownBy(handoff::hasNext).isInstanceOf(EntityNotFoundException.class).hasMessage("gone");
+    }
+
+    @Test
+    void closeShouldReleaseBlockedProducer() {
+        ReservationHandoff handoff = new ReservationHandoff(1, 10);
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> handoff.publish(rows(1000).iterator()));
+
+        assertThat(handoff.hasNext()).isTrue();
+        handoff.close();
+
+        assertThatThrownBy(() -> producer.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+    }
+
+    private static List<FlexibilityReservationDTO> rows(int count) {
+        UUID assetId = UUID.randomUUID();
+        return IntStream.range(0, count)
+                .mapToObj(i -> FlexibilityReservationDTO.builder().id(i).assetId(assetId).build())
+                .toList();
+    }
+
+    private static Iterator<FlexibilityReservationDTO> counting(List<FlexibilityReservationDTO> rows, AtomicInteger read) {
+        Iterator<FlexibilityReservationDTO> source = rows.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public FlexibilityReservationDTO next() {
+                read.incrementAndGet();
+                return source.next();
+            }
+        };
+    }
+}
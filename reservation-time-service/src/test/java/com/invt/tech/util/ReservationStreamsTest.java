@@ -0,0 +1,107 @@
+package com.invt.tech.util;
+
+import com.invt.tech.dto.FlexibilityReservationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationStreamsTest {
+
+    private final UUID marketId = UUID.fromString("8a5075bf-2552-4119-c292-61ddcfd37ba2");
+
+    @Test
+    void concat_shouldOpenEachPartAfterThePreviousOneIsClosed() {
+        List<String> events = new ArrayList<>();
+        List<Supplier<Stream<Integer>>> parts = List.of(
+                () -> part(events, "first", 1, 2),
+                () -> part(events, "second"),
+                () -> part(events, "third", 3));
+
+        List<Integer> rows = new ArrayList<>();
+        try (Stream<Integer> stream = ReservationStreams.concat(parts)) {
+            Iterator<Integer> iterator = stream.iterator();
+            rows.add(iterator.next());
+            assertThat(events).containsExactly("open first");
+            iterator.forEachRemaining(rows::add);
+        }
+
+        assertThat(rows).containsExactly(1, 2, 3);
+        assertThat(events).containsExactly("open first", "close first", "open second", "close second", "open third", "close third");
+    }
+
+    @Test
+    void concat_shouldCloseOpenPartWhenClosedEarly() {
+        List<String> events = new ArrayList<>();
+        try (Stream<Integer> stream = ReservationStreams.concat(List.of(() -> part(events, "first", 1, 2)))) {
+            stream.iterator().next();
+        }
+
+        assertThat(events).containsExactly("open first", "close first");
+    }
+
+    @Test
+    void sumByTimestamp_shouldMergePartsAndSumEqualTimestamps() {
+        List<String> events = new ArrayList<>();
+        Stream<FlexibilityReservationDTO> first = Stream.of(row("00:00", "1"), row("00:30", "2"))
+                .onClose(() -> events.add("close first"));
+        Stream<FlexibilityReservationDTO> second = Stream.of(row("00:15", "4"), row("00:30", "8"))
+                .onClose(() -> events.add("close second"));
+
+        List<FlexibilityReservationDTO> rows;
+        try (Stream<FlexibilityReservationDTO> stream = ReservationStreams.sumByTimestamp(List.of(first, second))) {
+            rows = stream.toList();
+        }
+
+        assertThat(rows).containsExactly(row("00:00", "1"), row("00:15", "4"), row("00:30", "10"));
+        assertThat(rows).allSatisfy(row -> assertThat(row.getAssetId()).isNull());
+        assertThat(events).containsExactly("close first", "close second");
+    }
+
+    @Test
+    void merge_shouldOrderRowsOfAllPartsAndTakeDuplicatesFromTheFirstPart() {
+        UUID low = UUID.fromString("7fffffff-0000-0000-0000-000000000000");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        List<String> events = new ArrayList<>();
+        FlexibilityReservationDTO duplicate = detail(2, high, "00:15", "1");
+        Stream<FlexibilityReservationDTO> database = Stream.of(detail(1, low, "00:30", "1"), duplicate)
+                .onClose(() -> events.add("close database"));
+        Stream<FlexibilityReservationDTO> archive = Stream.of(detail(3, low, "00:00", "1"), detail(2, high, "00:15", "9"), detail(4, high, "00:45", "1"))
+                .onClose(() -> events.add("close archive"));
+
+        List<FlexibilityReservationDTO> rows;
+        try (Stream<FlexibilityReservationDTO> stream = ReservationStreams.merge(List.of(database, archive), ReservationStreams.DETAIL_ORDER)) {
+            rows = stream.toList();
+        }
+
+        assertThat(rows).extracting(FlexibilityReservationDTO::getId).containsExactly(3L, 1L, 2L, 4L);
+        assertThat(rows.get(2)).isSameAs(duplicate);
+        assertThat(events).containsExactly("close database", "close archive");
+    }
+
+    private static Stream<Integer> part(List<String> events, String name, Integer... rows) {
+        events.add("open " + name);
+        return Stream.of(rows).onClose(() -> events.add("close " + name));
+    }
+
+    private FlexibilityReservationDTO detail(long id, UUID assetId, String time, String value) {
+        FlexibilityReservationDTO row = new FlexibilityReservationDTO(assetId, marketId, Timestamp.from(Instant.parse("2022-10-10T" + time + ":00Z")),
+                new BigDecimal(value), BigDecimal.ZERO);
+        row.setId(id);
+        return row;
+    }
+
+    private FlexibilityReservationDTO row(String time, String value) {
+        return new FlexibilityReservationDTO(marketId, Timestamp.from(Instant.parse("2022-10-10T" + time + ":00Z")),
+                new BigDecimal(value), new BigDecimal(value).negate());
+    }
+}